@@ -0,0 +1,133 @@
+package benchmarks;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import models.AppointmentRequest;
+import models.Doctor;
+import models.DoctorCalendar;
+import repositories.AutoScheduler;
+
+/**
+ * Benchmark for {@link AutoScheduler}.
+ * A day's intake of appointment requests is assigned across the calendars of
+ * doctors in several departments. Most requests ask for a specialty, some for
+ * a particular doctor and some for any doctor, each with a window of one to
+ * seven days. Every run starts from empty calendars held in memory, so nothing
+ * is read or written. The best time, the share of requests assigned and the
+ * share of all slots filled are reported, and every assignment is checked
+ * against its request's window and doctor and against double bookings.
+ *
+ * <p>Run with {@code java -cp bin benchmarks.AutoSchedulerBenchmark [requests] [doctors] [departments] [days] [runs]}.</p>
+ */
+public class AutoSchedulerBenchmark {
+    private static final int PATIENTS = 20_000;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional number of requests (default 5000), doctors (default 200),
+     *             departments (default 10), calendar horizon in days (default 28) and timed runs (default 10).
+     */
+    public static void main(String[] args) {
+        int requestCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int doctorCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int departmentCount = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int days = args.length > 3 ? Integer.parseInt(args[3]) : 28;
+        int runs = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+        SplittableRandom random = new SplittableRandom(42);
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < doctorCount; i++) {
+            Doctor doctor = new Doctor("doc" + (i + 1), "Dr. " + (i + 1), "password");
+            doctor.setSpecialty("Department " + (i % departmentCount));
+            doctors.add(doctor);
+        }
+        LocalDateTime now = LocalDate.now().atStartOfDay();
+        List<AppointmentRequest> requests = createRequests(requestCount, doctors, departmentCount, days, now, random);
+
+        System.out.println("Requests: " + requestCount + ", doctors: " + doctorCount + ", departments: "
+                + departmentCount + ", days: " + days);
+        long best = Long.MAX_VALUE;
+        AutoScheduler.Result result = null;
+        for (int run = 0; run < runs; run++) {
+            Map<String, DoctorCalendar> calendars = new HashMap<>();
+            for (Doctor doctor : doctors) {
+                DoctorCalendar calendar = new DoctorCalendar(now.toLocalDate());
+                calendar.addDays(days);
+                calendars.put(doctor.getUserID(), calendar);
+            }
+            AutoScheduler scheduler = new AutoScheduler(doctors, calendars::get, patientID -> "Patient " + patientID,
+                    patientID -> List.of());
+            long start = System.nanoTime();
+            result = scheduler.assign(requests, now);
+            best = Math.min(best, System.nanoTime() - start);
+            check(result, doctors);
+        }
+
+        long slots = (long) doctorCount * days * DoctorCalendar.TIME_SLOTS.length;
+        System.out.printf("Best of %d runs: %.1f ms%n", runs, best / 1e6);
+        System.out.printf("Assigned: %d of %d requests (%.1f%%)%n", result.getAssigned().size(), requestCount,
+                100.0 * result.getAssigned().size() / requestCount);
+        System.out.printf("Slots filled: %.1f%%%n", 100.0 * result.getAssigned().size() / slots);
+    }
+
+    /**
+     * Creates the requests: 70% for a specialty, 20% for a doctor and 10% for any doctor.
+     *
+     * @param count           The number of requests.
+     * @param doctors         The doctors.
+     * @param departmentCount The number of departments.
+     * @param days            The calendar horizon in days.
+     * @param now             The start of the first day.
+     * @param random          The random number generator.
+     * @return The requests.
+     */
+    private static List<AppointmentRequest> createRequests(int count, List<Doctor> doctors, int departmentCount,
+                                                           int days, LocalDateTime now, SplittableRandom random) {
+        List<AppointmentRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(10);
+            String doctorID = kind >= 7 && kind < 9 ? doctors.get(random.nextInt(doctors.size())).getUserID() : null;
+            String specialty = kind < 7 ? "Department " + random.nextInt(departmentCount) : null;
+            int first = random.nextInt(Math.max(1, days - 7));
+            LocalDateTime earliest = now.plusDays(first);
+            LocalDateTime latest = now.plusDays(Math.min(days, first + 1 + random.nextInt(7)));
+            requests.add(new AppointmentRequest("REQ" + i, "P" + random.nextInt(PATIENTS), doctorID, specialty,
+                    earliest, latest, now.plusSeconds(i)));
+        }
+        return requests;
+    }
+
+    /**
+     * Checks that every assignment honors its request and that no patient or slot is booked twice.
+     *
+     * @param result  The outcome of a run.
+     * @param doctors The doctors.
+     */
+    private static void check(AutoScheduler.Result result, List<Doctor> doctors) {
+        Map<String, String> specialties = new HashMap<>();
+        for (Doctor doctor : doctors) {
+            specialties.put(doctor.getUserID(), doctor.getSpecialty());
+        }
+        Set<String> slots = new HashSet<>();
+        Set<String> patientTimes = new HashSet<>();
+        for (AutoScheduler.Assignment assignment : result.getAssigned()) {
+            AppointmentRequest request = assignment.getRequest();
+            LocalDateTime time = assignment.getDateTime();
+            if (time.isBefore(request.getEarliest()) || !time.isBefore(request.getLatest())
+                    || (request.getDoctorID() != null && !request.getDoctorID().equals(assignment.getDoctorID()))
+                    || (request.getSpecialty() != null && !request.getSpecialty().equals(specialties.get(assignment.getDoctorID())))
+                    || !slots.add(assignment.getDoctorID() + " " + time)
+                    || !patientTimes.add(request.getPatientID() + " " + time)) {
+                throw new IllegalStateException("Invalid assignment for " + request);
+            }
+        }
+    }
+}
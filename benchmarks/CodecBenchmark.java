@@ -0,0 +1,136 @@
+package benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import models.Appointment;
+import models.AppointmentOutcome;
+import models.Prescription;
+import utils.BinaryCodec;
+
+/**
+ * Benchmark comparing the {@link BinaryCodec} format with Java serialization
+ * for a large appointments file. Both formats write and read the same list of
+ * appointments, about a third of which have an outcome with prescriptions,
+ * and the file size and the best write and read times are reported.
+ *
+ * <p>Run with {@code java -Xmx2g -cp bin benchmarks.CodecBenchmark [appointments] [runs]}.</p>
+ */
+public class CodecBenchmark {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional number of appointments (default 1000000) and number of timed runs (default 3).
+     * @throws Exception If a file cannot be written or read.
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        List<Appointment> appointments = createAppointments(count);
+        File file = File.createTempFile("appointments", ".ser");
+        file.deleteOnExit();
+
+        System.out.println("Appointments: " + count);
+        long serializationWrite = Long.MAX_VALUE;
+        long serializationRead = Long.MAX_VALUE;
+        long codecWrite = Long.MAX_VALUE;
+        long codecRead = Long.MAX_VALUE;
+        long serializationSize = 0;
+        long codecSize = 0;
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            try (ObjectOutputStream out = new ObjectOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+                out.writeObject(appointments);
+            }
+            serializationWrite = Math.min(serializationWrite, System.nanoTime() - start);
+            serializationSize = file.length();
+
+            start = System.nanoTime();
+            Object read;
+            try (ObjectInputStream in = new ObjectInputStream(
+                    new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+                read = in.readObject();
+            }
+            serializationRead = Math.min(serializationRead, System.nanoTime() - start);
+            check(read, count);
+
+            start = System.nanoTime();
+            try (BinaryCodec.Output out = new BinaryCodec.Output(
+                    new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+                BinaryCodec.writeFile(out, appointments);
+            }
+            codecWrite = Math.min(codecWrite, System.nanoTime() - start);
+            codecSize = file.length();
+
+            start = System.nanoTime();
+            try (BinaryCodec.Input in = new BinaryCodec.Input(
+                    new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+                if (in.readInt() != BinaryCodec.MAGIC) {
+                    throw new IOException("Missing file header");
+                }
+                read = BinaryCodec.readFile(in);
+            }
+            codecRead = Math.min(codecRead, System.nanoTime() - start);
+            check(read, count);
+        }
+
+        System.out.printf("%-20s %12s %12s %12s%n", "Format", "Size (MB)", "Write (ms)", "Read (ms)");
+        System.out.printf("%-20s %12.1f %12.0f %12.0f%n", "Java serialization",
+                serializationSize / 1e6, serializationWrite / 1e6, serializationRead / 1e6);
+        System.out.printf("%-20s %12.1f %12.0f %12.0f%n", "Binary codec",
+                codecSize / 1e6, codecWrite / 1e6, codecRead / 1e6);
+    }
+
+    /**
+     * Creates appointments spread over 200 doctors and 5000 patients.
+     *
+     * @param count The number of appointments.
+     * @return The appointments.
+     */
+    private static List<Appointment> createAppointments(int count) {
+        List<Appointment> appointments = new ArrayList<>(count);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime dateTime = start.plusHours(i % 8).plusDays(i / 1000);
+            Appointment appointment = new Appointment("APT" + (1_000_000 + i), "P" + (i % 5000),
+                    "D" + (i % 200), dateTime);
+            if (i % 3 == 0) {
+                List<Prescription> prescriptions = new ArrayList<>();
+                prescriptions.add(new Prescription("Paracetamol", 1 + i % 4));
+                if (i % 2 == 0) {
+                    prescriptions.add(new Prescription("Amoxicillin", 2));
+                }
+                appointment.setOutcome(new AppointmentOutcome(dateTime.toString(), "Consultation",
+                        prescriptions, "\nDate: " + dateTime + "\nDiagnosis: Flu\nTreatment Plan: Rest"));
+                appointment.setStatus("completed");
+            } else {
+                appointment.setStatus("confirmed");
+            }
+            appointments.add(appointment);
+        }
+        return appointments;
+    }
+
+    /**
+     * Checks that a file was read back with the expected number of appointments.
+     *
+     * @param read  The object read from the file.
+     * @param count The expected number of appointments.
+     */
+    private static void check(Object read, int count) {
+        if (((List<?>) read).size() != count) {
+            throw new IllegalStateException("Read " + ((List<?>) read).size() + " appointments, expected " + count);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntConsumer;
+
+/**
+ * Helper for the contention benchmarks, which start many threads against one
+ * shared object. The threads are created and started first and only then
+ * released together, so that thread start-up is not part of the measured time
+ * and the threads really do contend.
+ */
+public final class ContentionRunner {
+
+    /**
+     * Not instantiable.
+     */
+    private ContentionRunner() {
+    }
+
+    /**
+     * Starts the given number of threads, releases them at the same moment and waits for all of them.
+     *
+     * @param threads The number of threads.
+     * @param task    The task each thread runs, given the thread's number.
+     * @return The time from release until the last thread finished, in nanoseconds.
+     * @throws InterruptedException If the benchmark is interrupted.
+     */
+    public static long runTogether(int threads, IntConsumer task) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int id = i;
+            workers[i] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                task.accept(id);
+            });
+            workers[i].start();
+        }
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - begin;
+    }
+}
@@ -0,0 +1,389 @@
+package benchmarks;
+
+import java.io.File;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+import models.Administrator;
+import models.Appointment;
+import models.AppointmentOutcome;
+import models.Doctor;
+import models.DoctorCalendar;
+import models.InventoryItem;
+import models.Patient;
+import models.Pharmacist;
+import models.Prescription;
+import models.User;
+import repositories.ScheduleRepository;
+import utils.Config;
+import utils.PasswordUtil;
+import utils.SerializationUtil;
+
+/**
+ * Generator of a large, realistic hospital database for scale testing.
+ * It creates the requested numbers of doctors and patients, a pharmacist for
+ * every 25 doctors and the "admin" account. Doctors hold clinics on weekdays,
+ * which are filled with appointments for the given number of past years and for the next
+ * {@value #HORIZON_DAYS} days, and creates an inventory with the requested
+ * number of medications. Past appointments are mostly completed, with outcomes,
+ * prescriptions and entries in the patient's medical record. Prescriptions
+ * from the last few days are still waiting to be dispensed. Future appointments
+ * are booked on the doctors' calendars.
+ *
+ * <p>Every record is derived from the seed and its own index, so the same seed
+ * produces the same data on the same day, while doctors and patients are
+ * generated in parallel. The data is written with {@link SerializationUtil}
+ * to the usual data files in {@link Config#DATABASE_DIR}, replacing the ones
+ * there. Every generated user has the password "password" and does not have
+ * to change it on first login.</p>
+ *
+ * <p>Run with {@code java -Xmx4g -cp bin benchmarks.DataGenerator [doctors] [patients] [years] [medications] [seed]}
+ * from the directory whose "src/database/" should receive the data.</p>
+ */
+public class DataGenerator {
+    private static final String PASSWORD = "password";
+    private static final int HORIZON_DAYS = 28;
+    private static final int PENDING_DAYS = 3;
+    private static final double FILL_RATE = 0.75;
+    private static final long ID_BLOCK = 10_000_000L;
+
+    private static final String[] FIRST_NAMES = {
+            "Aaron", "Aisha", "Benjamin", "Chloe", "Daniel", "Divya", "Ethan", "Farah", "Gabriel", "Hana",
+            "Isaac", "Jia Hui", "Kumar", "Li Wei", "Marcus", "Mei Ling", "Nur", "Oliver", "Priya", "Rachel",
+            "Ravi", "Siti", "Sophia", "Thomas", "Wei Jie", "Xin Yi", "Yusuf", "Zhi Hao"};
+    private static final String[] LAST_NAMES = {
+            "Tan", "Lim", "Lee", "Ng", "Ong", "Wong", "Goh", "Chua", "Koh", "Teo", "Chan", "Yeo",
+            "Kumar", "Rahman", "Hassan", "Singh", "Smith", "Johnson", "Brown", "Wilson"};
+    private static final String[] SPECIALTIES = {
+            Doctor.DEFAULT_SPECIALTY, "Cardiology", "Dermatology", "Neurology", "Oncology",
+            "Orthopaedics", "Paediatrics", "Psychiatry"};
+    private static final String[] BLOOD_TYPES = {"A+", "A-", "B+", "B-", "AB+", "AB-", "O+", "O-"};
+    private static final String[] SERVICES = {
+            "Consultation", "Follow-up", "Blood test", "X-ray", "Vaccination", "Physiotherapy"};
+    private static final String[] DIAGNOSES = {
+            "Flu", "Common cold", "Hypertension", "Type 2 diabetes", "Asthma", "Migraine", "Gastritis",
+            "Back pain", "Eczema", "Bronchitis", "Anxiety", "Sprained ankle"};
+    private static final String[] TREATMENTS = {
+            "Rest", "Medication", "Physiotherapy", "Diet and exercise", "Follow-up in two weeks",
+            "Referral to specialist", "Inhaler", "Topical cream"};
+    private static final String[] DRUG_STEMS = {
+            "Paracetamol", "Ibuprofen", "Aspirin", "Amoxicillin", "Metformin", "Amlodipine", "Atorvastatin",
+            "Omeprazole", "Salbutamol", "Cetirizine", "Loratadine", "Lisinopril", "Losartan", "Simvastatin",
+            "Azithromycin", "Ciprofloxacin", "Doxycycline", "Prednisolone", "Diclofenac", "Naproxen",
+            "Gabapentin", "Sertraline", "Fluoxetine", "Citalopram", "Levothyroxine", "Warfarin",
+            "Clopidogrel", "Furosemide", "Hydrochlorothiazide", "Ranitidine", "Montelukast", "Tramadol",
+            "Codeine", "Insulin Glargine", "Bisoprolol", "Ramipril", "Allopurinol", "Hydrocortisone",
+            "Metronidazole", "Fexofenadine"};
+    private static final int[] STRENGTHS = {5, 10, 20, 25, 50, 100, 125, 200, 250, 500, 1000};
+    private static final String[] FORMS = {"", " Tablets", " Capsules", " Syrup", " Injection", " Cream"};
+
+    /**
+     * The appointments and calendar generated for one doctor.
+     */
+    private static class DoctorData {
+        private final List<Appointment> appointments = new ArrayList<>();
+        private final List<int[]> visits = new ArrayList<>();
+        private final DoctorCalendar calendar;
+
+        /**
+         * Constructs the data of a doctor.
+         *
+         * @param calendar The doctor's calendar of upcoming days.
+         */
+        DoctorData(DoctorCalendar calendar) {
+            this.calendar = calendar;
+        }
+    }
+
+    /**
+     * Generates the database.
+     *
+     * @param args Optional numbers of doctors (default 200), patients (default 50000),
+     *             past years of appointments (default 5) and medications (default 5000), and the seed (default 42).
+     * @throws Exception If a data file cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        int doctorCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int patientCount = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int years = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int medicationCount = args.length > 3 ? Integer.parseInt(args[3]) : 5000;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        LocalDate today = LocalDate.now();
+
+        long start = System.nanoTime();
+        SplittableRandom saltRandom = random(seed, 0, 0);
+        String salt = String.format("%016x%016x", saltRandom.nextLong(), saltRandom.nextLong());
+        String hashedPassword = PasswordUtil.hashPassword(PASSWORD, salt);
+
+        Doctor[] doctors = IntStream.range(0, doctorCount).parallel()
+                .mapToObj(i -> createDoctor(i, seed)).toArray(Doctor[]::new);
+        Patient[] patients = IntStream.range(0, patientCount).parallel()
+                .mapToObj(i -> createPatient(i, seed, today)).toArray(Patient[]::new);
+        HashMap<String, User> users = new HashMap<>();
+        users.put("admin", new Administrator("admin", "Administrator", PASSWORD));
+        for (int i = 0; i < Math.max(1, doctorCount / 25); i++) {
+            Pharmacist pharmacist = new Pharmacist("pharm" + (i + 1), "Pharmacist " + name(random(seed, 1, i)), PASSWORD);
+            users.put(pharmacist.getUserID(), pharmacist);
+        }
+        for (Doctor doctor : doctors) {
+            users.put(doctor.getUserID(), doctor);
+        }
+        for (Patient patient : patients) {
+            users.put(patient.getUserID(), patient);
+        }
+        for (User user : users.values()) {
+            user.setSalt(salt);
+            user.setHashedPassword(hashedPassword);
+            user.setFirstLogin(false);
+        }
+
+        String[] medications = new String[medicationCount];
+        List<InventoryItem> inventory = new ArrayList<>(medicationCount);
+        for (int i = 0; i < medicationCount; i++) {
+            SplittableRandom random = random(seed, 4, i);
+            medications[i] = medicationName(i);
+            int alertLevel = 10 * (1 + random.nextInt(10));
+            inventory.add(new InventoryItem(medications[i], alertLevel + random.nextInt(50 * alertLevel), alertLevel));
+        }
+
+        DoctorData[] schedules = IntStream.range(0, doctorCount).parallel()
+                .mapToObj(i -> createAppointments(i, doctors[i], patients, medications, years, today, seed))
+                .toArray(DoctorData[]::new);
+        List<Appointment> appointments = new ArrayList<>();
+        List<int[]> visits = new ArrayList<>();
+        for (DoctorData schedule : schedules) {
+            appointments.addAll(schedule.appointments);
+            visits.addAll(schedule.visits);
+        }
+        // Add diagnoses to medical records in the order the visits took place
+        long[] order = new long[visits.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = (long) visits.get(i)[0] << 32 | i;
+        }
+        Arrays.sort(order);
+        for (long key : order) {
+            int[] visit = visits.get((int) key);
+            Patient patient = patients[visit[1]];
+            patient.getMedicalRecord().addDiagnosis(DIAGNOSES[visit[2]]);
+            patient.getMedicalRecord().addTreatment(TREATMENTS[visit[3]]);
+        }
+        long generated = System.nanoTime();
+
+        for (String doctorID : ScheduleRepository.getInstance().findStoredDoctorIDs()) {
+            new File(Config.DATABASE_DIR + "Schedule_" + doctorID + ".ser").delete();
+        }
+        List<ForkJoinTask<?>> writes = new ArrayList<>();
+        writes.add(write(users, "users.ser"));
+        writes.add(write(appointments, "appointments.ser"));
+        writes.add(write(inventory, "inventory.ser"));
+        for (int i = 0; i < doctorCount; i++) {
+            writes.add(write(schedules[i].calendar, "Schedule_" + doctors[i].getUserID() + ".ser"));
+        }
+        for (ForkJoinTask<?> write : writes) {
+            write.join();
+        }
+        long written = System.nanoTime();
+
+        System.out.printf("Generated %d users, %d appointments, %d past visits and %d medications in %.0f ms%n",
+                users.size(), appointments.size(), visits.size(), inventory.size(), (generated - start) / 1e6);
+        System.out.printf("Wrote %.1f MB to %s in %.0f ms%n", databaseSize() / 1e6, Config.DATABASE_DIR,
+                (written - generated) / 1e6);
+    }
+
+    /**
+     * Creates a doctor with a random name and specialty.
+     *
+     * @param index The index of the doctor.
+     * @param seed  The generator seed.
+     * @return The doctor.
+     */
+    private static Doctor createDoctor(int index, long seed) {
+        SplittableRandom random = random(seed, 2, index);
+        Doctor doctor = new Doctor("doc" + (index + 1), "Dr. " + name(random), PASSWORD);
+        doctor.setSpecialty(SPECIALTIES[random.nextInt(SPECIALTIES.length)]);
+        return doctor;
+    }
+
+    /**
+     * Creates a patient with random personal details.
+     *
+     * @param index The index of the patient.
+     * @param seed  The generator seed.
+     * @param today The date the data is generated for.
+     * @return The patient.
+     */
+    private static Patient createPatient(int index, long seed, LocalDate today) {
+        SplittableRandom random = random(seed, 3, index);
+        String id = "patient" + (index + 1);
+        LocalDate dateOfBirth = today.minusDays(random.nextInt(365 * 90));
+        return new Patient(id, name(random), PASSWORD, dateOfBirth.toString(),
+                random.nextBoolean() ? "M" : "F", BLOOD_TYPES[random.nextInt(BLOOD_TYPES.length)],
+                id + "@example.com", String.valueOf(80_000_000 + random.nextInt(20_000_000)));
+    }
+
+    /**
+     * Fills a doctor's weekdays with appointments, from the given number of years
+     * ago until the end of the booking horizon. Past appointments are completed
+     * with an outcome, or were canceled or declined. Upcoming appointments are
+     * booked on the doctor's calendar and are confirmed or still pending.
+     *
+     * @param index       The index of the doctor.
+     * @param doctor      The doctor.
+     * @param patients    The patients to book appointments for.
+     * @param medications The names of the medications that can be prescribed.
+     * @param years       The number of past years to fill.
+     * @param today       The date the data is generated for.
+     * @param seed        The generator seed.
+     * @return The doctor's appointments, past visits and calendar.
+     */
+    private static DoctorData createAppointments(int index, Doctor doctor, Patient[] patients, String[] medications,
+                                                 int years, LocalDate today, long seed) {
+        SplittableRandom random = random(seed, 5, index);
+        DoctorCalendar calendar = new DoctorCalendar(today);
+        calendar.addDays(HORIZON_DAYS);
+        calendar.setClinicDay(DayOfWeek.SATURDAY, false);
+        calendar.setClinicDay(DayOfWeek.SUNDAY, false);
+        DoctorData data = new DoctorData(calendar);
+        long number = (index + 1) * ID_BLOCK;
+        LocalDate end = today.plusDays(HORIZON_DAYS);
+        for (LocalDate date = today.minusYears(years); date.isBefore(end); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                continue;
+            }
+            for (int slot = 0; slot < DoctorCalendar.TIME_SLOTS.length; slot++) {
+                if (random.nextDouble() >= FILL_RATE) {
+                    continue;
+                }
+                int patientIndex = random.nextInt(patients.length);
+                Patient patient = patients[patientIndex];
+                LocalDateTime dateTime = date.atTime(DoctorCalendar.TIME_SLOTS[slot]);
+                Appointment appointment = new Appointment("APT" + number++, patient.getUserID(),
+                        doctor.getUserID(), dateTime);
+                appointment.setDoctorName(doctor.getName());
+                if (!date.isBefore(today)) {
+                    calendar.reserve(dateTime, patient.getUserID());
+                    appointment.setStatus(random.nextDouble() < 0.7 ? "confirmed" : "pending");
+                } else if (random.nextDouble() < 0.05) {
+                    appointment.setStatus(random.nextBoolean() ? "canceled" : "declined");
+                } else {
+                    int diagnosis = random.nextInt(DIAGNOSES.length);
+                    int treatment = random.nextInt(TREATMENTS.length);
+                    boolean recent = date.isAfter(today.minusDays(PENDING_DAYS + 1));
+                    appointment.setOutcome(createOutcome(random, dateTime, diagnosis, treatment, medications, recent));
+                    appointment.setStatus("completed");
+                    int order = (int) (date.toEpochDay() * DoctorCalendar.TIME_SLOTS.length + slot);
+                    data.visits.add(new int[]{order, patientIndex, diagnosis, treatment});
+                }
+                data.appointments.add(appointment);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Creates the outcome of a completed appointment with up to three prescriptions.
+     * Commonly prescribed medications are chosen more often than the rest.
+     *
+     * @param random      The random source.
+     * @param dateTime    The date and time of the appointment.
+     * @param diagnosis   The index of the diagnosis.
+     * @param treatment   The index of the treatment plan.
+     * @param medications The names of the medications that can be prescribed.
+     * @param recent      Whether the appointment was recent enough for its prescriptions to be pending.
+     * @return The outcome.
+     */
+    private static AppointmentOutcome createOutcome(SplittableRandom random, LocalDateTime dateTime, int diagnosis,
+                                                    int treatment, String[] medications, boolean recent) {
+        List<Prescription> prescriptions = new ArrayList<>();
+        int count = medications.length == 0 ? 0 : random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            double skew = random.nextDouble();
+            Prescription prescription = new Prescription(
+                    medications[(int) (medications.length * skew * skew * skew)], 1 + random.nextInt(30));
+            if (!recent || random.nextBoolean()) {
+                prescription.setStatus("dispensed");
+            }
+            prescriptions.add(prescription);
+        }
+        String dateOfAppointment = dateTime.toString();
+        return new AppointmentOutcome(dateOfAppointment, SERVICES[random.nextInt(SERVICES.length)], prescriptions,
+                "\nDate: " + dateOfAppointment + "\nDiagnosis: " + DIAGNOSES[diagnosis]
+                        + "\nTreatment Plan: " + TREATMENTS[treatment]);
+    }
+
+    /**
+     * Builds a unique medication name from a drug, a strength and a dosage form.
+     *
+     * @param index The index of the medication.
+     * @return The medication name.
+     */
+    private static String medicationName(int index) {
+        int stem = index % DRUG_STEMS.length;
+        int strength = index / DRUG_STEMS.length % STRENGTHS.length;
+        int variants = DRUG_STEMS.length * STRENGTHS.length;
+        int form = index / variants % FORMS.length;
+        int batch = index / (variants * FORMS.length);
+        return DRUG_STEMS[stem] + " " + STRENGTHS[strength] + "mg" + FORMS[form] + (batch > 0 ? " #" + batch : "");
+    }
+
+    /**
+     * Picks a random full name.
+     *
+     * @param random The random source.
+     * @return The name.
+     */
+    private static String name(SplittableRandom random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    /**
+     * Creates the random source of one record, so that each record depends only on
+     * the seed and its own index and can be generated on any thread.
+     *
+     * @param seed  The generator seed.
+     * @param kind  The kind of record.
+     * @param index The index of the record.
+     * @return The random source.
+     */
+    private static SplittableRandom random(long seed, int kind, int index) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + ((long) kind << 32) + index);
+    }
+
+    /**
+     * Starts writing an object to a data file in the common fork-join pool.
+     *
+     * @param obj      The object to write.
+     * @param fileName The name of the data file (without path).
+     * @return The task writing the file.
+     */
+    private static ForkJoinTask<?> write(Object obj, String fileName) {
+        return ForkJoinTask.adapt(() -> {
+            SerializationUtil.serialize(obj, fileName);
+            return null;
+        }).fork();
+    }
+
+    /**
+     * Gets the total size of the files in the database directory.
+     *
+     * @return The size in bytes.
+     */
+    private static long databaseSize() {
+        long size = 0;
+        File[] files = new File(Config.DATABASE_DIR).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+}
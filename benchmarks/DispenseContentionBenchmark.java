@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import models.InventoryItem;
+
+/**
+ * Contention benchmark for dispensing from a single {@link InventoryItem}.
+ * Thousands of threads reserve and dispense random quantities of one medication
+ * while others restock it. Some reservations are released instead of dispensed,
+ * as happens when a prescription turns out to be dispensed already. The benchmark
+ * checks that the stock never goes negative and that the final stock level matches
+ * the quantities that were restocked and dispensed.
+ *
+ * <p>Run with {@code java -cp bin benchmarks.DispenseContentionBenchmark [threads] [operations]}.</p>
+ */
+public class DispenseContentionBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional thread count (default 2000) and operations per thread (default 500).
+     * @throws InterruptedException If the benchmark is interrupted.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int initialStock = 10_000;
+
+        InventoryItem item = new InventoryItem("Aspirin", initialStock, 20);
+        AtomicLong dispensed = new AtomicLong();
+        AtomicLong restocked = new AtomicLong();
+        AtomicInteger refused = new AtomicInteger();
+        AtomicInteger negative = new AtomicInteger();
+
+        long nanos = ContentionRunner.runTogether(threads, id -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < operations; i++) {
+                int quantity = 1 + random.nextInt(5);
+                if (id % 10 == 0) {
+                    item.restock(quantity);
+                    restocked.addAndGet(quantity);
+                } else if (!item.tryReserve(quantity)) {
+                    refused.incrementAndGet();
+                } else if (random.nextInt(20) == 0) {
+                    item.release(quantity);
+                } else {
+                    if (item.dispense(quantity) < 0) {
+                        negative.incrementAndGet();
+                    }
+                    dispensed.addAndGet(quantity);
+                }
+            }
+        });
+
+        long expected = initialStock + restocked.get() - dispensed.get();
+        if (negative.get() > 0) {
+            throw new IllegalStateException("Stock went negative " + negative.get() + " times");
+        }
+        if (item.getStockLevel() != expected || item.getAvailableStock() != expected) {
+            throw new IllegalStateException("Stock is " + item.getStockLevel() + ", expected " + expected);
+        }
+        long total = (long) threads * operations;
+        System.out.println("Threads: " + threads);
+        System.out.printf("Dispense race: %d operations in %.2f ms (%.0f operations/s)%n",
+                total, nanos / 1e6, total / (nanos / 1e9));
+        System.out.printf("Dispensed %d, restocked %d, refused %d, final stock %d as expected%n",
+                dispensed.get(), restocked.get(), refused.get(), item.getStockLevel());
+    }
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import utils.Config;
+import utils.GroupCommitLog;
+
+/**
+ * Throughput benchmark for {@link GroupCommitLog} at each durability level.
+ * Many threads append small entries to the same log at once and wait for each
+ * one to become durable, as concurrent saves to one data file do. With
+ * {@link Config.Durability#BATCHED} the entries share flushes, so throughput
+ * should stay far above {@link Config.Durability#PER_WRITE}, which flushes
+ * every entry on its own.
+ *
+ * <p>Run with {@code java -cp bin benchmarks.GroupCommitBenchmark [threads] [entries]}.</p>
+ */
+public class GroupCommitBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional thread count (default 64) and entries per thread (default 200).
+     * @throws Exception If the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        byte[] entry = new byte[200];
+
+        System.out.println("Threads: " + threads + ", entries per thread: " + entries);
+        Path dir = Files.createTempDirectory("hms-group-commit");
+        for (Config.Durability durability : Config.Durability.values()) {
+            Path file = dir.resolve(durability + ".log");
+            GroupCommitLog log = new GroupCommitLog(file, durability, null);
+            long nanos = run(threads, () -> {
+                for (int i = 0; i < entries; i++) {
+                    log.append(entry).await();
+                }
+            });
+            long total = (long) threads * entries;
+            if (Files.size(file) != total * entry.length) {
+                throw new IllegalStateException(durability + " log has " + Files.size(file) + " bytes");
+            }
+            System.out.printf("%-9s %d entries in %.0f ms (%.0f entries/s)%n",
+                    durability, total, nanos / 1e6, total / (nanos / 1e9));
+            log.clear();
+        }
+        Files.delete(dir);
+    }
+
+    /**
+     * A task that may fail with an I/O error.
+     */
+    private interface IOTask {
+
+        /**
+         * Runs the task.
+         *
+         * @throws IOException If an I/O error occurs.
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * Starts the given number of threads, releases them at the same moment and waits for all of them.
+     *
+     * @param threads The number of threads.
+     * @param task    The task each thread runs.
+     * @return The time from release until the last thread finished, in nanoseconds.
+     * @throws InterruptedException If the benchmark is interrupted.
+     */
+    private static long run(int threads, IOTask task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (InterruptedException | IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            workers[i].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - begin;
+    }
+}
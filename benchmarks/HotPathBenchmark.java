@@ -0,0 +1,172 @@
+package benchmarks;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import models.Appointment;
+import models.Doctor;
+import models.DoctorCalendar;
+import models.InventoryItem;
+import models.Patient;
+import models.User;
+import repositories.AppointmentRepository;
+import repositories.AvailabilityIndex;
+import repositories.InventoryRepository;
+import repositories.ScheduleRepository;
+import repositories.UserRepository;
+import utils.Config;
+import utils.PasswordUtil;
+import utils.SerializationUtil;
+
+/**
+ * Suite of micro-benchmarks for the hot paths of the hospital management system:
+ * writing and reading data files of several sizes, looking up free slots, the
+ * double-booking check made when a patient schedules an appointment, looking up
+ * a medication by name and hashing a password.
+ * The suite first generates a fixed data set with {@link DataGenerator} (50 doctors,
+ * 5000 patients, two years of appointments and 5000 medications with seed 42),
+ * so results from different commits are measured against the same data. Each
+ * operation is timed with {@link MicroBenchmark}, and the results are written
+ * to a file that a later run can be compared with.
+ *
+ * <p>Run with {@code java -Xmx2g -cp bin benchmarks.HotPathBenchmark [results] [baseline]} from an
+ * empty directory, since the data set is written to its "src/database/". The results are
+ * written to "hotpath.tsv" unless another file is given, and are compared with the baseline file if given.</p>
+ */
+public class HotPathBenchmark {
+    private static final int[] FILE_SIZES = {1_000, 10_000, 100_000};
+    private static final int INPUTS = 1 << 12;
+    private static int cursor;
+
+    /**
+     * A slot that a patient tries to book with a doctor.
+     */
+    private static class Booking {
+        private final Patient patient;
+        private final DoctorCalendar calendar;
+        private final LocalDateTime dateTime;
+
+        /**
+         * Constructs a booking attempt.
+         *
+         * @param patient  The patient.
+         * @param calendar The doctor's calendar.
+         * @param dateTime The start of the slot.
+         */
+        Booking(Patient patient, DoctorCalendar calendar, LocalDateTime dateTime) {
+            this.patient = patient;
+            this.calendar = calendar;
+            this.dateTime = dateTime;
+        }
+    }
+
+    /**
+     * Runs the suite.
+     *
+     * @param args Optional results file (default "hotpath.tsv") and baseline file to compare with.
+     * @throws Exception If the data set cannot be generated or an operation fails.
+     */
+    public static void main(String[] args) throws Exception {
+        Path resultsFile = Paths.get(args.length > 0 ? args[0] : "hotpath.tsv");
+        Path baseline = args.length > 1 ? Paths.get(args[1]) : null;
+        if (new File(Config.DATABASE_DIR + "users.ser").exists()) {
+            System.out.println("Run the benchmark from an empty directory; " + Config.DATABASE_DIR
+                    + " already holds data that it would replace.");
+            return;
+        }
+
+        DataGenerator.main(new String[]{"50", "5000", "2", "5000", "42"});
+        UserRepository users = UserRepository.getInstance();
+        AppointmentRepository appointments = AppointmentRepository.getInstance();
+        InventoryRepository inventory = InventoryRepository.getInstance();
+        users.load();
+        appointments.load();
+        inventory.load();
+        AvailabilityIndex index = AvailabilityIndex.getInstance();
+        index.findFirstAvailable(LocalDateTime.now());
+
+        SplittableRandom random = new SplittableRandom(42);
+        List<Doctor> doctors = users.findDoctors();
+        List<User> patientUsers = users.findByRole("Patient");
+        List<InventoryItem> items = inventory.findAll();
+        LocalDate today = LocalDate.now();
+        Booking[] bookings = new Booking[INPUTS];
+        LocalDateTime[] starts = new LocalDateTime[INPUTS];
+        String[] specialties = new String[INPUTS];
+        String[] medications = new String[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            Doctor doctor = doctors.get(random.nextInt(doctors.size()));
+            LocalDateTime dateTime = today.plusDays(random.nextInt(28))
+                    .atTime(DoctorCalendar.TIME_SLOTS[random.nextInt(DoctorCalendar.TIME_SLOTS.length)]);
+            bookings[i] = new Booking((Patient) patientUsers.get(random.nextInt(patientUsers.size())),
+                    ScheduleRepository.getInstance().findByDoctorID(doctor.getUserID()), dateTime);
+            starts[i] = dateTime;
+            specialties[i] = doctors.get(random.nextInt(doctors.size())).getSpecialty();
+            medications[i] = items.get(random.nextInt(items.size())).getMedicationName();
+        }
+        String salt = PasswordUtil.getSalt();
+
+        MicroBenchmark harness = new MicroBenchmark(3, 5, 1000);
+        List<MicroBenchmark.Result> results = new ArrayList<>();
+        List<Appointment> all = appointments.findAll();
+        for (int size : FILE_SIZES) {
+            if (size > all.size()) {
+                continue;
+            }
+            List<Appointment> data = new ArrayList<>(all.subList(0, size));
+            String fileName = "benchmark_" + size + ".ser";
+            results.add(harness.measure("serialize " + size + " appointments", () -> {
+                SerializationUtil.serialize(data, fileName);
+                return null;
+            }));
+            results.add(harness.measure("deserialize " + size + " appointments",
+                    () -> SerializationUtil.deserialize(fileName)));
+            new File(Config.DATABASE_DIR + fileName).delete();
+        }
+        results.add(harness.measure("calendar slot lookup", () -> {
+            Booking booking = bookings[next()];
+            return booking.calendar.isAvailable(booking.dateTime);
+        }));
+        results.add(harness.measure("next 10 free slots by specialty", () -> {
+            int i = next();
+            return index.findAvailable(specialties[i], starts[i], 10);
+        }));
+        results.add(harness.measure("double-booking check", () -> {
+            Booking booking = bookings[next()];
+            // The checks of PatientController.scheduleAppointment, without saving anything
+            for (Appointment existing : appointments.findByPatient(booking.patient.getUserID())) {
+                if (existing.getDateTime().equals(booking.dateTime)) {
+                    return Boolean.FALSE;
+                }
+            }
+            if (!booking.calendar.reserve(booking.dateTime, booking.patient.getUserID())) {
+                return Boolean.FALSE;
+            }
+            booking.calendar.release(booking.dateTime, booking.patient.getUserID());
+            return Boolean.TRUE;
+        }));
+        results.add(harness.measure("inventory lookup by name", () -> inventory.findByName(medications[next()])));
+        results.add(harness.measure("password hash", () -> PasswordUtil.hashPassword("password", salt)));
+
+        MicroBenchmark.write(results, resultsFile);
+        System.out.println("Results written to " + resultsFile);
+        if (baseline != null) {
+            MicroBenchmark.compare(results, baseline);
+        }
+    }
+
+    /**
+     * Moves to the next input, cycling through the prepared inputs.
+     *
+     * @return The index of the input.
+     */
+    private static int next() {
+        cursor = (cursor + 1) & (INPUTS - 1);
+        return cursor;
+    }
+}
@@ -0,0 +1,215 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small harness for timing single operations, in the style of JMH.
+ * Each operation is run in batches that are large enough for the clock to be
+ * read rarely. After a number of warm-up iterations, which give the JIT compiler
+ * time to compile the operation, it is timed over a number of measurement
+ * iterations, and the mean time per operation and its standard deviation across
+ * the iterations are reported. Every result is folded into {@link #sink} so that
+ * the compiler cannot remove an operation whose result is unused.
+ * Results can be written to a tab-separated file and compared with the file of
+ * an earlier run, for example from before a change.
+ */
+public class MicroBenchmark {
+    private static final long CALIBRATION_NANOS = 1_000_000;
+    private static final int MAX_BATCH = 1 << 20;
+
+    /**
+     * Mix of all operation results, read by nobody.
+     */
+    public static volatile int sink;
+
+    private final int warmups;
+    private final int iterations;
+    private final long iterationNanos;
+
+    /**
+     * An operation to time.
+     */
+    public interface Operation {
+
+        /**
+         * Runs the operation once.
+         *
+         * @return The result of the operation, or null.
+         * @throws Exception If the operation fails.
+         */
+        Object run() throws Exception;
+    }
+
+    /**
+     * The measured time of one operation.
+     */
+    public static class Result {
+        private final String name;
+        private final double nanosPerOp;
+        private final double deviation;
+
+        /**
+         * Constructs a result.
+         *
+         * @param name       The name of the operation.
+         * @param nanosPerOp The mean time per operation in nanoseconds.
+         * @param deviation  The standard deviation of the time per operation across iterations.
+         */
+        Result(String name, double nanosPerOp, double deviation) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.deviation = deviation;
+        }
+    }
+
+    /**
+     * Constructs a harness.
+     *
+     * @param warmups        The number of warm-up iterations that are not measured.
+     * @param iterations     The number of measured iterations.
+     * @param iterationMillis The length of each iteration in milliseconds.
+     */
+    public MicroBenchmark(int warmups, int iterations, long iterationMillis) {
+        this.warmups = warmups;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+    }
+
+    /**
+     * Times an operation and prints the result.
+     *
+     * @param name      The name of the operation.
+     * @param operation The operation.
+     * @return The result.
+     * @throws Exception If the operation fails.
+     */
+    public Result measure(String name, Operation operation) throws Exception {
+        int batch = 1;
+        while (batch < MAX_BATCH && runBatch(operation, batch) < CALIBRATION_NANOS) {
+            batch <<= 1;
+        }
+        for (int i = 0; i < warmups; i++) {
+            runIteration(operation, batch);
+        }
+        double[] times = new double[iterations];
+        double mean = 0;
+        for (int i = 0; i < iterations; i++) {
+            times[i] = runIteration(operation, batch);
+            mean += times[i] / iterations;
+        }
+        double variance = 0;
+        for (double time : times) {
+            variance += (time - mean) * (time - mean) / Math.max(1, iterations - 1);
+        }
+        Result result = new Result(name, mean, Math.sqrt(variance));
+        System.out.printf("%-40s %14s +- %s%n", name, format(result.nanosPerOp), format(result.deviation));
+        return result;
+    }
+
+    /**
+     * Writes results to a tab-separated file with one line per operation:
+     * its name, the mean time per operation and the standard deviation, both in nanoseconds.
+     *
+     * @param results The results.
+     * @param file    The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(List<Result> results, Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            for (Result result : results) {
+                out.printf("%s\t%.1f\t%.1f%n", result.name, result.nanosPerOp, result.deviation);
+            }
+        }
+    }
+
+    /**
+     * Compares results with those of an earlier run read from a file written by {@link #write}.
+     * A change is called faster or slower only if it is larger than the two deviations together.
+     *
+     * @param results  The results of this run.
+     * @param baseline The file of the earlier run.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void compare(List<Result> results, Path baseline) throws IOException {
+        Map<String, double[]> before = new HashMap<>();
+        for (String line : Files.readAllLines(baseline)) {
+            String[] fields = line.split("\t");
+            if (fields.length == 3) {
+                before.put(fields[0], new double[]{Double.parseDouble(fields[1]), Double.parseDouble(fields[2])});
+            }
+        }
+        System.out.println();
+        System.out.printf("%-40s %14s %14s %9s%n", "Compared with " + baseline.getFileName(), "Before", "Now", "Change");
+        for (Result result : results) {
+            double[] previous = before.get(result.name);
+            if (previous == null) {
+                System.out.printf("%-40s %14s %14s%n", result.name, "-", format(result.nanosPerOp));
+                continue;
+            }
+            double change = (result.nanosPerOp - previous[0]) / previous[0] * 100;
+            String verdict = Math.abs(result.nanosPerOp - previous[0]) <= result.deviation + previous[1]
+                    ? "" : change < 0 ? " faster" : " slower";
+            System.out.printf("%-40s %14s %14s %+8.1f%%%s%n", result.name, format(previous[0]),
+                    format(result.nanosPerOp), change, verdict);
+        }
+    }
+
+    /**
+     * Runs timed batches of an operation for the length of one iteration.
+     *
+     * @param operation The operation.
+     * @param batch     The number of operations between reads of the clock.
+     * @return The mean time per operation in nanoseconds.
+     * @throws Exception If the operation fails.
+     */
+    private double runIteration(Operation operation, int batch) throws Exception {
+        long operations = 0;
+        long elapsed = 0;
+        while (elapsed < iterationNanos) {
+            elapsed += runBatch(operation, batch);
+            operations += batch;
+        }
+        return (double) elapsed / operations;
+    }
+
+    /**
+     * Runs a batch of operations.
+     *
+     * @param operation The operation.
+     * @param batch     The number of times to run it.
+     * @return The time taken in nanoseconds.
+     * @throws Exception If the operation fails.
+     */
+    private static long runBatch(Operation operation, int batch) throws Exception {
+        int mix = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < batch; i++) {
+            mix = 31 * mix + System.identityHashCode(operation.run());
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += mix;
+        return elapsed;
+    }
+
+    /**
+     * Formats a time in nanoseconds with a readable unit.
+     *
+     * @param nanos The time in nanoseconds.
+     * @return The formatted time.
+     */
+    private static String format(double nanos) {
+        if (nanos >= 1e6) {
+            return String.format("%.2f ms", nanos / 1e6);
+        }
+        if (nanos >= 1e3) {
+            return String.format("%.2f us", nanos / 1e3);
+        }
+        return String.format("%.1f ns", nanos);
+    }
+}
@@ -0,0 +1,107 @@
+package benchmarks;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import models.DoctorCalendar;
+
+/**
+ * Contention benchmark for {@link DoctorCalendar#reserve}.
+ * Thousands of threads book slots on a single doctor's calendar at once.
+ * The first scenario has every thread race for the same slot and checks that
+ * exactly one wins each round. The second has every thread book random slots
+ * until the calendar is full and checks that no slot was booked twice.
+ *
+ * <p>Run with {@code java -cp bin benchmarks.SlotContentionBenchmark [threads] [rounds] [days]}.</p>
+ */
+public class SlotContentionBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional thread count (default 2000), number of rounds of the
+     *             single-slot race (default 20) and calendar length in days (default 90).
+     * @throws InterruptedException If the benchmark is interrupted.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int days = args.length > 2 ? Integer.parseInt(args[2]) : 90;
+
+        System.out.println("Threads: " + threads);
+        raceForOneSlot(threads, rounds);
+        fillCalendar(threads, days);
+    }
+
+    /**
+     * Has every thread try to book the same slot, and checks that exactly one succeeds.
+     *
+     * @param threads The number of threads.
+     * @param rounds  The number of rounds.
+     * @throws InterruptedException If the benchmark is interrupted.
+     */
+    private static void raceForOneSlot(int threads, int rounds) throws InterruptedException {
+        LocalDate today = LocalDate.now();
+        LocalDateTime slot = LocalDateTime.of(today, DoctorCalendar.TIME_SLOTS[0]);
+        long totalNanos = 0;
+        for (int round = 0; round < rounds; round++) {
+            DoctorCalendar calendar = new DoctorCalendar(today);
+            calendar.addDays(1);
+            AtomicInteger winners = new AtomicInteger();
+            long nanos = ContentionRunner.runTogether(threads, id -> {
+                if (calendar.reserve(slot, "Patient " + id)) {
+                    winners.incrementAndGet();
+                }
+            });
+            totalNanos += nanos;
+            if (winners.get() != 1) {
+                throw new IllegalStateException("Round " + round + " had " + winners.get() + " winners");
+            }
+        }
+        System.out.printf("Single slot race: %d rounds, exactly one winner each, %.2f ms per round%n",
+                rounds, totalNanos / 1e6 / rounds);
+    }
+
+    /**
+     * Has every thread book random slots until the calendar is full, and checks
+     * that every slot was booked exactly once.
+     *
+     * @param threads The number of threads.
+     * @param days    The number of days on the calendar.
+     * @throws InterruptedException If the benchmark is interrupted.
+     */
+    private static void fillCalendar(int threads, int days) throws InterruptedException {
+        LocalDate today = LocalDate.now();
+        int slotsPerDay = DoctorCalendar.TIME_SLOTS.length;
+        int totalSlots = days * slotsPerDay;
+        DoctorCalendar calendar = new DoctorCalendar(today);
+        calendar.addDays(days);
+        AtomicIntegerArray bookings = new AtomicIntegerArray(totalSlots);
+        AtomicInteger remaining = new AtomicInteger(totalSlots);
+        AtomicInteger attempts = new AtomicInteger();
+
+        long nanos = ContentionRunner.runTogether(threads, id -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (remaining.get() > 0) {
+                int slot = random.nextInt(totalSlots);
+                LocalDateTime dateTime = LocalDateTime.of(today.plusDays(slot / slotsPerDay),
+                        DoctorCalendar.TIME_SLOTS[slot % slotsPerDay]);
+                attempts.incrementAndGet();
+                if (calendar.reserve(dateTime, "Patient " + id)) {
+                    bookings.incrementAndGet(slot);
+                    remaining.decrementAndGet();
+                }
+            }
+        });
+
+        for (int slot = 0; slot < totalSlots; slot++) {
+            if (bookings.get(slot) != 1) {
+                throw new IllegalStateException("Slot " + slot + " was booked " + bookings.get(slot) + " times");
+            }
+        }
+        System.out.printf("Fill calendar: %d slots booked once each, %d attempts in %.2f ms (%.0f attempts/s)%n",
+                totalSlots, attempts.get(), nanos / 1e6, attempts.get() / (nanos / 1e9));
+    }
+}
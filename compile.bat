@@ -4,7 +4,7 @@ rmdir /s /q bin
 mkdir bin
 
 echo Compiling Java files...
-javac -Xlint:-unchecked -d bin -sourcepath src main/*.java controllers/*.java views/*.java models/*.java utils/*.java
+javac -Xlint:-unchecked -d bin -sourcepath src main/*.java controllers/*.java views/*.java models/*.java utils/*.java repositories/*.java benchmarks/*.java
 
 if %errorlevel% neq 0 (
     echo Compilation failed.
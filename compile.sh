@@ -5,7 +5,7 @@ rm -rf bin
 mkdir bin
 
 echo "Compiling Java files with detailed warnings..."
-javac -Xlint:-unchecked -d bin -sourcepath src main/*.java controllers/*.java views/*.java models/*.java utils/*.java
+javac -Xlint:-unchecked -d bin -sourcepath src main/*.java controllers/*.java views/*.java models/*.java utils/*.java repositories/*.java benchmarks/*.java
 
 if [ $? -ne 0 ]; then
     echo "Compilation failed."
@@ -7,9 +7,16 @@ import models.Administrator;
 import models.Appointment;
 import models.Doctor;
 import models.InventoryItem;
+import models.Patient;
 import models.Pharmacist;
 import models.User;
-import utils.SerializationUtil;
+import repositories.AppointmentRepository;
+import repositories.AvailabilityIndex;
+import repositories.AutoScheduler;
+import repositories.InventoryRepository;
+import repositories.ScheduleRepository;
+import repositories.UserRepository;
+import utils.Metrics;
 import views.AdminView;
 
 /**
@@ -20,9 +27,9 @@ import views.AdminView;
 public class AdminController {
     private Administrator model;
     private AdminView view;
-    private HashMap<String, User> users;
-    private List<Appointment> appointments;
-    private List<InventoryItem> inventory;
+    private UserRepository users;
+    private AppointmentRepository appointments;
+    private InventoryRepository inventory;
     private HashMap<String, Doctor> doctors; // To manage doctor-specific operations
 
     /**
@@ -50,36 +57,39 @@ public class AdminController {
             choice = view.getUserChoice();
             switch (choice) {
                 case 1:
-                    manageHospitalStaff();
+                    Metrics.timeAction("admin.manageHospitalStaff", this::manageHospitalStaff);
                     break;
                 case 2:
-                    viewAppointmentDetails();
+                    Metrics.timeAction("admin.viewAppointmentDetails", this::viewAppointmentDetails);
                     break;
                 case 3:
-                    manageMedicationInventoryAndReplenishment();
+                    Metrics.timeAction("admin.manageMedicationInventoryAndReplenishment", this::manageMedicationInventoryAndReplenishment);
                     break;
                 case 4:
-                    viewDoctorSchedulesMenu(); // New menu option
+                    Metrics.timeAction("admin.viewDoctorSchedulesMenu", this::viewDoctorSchedulesMenu); // New menu option
                     break;
                 case 5:
+                    view.displayMetrics(Metrics.report());
+                    break;
+                case 6:
+                    Metrics.timeAction("admin.autoScheduleRequests", this::autoScheduleRequests);
+                    break;
+                case 7:
                     view.displayMessage("Logging out...");
                     break;
                 default:
                     view.displayMessage("Invalid choice. Please try again.");
             }
-        } while (choice != 5);
+        } while (choice != 7);
     }
 
     /**
      * Loads doctor information from the users map and initializes the doctors map.
      */
-    @SuppressWarnings("unchecked")
     private void loadDoctors() {
         doctors = new HashMap<>();
-        for (User user : users.values()) {
-            if (user instanceof Doctor) {
-                doctors.put(user.getUserID(), (Doctor) user);
-            }
+        for (Doctor doctor : users.findDoctors()) {
+            doctors.put(doctor.getUserID(), doctor);
         }
     }
 
@@ -141,27 +151,36 @@ public class AdminController {
         // Load the doctor's schedule from a serialized file
         loadDoctorSchedule(doctor);
 
-        List<String> schedule = doctor.getSchedule();
+        List<String> schedule = doctor.getCalendar() == null ? null : doctor.getCalendar().toScheduleStrings(this::patientName);
 
         if (schedule == null || schedule.isEmpty()) {
             view.displayMessage("No schedule available for Dr. " + doctor.getName() + ".");
             return;
         }
         view.displayMessage("Schedule for Dr. " + doctor.getName() + " (ID: " + doctorID + "):");
-        view.displayDoctorSchedule(schedule, appointments, doctorID);
+        view.displayDoctorSchedule(schedule, appointments.findByDoctor(doctorID), doctorID);
+    }
+
+    /**
+     * Gets the name of a patient to show on a schedule, whose bookings are kept by patient ID.
+     *
+     * @param patientID The ID of the patient.
+     * @return The patient's name, or the ID if the patient no longer exists.
+     */
+    private String patientName(String patientID) {
+        Patient patient = users.findPatient(patientID);
+        return patient == null ? patientID : patient.getName();
     }
 
     /**
-     * Loads the schedule for a specific doctor from a serialized file.
+     * Loads the schedule for a specific doctor from the shared schedule repository.
      *
      * @param doctor The Doctor object whose schedule is to be loaded.
      */
     private void loadDoctorSchedule(Doctor doctor) {
         try {
-            String fileName = "Schedule_" + doctor.getUserID() + ".ser";
-            // Load schedule from serialized file
-            List<String> loadedSchedule = (List<String>) SerializationUtil.deserialize(fileName);
-            doctor.setSchedule(loadedSchedule);
+            // Load schedule from the repository, which reads the serialized file on first access
+            doctor.setCalendar(ScheduleRepository.getInstance().findByDoctorID(doctor.getUserID()));
         } catch (Exception e) {
             view.displayMessage("Error loading schedule for Dr. " + doctor.getName());
         }
@@ -203,7 +222,7 @@ public class AdminController {
     private void viewStaffMembers() {
         List<User> staffList = new ArrayList<>();
 
-        for (User user : users.values()) {
+        for (User user : users.findAll()) {
             if (user instanceof Doctor || user instanceof Pharmacist || user instanceof Administrator) {
                 staffList.add(user);
             }
@@ -230,14 +249,19 @@ public class AdminController {
         String password = view.getPasswordInput();
         String role = view.getRoleInput();
 
-        if (users.containsKey(userID)) {
+        if (users.exists(userID)) {
             view.displayMessage("User ID already exists. Please try a different ID.");
             return;
         }
 
         User newUser = null;
         if (role.equalsIgnoreCase("Doctor")) {
-            newUser = new Doctor(userID, name, password);
+            Doctor doctor = new Doctor(userID, name, password);
+            String specialty = view.getSpecialtyInput();
+            if (!specialty.isEmpty()) {
+                doctor.setSpecialty(specialty);
+            }
+            newUser = doctor;
         } else if (role.equalsIgnoreCase("Pharmacist")) {
             newUser = new Pharmacist(userID, name, password);
         } else if (role.equalsIgnoreCase("Admin")) {
@@ -245,8 +269,7 @@ public class AdminController {
         }
 
         if (newUser != null) {
-            users.put(userID, newUser);
-            saveUsers();
+            users.save(newUser);
             loadDoctors(); // Update doctors map if a doctor was added
             view.displayMessage("Staff member added.");
         } else {
@@ -261,12 +284,12 @@ public class AdminController {
      */
     private void updateStaffMember() {
         String userID = view.getUserIDInput();
-        if (!users.containsKey(userID)) {
+        if (!users.exists(userID)) {
             view.displayMessage("User ID not found.");
             return;
         }
 
-        User oldUser = users.get(userID);
+        User oldUser = users.findById(userID);
         String newName = view.getNameInput();
         String newPassword = view.getPasswordInput();
 
@@ -277,7 +300,9 @@ public class AdminController {
         // Create a new User object with updated details
         User updatedUser = null;
         if (oldUser instanceof Doctor) {
-            updatedUser = new Doctor(userID, newName, newPassword);
+            Doctor doctor = new Doctor(userID, newName, newPassword);
+            doctor.setSpecialty(((Doctor) oldUser).getSpecialty());
+            updatedUser = doctor;
         } else if (oldUser instanceof Pharmacist) {
             updatedUser = new Pharmacist(userID, newName, newPassword);
         } else if (oldUser instanceof Administrator) {
@@ -289,8 +314,7 @@ public class AdminController {
         }
 
         // Replace the old user with the updated user
-        users.put(userID, updatedUser);
-        saveUsers();
+        users.save(updatedUser);
         loadDoctors(); // Update doctors map if a doctor was updated
         view.displayMessage("Staff member updated successfully.");
     }
@@ -302,9 +326,12 @@ public class AdminController {
      */
     private void removeStaffMember() {
         String userID = view.getUserIDInput();
-        if (users.containsKey(userID)) {
-            users.remove(userID);
-            saveUsers();
+        if (users.exists(userID)) {
+            users.delete(userID);
+            if (doctors.containsKey(userID)) {
+                // Stop offering the removed doctor's slots to patients
+                AvailabilityIndex.getInstance().untrack(userID);
+            }
             loadDoctors(); // Update doctors map if a doctor was removed
             view.displayMessage("Staff member removed.");
         } else {
@@ -376,18 +403,14 @@ public class AdminController {
         }
     
         // Check if the medication already exists in the inventory (ignoring case)
-        boolean exists = inventory.stream()
-                .anyMatch(item -> item.getMedicationName().equalsIgnoreCase(medicationName));
-    
-        if (exists) {
+        if (inventory.findByName(medicationName) != null) {
             view.displayMessage("Error: Medication '" + medicationName + "' already exists in the inventory.");
             return; // Exit the method without adding the duplicate
         }
     
         // If medication is unique, proceed to add it
         InventoryItem newItem = new InventoryItem(medicationName, stockLevel, lowStockAlertLevel);
-        inventory.add(newItem);
-        saveInventory();
+        inventory.save(newItem);
         view.displayMessage("Inventory item '" + medicationName + "' added successfully.");
     }
     
@@ -444,11 +467,11 @@ public class AdminController {
         }
     
         // Update the inventory item with validated values
-        item.setStockLevel(newStockLevel);
+        inventory.setStockLevel(item, newStockLevel);
         item.setLowStockAlertLevel(newLowStockAlertLevel);
     
-        // Save the updated inventory to persistent storage
-        saveInventory();
+        // Save the updated inventory item to persistent storage
+        inventory.save(item);
     
         // Notify the user of the successful update
         view.displayMessage("Inventory item '" + medicationName + "' updated successfully.");
@@ -464,8 +487,7 @@ public class AdminController {
         InventoryItem item = findInventoryItemByName(medicationName);
 
         if (item != null) {
-            inventory.remove(item);
-            saveInventory();
+            inventory.delete(item.getKey());
             view.displayMessage("Inventory item removed successfully.");
         } else {
             view.displayMessage("Medication not found in inventory.");
@@ -477,11 +499,12 @@ public class AdminController {
      * If the inventory is empty, an appropriate message is displayed.
      */
     private void viewInventoryItems() {
-        if (inventory.isEmpty()) {
+        List<InventoryItem> items = inventory.findAll();
+        if (items.isEmpty()) {
             view.displayMessage("No inventory items found.");
             return;
         }
-        view.displayInventory(inventory);
+        view.displayInventory(items);
     }
 
     /**
@@ -502,9 +525,9 @@ public class AdminController {
 
         if (itemToApprove != null && itemToApprove.getReplenishRequestAmount() > 0) {
             int replenishAmount = itemToApprove.getReplenishRequestAmount();
-            itemToApprove.setStockLevel(itemToApprove.getStockLevel() + replenishAmount);
+            inventory.restock(itemToApprove, replenishAmount);
             itemToApprove.setReplenishRequestAmount(0); // Reset after approval
-            saveInventory();
+            inventory.save(itemToApprove);
             view.displayMessage("Replenishment request approved and inventory updated.");
         } else {
             view.displayMessage("Invalid Medication Name or no pending replenishment request for this medication.");
@@ -518,7 +541,7 @@ public class AdminController {
      */
     private List<InventoryItem> getPendingReplenishmentRequests() {
         List<InventoryItem> pending = new ArrayList<>();
-        for (InventoryItem item : inventory) {
+        for (InventoryItem item : inventory.findAll()) {
             if (item.getReplenishRequestAmount() > 0) {
                 pending.add(item);
             }
@@ -533,12 +556,7 @@ public class AdminController {
      * @return The InventoryItem object or null if not found.
      */
     private InventoryItem findInventoryItemByName(String medicationName) {
-        for (InventoryItem item : inventory) {
-            if (item.getMedicationName().equalsIgnoreCase(medicationName)) {
-                return item;
-            }
-        }
-        return null;
+        return inventory.findByName(medicationName);
     }
 
     /**
@@ -546,89 +564,53 @@ public class AdminController {
      * If no appointments exist, a message is displayed.
      */
     private void viewAppointmentDetails() {
-        if (appointments.isEmpty()) {
+        List<Appointment> allAppointments = appointments.findAll();
+        if (allAppointments.isEmpty()) {
             view.displayMessage("No appointments found.");
             return;
         }
-        view.displayAppointments(appointments);
+        view.displayAppointments(allAppointments);
     }
 
     /**
-     * Loads user data from a serialized file.
-     * Initializes the users map if no data exists or if an error occurs.
+     * Assigns the queued appointment requests to free slots across all doctors and shows a summary.
+     * The assigned appointments are pending until their doctors accept them.
      */
-    private void loadUsers() {
-        try {
-            users = (HashMap<String, User>) SerializationUtil.deserialize("users.ser");
-            if (users == null) {
-                users = new HashMap<>();
-            }
-        } catch (Exception e) {
-            users = new HashMap<>();
-            view.displayMessage("Error loading users data.");
+    private void autoScheduleRequests() {
+        AutoScheduler.Result result = AutoScheduler.scheduleQueued();
+        int total = result.getAssigned().size() + result.getUnassigned().size();
+        if (total == 0 && result.getExpired() == 0) {
+            view.displayMessage("No appointment requests are waiting.");
+            return;
         }
-    }
-
-    /**
-     * Saves the current user data to a serialized file.
-     */
-    private void saveUsers() {
-        try {
-            SerializationUtil.serialize(users, "users.ser");
-        } catch (Exception e) {
-            e.printStackTrace();
+        view.displayMessage(String.format("Assigned %d of %d appointment request(s) across %d department(s) in %.1f ms.",
+                result.getAssigned().size(), total, result.getDepartments(), result.getNanos() / 1e6));
+        if (!result.getUnassigned().isEmpty()) {
+            view.displayMessage(result.getUnassigned().size() + " request(s) had no free slot in their range and stay queued.");
         }
-    }
-
-    /**
-     * Loads appointment data from a serialized file.
-     * Initializes the appointments list if no data exists or if an error occurs.
-     */
-    private void loadAppointments() {
-        try {
-            appointments = (List<Appointment>) SerializationUtil.deserialize("appointments.ser");
-            if (appointments == null) {
-                appointments = new ArrayList<>();
-            }
-        } catch (Exception e) {
-            appointments = new ArrayList<>();
+        if (result.getExpired() > 0) {
+            view.displayMessage(result.getExpired() + " request(s) whose range has passed were removed.");
         }
     }
 
     /**
-     * Saves appointments to the serialized file.
+     * Loads user data from the shared user repository.
      */
-    private void saveAppointments() {
-        try {
-            SerializationUtil.serialize(appointments, "appointments.ser");
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    private void loadUsers() {
+        users = UserRepository.getInstance();
     }
 
     /**
-     * Loads inventory data from a serialized file.
-     * Initializes the inventory list if no data exists or if an error occurs.
+     * Loads appointment data from the shared appointment repository.
      */
-    private void loadInventory() {
-        try {
-            inventory = (List<InventoryItem>) SerializationUtil.deserialize("inventory.ser");
-            if (inventory == null) {
-                inventory = new ArrayList<>();
-            }
-        } catch (Exception e) {
-            inventory = new ArrayList<>();
-        }
+    private void loadAppointments() {
+        appointments = AppointmentRepository.getInstance();
     }
 
     /**
-     * Saves inventory to the serialized file.
+     * Loads inventory data from the shared inventory repository.
      */
-    private void saveInventory() {
-        try {
-            SerializationUtil.serialize(inventory, "inventory.ser");
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    private void loadInventory() {
+        inventory = InventoryRepository.getInstance();
     }
 }
@@ -1,20 +1,33 @@
 package controllers;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import models.Appointment;
 import models.AppointmentOutcome;
+import models.AppointmentSeries;
 import models.Doctor;
+import models.DoctorCalendar;
 import models.InventoryItem;
 import models.Patient;
 import models.Prescription;
-import models.User;
-import utils.SerializationUtil;
+import repositories.AppointmentRepository;
+import repositories.InventoryRepository;
+import repositories.ScheduleRepository;
+import repositories.SeriesRepository;
+import repositories.UserRepository;
+import repositories.WaitlistEngine;
+import utils.Config;
+import utils.Metrics;
 import views.DoctorView;
 
 
@@ -25,12 +38,12 @@ import views.DoctorView;
 public class DoctorController {
     private Doctor model;
     private DoctorView view;
-    private List<Appointment> appointments;
-    private HashMap<String, Patient> patients;
-    private List<InventoryItem> availableMedication;
-    private List<String> nameofMedication;
+    private AppointmentRepository appointments;
+    private SeriesRepository series;
+    private UserRepository patients;
+    private InventoryRepository inventory;
+    private static final int SUGGESTIONS_SHOWN = 10;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-    private final  String[] timeSlots = {"09:00", "10:00", "11:00", "13:00", "14:00", "15:00", "16:00"};
 
     /**
      * Constructs a DoctorController object.
@@ -44,7 +57,6 @@ public class DoctorController {
         loadAppointments();
         loadPatients();
         loadInventory();
-        loadtoList();
         loadSchedule();
 
         if (patients != null) {
@@ -65,25 +77,25 @@ public class DoctorController {
             validChoice = true; // Assume the choice is valid unless an exception is thrown
             switch (choice) {
                 case 1:
-                    viewPatientMedicalRecords();
+                    Metrics.timeAction("doctor.viewPatientMedicalRecords", this::viewPatientMedicalRecords);
                     break;
                 case 2:
-                    updatePatientMedicalRecords();
+                    Metrics.timeAction("doctor.updatePatientMedicalRecords", this::updatePatientMedicalRecords);
                     break;
                 case 3:
-                    viewPersonalSchedule();
+                    Metrics.timeAction("doctor.viewPersonalSchedule", this::viewPersonalSchedule);
                     break;
                 case 4:
-                    setAvailability();
+                    Metrics.timeAction("doctor.setAvailability", this::setAvailability);
                     break;
                 case 5:
-                    handleAppointmentRequests();
+                    Metrics.timeAction("doctor.handleAppointmentRequests", this::handleAppointmentRequests);
                     break;
                 case 6:
-                    viewUpcomingAppointments();
+                    Metrics.timeAction("doctor.viewUpcomingAppointments", this::viewUpcomingAppointments);
                     break;
                 case 7:
-                    recordAppointmentOutcome();
+                    Metrics.timeAction("doctor.recordAppointmentOutcome", this::recordAppointmentOutcome);
                     break;
                 case 8:
                     view.displayMessage("Logging out...");
@@ -100,20 +112,12 @@ public class DoctorController {
     }
 
     /**
-     * Initializes the schedule with time slots for the next 7 days.
+     * Initializes the schedule with clinics every day, bookable up to the configured horizon.
      */
     private void initializeSchedule() {
-        LocalDate date = LocalDate.now();
-        List<String> tempschedule = new ArrayList<>();
-        for (int i = 0; i < 7; i++) {
-            LocalDate currentDate = date.plusDays(i);
-            for (String time : timeSlots) {
-                LocalTime localTime = LocalTime.parse(time);
-                LocalDateTime dateTime = LocalDateTime.of(currentDate, localTime);
-                tempschedule.add(dateTime.format(formatter));
-            }
-        }
-        model.setSchedule(tempschedule);
+        DoctorCalendar calendar = new DoctorCalendar(LocalDate.now());
+        calendar.addDays(Config.SCHEDULE_HORIZON_DAYS);
+        model.setCalendar(calendar);
         view.displayMessage("Schedule initialized.");
         saveSchedule();
     }
@@ -123,21 +127,19 @@ public class DoctorController {
      */
     private void saveSchedule() {
         try {
-            String fileName = "Schedule_" + model.getUserID() + ".ser";
-            SerializationUtil.serialize(model.getSchedule(), fileName);
+            ScheduleRepository.getInstance().save(model.getUserID(), model.getCalendar());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Loads the schedule from a serialized file.
+     * Loads the schedule from the shared schedule repository.
      */    
     private void loadSchedule() {
         try {
-            String fileName = "Schedule_" + model.getUserID() + ".ser";
-            //Load schedule from serialized file
-            model.setSchedule((List<String>) SerializationUtil.deserialize(fileName));
+            //Load schedule from the repository, which reads the serialized file on first access
+            model.setCalendar(ScheduleRepository.getInstance().findByDoctorID(model.getUserID()));
             view.displayMessage("Schedule loaded.");
         } catch (Exception e) {
             view.displayMessage("Error loading schedule. Schedule does not exist/ is corrupted.");
@@ -152,7 +154,7 @@ public class DoctorController {
     private void viewPatientMedicalRecords() {
 
         String patientID = view.getPatientIDInput(); // Get patient ID input from DoctorView
-        Patient patient = patients.get(patientID); // Get patient object from patients HashMap
+        Patient patient = patients.findPatient(patientID); // Get patient object from the user repository
         if (patient != null) {
             view.displayMessage("Viewing "+ patient.getName() + "'s medical record:");
             view.displayPatientMedicalRecord(patient.getMedicalRecord());
@@ -166,7 +168,7 @@ public class DoctorController {
      */
     private void updatePatientMedicalRecords() {
         String patientID = view.getPatientIDInput(); // Get patient ID input from DoctorView
-        Patient patient = patients.get(patientID); // Get patient object from patients HashMap
+        Patient patient = patients.findPatient(patientID); // Get patient object from the user repository
         if (patient != null) {
             view.displayMessage("Do you want to add a diagnosis?");
             String decisionDiagnosis = view.getDecisionInput();
@@ -194,7 +196,18 @@ public class DoctorController {
      * Displays the doctor's personal schedule.
      */
     private void viewPersonalSchedule() {
-        view.displayPersonalSchedule(model.getSchedule());
+        view.displayPersonalSchedule(model.getCalendar().toScheduleStrings(this::patientName));
+    }
+
+    /**
+     * Gets the name of a patient to show on a schedule, whose bookings are kept by patient ID.
+     *
+     * @param patientID The ID of the patient.
+     * @return The patient's name, or the ID if the patient no longer exists.
+     */
+    private String patientName(String patientID) {
+        Patient patient = patients.findPatient(patientID);
+        return patient == null ? patientID : patient.getName();
     }
 
     /**
@@ -202,34 +215,52 @@ public class DoctorController {
      */
     private void setAvailability() {
 
-        List<String> schedule = model.getSchedule();
+        DoctorCalendar calendar = model.getCalendar();
         //Get list of available times
         view.displayMessage("Available times:");
-        view.displayPersonalSchedule(schedule);
+        view.displayPersonalSchedule(calendar.toScheduleStrings(this::patientName));
+        view.displayMessage("Clinic days: " + clinicDays(calendar) + ", bookable up to "
+                + calendar.getLastDate() + " (" + calendar.getHorizonDays() + " days ahead).");
 
         String AvailabilityAction = view.getAvailabilityAction();
 
         if (AvailabilityAction.equalsIgnoreCase("A")) {
-            String lastEntry = schedule.get(schedule.size() - 1);
-
-            DateTimeFormatter Dateformatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+            //Extend the rolling horizon by 7 days
+            calendar.addDays(7);
+            view.displayMessage("Additional 7 days of time slots added.");
 
-            // Parse the last date from the last entry
-            LocalDate lastDate = LocalDate.parse(lastEntry.substring(0, 10), Dateformatter);
+        } else if (AvailabilityAction.equalsIgnoreCase("W")) {
+            //Set the days of the week with clinics
+            Set<DayOfWeek> days = parseDaysOfWeek(view.getClinicDaysInput());
+            if (days == null) {
+                view.displayMessage("Invalid day of the week. Clinic days not changed.");
+                return;
+            }
+            for (DayOfWeek day : DayOfWeek.values()) {
+                calendar.setClinicDay(day, days.contains(day));
+            }
+            view.displayMessage("Clinic days set to " + clinicDays(calendar) + ".");
 
-            //Add new time slots for the next 7 days
-            List<String> tempschedule = new ArrayList<>();
-            for (int i = 1; i <= 7; i++) {
-                LocalDate currentDate = lastDate.plusDays(i);
-                for (String time : timeSlots) {
-                    LocalTime localTime = LocalTime.parse(time);
-                    LocalDateTime dateTime = LocalDateTime.of(currentDate, localTime);
-                    tempschedule.add(dateTime.format(formatter));
-                }
+        } else if (AvailabilityAction.equalsIgnoreCase("L") || AvailabilityAction.equalsIgnoreCase("C")) {
+            //Take leave on a date, or hold an extra clinic on it
+            LocalDate date;
+            try {
+                date = LocalDate.parse(view.getDateInput());
+            } catch (DateTimeParseException e) {
+                view.displayMessage("Invalid date.");
+                return;
             }
-            schedule.addAll(tempschedule);
-            view.displayMessage("Additional 7 days of time slots added.");
-           
+            boolean leave = AvailabilityAction.equalsIgnoreCase("L");
+            int booked = leave ? calendar.closeDay(date) : calendar.openDay(date);
+            if (booked < 0) {
+                view.displayMessage("Specified date has already passed.");
+                return;
+            }
+            view.displayMessage((leave ? "Leave recorded on " : "Extra clinic added on ") + date + ".");
+            if (leave && booked > 0) {
+                view.displayMessage(booked + " booked appointment(s) on that date are kept.");
+            }
+
         } else if (AvailabilityAction.equalsIgnoreCase("U")) {
 
             //Set availability on date
@@ -239,20 +270,8 @@ public class DoctorController {
 
             LocalDateTime dateTime = LocalDateTime.parse(dateTimeStr, formatter);
 
-            // Convert to the same format used in the schedule
-            String formattedDateTimeStr = dateTime.format(formatter) + " Unavailable";
-
-            //find the index of existing date-time and replace it with the new one
-            int index = -1;
-            for (int i = 0; i < schedule.size(); i++) {
-                if (schedule.get(i).contains(dateTime.format(formatter))) {
-                    index = i;
-                    break;
-                }
-            }
-
-            if (index != -1) {
-                schedule.set(index, formattedDateTimeStr);
+            //Block the slot on the calendar
+            if (calendar.block(dateTime)) {
                 view.displayMessage("Availability updated.");
             } else {
                 view.displayMessage("Specified date-time was not found in availability.");
@@ -262,100 +281,250 @@ public class DoctorController {
     }
 
     /**
-     * Allows the doctor to accept or decline appointment requests.
+     * Lists the days of the week on which a calendar holds clinics.
+     *
+     * @param calendar The doctor's calendar.
+     * @return The clinic days, or "none".
      */
-    private void handleAppointmentRequests() {
-        List<Appointment> pendingAppointments = new ArrayList<>();
-        //Get list of pending appointments matching doctor ID
-        for (Appointment appt : appointments) {
-            if (appt.getDoctorID().equals(model.getUserID()) && appt.getStatus().equals("pending")) {
-                pendingAppointments.add(appt);
+    private static String clinicDays(DoctorCalendar calendar) {
+        List<String> days = new ArrayList<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (calendar.isClinicDay(day)) {
+                days.add(day.name().substring(0, 3));
+            }
+        }
+        return days.isEmpty() ? "none" : String.join(" ", days);
+    }
+
+    /**
+     * Parses days of the week given by name or by their first three letters.
+     *
+     * @param input The days separated by spaces or commas (e.g., "MON TUE WED").
+     * @return The days, or null if a day is not recognized.
+     */
+    private static Set<DayOfWeek> parseDaysOfWeek(String input) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (String token : input.trim().toUpperCase().split("[\\s,]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            DayOfWeek match = null;
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (token.length() >= 3 && day.name().startsWith(token)) {
+                    match = day;
+                }
+            }
+            if (match == null) {
+                return null;
             }
+            days.add(match);
         }
+        return days;
+    }
+
+    /**
+     * Allows the doctor to accept or decline appointment requests.
+     * Several requests, or all of them, can be decided at once: the decisions are
+     * applied to the calendar in one pass, the schedule and the appointments are
+     * written once, and a summary is shown at the end. A recurring series is
+     * decided as a whole by its series ID.
+     */
+    private void handleAppointmentRequests() {
+        //Get list of pending appointments and series matching doctor ID
+        List<Appointment> pendingAppointments = appointments.findByDoctorAndStatus(model.getUserID(), "pending");
+        List<AppointmentSeries> pendingSeries = series.findByDoctorAndStatus(model.getUserID(), "pending");
 
         //Display list of pending appointments
-        List<String> schedule = model.getSchedule();
+        DoctorCalendar calendar = model.getCalendar();
         view.displayUpcomingAppointments(pendingAppointments);
+        view.displaySeriesRequests(pendingSeries);
 
         //Check if there are any pending appointments
-        if (pendingAppointments.isEmpty()) {
+        if (pendingAppointments.isEmpty() && pendingSeries.isEmpty()) {
             view.displayMessage("No pending appointments.");
             return;
         }
-        
-        //check for valid appointment ID
-        boolean validAppointmentID = false;
-        String appointmentID = "";
-        while (!validAppointmentID) {
-            appointmentID = view.getAppointmentIDInput();
-            for (Appointment appt : pendingAppointments) {
-                if (appt.getAppointmentID().equals(appointmentID)) {
-                    validAppointmentID = true;
-                    break;
-                }
-            }
-            if (!validAppointmentID) {
-                view.displayMessage("Invalid appointment ID. Please try again.");
-                return;
+
+        //Select the requests to decide on
+        List<AppointmentSeries> selectedSeries = new ArrayList<>();
+        List<Appointment> selected = selectRequests(pendingAppointments, pendingSeries, view.getAppointmentIDsInput(), selectedSeries);
+        if (selected == null) {
+            return;
+        }
+
+        //Validate the whole batch before any slot is touched, skipping requests of removed patients
+        List<Appointment> valid = new ArrayList<>();
+        for (Appointment appt : selected) {
+            Patient patient = patients.findPatient(appt.getPatientID());
+            if (patient == null) {
+                view.displayMessage("Skipping appointment " + appt.getAppointmentID() + ": patient " + appt.getPatientID() + " no longer exists.");
+                continue;
             }
+            valid.add(appt);
+            view.displayMessage("Appointment ID: " + appt.getAppointmentID() + " with " + patient.getName() + " on " + appt.getDateTime().format(formatter)
+                    + " for " + appt.getDurationMinutes() + " minutes");
         }
-        
-        //Display Apt with Patient Name and Date
-        for (Appointment appt : pendingAppointments) {
-            if (appt.getAppointmentID().equals(appointmentID)) {
-            view.displayMessage("Appointment ID: " + appt.getAppointmentID() + " with " + patients.get(appt.getPatientID()).getName() + " on " + appt.getDateTime().format(formatter));
+        List<AppointmentSeries> validSeries = new ArrayList<>();
+        for (AppointmentSeries request : selectedSeries) {
+            Patient patient = patients.findPatient(request.getPatientID());
+            if (patient == null) {
+                view.displayMessage("Skipping series " + request.getSeriesID() + ": patient " + request.getPatientID() + " no longer exists.");
+                continue;
             }
+            validSeries.add(request);
+            view.displayMessage("Series ID: " + request.getSeriesID() + " with " + patient.getName() + ", " + request.getFrequency()
+                    + " from " + request.getOccurrence(0).format(formatter) + ", " + request.getHeldCount() + " appointments");
+        }
+        if (valid.isEmpty() && validSeries.isEmpty()) {
+            view.displayMessage("No requests left to decide.");
+            return;
         }
+        selected = valid;
+        selectedSeries = validSeries;
 
-        //Get appointment ID and decision from user
+        //Get decision from user
         String decision = view.getDecisionInput();
-
-        //Update appointment status
-        for (Appointment appt : pendingAppointments) {
-            if (appt.getAppointmentID().equals(appointmentID)) {
-                if (decision.equalsIgnoreCase("A")) {
-                    LocalDateTime dateTime = appt.getDateTime();
-                    String formattedDateTimeStr = dateTime.format(formatter) + " Confirmed with " + patients.get(appt.getPatientID()).getName();
-
-                    //Find index of date-time in schedule
-                    int index = -1;
-                    for (int i = 0; i < schedule.size(); i++) {
-                        if (schedule.get(i).startsWith(dateTime.format(formatter))) {
-                            index = i;
-                            view.displayMessage("Index: " + index + "Found");
-                            break;
-                        }
-                        else{
-                            view.displayMessage("Index: " + index + "Not Found");}
-                    }
-
-                     // Replace the existing entry if found, otherwise add the new entry
-                    if (index != -1) {
-                        schedule.set(index, formattedDateTimeStr);
-                        appt.setStatus("confirmed");
-                        view.displayMessage("Availability updated.");
-                    } else {
-                        view.displayMessage("Specified date-time was not found in availability. Please try again.");
+        boolean accept = decision.equalsIgnoreCase("A");
+
+        //Update appointment statuses in one pass over the calendar
+        List<Appointment> decided = new ArrayList<>();
+        List<String> unavailable = new ArrayList<>();
+        List<Appointment> freed = new ArrayList<>();
+        for (Appointment appt : selected) {
+            String patientID = appt.getPatientID();
+            if (accept) {
+                //Confirm the slot held by the request, or book it if the request did not hold one
+                int minutes = appt.getDurationMinutes();
+                if (calendar.isHeldBy(appt.getDateTime(), minutes, patientID)
+                        || calendar.reserve(appt.getDateTime(), minutes, Config.APPOINTMENT_BUFFER_MINUTES, patientID)) {
+                    appt.setStatus("confirmed");
+                    decided.add(appt);
+                } else {
+                    unavailable.add(appt.getAppointmentID());
+                }
+            } else {
+                //Free the slot held by the request
+                if (calendar.release(appt.getDateTime(), appt.getDurationMinutes(), patientID)) {
+                    freed.add(appt);
+                }
+                appt.setStatus("declined");
+                decided.add(appt);
+            }
+        }
+        List<AppointmentSeries> decidedSeries = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (AppointmentSeries request : selectedSeries) {
+            String patientID = request.getPatientID();
+            for (int occurrence = request.firstOccurrenceFrom(now); occurrence < request.getOccurrenceCount(); occurrence++) {
+                if (!request.isHeld(occurrence)) {
+                    continue;
+                }
+                LocalDateTime dateTime = request.getOccurrence(occurrence);
+                if (accept) {
+                    //Drop occurrences whose slot is no longer held for the patient
+                    if (!calendar.isHeldBy(dateTime, patientID) && !calendar.reserve(dateTime, patientID)) {
+                        request.release(occurrence);
                     }
                 } else {
-                    appt.setStatus("declined");
+                    request.release(occurrence);
+                    if (calendar.release(dateTime, patientID)) {
+                        freed.add(request.toAppointment(occurrence));
+                    }
                 }
-                saveSchedule();
-                saveAppointments();
-                view.displayMessage("Appointment " + (decision.equalsIgnoreCase("A") ? "accepted." : "declined."));
-                break;
             }
+            if (accept && request.getHeldCount() == 0) {
+                unavailable.add(request.getSeriesID());
+                continue;
+            }
+            request.setStatus(accept ? "confirmed" : "declined");
+            decidedSeries.add(request);
+        }
+
+        //Write the schedule and the decided appointments once
+        if (!decided.isEmpty() || !decidedSeries.isEmpty()) {
+            saveSchedule();
+            appointments.saveBatch(decided);
+            series.saveBatch(decidedSeries);
+        }
+
+        //Offer the freed slots to the waitlist once the declines are stored
+        for (Appointment appt : freed) {
+            WaitlistEngine.getInstance().slotFreed(model.getUserID(), appt.getDateTime(), appt.getDurationMinutes(),
+                    appt.getPatientID());
+        }
+        Metrics.count("doctor.requestsDecided", decided.size() + decidedSeries.size());
+
+        //Summarize the outcome
+        view.displayMessage((accept ? "Accepted " : "Declined ") + (decided.size() + decidedSeries.size()) + " of "
+                + (selected.size() + selectedSeries.size()) + " appointment request(s).");
+        if (!unavailable.isEmpty()) {
+            view.displayMessage("Specified date-time is not available for: " + String.join(", ", unavailable) + ". These requests are still pending.");
+        }
+    }
+
+    /**
+     * Picks the pending requests named by the doctor.
+     *
+     * @param pendingAppointments The doctor's pending appointments.
+     * @param pendingSeries       The doctor's pending series.
+     * @param input               Appointment and series IDs separated by commas or spaces, or "ALL".
+     * @param selectedSeries      The list to add the selected series to.
+     * @return The selected appointments in the order given, or null if an ID is not a pending request.
+     */
+    private List<Appointment> selectRequests(List<Appointment> pendingAppointments, List<AppointmentSeries> pendingSeries,
+                                             String input, List<AppointmentSeries> selectedSeries) {
+        if (input.trim().equalsIgnoreCase("ALL")) {
+            selectedSeries.addAll(pendingSeries);
+            return pendingAppointments;
+        }
+        Map<String, Appointment> byID = new HashMap<>();
+        for (Appointment appt : pendingAppointments) {
+            byID.put(appt.getAppointmentID(), appt);
+        }
+        Map<String, AppointmentSeries> seriesByID = new HashMap<>();
+        for (AppointmentSeries request : pendingSeries) {
+            seriesByID.put(request.getSeriesID(), request);
+        }
+        Map<String, Appointment> selected = new LinkedHashMap<>();
+        Map<String, AppointmentSeries> chosenSeries = new LinkedHashMap<>();
+        for (String appointmentID : input.trim().split("[,\\s]+")) {
+            if (appointmentID.isEmpty()) {
+                continue;
+            }
+            Appointment appt = byID.get(appointmentID);
+            AppointmentSeries request = seriesByID.get(appointmentID);
+            if (appt != null) {
+                selected.put(appointmentID, appt);
+            } else if (request != null) {
+                chosenSeries.put(appointmentID, request);
+            } else {
+                view.displayMessage("Invalid appointment ID: " + appointmentID + ". Please try again.");
+                return null;
+            }
+        }
+        if (selected.isEmpty() && chosenSeries.isEmpty()) {
+            view.displayMessage("Invalid appointment ID. Please try again.");
+            return null;
         }
+        selectedSeries.addAll(chosenSeries.values());
+        return new ArrayList<>(selected.values());
     }
 
     /**
      * Displays the doctor's upcoming appointments.
      */
     private void viewUpcomingAppointments() {
-        List<Appointment> upcomingAppointments = new ArrayList<>();
-        for (Appointment appt : appointments) {
-            if (appt.getDoctorID().equals(model.getUserID()) && appt.getStatus().equals("confirmed")) {
-                upcomingAppointments.add(appt);
+        List<Appointment> upcomingAppointments = appointments.findByDoctorAndStatus(model.getUserID(), "confirmed");
+
+        //Add the occurrences of confirmed series that fall within the schedule's horizon
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = LocalDate.now().plusDays(model.getCalendar().getHorizonDays()).atStartOfDay();
+        for (AppointmentSeries confirmed : series.findByDoctorAndStatus(model.getUserID(), "confirmed")) {
+            for (int occurrence = confirmed.firstOccurrenceFrom(now); occurrence < confirmed.getOccurrenceCount()
+                    && confirmed.getOccurrence(occurrence).isBefore(until); occurrence++) {
+                if (confirmed.isHeld(occurrence)) {
+                    upcomingAppointments.add(confirmed.toAppointment(occurrence));
+                }
             }
         }
         
@@ -366,142 +535,141 @@ public class DoctorController {
 
         view.displayMessage("Upcoming Appointments:");
         for (Appointment appt : upcomingAppointments) {
-            view.displayAppointmentRequests(appt, patients.get(appt.getPatientID()).getName());
+            view.displayAppointmentRequests(appt, patients.findPatient(appt.getPatientID()).getName());
         }
     }
 
     /**
      * Allows the doctor to record the outcome of an appointment.
-     * 
-     * @param nameofMedication List of medication names
-     * @param appointmentID The appointment ID
-     *
+     * Prescribed medications are chosen with {@link #chooseMedication()}.
      */
     private void recordAppointmentOutcome() {
-        int apptIndex = -1;
         String appointmentID = view.getAppointmentIDInput();
 
-        for (Appointment appt : appointments) {
-            if (appt.getAppointmentID().equals(appointmentID) && appt.getDoctorID().equals(model.getUserID())) {
-
-                Patient patient = patients.get(appt.getPatientID());
-                apptIndex = appointments.indexOf(appt);
-                String dateOfAppointment = appt.getDateTime().toString();
-                String typeOfService = view.getTypeOfServiceInput();
-                String treatmentplan = view.getTreatmentInput();
-                String diagnosis = view.getDiagnosisInput(); 
-                String consultationNotes = "\nDate: "+ dateOfAppointment + "\nDiagnosis: " + diagnosis + "\nTreatment Plan: " + treatmentplan;
-
-                //Intialize list of prescriptions, choice and quantity
-                List<Prescription> patientPrescriptions = new ArrayList<>();
-                int choice = -1;
-                int quantity = 0;
-
-                view.displayMessage("Add prescriptions?");
-
-                String prescriptionChoice = view.getDecisionInput();
-                if (prescriptionChoice.equalsIgnoreCase("A")) {
-                    //Loop to add multiple prescriptions until Doctor decides to stop
-                    while (choice != 0) {
-                        choice = view.getMedications(nameofMedication);
-                        if (choice > 0 && choice <= nameofMedication.size()) {
-                            String medicationName = nameofMedication.get(choice-1);
-                            quantity = view.getMedicationQuantity();
-                            Prescription newPrescription = new Prescription(medicationName, quantity);
-                            patientPrescriptions.add(newPrescription);
-                            view.displayMessage(medicationName + " added.");
-                        } 
-                        else if (choice == 0) {
-                            break;
-                        }
-                        else{
-                            view.displayMessage("Invalid choice. Please try again.");
-                        }
+        Appointment appt = appointments.findById(appointmentID);
+        boolean occurrence = false;
+        if (appt == null) {
+            //An occurrence of an accepted series becomes an appointment of its own once its outcome is recorded
+            appt = series.findOccurrence(appointmentID);
+            occurrence = appt != null;
+        }
+        if (appt != null && appt.getDoctorID().equals(model.getUserID())) {
+            Patient patient = patients.findPatient(appt.getPatientID());
+            String dateOfAppointment = appt.getDateTime().toString();
+            String typeOfService = view.getTypeOfServiceInput();
+            String treatmentplan = view.getTreatmentInput();
+            String diagnosis = view.getDiagnosisInput(); 
+            String consultationNotes = "\nDate: "+ dateOfAppointment + "\nDiagnosis: " + diagnosis + "\nTreatment Plan: " + treatmentplan;
+
+            //Intialize list of prescriptions, choice and quantity
+            List<Prescription> patientPrescriptions = new ArrayList<>();
+            int quantity = 0;
+
+            view.displayMessage("Add prescriptions?");
+
+            String prescriptionChoice = view.getDecisionInput();
+            if (prescriptionChoice.equalsIgnoreCase("A")) {
+                //Loop to add multiple prescriptions until Doctor decides to stop
+                while (true) {
+                    String medicationName = chooseMedication();
+                    if (medicationName == null) {
+                        break;
                     }
+                    quantity = view.getMedicationQuantity();
+                    Prescription newPrescription = new Prescription(medicationName, quantity);
+                    patientPrescriptions.add(newPrescription);
+                    view.displayMessage(medicationName + " added.");
                 }
+            }
 
 
-                AppointmentOutcome outcome = new AppointmentOutcome(dateOfAppointment, typeOfService, patientPrescriptions, consultationNotes);
-                appt.setOutcome(outcome);
-                appt.setStatus("completed");
+            AppointmentOutcome outcome = new AppointmentOutcome(dateOfAppointment, typeOfService, patientPrescriptions, consultationNotes);
+            appt.setOutcome(outcome);
+            appt.setStatus("completed");
 
-                //Add diagnosis and treatment to patient's medical record
-                if (patient != null) {
-                    patient.getMedicalRecord().addDiagnosis(diagnosis);
-                    patient.getMedicalRecord().addTreatment(treatmentplan);
-                    patient.saveModel();
-                }
+            //Store the occurrence as an appointment only now that its outcome is complete
+            if (occurrence && !series.expandOccurrence(appt)) {
+                view.displayMessage("The appointment was canceled while the outcome was being entered. Outcome not recorded.");
+                return;
+            }
 
-                saveAppointments();
-                view.displayMessage("Appointment outcome recorded.");
-                break;
+            //Add diagnosis and treatment to patient's medical record
+            if (patient != null) {
+                patient.getMedicalRecord().addDiagnosis(diagnosis);
+                patient.getMedicalRecord().addTreatment(treatmentplan);
+                patient.saveModel();
             }
-        }
 
-        if(apptIndex == -1){
+            if (!occurrence) {
+                appointments.save(appt);
+            }
+            view.displayMessage("Appointment outcome recorded.");
+        } else {
             view.displayMessage("Appointment not found.");
         }
     }
 
     /**
-     * Loads appointments from the serialized file.
+     * Loads appointments and appointment series from the shared repositories.
      */
     private void loadAppointments() {
-        try {
-            appointments = (List<Appointment>) SerializationUtil.deserialize("appointments.ser");
-        } catch (Exception e) {
-            view.displayMessage("Error loading appointments.");
-        }
+        appointments = AppointmentRepository.getInstance();
+        series = SeriesRepository.getInstance();
     }
 
     /**
-     * Saves appointments to the serialized file.
+     * Loads patients from the shared user repository.
      */
-    private void saveAppointments() {
-        try {
-            SerializationUtil.serialize(appointments, "appointments.ser");
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    private void loadPatients() {
+        patients = UserRepository.getInstance();
     }
 
     /**
-     * Loads patients from the serialized file.
+     * Loads inventory from the shared inventory repository.
      */
-    private void loadPatients() {
-        try {
-            patients = new HashMap<>();
-            HashMap<String, User> users = (HashMap<String, User>) SerializationUtil.deserialize("users.ser");
-            for (User user : users.values()) {
-                if (user.getRole().equals("Patient")) {
-                    patients.put(user.getUserID(), (Patient) user);
-                }
-            }
-            
-        } catch (Exception e) {
-            System.out.println("Error loading patients.");
-            
-        }
+    private void loadInventory() {
+        inventory = InventoryRepository.getInstance();
     }
 
     /**
-     * Loads inventory from the serialized file.
+     * Prompts the doctor for a medication to prescribe, with autocomplete.
+     * An exact name is accepted as it is. Otherwise the medications starting with the
+     * entered text are offered, or the closest names if none do, for the doctor to pick from.
+     *
+     * @return The name of the chosen medication, or null when the doctor is done.
      */
-    private void loadInventory() {
-            try {
-                availableMedication = (List<InventoryItem>) SerializationUtil.deserialize("inventory.ser");
-            } catch (Exception e) {
-                    view.displayMessage("Error loading inventory.");            
+    private String chooseMedication() {
+        while (true) {
+            String search = view.getMedicationSearchInput();
+            if (search.trim().isEmpty() || search.trim().equals("0")) {
+                return null;
+            }
+            InventoryItem exact = inventory.findByName(search);
+            if (exact != null) {
+                return exact.getMedicationName();
+            }
+
+            List<InventoryItem> matches = inventory.findByPrefix(search, SUGGESTIONS_SHOWN);
+            if (matches.isEmpty()) {
+                int maxDistance = search.trim().length() <= 4 ? 1 : 2;
+                matches = inventory.findSimilar(search, maxDistance, SUGGESTIONS_SHOWN);
+                if (matches.isEmpty()) {
+                    view.displayMessage("No medication matches '" + search + "'. Please try again.");
+                    continue;
                 }
-        }
-    
-    /**
-     * Saves medicine names to a list.
-     */
-    private void loadtoList(){
-        nameofMedication = new ArrayList<>();
-        for (InventoryItem item : availableMedication) {
-            nameofMedication.add(item.getMedicationName());            
+                view.displayMessage("No medication starts with '" + search + "'. Did you mean:");
+            }
+
+            List<String> names = new ArrayList<>();
+            for (InventoryItem item : matches) {
+                names.add(item.getMedicationName());
+            }
+            int choice = view.getMedications(names);
+            if (choice > 0 && choice <= names.size()) {
+                return names.get(choice - 1);
+            } else if (choice != 0) {
+                view.displayMessage("Invalid choice. Please try again.");
+            }
         }
     }
 
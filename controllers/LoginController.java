@@ -4,15 +4,15 @@ package controllers;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
 import models.Administrator;
 import models.Doctor;
 import models.Patient;
 import models.Pharmacist;
 import models.User;
+import repositories.UserRepository;
 import utils.PasswordUtil;
-import utils.SerializationUtil;
 import views.LoginView;
+import views.SessionIO;
 
 /**
  * Controller class for handling user login and authentication in the Hospital Management System.
@@ -21,7 +21,8 @@ import views.LoginView;
  */
 public class LoginController {
     private LoginView view;
-    private HashMap<String, User> users;
+    private UserRepository users;
+    private boolean usersLoaded;
 
     /**
      * Constructs a LoginController object that handles the login process.
@@ -34,24 +35,28 @@ public class LoginController {
     }
 
     /**
-     * Loads users from a serialized file.
+     * Loads users from the shared user repository.
      * If no user data exists, creates a default administrator account.
+     * If the user data cannot be read, only this session is ended, so that other
+     * sessions served by the same process keep running.
      */
     private void loadUsers() {
+        users = UserRepository.getInstance();
         try {
-            users = (HashMap<String, User>) SerializationUtil.deserialize("users.ser");
+            users.load();
+            usersLoaded = true;
             System.out.println("User data loaded successfully.");
         } catch (FileNotFoundException e) {
             // users.ser does not exist; create default users
-            users = new HashMap<>();
             Administrator admin = new Administrator("admin", "Administrator", "password");
-            users.put(admin.getUserID(), admin);
+            users.save(admin);
             saveUsers();
+            usersLoaded = true;
             System.out.println("No existing user data found. Created default administrator account.");
         } catch (IOException | ClassNotFoundException e) {
             view.displayMessage("Error loading user data: " + e.getMessage());
             e.printStackTrace();
-            System.exit(1); // Terminate the program to prevent data loss
+            SessionIO.end(1); // End this session without touching the data to prevent data loss
         }
     }
 
@@ -59,12 +64,16 @@ public class LoginController {
      * Authenticates the user based on the input credentials.
      * If the credentials are valid, redirects the user to their role-specific controller.
      * If authentication fails, prompts the user to try again.
+     * Nothing is done if the user data could not be loaded.
      */
     public void authenticate() {
+        if (!usersLoaded) {
+            return;
+        }
         String userID = view.getUserID();
         String password = view.getPassword();
 
-        User user = users.get(userID);
+        User user = users.findById(userID);
         if (user != null) {
             String hashedInputPassword = PasswordUtil.hashPassword(password, user.getSalt());
             if (hashedInputPassword.equals(user.getHashedPassword())) {
@@ -108,7 +117,7 @@ public class LoginController {
         user.setHashedPassword(PasswordUtil.hashPassword(newPassword, user.getSalt()));
         user.setFirstLogin(false);
 
-        saveUsers();
+        user.saveModel();
 
         view.displayMessage("Password changed successfully.\n");
     }
@@ -140,9 +149,9 @@ public class LoginController {
             default:
                 view.displayMessage("Invalid role.");
         }
-        // After the user logs out, terminate the program
+        // After the user logs out, end the session
         view.displayMessage("Thank you for using the Hospital Management System. Goodbye!");
-        System.exit(0);
+        SessionIO.end(0);
     }
 
     /**
@@ -150,7 +159,7 @@ public class LoginController {
      */
     private void saveUsers() {
         try {
-            SerializationUtil.serialize(users, "users.ser");
+            users.saveAll();
             System.out.println("Data saved successfully");
         } catch (IOException e) {
             System.out.println("Error saving user data: " + e.getMessage());
@@ -1,19 +1,35 @@
 package controllers;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import models.Appointment;
 import models.AppointmentOutcome;
+import models.AppointmentRequest;
+import models.AppointmentSeries;
 import models.Doctor;
+import models.DoctorCalendar;
 import models.MedicalRecord;
 import models.Patient;
-import models.User;
-import utils.SerializationUtil;
+import models.WaitlistEntry;
+import repositories.AppointmentRepository;
+import repositories.AvailabilityIndex;
+import repositories.RequestRepository;
+import repositories.ScheduleRepository;
+import repositories.SeriesRepository;
+import repositories.UserRepository;
+import repositories.WaitlistEngine;
+import repositories.WaitlistRepository;
+import utils.Config;
+import utils.FlightEvents;
+import utils.Metrics;
 import views.PatientView;
 
 
@@ -21,12 +37,14 @@ import views.PatientView;
  * Controller class for handling patient-related operations.
  */
 public class PatientController {
+    private static final int SLOTS_SHOWN = 10;
+
     private Patient model;
     private Doctor doctor;
     private PatientView view;
     private MedicalRecord record;
-    private List<Appointment> appointments;
-    private HashMap<String, Doctor> doctors;
+    private AppointmentRepository appointments;
+    private UserRepository users;
 
 
     /**
@@ -52,36 +70,39 @@ public class PatientController {
             choice = view.getUserChoice();
             switch (choice) {
                 case 1:
-                    viewMedicalRecord();
+                    Metrics.timeAction("patient.viewMedicalRecord", this::viewMedicalRecord);
                     break;
                 case 2:
-                    updatePersonalInfo();
+                    Metrics.timeAction("patient.updatePersonalInfo", this::updatePersonalInfo);
                     break;
                 case 3:
-                    viewAvailableAppointmentSlots(); 
+                    Metrics.timeAction("patient.viewAvailableAppointmentSlots", this::viewAvailableAppointmentSlots); 
                     break;
                 case 4:
-                    scheduleAppointment();
+                    Metrics.timeAction("patient.scheduleAppointment", this::scheduleAppointment);
                     break;
                 case 5:
-                    rescheduleAppointment();
+                    Metrics.timeAction("patient.rescheduleAppointment", this::rescheduleAppointment);
                     break;
                 case 6:
-                    cancelAppointment();
+                    Metrics.timeAction("patient.cancelAppointment", this::cancelAppointment);
                     break;
                 case 7:
-                    viewScheduledAppointments();
+                    Metrics.timeAction("patient.viewScheduledAppointments", this::viewScheduledAppointments);
                     break;
                 case 8:
-                    viewPastAppointmentOutcomes();
+                    Metrics.timeAction("patient.viewPastAppointmentOutcomes", this::viewPastAppointmentOutcomes);
                     break;
                 case 9:
+                    Metrics.timeAction("patient.manageWaitlist", this::manageWaitlist);
+                    break;
+                case 10:
                     view.displayMessage("Logging out...");
                     break;
                 default:
                     view.displayMessage("Invalid choice. Please try again.");
             }
-        } while (choice != 9);
+        } while (choice != 10);
     }
 
     /**
@@ -104,31 +125,13 @@ public class PatientController {
     }
 
     /**
-     * Displays available appointment slots for doctors.
+     * Displays the next available appointment slots across all doctors.
      */
-     
     private void viewAvailableAppointmentSlots() {
-        // For simplicity, assume all doctors have the same availability
-        for (Map.Entry<String, Doctor> entry : doctors.entrySet()) {
-        String doctorID = entry.getKey();
-        Doctor doctor = entry.getValue();
-
-        // Load the doctor's schedule based on their ID
-        List<String> schedule = loadSchedule(doctorID);
-
-        // Display the schedule if available
-        if (!schedule.isEmpty()) {
-            System.out.println("Available slots for " + doctor.getName() + " (" + doctorID + "):");
-            for (String slot : schedule) {
-                System.out.println(slot);
-            }
-        } else {
-            System.out.println("No available slots for Dr. " + doctor.getName() + " (" + doctorID + ").");
+        if (!showNextAvailableSlots(view.getSpecialtyInput())) {
+            view.displayMessage("No available appointment slots.");
         }
-        System.out.println();
-    }
     }
-        
 
     /**
      * Retrieves a list of appointments scheduled for the patient.
@@ -136,13 +139,7 @@ public class PatientController {
      * @return List of Appointment objects that belong to the patient.
      */
     private List<Appointment> getPatientAppointments() {
-        List<Appointment> patientAppointments = new ArrayList<>();
-        for (Appointment appt : appointments) {
-            if (appt.getPatientID().equals(model.getUserID())) {
-                patientAppointments.add(appt);
-            }
-        }
-        return patientAppointments;
+        return appointments.findByPatient(model.getUserID());
     }
     
 
@@ -151,38 +148,23 @@ public class PatientController {
      */
     private void scheduleAppointment() {
         
-        // Step 1: Show all available appointment slots for all doctors
-        System.out.println("All available appointment slots:");
-        Map<String, List<String>> doctorSlots = new HashMap<>();
-        
-        // Collect all available slots for each doctor
-        for (Map.Entry<String, Doctor> entry : doctors.entrySet()) {
-            String doctorID = entry.getKey();
-            Doctor doctor = entry.getValue();
-
-            // Load the doctor's schedule based on their ID
-            List<String> slots = loadSchedule(doctorID);
-
-            // Only show the doctor and their slots if there are available slots
-            if (!slots.isEmpty()) {
-                System.out.println("Available slots for " + doctor.getName() + " (" + doctorID + "):");
-                for (String slot : slots) {
-                    System.out.println(slot);
-                }
-                doctorSlots.put(doctorID, slots);  // Store the slots for later selection
-            } else {
-                System.out.println("No available slots for " + doctor.getName() + " (" + doctorID + ").");
-            }
-
-            System.out.println();
+        // Step 1: Show the next available appointment slots, optionally for one specialty
+        String specialty = view.getSpecialtyInput();
+        if (!showNextAvailableSlots(specialty)) {
+            view.displayMessage("No available appointment slots.");
+            return;
         }
 
-        // Step 2: Ask the user to select a doctor from the available slots
-        String doctorID = view.getDoctorIDInput();  // Get the selected doctor's ID from the user input
-        List<String> availableSlots = doctorSlots.get(doctorID);  // Retrieve the available slots for the selected doctor
+        // Step 2: Ask the user to select a doctor from the available slots, or to have one assigned
+        String doctorID = view.getBookingDoctorInput().trim();  // Get the selected doctor's ID from the user input
+        if (doctorID.isEmpty()) {
+            requestAssignment(null, specialty.isEmpty() ? null : specialty);
+            return;
+        }
+        DoctorCalendar calendar = users.findDoctor(doctorID) == null ? null : loadCalendar(doctorID);
 
-        // Step 3: Check if the doctor exists and has available slots
-        if (availableSlots == null || availableSlots.isEmpty()) {
+        // Step 3: Check if the doctor exists and has a calendar
+        if (calendar == null) {
             view.displayMessage("No available slots for the selected doctor. Please try again.");
             return;
         }
@@ -190,44 +172,61 @@ public class PatientController {
         // Step 4: Display the available slots for the selected doctor
         //view.displayAvailableSlots(availableSlots);
 
-        // Step 5: Ask the user to select a time slot for the appointment
-        String dateTimeStr = view.getAppointmentDateTime();  // Get the selected time slot from the user
+        // Step 5: Ask the user to select a time slot for the appointment, or to have one assigned
+        String dateTimeStr = view.getBookingDateTimeInput().trim();  // Get the selected time slot from the user
+        if (dateTimeStr.isEmpty()) {
+            requestAssignment(doctorID, null);
+            return;
+        }
 
         LocalDateTime dateTime;
         try {
             // Parse the selected date and time input
             dateTime = LocalDateTime.parse(dateTimeStr, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
-            String formattedDateTime = dateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
 
-            // Step 6: Check if the selected slot is available
-            if (!availableSlots.contains(formattedDateTime)) {
-                view.displayMessage("The selected slot is not available. Please choose a different time.");
+            // Recurring appointments are booked as one series
+            String repeat = view.getRepeatInput();
+            if (repeat.equalsIgnoreCase("D") || repeat.equalsIgnoreCase("W")) {
+                bookSeries(doctorID, calendar, dateTime, repeat.equalsIgnoreCase("D") ? 1 : 7);
                 return;
             }
 
-            // Step 7: Check if the user already has an appointment for the same time
-            for (Appointment existingAppointment : appointments) {
-                if (existingAppointment.getPatientID().equals(model.getUserID()) && 
-                    existingAppointment.getDateTime().equals(dateTime)) {
-                    view.displayMessage("You have an existing appointment request that is currently being processed on the same day and time. Please check if the appointment has gone through using the view Scheduled Appointment.");
-                    return;
+            // Step 6: Ask how long the appointment is; anything but a whole slot is booked by the minute
+            int minutes = parseDuration(view.getDurationInput());
+            if (minutes <= 0) {
+                view.displayMessage("The length must be a positive multiple of " + DoctorCalendar.MINUTE_STEP + " minutes.");
+                return;
+            }
+
+            // Step 7: Check if the user already has an appointment at an overlapping time
+            if (overlapsAny(bookedPeriods(), dateTime, minutes)) {
+                recordBookingConflict(doctorID, dateTime, "patient already booked");
+                view.displayMessage("You have an existing appointment request that is currently being processed on the same day and time. Please check if the appointment has gone through using the view Scheduled Appointment.");
+                return;
+            }
+
+            // Step 8: Hold the time for this request; only one patient can win it
+            if (!calendar.reserve(dateTime, minutes, Config.APPOINTMENT_BUFFER_MINUTES, model.getUserID())) {
+                recordBookingConflict(doctorID, dateTime, "slot not available");
+                view.displayMessage("The selected slot is not available. Please choose a different time.");
+                if (minutes != DoctorCalendar.SLOT_MINUTES) {
+                    view.displayFreePeriods(dateTime.toLocalDate(), calendar.getFreePeriods(dateTime.toLocalDate()));
                 }
+                return;
             }
+            saveCalendar(doctorID, calendar);
 
-            // Step 8: Create a new appointment for the selected time slot
+            // Step 9: Create a new appointment for the selected time slot
             Appointment appointment = new Appointment(
-                    "APT" + System.currentTimeMillis(),  // Generate a unique appointment ID
+                    appointments.nextAppointmentID(),  // Generate a unique appointment ID
                     model.getUserID(),  // Patient ID
                     doctorID,  // Doctor's ID
                     dateTime  // Selected date and time
             );
+            appointment.setDurationMinutes(minutes);
 
             appointment.setStatus("pending");  // Set the appointment status to pending
-            appointments.add(appointment);  // Add the new appointment to the list
-            saveAppointments();  // Save the updated list of appointments
-
-            // Remove the booked slot from the available slots
-            availableSlots.remove(formattedDateTime);
+            appointments.save(appointment);  // Add and save the new appointment
 
             view.displayMessage("Appointment scheduled successfully.");
         } catch (Exception e) {
@@ -235,14 +234,168 @@ public class PatientController {
         }
         }
 
+    /**
+     * Queues a request to be assigned an appointment by the next auto-scheduling run.
+     * The patient gives the range of dates in which the appointment should be.
+     *
+     * @param doctorID  The ID of the preferred doctor, or null for any doctor.
+     * @param specialty The specialty wanted, or null for any specialty.
+     */
+    private void requestAssignment(String doctorID, String specialty) {
+        LocalDate earliest;
+        LocalDate latest;
+        try {
+            earliest = LocalDate.parse(view.getEarliestDateInput().trim());
+            latest = LocalDate.parse(view.getLatestDateInput().trim());
+        } catch (DateTimeParseException e) {
+            view.displayMessage("Invalid date. Please enter a valid date.");
+            return;
+        }
+        if (latest.isBefore(earliest) || latest.isBefore(LocalDate.now())) {
+            view.displayMessage("The latest date must be today or later, and not before the earliest date.");
+            return;
+        }
+
+        RequestRepository requests = RequestRepository.getInstance();
+        AppointmentRequest request = new AppointmentRequest(requests.nextRequestID(), model.getUserID(), doctorID,
+                specialty, earliest.atStartOfDay(), latest.plusDays(1).atStartOfDay(), LocalDateTime.now());
+        requests.save(request);
+        view.displayMessage("Your request (" + request.getRequestID() + ") has been queued. It will be assigned a free "
+                + "slot in that range by the next scheduling run and shown under View Scheduled Appointments.");
+    }
+
+    /**
+     * Books a recurring series of appointments with one doctor.
+     * Every occurrence is checked and booked on the doctor's calendar in one pass,
+     * and the calendar and the series are then saved once. Occurrences that clash
+     * with the patient's other appointments or whose slot is not available are
+     * left out of the series and listed.
+     *
+     * @param doctorID     The doctor's ID.
+     * @param calendar     The doctor's calendar.
+     * @param start        The date and time of the first occurrence.
+     * @param intervalDays The number of days between occurrences.
+     */
+    private void bookSeries(String doctorID, DoctorCalendar calendar, LocalDateTime start, int intervalDays) {
+        int count;
+        try {
+            count = view.getOccurrenceCountInput(Config.SERIES_MAX_OCCURRENCES);
+        } catch (NumberFormatException e) {
+            count = 0;
+        }
+        if (count < 2 || count > Config.SERIES_MAX_OCCURRENCES) {
+            view.displayMessage("A series must have between 2 and " + Config.SERIES_MAX_OCCURRENCES + " appointments.");
+            return;
+        }
+
+        SeriesRepository seriesRepository = SeriesRepository.getInstance();
+        AppointmentSeries series = new AppointmentSeries(seriesRepository.nextSeriesID(), model.getUserID(), doctorID,
+                start, intervalDays, count);
+
+        // Leave out the occurrences the patient is already booked for, then book the rest together
+        Map<LocalDateTime, Integer> busy = bookedPeriods();
+        List<LocalDateTime> wanted = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int occurrence = 0; occurrence < count; occurrence++) {
+            LocalDateTime dateTime = series.getOccurrence(occurrence);
+            if (overlapsAny(busy, dateTime, DoctorCalendar.SLOT_MINUTES)) {
+                series.release(occurrence);
+            } else {
+                wanted.add(dateTime);
+                positions.add(occurrence);
+            }
+        }
+        BitSet booked = calendar.reserveSeries(wanted, model.getUserID());
+        for (int i = 0; i < positions.size(); i++) {
+            if (!booked.get(i)) {
+                series.release(positions.get(i));
+            }
+        }
+
+        if (series.getHeldCount() == 0) {
+            recordBookingConflict(doctorID, start, "no slot of the series available");
+            view.displayMessage("None of the appointments in the series are available. Please choose a different time.");
+            return;
+        }
+        saveCalendar(doctorID, calendar);
+        seriesRepository.save(series);
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        view.displayMessage("Appointment series " + series.getSeriesID() + " scheduled successfully: "
+                + series.getHeldCount() + " of " + count + " appointments booked.");
+        for (int occurrence = 0; occurrence < count; occurrence++) {
+            if (!series.isHeld(occurrence)) {
+                view.displayMessage("Not available: " + series.getOccurrence(occurrence).format(formatter));
+            }
+        }
+    }
+
+    /**
+     * Collects the times at which the patient already has an appointment,
+     * including the occurrences held by the patient's series.
+     *
+     * @return The length in minutes of the patient's appointments by start time.
+     */
+    private Map<LocalDateTime, Integer> bookedPeriods() {
+        Map<LocalDateTime, Integer> periods = new HashMap<>();
+        for (Appointment appt : getPatientAppointments()) {
+            periods.merge(appt.getDateTime(), appt.getDurationMinutes(), Math::max);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (AppointmentSeries series : SeriesRepository.getInstance().findByPatient(model.getUserID())) {
+            for (int occurrence = series.firstOccurrenceFrom(now); occurrence < series.getOccurrenceCount(); occurrence++) {
+                if (series.isHeld(occurrence)) {
+                    periods.merge(series.getOccurrence(occurrence), DoctorCalendar.SLOT_MINUTES, Math::max);
+                }
+            }
+        }
+        return periods;
+    }
+
+    /**
+     * Checks whether an appointment would overlap any of a set of booked periods.
+     *
+     * @param periods The length in minutes of booked appointments by start time.
+     * @param start   The start of the appointment.
+     * @param minutes The length of the appointment in minutes.
+     * @return true if the appointment overlaps a booked period, false otherwise.
+     */
+    private static boolean overlapsAny(Map<LocalDateTime, Integer> periods, LocalDateTime start, int minutes) {
+        LocalDateTime end = start.plusMinutes(minutes);
+        for (Map.Entry<LocalDateTime, Integer> period : periods.entrySet()) {
+            if (period.getKey().isBefore(end) && period.getKey().plusMinutes(period.getValue()).isAfter(start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses the length of an appointment.
+     *
+     * @param input The length in minutes, or an empty string for one slot.
+     * @return The length in minutes, or -1 if it is not a positive multiple of {@link DoctorCalendar#MINUTE_STEP}.
+     */
+    private static int parseDuration(String input) {
+        if (input.trim().isEmpty()) {
+            return DoctorCalendar.SLOT_MINUTES;
+        }
+        try {
+            int minutes = Integer.parseInt(input.trim());
+            return minutes > 0 && minutes % DoctorCalendar.MINUTE_STEP == 0 ? minutes : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     /**
      * Allows the patient to reschedule an appointment.
      */
     private void rescheduleAppointment() {
         
         List<Appointment> patientAppointments = new ArrayList<>();
-        for (Appointment appt : appointments) {
-            if (appt.getPatientID().equals(model.getUserID()) && !appt.getStatus().equals("completed")) {
+        for (Appointment appt : getPatientAppointments()) {
+            if (!appt.getStatus().equals("completed")) {
                 patientAppointments.add(appt);
             }
         }
@@ -268,30 +421,24 @@ public class PatientController {
             return;
         }
 
-        Map<String, List<String>> doctorSlots = new HashMap<>();
-        for (Map.Entry<String, Doctor> entry : doctors.entrySet()) {
-            String doctorID = entry.getKey();
-            Doctor doctor = entry.getValue();
-
-            List<String> slots = loadSchedule(doctorID);
-
-            if (!slots.isEmpty()) {
-                System.out.println("Available slots for " + doctor.getName() + " (" + doctorID + "):");
-                for (String slot : slots) {
-                    System.out.println(slot);
-                }
-                doctorSlots.put(doctorID, slots);
-            }
+        if (!showNextAvailableSlots(view.getSpecialtyInput())) {
+            view.displayMessage("No available appointment slots.");
+            return;
         }
 
         String newDoctorID = view.getDoctorIDInput();
-        List<String> availableSlotsForDoctor = doctorSlots.get(newDoctorID);
+        DoctorCalendar calendarForDoctor = users.findDoctor(newDoctorID) == null ? null : loadCalendar(newDoctorID);
         
-        if (availableSlotsForDoctor == null || availableSlotsForDoctor.isEmpty()) {
+        if (calendarForDoctor == null) {
             view.displayMessage("No available slots for the selected doctor.");
             return;
         }
 
+        if (!newDoctorID.equals(appointmentToReschedule.getDoctorID())) {
+            view.displayMessage("An appointment can only be moved to another slot with the same doctor. Cancel it and schedule a new one to change doctor.");
+            return;
+        }
+
         String newDateTimeStr = view.getAppointmentDateTime();
         LocalDateTime newDateTime;
         
@@ -302,32 +449,32 @@ public class PatientController {
             return;
         }
 
-        String formattedNewDateTime = newDateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
-        if (!availableSlotsForDoctor.contains(formattedNewDateTime)) {
-            view.displayMessage("The selected time slot is not available. Please choose a different time.");
-            return;
-        }
-
-        for (Appointment existingAppointment : appointments) {
-            if (existingAppointment.getPatientID().equals(model.getUserID()) && 
-                existingAppointment.getDateTime().equals(newDateTime)) {
+        int minutes = appointmentToReschedule.getDurationMinutes();
+        for (Appointment existingAppointment : getPatientAppointments()) {
+            if (existingAppointment != appointmentToReschedule && existingAppointment.getDateTime().isBefore(newDateTime.plusMinutes(minutes))
+                    && existingAppointment.getDateTime().plusMinutes(existingAppointment.getDurationMinutes()).isAfter(newDateTime)) {
+                recordBookingConflict(newDoctorID, newDateTime, "patient already booked");
                 view.displayMessage("You already have an appointment at this time. Please choose another slot.");
                 return;
             }
         }
 
-        String oldDateTime = appointmentToReschedule.getDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
-        availableSlotsForDoctor.add(oldDateTime);
-
-        appointmentToReschedule.setDateTime(newDateTime);
-
-        if (appointmentToReschedule.getStatus().equals("confirmed")) {
-            appointmentToReschedule.setStatus("pending");
+        // Hold the new time, for the same length, before giving up the old one
+        if (!calendarForDoctor.reserve(newDateTime, minutes, Config.APPOINTMENT_BUFFER_MINUTES, model.getUserID())) {
+            recordBookingConflict(newDoctorID, newDateTime, "slot not available");
+            view.displayMessage("The selected time slot is not available. Please choose a different time.");
+            if (minutes != DoctorCalendar.SLOT_MINUTES) {
+                view.displayFreePeriods(newDateTime.toLocalDate(), calendarForDoctor.getFreePeriods(newDateTime.toLocalDate()));
+            }
+            return;
         }
+        saveCalendar(newDoctorID, calendarForDoctor);
 
-        availableSlotsForDoctor.remove(formattedNewDateTime);
+        releaseSlot(appointmentToReschedule);
+        appointmentToReschedule.setStatus("pending");
+        appointmentToReschedule.setDateTime(newDateTime);
 
-        saveAppointments();
+        appointments.save(appointmentToReschedule);
         
         view.displayMessage("Appointment rescheduled successfully.");
     }
@@ -338,19 +485,33 @@ public class PatientController {
     private void cancelAppointment() {
         // Implementation for canceling an appointment
         List<Appointment> patientAppointments = getPatientAppointments();
+        List<AppointmentSeries> patientSeries = SeriesRepository.getInstance().findByPatient(model.getUserID());
+        List<AppointmentRequest> patientRequests = RequestRepository.getInstance().findByPatient(model.getUserID());
 
-        if (patientAppointments.isEmpty()) {
+        if (patientAppointments.isEmpty() && patientSeries.isEmpty() && patientRequests.isEmpty()) {
             view.displayMessage("You have no scheduled appointments to cancel.");
             return;
         }
 
         view.displayScheduledAppointments(patientAppointments);
+        view.displaySeries(patientSeries);
+        view.displayRequests(patientRequests);
 
         String appointmentID = view.getAppointmentIDInput(); // Assuming this method retrieves the appointment ID
+        if (cancelSeries(patientSeries, appointmentID)) {
+            return;
+        }
+        for (AppointmentRequest request : patientRequests) {
+            if (request.getRequestID().equals(appointmentID)) {
+                RequestRepository.getInstance().delete(appointmentID);
+                view.displayMessage("Appointment request canceled successfully.");
+                return;
+            }
+        }
 
         Appointment appointmentToCancel = null;
-        for (Appointment appt : appointments) {
-            if (appt.getAppointmentID().equals(appointmentID) && appt.getPatientID().equals(model.getUserID())) {
+        for (Appointment appt : patientAppointments) {
+            if (appt.getAppointmentID().equals(appointmentID)) {
                 appointmentToCancel = appt;
                 break;
             }
@@ -361,33 +522,86 @@ public class PatientController {
             return;
         }
 
-        // Update appointment status and remove it from the list
+        // Update appointment status, free its slot and remove it from the list
         appointmentToCancel.setStatus("canceled");
-        appointments.remove(appointmentToCancel);
+        releaseSlot(appointmentToCancel);
         
-        // Save the updated appointments list
-        saveAppointments();
+        // Remove the canceled appointment from the saved appointments
+        appointments.delete(appointmentToCancel.getAppointmentID());
         view.displayMessage("Appointment canceled successfully.");
 
     }
 
+    /**
+     * Cancels a whole series, or one occurrence of a series, if the ID names one.
+     * The freed slots are released on the doctor's calendar in one pass, the calendar
+     * is saved once, and the slots are then offered to the waitlist.
+     *
+     * @param patientSeries The patient's series.
+     * @param id            A series ID or an occurrence ID.
+     * @return true if the ID named a series or one of its held occurrences, false otherwise.
+     */
+    private boolean cancelSeries(List<AppointmentSeries> patientSeries, String id) {
+        String seriesID = AppointmentSeries.seriesIDOf(id);
+        for (AppointmentSeries series : patientSeries) {
+            boolean whole = series.getSeriesID().equals(id);
+            if (!whole && !series.getSeriesID().equals(seriesID)) {
+                continue;
+            }
+            int first = whole ? series.firstOccurrenceFrom(LocalDateTime.now()) : AppointmentSeries.occurrenceOf(id);
+            int last = whole ? series.getOccurrenceCount() : first + 1;
+            if (!series.isHeld(first) && !whole) {
+                // An occurrence whose outcome was recorded is an appointment of its own
+                return false;
+            }
+
+            DoctorCalendar calendar = loadCalendar(series.getDoctorID());
+            List<LocalDateTime> freed = new ArrayList<>();
+            for (int occurrence = first; occurrence < last; occurrence++) {
+                if (!series.isHeld(occurrence)) {
+                    continue;
+                }
+                series.release(occurrence);
+                LocalDateTime dateTime = series.getOccurrence(occurrence);
+                if (calendar != null && calendar.release(dateTime, model.getUserID())) {
+                    freed.add(dateTime);
+                }
+            }
+            if (!freed.isEmpty()) {
+                saveCalendar(series.getDoctorID(), calendar);
+            }
+            if (whole || series.getHeldCount() == 0) {
+                SeriesRepository.getInstance().delete(series.getSeriesID());
+            } else {
+                SeriesRepository.getInstance().save(series);
+            }
+            for (LocalDateTime dateTime : freed) {
+                WaitlistEngine.getInstance().slotFreed(series.getDoctorID(), dateTime, DoctorCalendar.SLOT_MINUTES, model.getUserID());
+            }
+            view.displayMessage(whole ? "Appointment series canceled successfully." : "Appointment canceled successfully.");
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Displays the patient's scheduled appointments.
      */
     private void viewScheduledAppointments() {
-        List<Appointment> patientAppointments = appointments.stream()
+        List<Appointment> patientAppointments = getPatientAppointments().stream()  // Appointments for the current patient
         .filter(appt -> !appt.getStatus().equals("completed"))  // Filter out completed appointments
-        .filter(appt -> appt.getPatientID().equals(model.getUserID()))  // Filter appointments for the current patient
         .collect(Collectors.toList());  // Collect the results back into a list
 
-        if (patientAppointments.isEmpty()) {
+        List<AppointmentSeries> patientSeries = SeriesRepository.getInstance().findByPatient(model.getUserID());
+        List<AppointmentRequest> patientRequests = RequestRepository.getInstance().findByPatient(model.getUserID());
+        if (patientAppointments.isEmpty() && patientSeries.isEmpty() && patientRequests.isEmpty()) {
             view.displayMessage("You have no scheduled appointments.");
             return;
         }
         
         for (Appointment appt : patientAppointments) {
             String doctorID = appt.getDoctorID();
-            Doctor doctor = doctors.get(doctorID);  // Retrieve the doctor object based on doctorID
+            Doctor doctor = users.findDoctor(doctorID);  // Retrieve the doctor object based on doctorID
             if (doctor != null) {
                 appt.setDoctorName(doctor.getName());  // Set the doctor's name in the appointment object
             } else {
@@ -396,6 +610,8 @@ public class PatientController {
         }    
         // Display the filtered list of appointments with doctor names
         view.displayScheduledAppointments(patientAppointments);
+        view.displaySeries(patientSeries);
+        view.displayRequests(patientRequests);
     }
 
     /**
@@ -407,12 +623,10 @@ public class PatientController {
         LocalDateTime now = LocalDateTime.now(); // Get the current time
 
         // Loop through appointments to find past ones
-        for (Appointment appointment : appointments) {
-            if (appointment.getPatientID().equals(model.getUserID())) {
-                // Assuming getOutcome() returns an AppointmentOutcome or a string
-                if (appointment.getOutcome() != null){
-                    pastOutcomes.add(appointment.getOutcome());
-                }
+        for (Appointment appointment : getPatientAppointments()) {
+            // Assuming getOutcome() returns an AppointmentOutcome or a string
+            if (appointment.getOutcome() != null){
+                pastOutcomes.add(appointment.getOutcome());
             }
         }
 
@@ -424,69 +638,140 @@ public class PatientController {
     }
 
     /**
-     * Saves the patient model to the serialized file.
+     * Allows the patient to join the waitlist for a doctor or for any doctor, or to leave it.
+     * When a matching slot is freed, it is booked for the patient who has waited longest.
      */
+    private void manageWaitlist() {
+        WaitlistRepository waitlist = WaitlistRepository.getInstance();
+        view.displayWaitlistEntries(waitlist.findByPatient(model.getUserID()));
+        String action = view.getWaitlistAction();
+
+        if (action.equalsIgnoreCase("J")) {
+            String doctorID = view.getWaitlistDoctorInput().trim();
+            if (doctorID.isEmpty()) {
+                doctorID = null;
+            } else if (users.findDoctor(doctorID) == null) {
+                view.displayMessage("Doctor not found.");
+                return;
+            }
+            if (waitlist.isWaiting(model.getUserID(), doctorID)) {
+                view.displayMessage("You are already on this waitlist.");
+                return;
+            }
+            WaitlistEntry entry = new WaitlistEntry(waitlist.nextEntryID(), model.getUserID(), doctorID, LocalDateTime.now());
+            waitlist.save(entry);
+            view.displayMessage("You have joined the waitlist (" + entry.getEntryID() + "). When a slot frees up, it will be "
+                    + "booked for you and shown under View Scheduled Appointments.");
+        } else if (action.equalsIgnoreCase("L")) {
+            String entryID = view.getWaitlistEntryIDInput();
+            for (WaitlistEntry entry : waitlist.findByPatient(model.getUserID())) {
+                if (entry.getEntryID().equals(entryID)) {
+                    waitlist.delete(entryID);
+                    view.displayMessage("You have left the waitlist.");
+                    return;
+                }
+            }
+            view.displayMessage("Waitlist entry not found.");
+        }
+    }
 
     /**
-     * Loads appointments from the serialized file.
+     * Loads appointments from the shared appointment repository.
      */
     private void loadAppointments() {
-        try {
-            appointments = (List<Appointment>) SerializationUtil.deserialize("appointments.ser");
-            /*appointments = appointments.stream()
-                                   .filter(appt -> !appt.getStatus().equals("completed"))
-                                   .collect(Collectors.toList()); */
-        } catch (Exception e) {
-            appointments = new ArrayList<>();
-        }
+        appointments = AppointmentRepository.getInstance();
+    }
+
+    /**
+     * Loads doctors from the shared user repository.
+     */
+    private void loadDoctors() {
+        users = UserRepository.getInstance();
     }
 
     /**
-     * Saves appointments to the serialized file.
+     * Displays the next free slots from the availability index.
+     *
+     * @param specialty The specialty to search, or an empty string for all doctors.
+     * @return true if any slots were displayed, false if none are available.
      */
-    private void saveAppointments() {
+    private boolean showNextAvailableSlots(String specialty) {
+        List<AvailabilityIndex.Slot> slots = AvailabilityIndex.getInstance()
+                .findAvailable(specialty.isEmpty() ? null : specialty, LocalDateTime.now(), SLOTS_SHOWN);
+        if (slots.isEmpty()) {
+            return false;
+        }
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        List<String> lines = new ArrayList<>();
+        for (AvailabilityIndex.Slot slot : slots) {
+            Doctor doctor = users.findDoctor(slot.getDoctorID());
+            String name = doctor == null ? "Unknown Doctor" : doctor.getName() + ", " + doctor.getSpecialty();
+            lines.add(slot.getDateTime().format(formatter) + "  " + name + " (" + slot.getDoctorID() + ")");
+        }
+        view.displayAvailableSlots(lines);
+        return true;
+    }
+
+    /**
+     * Loads a doctor's calendar from the shared schedule repository.
+     *
+     * @param docid The doctor's ID.
+     * @return The doctor's calendar, or null if it cannot be loaded.
+     */    
+    private DoctorCalendar loadCalendar(String docid) {
         try {
-            SerializationUtil.serialize(appointments, "appointments.ser");
+            return ScheduleRepository.getInstance().findByDoctorID(docid);
         } catch (Exception e) {
-            e.printStackTrace();
+            System.out.println("Error loading schedule: " + e.getMessage());
+            return null;
         }
     }
 
     /**
-     * Loads doctors from the serialized file.
+     * Frees the slot held by an appointment on its doctor's calendar, if the patient holds it,
+     * and offers it to the waitlist.
+     *
+     * @param appointment The appointment.
      */
-    private void loadDoctors() {
-        try {
-            doctors = new HashMap<>();
-            HashMap<String, User> users = (HashMap<String, User>) SerializationUtil.deserialize("users.ser");
-            for (User user : users.values()) {
-                if (user.getRole().equals("Doctor")) {
-                    doctors.put(user.getUserID(), (Doctor) user);
-                }
-            }
-            
-        } catch (Exception e) {
-            System.out.println("Error loading Doctors.");
+    private void releaseSlot(Appointment appointment) {
+        DoctorCalendar calendar = loadCalendar(appointment.getDoctorID());
+        if (calendar != null && calendar.release(appointment.getDateTime(), appointment.getDurationMinutes(), model.getUserID())) {
+            saveCalendar(appointment.getDoctorID(), calendar);
+            WaitlistEngine.getInstance().slotFreed(appointment.getDoctorID(), appointment.getDateTime(),
+                    appointment.getDurationMinutes(), model.getUserID());
         }
     }
 
     /**
-     * Loads the schedule from a serialized file.
-     */    
-    private List<String> loadSchedule(String docid) {
-        List<String> schedule = new ArrayList<>();
-    try {
-        String fileName = "Schedule_" + docid + ".ser";
-        // Load schedule from serialized file
-        schedule = (List<String>) SerializationUtil.deserialize(fileName);
-        
-        // Remove slots that contain "Unavailable" at the end of the string
-        schedule.removeIf(slot -> slot.trim().endsWith("Unavailable"));
-        schedule.removeIf(slot -> slot.trim().contains("Confirmed"));
-        
-    } catch (Exception e) {
-        System.out.println("Error loading schedule: " + e.getMessage());
+     * Reports a refused booking to flight recordings.
+     *
+     * @param doctorID The doctor's ID.
+     * @param dateTime The start of the slot.
+     * @param reason   Why the booking was refused.
+     */
+    private void recordBookingConflict(String doctorID, LocalDateTime dateTime, String reason) {
+        FlightEvents.BookingConflict event = new FlightEvents.BookingConflict();
+        if (event.shouldCommit()) {
+            event.doctorID = doctorID;
+            event.patientID = model.getUserID();
+            event.slot = dateTime.toString();
+            event.reason = reason;
+            event.commit();
+        }
     }
-    return schedule;
+
+    /**
+     * Saves a doctor's calendar to the shared schedule repository.
+     *
+     * @param doctorID The doctor's ID.
+     * @param calendar The doctor's calendar.
+     */
+    private void saveCalendar(String doctorID, DoctorCalendar calendar) {
+        try {
+            ScheduleRepository.getInstance().save(doctorID, calendar);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
     }
 }
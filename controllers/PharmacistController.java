@@ -1,13 +1,16 @@
 package controllers;
 
-import java.util.ArrayList;
 import java.util.List;
 import models.Appointment;
 import models.AppointmentOutcome;
 import models.InventoryItem;
 import models.Pharmacist;
 import models.Prescription;
-import utils.SerializationUtil;
+import repositories.AppointmentRepository;
+import repositories.InventoryRepository;
+import repositories.PrescriptionQueue;
+import utils.FlightEvents;
+import utils.Metrics;
 import views.PharmacistView;
 
 /**
@@ -18,8 +21,8 @@ import views.PharmacistView;
 public class PharmacistController {
     private Pharmacist model;
     private PharmacistView view;
-    private List<Appointment> appointments;
-    private List<InventoryItem> inventory;
+    private AppointmentRepository appointments;
+    private InventoryRepository inventory;
 
     /**
      * Constructs a PharmacistController object.
@@ -45,16 +48,16 @@ public class PharmacistController {
             choice = view.getUserChoice();
             switch (choice) {
                 case 1:
-                    viewAppointmentOutcomeRecords();
+                    Metrics.timeAction("pharmacist.viewAppointmentOutcomeRecords", this::viewAppointmentOutcomeRecords);
                     break;
                 case 2:
-                    updatePrescriptionStatus();
+                    Metrics.timeAction("pharmacist.updatePrescriptionStatus", this::updatePrescriptionStatus);
                     break;
                 case 3:
-                    viewMedicationInventory();
+                    Metrics.timeAction("pharmacist.viewMedicationInventory", this::viewMedicationInventory);
                     break;
                 case 4:
-                    submitReplenishmentRequest();
+                    Metrics.timeAction("pharmacist.submitReplenishmentRequest", this::submitReplenishmentRequest);
                     break;
                 case 5:
                     view.displayMessage("Logging out...");
@@ -66,23 +69,31 @@ public class PharmacistController {
     }
 
     /**
-     * Displays all appointment outcome records, including prescriptions.
-     * Fetches data from appointments and displays them through the view.
+     * Displays the appointment outcome records that have prescriptions waiting to be dispensed.
+     * Reads the pending prescription queue, so the time taken depends on the pending
+     * work rather than on the number of past appointments.
      */
     private void viewAppointmentOutcomeRecords() {
-        for (Appointment appt : appointments) {
-            AppointmentOutcome outcome = appt.getOutcome();
-            if (outcome != null) {
+        List<PrescriptionQueue.Entry> pending = appointments.findPendingPrescriptions();
+        if (pending.isEmpty()) {
+            view.displayMessage("No prescriptions waiting to be dispensed.");
+            return;
+        }
+        Appointment shown = null;
+        for (PrescriptionQueue.Entry entry : pending) {
+            Appointment appt = entry.getAppointment();
+            if (appt != shown) {
+                AppointmentOutcome outcome = appt.getOutcome();
                 view.displayMessage("Patient ID: " + appt.getPatientID());
                 view.displayMessage("Appointment ID: " + appt.getAppointmentID());
                 view.displayMessage("Service: " + outcome.getTypeOfService());
                 view.displayMessage("Consultation Notes: " + outcome.getConsultationNotes());
-                for (Prescription presc : outcome.getPrescriptions()) {
-                    view.displayMessage("Medication: " + presc.getMedicationName() +
-                            ", Quantity: " + presc.getQuantity() +
-                            ", Status: " + presc.getStatus());
-                }
+                shown = appt;
             }
+            Prescription presc = entry.getPrescription();
+            view.displayMessage("Medication: " + presc.getMedicationName() +
+                    ", Quantity: " + presc.getQuantity() +
+                    ", Status: " + presc.getStatus());
         }
     }
 
@@ -90,6 +101,9 @@ public class PharmacistController {
      * Updates the status of a prescription.
      * Prompts the user for medication name, appointment ID, and quantity, 
      * then verifies stock availability and updates the status if applicable.
+     * The prescription is looked up in the pending prescription queue by medication.
+     * The stock is reserved before the prescription is marked as dispensed,
+     * so concurrent pharmacists cannot dispense more than is in stock.
      */
     private void updatePrescriptionStatus() {
         String medicationName = view.getMedicationNameInput();
@@ -97,47 +111,71 @@ public class PharmacistController {
         int quantity = view.getQuantityInput();
         boolean found = false;
 
-        for (Appointment appt : appointments) {
-            AppointmentOutcome outcome = appt.getOutcome();
-            if (outcome != null) {
-                List<Prescription> prescriptions = outcome.getPrescriptions();
-                for (Prescription presc : prescriptions) {
-                    if (presc.getMedicationName().equalsIgnoreCase(medicationName) &&
-                        presc.getQuantity() == quantity && 
-                        !presc.getStatus().equals("dispensed") &&
-                        appt.getAppointmentID().equalsIgnoreCase(apptIDinput)) {
-                        
-                        for (InventoryItem item : inventory) {
-                            if (item.getStockLevel() >= quantity) {
-                                item.setStockLevel(item.getStockLevel() - quantity);
-                                presc.setStatus("dispensed");
-                                saveInventory();
-                                view.displayMessage("Appointment ID: " + apptIDinput);
-                                found = true;
-                                break;
-                            } else {
-                                view.displayMessage("Insufficient stock for " + medicationName + ".");
-                            }
-                        }
-                    }
+        for (PrescriptionQueue.Entry entry : appointments.findPendingPrescriptionsByMedication(medicationName)) {
+            Appointment appt = entry.getAppointment();
+            Prescription presc = entry.getPrescription();
+            if (presc.getQuantity() == quantity &&
+                !presc.getStatus().equals("dispensed") &&
+                appt.getAppointmentID().equalsIgnoreCase(apptIDinput)) {
+
+                FlightEvents.Dispense event = new FlightEvents.Dispense();
+                event.begin();
+                InventoryItem item = inventory.findByName(medicationName);
+                if (item == null) {
+                    commitDispense(event, presc, appt, "not in inventory");
+                    view.displayMessage("Medication " + medicationName + " not found in inventory.");
+                    return;
                 }
+                if (!inventory.reserve(item, quantity)) {
+                    commitDispense(event, presc, appt, "insufficient stock");
+                    view.displayMessage("Insufficient stock for " + medicationName + ".");
+                    return;
+                }
+                if (presc.markDispensed()) {
+                    inventory.dispense(item, quantity);
+                    appointments.save(appt);
+                    commitDispense(event, presc, appt, "dispensed");
+                    view.displayMessage("Appointment ID: " + apptIDinput);
+                    found = true;
+                    break;
+                }
+                inventory.release(item, quantity);
+                commitDispense(event, presc, appt, "already dispensed");
             }
         }
 
         if (found) {
-            saveAppointments();
             view.displayMessage("Prescribed " + quantity + " units of " + medicationName + ". Status updated to 'dispensed'.");
         } else {
             view.displayMessage("Prescription not found or already dispensed.");
         }
     }
 
+    /**
+     * Reports an attempt to dispense a prescription to flight recordings.
+     *
+     * @param event        The event, begun when the attempt started.
+     * @param prescription The prescription.
+     * @param appointment  The appointment the prescription belongs to.
+     * @param result       What happened.
+     */
+    private static void commitDispense(FlightEvents.Dispense event, Prescription prescription,
+                                       Appointment appointment, String result) {
+        if (event.shouldCommit()) {
+            event.medication = prescription.getMedicationName();
+            event.quantity = prescription.getQuantity();
+            event.appointmentID = appointment.getAppointmentID();
+            event.result = result;
+            event.commit();
+        }
+    }
+
     /**
      * Displays the current medication inventory.
      * Lists all inventory items along with their stock levels.
      */
     private void viewMedicationInventory() {
-        view.displayInventory(inventory);
+        view.displayInventory(inventory.findAll());
     }
 
     /**
@@ -149,82 +187,27 @@ public class PharmacistController {
         String medicationName = view.getMedicationNameInput();
         int quantity = view.getQuantityInput();
         
-        boolean found = false;
-        for (InventoryItem item : inventory) {
-            if (item.getMedicationName().equalsIgnoreCase(medicationName)) {
-                item.setReplenishRequestAmount(quantity);
-                saveInventory();
-                view.displayMessage("Replenishment request submitted.");
-                found = true;
-                break;
-            }
-        }
-        if (!found) {
+        InventoryItem item = inventory.findByName(medicationName);
+        if (item != null) {
+            item.setReplenishRequestAmount(quantity);
+            inventory.save(item);
+            view.displayMessage("Replenishment request submitted.");
+        } else {
             view.displayMessage("Medication not found.");
         }
     }
 
     /**
-     * Loads appointment data from a serialized file.
-     * If no file is found or an error occurs, initializes an empty appointment list.
+     * Loads appointment data from the shared appointment repository.
      */
     private void loadAppointments() {
-        try {
-            appointments = (List<Appointment>) SerializationUtil.deserialize("appointments.ser");
-        } catch (Exception e) {
-            appointments = new ArrayList<>();
-        }
+        appointments = AppointmentRepository.getInstance();
     }
 
     /**
-     * Saves appointment data to a serialized file.
-     * Handles exceptions that occur during the saving process.
-     */
-    private void saveAppointments() {
-        try {
-            SerializationUtil.serialize(appointments, "appointments.ser");
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Loads inventory data from a serialized file.
-     * If no file is found or an error occurs, initializes an empty inventory list.
+     * Loads inventory data from the shared inventory repository.
      */
     private void loadInventory() {
-        try {
-            inventory = (List<InventoryItem>) SerializationUtil.deserialize("inventory.ser");
-        } catch (Exception e) {
-            inventory = new ArrayList<>();
-        }
-    }
-
-    /**
-     * Saves inventory data to a serialized file.
-     * Handles exceptions that occur during the saving process.
-     */
-    private void saveInventory() {
-        try {
-            SerializationUtil.serialize(inventory, "inventory.ser");
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Retrieves all prescriptions from appointment outcomes.
-     *
-     * @return A list of all prescriptions associated with appointments.
-     */
-    private List<Prescription> getAllPrescriptions() {
-        List<Prescription> allPrescriptions = new ArrayList<>();
-        for (Appointment appt : appointments) {
-            AppointmentOutcome outcome = appt.getOutcome();
-            if (outcome != null && outcome.getPrescriptions() != null) {
-                allPrescriptions.addAll(outcome.getPrescriptions());
-            }
-        }
-        return allPrescriptions;
+        inventory = InventoryRepository.getInstance();
     }
 }
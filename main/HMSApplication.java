@@ -1,6 +1,9 @@
 package main;
 
 import controllers.LoginController;
+import java.nio.file.Paths;
+import utils.Config;
+import utils.Metrics;
 import views.LoginView;
 
 /**
@@ -17,6 +20,7 @@ public class HMSApplication {
 
         // Initialize system data only if not already initialized
         SystemInitializer.initializeSystem();
+        Metrics.startDumping(Paths.get(Config.METRICS_FILE), Config.METRICS_INTERVAL_SECONDS);
 
         LoginView loginView = new LoginView();
         LoginController loginController = new LoginController(loginView);
@@ -0,0 +1,89 @@
+package main;
+
+import controllers.LoginController;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.NoSuchElementException;
+import repositories.AvailabilityIndex;
+import repositories.UserRepository;
+import utils.Config;
+import utils.Metrics;
+import views.LoginView;
+import views.SessionIO;
+
+/**
+ * Server mode of the Hospital Management System.
+ * The server loads all data once and then accepts terminal sessions over a
+ * socket on the local machine (e.g., with {@code nc localhost 5050}). Each
+ * session runs the normal login and role menus on its own virtual thread,
+ * and all sessions share the same in-memory repositories.
+ */
+public class HMSServer {
+    private static final int DEFAULT_PORT = 5050;
+
+    /**
+     * The main method to run the server.
+     *
+     * @param args Optional port number to listen on (default 5050).
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        SystemInitializer.initializeSystem();
+        if (!loadData()) {
+            return;
+        }
+        Metrics.startDumping(Paths.get(Config.METRICS_FILE), Config.METRICS_INTERVAL_SECONDS);
+        SessionIO.routeSystemOut();
+
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Hospital Management System server listening on " + server.getLocalSocketAddress());
+            while (true) {
+                Socket socket = server.accept();
+                Thread.ofVirtual().name("session-" + socket.getPort()).start(() -> serve(socket));
+            }
+        } catch (IOException e) {
+            System.out.println("Server stopped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that the shared data was loaded at startup and warms the availability
+     * index, so that sessions begin with a warm cache.
+     *
+     * @return true if the data was loaded, false if the user data could not be read.
+     */
+    private static boolean loadData() {
+        if (!UserRepository.getInstance().isLoaded()) {
+            System.out.println("Error loading user data.");
+            return false;
+        }
+        AvailabilityIndex.getInstance().findFirstAvailable(LocalDateTime.now());
+        System.out.println("Data loaded.");
+        return true;
+    }
+
+    /**
+     * Runs one terminal session over a socket connection.
+     * The session ends when the user logs out or the connection is closed.
+     *
+     * @param socket The client connection.
+     */
+    private static void serve(Socket socket) {
+        try (socket) {
+            SessionIO.open(socket.getInputStream(), socket.getOutputStream());
+            System.out.println("Welcome to the Hospital Management System!");
+            LoginController loginController = new LoginController(new LoginView());
+            loginController.authenticate();
+        } catch (NoSuchElementException e) {
+            // The client closed the connection
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            SessionIO.close();
+        }
+    }
+}
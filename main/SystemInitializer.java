@@ -1,6 +1,10 @@
 package main;
 
 import models.*;
+import repositories.AppointmentRepository;
+import repositories.InventoryRepository;
+import repositories.ScheduleRepository;
+import repositories.UserRepository;
 import utils.SerializationUtil;
 import utils.Config;
 
@@ -9,46 +13,115 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Class to initialize system data for the Hospital Management System.
+ * At startup the users, appointments, inventory and doctor schedules are each
+ * created if missing and then loaded into their shared repositories. The four
+ * phases run in parallel on a fork-join pool, with the schedules split further
+ * into one task per doctor, and the time taken by each phase is reported.
  */
 public class SystemInitializer {
+
+    /**
+     * A startup phase that may fail.
+     */
+    private interface Phase {
+
+        /**
+         * Runs the phase.
+         *
+         * @throws Exception If the phase fails.
+         */
+        void run() throws Exception;
+    }
+
     /**
-     * Initializes the system data only if it doesn't already exist.
+     * Initializes the system data only if it doesn't already exist, and loads it.
      */
     public static void initializeSystem() {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
         try {
-            // Check if users data file exists
-            File usersFile = new File(Config.DATABASE_DIR + "users.ser");
-            if (!usersFile.exists()) {
-                initializeUsers();
-            } else {
-                System.out.println("Users data already exists. Skipping user initialization.");
-            }
-
-            // Check if appointments data file exists
-            File appointmentsFile = new File(Config.DATABASE_DIR + "appointments.ser");
-            if (!appointmentsFile.exists()) {
-                initializeAppointments();
-            } else {
-                System.out.println("Appointments data already exists. Skipping appointment initialization.");
-
-            }
-
-            // Check if inventory data file exists
-            File inventoryFile = new File(Config.DATABASE_DIR + "inventory.ser");
-            if (!inventoryFile.exists()) {
-                initializeInventory();
-            } else {
-                System.out.println("Inventory data already exists. Skipping inventory initialization.");
+            List<ForkJoinTask<String>> phases = List.of(
+                    pool.submit(() -> timePhase("users", () -> {
+                        // Check if users data file exists
+                        if (!new File(Config.DATABASE_DIR + "users.ser").exists()) {
+                            initializeUsers();
+                        } else {
+                            System.out.println("Users data already exists. Skipping user initialization.");
+                        }
+                        UserRepository.getInstance().load();
+                    })),
+                    pool.submit(() -> timePhase("appointments", () -> {
+                        // Check if appointments data file exists
+                        if (!new File(Config.DATABASE_DIR + "appointments.ser").exists()) {
+                            initializeAppointments();
+                        } else {
+                            System.out.println("Appointments data already exists. Skipping appointment initialization.");
+                        }
+                        AppointmentRepository.getInstance().load();
+                    })),
+                    pool.submit(() -> timePhase("inventory", () -> {
+                        // Check if inventory data file exists
+                        if (!new File(Config.DATABASE_DIR + "inventory.ser").exists()) {
+                            initializeInventory();
+                        } else {
+                            System.out.println("Inventory data already exists. Skipping inventory initialization.");
+                        }
+                        InventoryRepository.getInstance().load();
+                    })),
+                    pool.submit(() -> timePhase("schedules", SystemInitializer::loadSchedules)));
+
+            List<String> timings = new ArrayList<>();
+            for (ForkJoinTask<String> phase : phases) {
+                timings.add(phase.join());
             }
-
             System.out.println("System initialization complete.");
-
+            System.out.printf("Startup: %s; total %d ms%n", String.join(", ", timings),
+                    (System.nanoTime() - start) / 1_000_000);
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs a startup phase and measures how long it takes.
+     * A failed phase is reported and leaves its repository to load on first access.
+     *
+     * @param name  The name of the phase.
+     * @param phase The phase to run.
+     * @return The name of the phase followed by its duration.
+     */
+    private static String timePhase(String name, Phase phase) {
+        long start = System.nanoTime();
+        try {
+            phase.run();
+        } catch (Exception e) {
+            System.out.println("Error loading " + name + ": " + e.getMessage());
+        }
+        return name + " " + (System.nanoTime() - start) / 1_000_000 + " ms";
+    }
+
+    /**
+     * Loads the calendars of all doctors with a schedule file, one fork-join task per doctor.
+     */
+    private static void loadSchedules() {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (String doctorID : ScheduleRepository.getInstance().findStoredDoctorIDs()) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                try {
+                    ScheduleRepository.getInstance().findByDoctorID(doctorID);
+                } catch (Exception e) {
+                    System.out.println("Error loading schedule of " + doctorID + ": " + e.getMessage());
+                }
+            }));
         }
+        ForkJoinTask.invokeAll(tasks);
     }
 
     private static void initializeUsers() throws Exception {
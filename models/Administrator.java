@@ -1,5 +1,8 @@
 package models;
 
+import java.io.DataInput;
+import java.io.IOException;
+
 /**
  * Class representing an administrator in the hospital management system.
  */
@@ -16,5 +19,24 @@ public class Administrator extends User {
         super(userID, name, password, "Administrator");
     }
 
+    /**
+     * Constructs an empty administrator whose fields are then read from a data file.
+     */
+    private Administrator() {
+    }
+
+    /**
+     * Reads an administrator written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @return The administrator.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static Administrator readFrom(DataInput in) throws IOException {
+        Administrator administrator = new Administrator();
+        administrator.readFields(in);
+        return administrator;
+    }
+
     // Additional administrator-specific methods can be added here.
 }
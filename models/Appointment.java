@@ -1,23 +1,41 @@
 package models;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import utils.BinaryCodec;
+import utils.Keyed;
 
 /**
  * Class representing an appointment in the hospital management system.
  * This class contains details about the appointment, including its ID, 
  * the patient and doctor involved, the scheduled date and time, the status of the appointment, 
  * and the outcome of the appointment after completion.
+ * Outcomes read from a binary data file are kept as bytes and only decoded
+ * the first time they are used, so loading a long appointment history does
+ * not build every past outcome up front.
  */
-public class Appointment implements Serializable {
+public class Appointment implements Serializable, Keyed {
     private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 3;
     private String appointmentID;
     private String patientID;
     private String doctorID;
     private String doctorName;  // Add doctorName property
     private LocalDateTime dateTime;
+    private int durationMinutes; // 0 for appointments made before lengths could be chosen, which last one slot
     private String status; // confirmed, canceled, completed
     private AppointmentOutcome outcome;
+    private transient BiConsumer<Appointment, String> statusListener;
+    private transient volatile byte[] encodedOutcome;
+    private transient boolean encodedOutcomePending;
 
     /**
      * Constructs an Appointment object with the specified details.
@@ -46,6 +64,16 @@ public class Appointment implements Serializable {
         return appointmentID;
     }
 
+    /**
+     * Gets the key of this appointment in the appointments data file.
+     *
+     * @return The appointment ID.
+     */
+    @Override
+    public String getKey() {
+        return appointmentID;
+    }
+
     /**
      * Gets the patient's ID.
      *
@@ -98,6 +126,24 @@ public class Appointment implements Serializable {
     public void setDateTime(LocalDateTime dateTime) {
         this.dateTime = dateTime; // Update the dateTime property
     }
+
+    /**
+     * Gets the length of the appointment.
+     *
+     * @return The length in minutes, one slot unless another length was set.
+     */
+    public int getDurationMinutes() {
+        return durationMinutes > 0 ? durationMinutes : DoctorCalendar.SLOT_MINUTES;
+    }
+
+    /**
+     * Sets the length of the appointment.
+     *
+     * @param durationMinutes The length in minutes.
+     */
+    public void setDurationMinutes(int durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
     /**
      * Gets the current status of the appointment.
      * Possible values include "pending", "confirmed", "canceled", and "completed".
@@ -109,11 +155,26 @@ public class Appointment implements Serializable {
     }
     /**
      * Sets the status of the appointment.
+     * The status listener, if any, is notified with the previous status.
      *
      * @param status The new status of the appointment.
      */
     public void setStatus(String status) {
+        String previousStatus = this.status;
         this.status = status;
+        if (statusListener != null && !Objects.equals(status, previousStatus)) {
+            statusListener.accept(this, previousStatus);
+        }
+    }
+
+    /**
+     * Sets the listener that is notified whenever the status of the appointment changes.
+     * The listener receives the appointment and its previous status. It is not serialized.
+     *
+     * @param statusListener The listener, or null to remove it.
+     */
+    public void setStatusListener(BiConsumer<Appointment, String> statusListener) {
+        this.statusListener = statusListener;
     }
     /**
      * Gets the outcome of the appointment, which includes details such as prescriptions and consultation notes.
@@ -121,6 +182,9 @@ public class Appointment implements Serializable {
      * @return The {@link AppointmentOutcome} associated with this appointment.
      */
     public AppointmentOutcome getOutcome() {
+        if (encodedOutcome != null) {
+            decodeOutcome();
+        }
         return outcome;
     }
     /**
@@ -128,7 +192,125 @@ public class Appointment implements Serializable {
      *
      * @param outcome The {@link AppointmentOutcome} to be set for this appointment.
      */
-    public void setOutcome(AppointmentOutcome outcome) {
+    public synchronized void setOutcome(AppointmentOutcome outcome) {
         this.outcome = outcome;
+        this.encodedOutcome = null;
+    }
+
+    /**
+     * Checks whether the outcome has prescriptions that have not been dispensed yet.
+     * This does not decode an outcome that has not been used yet.
+     *
+     * @return true if some prescriptions are waiting to be dispensed, false otherwise.
+     */
+    public synchronized boolean hasPendingPrescriptions() {
+        if (encodedOutcome != null) {
+            return encodedOutcomePending;
+        }
+        if (outcome == null || outcome.getPrescriptions() == null) {
+            return false;
+        }
+        for (Prescription prescription : outcome.getPrescriptions()) {
+            if (!prescription.getStatus().equals("dispensed")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decodes the outcome read from a data file, unless another thread already has.
+     * If the bytes cannot be decoded they are kept, so they are written back unchanged.
+     */
+    private synchronized void decodeOutcome() {
+        if (encodedOutcome == null) {
+            return;
+        }
+        try {
+            outcome = AppointmentOutcome.readFrom(new BinaryCodec.Input(new ByteArrayInputStream(encodedOutcome)));
+            encodedOutcome = null;
+        } catch (IOException e) {
+            System.out.println("Error reading outcome of appointment " + appointmentID + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decodes the outcome before the appointment is written with Java serialization.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getOutcome();
+        out.defaultWriteObject();
+    }
+
+    /**
+     * Writes this appointment in the binary data file format.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(BINARY_VERSION);
+        BinaryCodec.writeString(out, appointmentID);
+        BinaryCodec.writeString(out, patientID);
+        BinaryCodec.writeString(out, doctorID);
+        BinaryCodec.writeString(out, doctorName);
+        BinaryCodec.writeDateTime(out, dateTime);
+        BinaryCodec.writeVarInt(out, durationMinutes);
+        BinaryCodec.writeString(out, status);
+        byte[] encoded;
+        boolean pending;
+        synchronized (this) {
+            encoded = encodedOutcome;
+            pending = hasPendingPrescriptions();
+            if (encoded == null && outcome != null) {
+                // Outcomes are written on their own, so they can be decoded later without the rest of the file
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                BinaryCodec.Output outcomeOut = new BinaryCodec.Output(bytes);
+                outcome.writeTo(outcomeOut);
+                outcomeOut.flush();
+                encoded = bytes.toByteArray();
+            }
+        }
+        out.writeBoolean(encoded != null);
+        if (encoded != null) {
+            out.writeBoolean(pending);
+            BinaryCodec.writeVarInt(out, encoded.length);
+            out.write(encoded);
+        }
+    }
+
+    /**
+     * Reads an appointment written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @return The appointment.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static Appointment readFrom(DataInput in) throws IOException {
+        int version = BinaryCodec.readVersion(in, "appointment", BINARY_VERSION);
+        String appointmentID = BinaryCodec.readString(in);
+        String patientID = BinaryCodec.readString(in);
+        String doctorID = BinaryCodec.readString(in);
+        Appointment appointment = new Appointment(appointmentID, patientID, doctorID, null);
+        appointment.doctorName = BinaryCodec.readString(in);
+        appointment.dateTime = BinaryCodec.readDateTime(in);
+        if (version >= 3) {
+            appointment.durationMinutes = BinaryCodec.readVarInt(in);
+        }
+        appointment.status = BinaryCodec.readString(in);
+        if (in.readBoolean()) {
+            if (version == 1) {
+                appointment.outcome = AppointmentOutcome.readFrom(in);
+            } else {
+                appointment.encodedOutcomePending = in.readBoolean();
+                byte[] encoded = new byte[BinaryCodec.readVarInt(in)];
+                in.readFully(encoded);
+                appointment.encodedOutcome = encoded;
+            }
+        }
+        return appointment;
     }
 }
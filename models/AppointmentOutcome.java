@@ -1,7 +1,12 @@
 package models;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
+import utils.BinaryCodec;
 
 /**
  * Class representing the outcome of a completed appointment.
@@ -10,6 +15,7 @@ import java.util.List;
  */
 public class AppointmentOutcome implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 1;
     private String dateOfAppointment;
     private String typeOfService;
     private List<Prescription> prescriptions;
@@ -67,4 +73,48 @@ public class AppointmentOutcome implements Serializable {
     public String getConsultationNotes() {
         return consultationNotes;
     }
+
+    /**
+     * Writes this outcome in the binary data file format.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(BINARY_VERSION);
+        BinaryCodec.writeString(out, dateOfAppointment);
+        BinaryCodec.writeString(out, typeOfService);
+        if (prescriptions == null) {
+            BinaryCodec.writeVarInt(out, 0);
+        } else {
+            BinaryCodec.writeVarInt(out, prescriptions.size() + 1);
+            for (Prescription prescription : prescriptions) {
+                prescription.writeTo(out);
+            }
+        }
+        BinaryCodec.writeString(out, consultationNotes);
+    }
+
+    /**
+     * Reads an outcome written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @return The outcome.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static AppointmentOutcome readFrom(DataInput in) throws IOException {
+        BinaryCodec.readVersion(in, "appointment outcome", BINARY_VERSION);
+        String dateOfAppointment = BinaryCodec.readString(in);
+        String typeOfService = BinaryCodec.readString(in);
+        List<Prescription> prescriptions = null;
+        int count = BinaryCodec.readVarInt(in) - 1;
+        if (count >= 0) {
+            prescriptions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                prescriptions.add(Prescription.readFrom(in));
+            }
+        }
+        String consultationNotes = BinaryCodec.readString(in);
+        return new AppointmentOutcome(dateOfAppointment, typeOfService, prescriptions, consultationNotes);
+    }
 }
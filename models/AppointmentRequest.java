@@ -0,0 +1,166 @@
+package models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import utils.BinaryCodec;
+import utils.Keyed;
+
+/**
+ * Class representing a patient's request to be assigned an appointment automatically.
+ * The patient gives a window in which the appointment should start and either
+ * a doctor, a specialty or neither. Requests wait until the auto-scheduler
+ * assigns them a slot.
+ */
+public class AppointmentRequest implements Serializable, Keyed {
+    private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 1;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private String requestID;
+    private String patientID;
+    private String doctorID; // null when any doctor will do
+    private String specialty; // null when any specialty will do
+    private LocalDateTime earliest;
+    private LocalDateTime latest;
+    private LocalDateTime submittedAt;
+
+    /**
+     * Constructs an appointment request.
+     *
+     * @param requestID   The request's ID.
+     * @param patientID   The ID of the patient.
+     * @param doctorID    The ID of the preferred doctor, or null for any doctor.
+     * @param specialty   The specialty wanted, or null for any specialty. Ignored when a doctor is given.
+     * @param earliest    The earliest time the appointment can start.
+     * @param latest      The time before which the appointment must start.
+     * @param submittedAt The date and time the request was made.
+     */
+    public AppointmentRequest(String requestID, String patientID, String doctorID, String specialty,
+                              LocalDateTime earliest, LocalDateTime latest, LocalDateTime submittedAt) {
+        this.requestID = requestID;
+        this.patientID = patientID;
+        this.doctorID = doctorID;
+        this.specialty = specialty;
+        this.earliest = earliest;
+        this.latest = latest;
+        this.submittedAt = submittedAt;
+    }
+
+    /**
+     * Gets the request's ID.
+     *
+     * @return The request ID.
+     */
+    public String getRequestID() {
+        return requestID;
+    }
+
+    /**
+     * Gets the key of this request in the requests data file.
+     *
+     * @return The request ID.
+     */
+    @Override
+    public String getKey() {
+        return requestID;
+    }
+
+    /**
+     * Gets the ID of the patient.
+     *
+     * @return The patient's ID.
+     */
+    public String getPatientID() {
+        return patientID;
+    }
+
+    /**
+     * Gets the ID of the preferred doctor.
+     *
+     * @return The doctor's ID, or null if any doctor will do.
+     */
+    public String getDoctorID() {
+        return doctorID;
+    }
+
+    /**
+     * Gets the specialty wanted.
+     *
+     * @return The specialty, or null if any specialty will do.
+     */
+    public String getSpecialty() {
+        return specialty;
+    }
+
+    /**
+     * Gets the earliest time the appointment can start.
+     *
+     * @return The start of the window.
+     */
+    public LocalDateTime getEarliest() {
+        return earliest;
+    }
+
+    /**
+     * Gets the time before which the appointment must start.
+     *
+     * @return The end of the window.
+     */
+    public LocalDateTime getLatest() {
+        return latest;
+    }
+
+    /**
+     * Gets the date and time the request was made.
+     *
+     * @return The date and time submitted.
+     */
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    /**
+     * Returns a string representation of the request for display.
+     *
+     * @return The request ID, the doctor or specialty wanted and the window.
+     */
+    @Override
+    public String toString() {
+        String who = doctorID != null ? doctorID : specialty != null ? specialty : "any doctor";
+        return requestID + ": " + who + ", between " + earliest.format(FORMATTER) + " and " + latest.format(FORMATTER);
+    }
+
+    /**
+     * Writes this request in the binary data file format.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(BINARY_VERSION);
+        BinaryCodec.writeString(out, requestID);
+        BinaryCodec.writeString(out, patientID);
+        BinaryCodec.writeString(out, doctorID);
+        BinaryCodec.writeString(out, specialty);
+        BinaryCodec.writeDateTime(out, earliest);
+        BinaryCodec.writeDateTime(out, latest);
+        BinaryCodec.writeDateTime(out, submittedAt);
+    }
+
+    /**
+     * Reads a request written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @return The request.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static AppointmentRequest readFrom(DataInput in) throws IOException {
+        BinaryCodec.readVersion(in, "appointment request", BINARY_VERSION);
+        return new AppointmentRequest(BinaryCodec.readString(in), BinaryCodec.readString(in),
+                BinaryCodec.readString(in), BinaryCodec.readString(in), BinaryCodec.readDateTime(in),
+                BinaryCodec.readDateTime(in), BinaryCodec.readDateTime(in));
+    }
+}
@@ -0,0 +1,320 @@
+package models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import utils.BinaryCodec;
+import utils.Keyed;
+
+/**
+ * Class representing a recurring series of appointments, such as weekly physiotherapy.
+ * A series is stored as a single record: its first date and time, the number of
+ * days between occurrences and the number of occurrences. The occurrences are
+ * computed from these when they are needed rather than stored one by one.
+ * Occurrences that could not be booked, were canceled or were turned into
+ * appointments of their own are marked as no longer held by the series.
+ * Each occurrence has an ID made of the series ID and its number, starting at 1.
+ */
+public class AppointmentSeries implements Serializable, Keyed {
+    private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 1;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private String seriesID;
+    private String patientID;
+    private String doctorID;
+    private LocalDateTime start;
+    private int intervalDays;
+    private int occurrences;
+    private BitSet released; // occurrences no longer held by the series
+    private String status;
+
+    /**
+     * Constructs a series in which every occurrence is held.
+     *
+     * @param seriesID     The series ID.
+     * @param patientID    The patient's ID.
+     * @param doctorID     The doctor's ID.
+     * @param start        The date and time of the first occurrence.
+     * @param intervalDays The number of days between occurrences (e.g., 1 for daily, 7 for weekly).
+     * @param occurrences  The number of occurrences.
+     */
+    public AppointmentSeries(String seriesID, String patientID, String doctorID, LocalDateTime start,
+                             int intervalDays, int occurrences) {
+        this.seriesID = seriesID;
+        this.patientID = patientID;
+        this.doctorID = doctorID;
+        this.start = start;
+        this.intervalDays = intervalDays;
+        this.occurrences = occurrences;
+        this.released = new BitSet(occurrences);
+        this.status = "pending";
+    }
+
+    /**
+     * Gets the series ID.
+     *
+     * @return The series ID.
+     */
+    public String getSeriesID() {
+        return seriesID;
+    }
+
+    /**
+     * Gets the key of this series in the series data file.
+     *
+     * @return The series ID.
+     */
+    @Override
+    public String getKey() {
+        return seriesID;
+    }
+
+    /**
+     * Gets the patient's ID.
+     *
+     * @return The patient ID.
+     */
+    public String getPatientID() {
+        return patientID;
+    }
+
+    /**
+     * Gets the doctor's ID.
+     *
+     * @return The doctor ID.
+     */
+    public String getDoctorID() {
+        return doctorID;
+    }
+
+    /**
+     * Gets the number of occurrences in the series, whether held or not.
+     *
+     * @return The number of occurrences.
+     */
+    public int getOccurrenceCount() {
+        return occurrences;
+    }
+
+    /**
+     * Gets the status of the series, which applies to every occurrence it holds.
+     *
+     * @return The status (e.g., "pending", "confirmed" or "declined").
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the status of the series.
+     *
+     * @param status The new status.
+     */
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    /**
+     * Gets the date and time of an occurrence.
+     *
+     * @param occurrence The occurrence number, starting at 0.
+     * @return The date and time of the occurrence.
+     */
+    public LocalDateTime getOccurrence(int occurrence) {
+        return start.plusDays((long) occurrence * intervalDays);
+    }
+
+    /**
+     * Gets the dates and times of all occurrences, held or not.
+     *
+     * @return A new list with one date and time per occurrence, in order.
+     */
+    public List<LocalDateTime> getOccurrences() {
+        List<LocalDateTime> dateTimes = new ArrayList<>(occurrences);
+        for (int occurrence = 0; occurrence < occurrences; occurrence++) {
+            dateTimes.add(getOccurrence(occurrence));
+        }
+        return dateTimes;
+    }
+
+    /**
+     * Finds the first occurrence at or after a date and time.
+     *
+     * @param from The date and time.
+     * @return The occurrence number, or the number of occurrences if every occurrence is earlier.
+     */
+    public int firstOccurrenceFrom(LocalDateTime from) {
+        if (!from.isAfter(start)) {
+            return 0;
+        }
+        long days = from.toLocalDate().toEpochDay() - start.toLocalDate().toEpochDay();
+        long occurrence = days / intervalDays;
+        while (occurrence < occurrences && getOccurrence((int) occurrence).isBefore(from)) {
+            occurrence++;
+        }
+        return (int) Math.min(occurrence, occurrences);
+    }
+
+    /**
+     * Checks whether the series holds an occurrence at a date and time.
+     *
+     * @param dateTime The date and time.
+     * @return true if a held occurrence starts at that time, false otherwise.
+     */
+    public boolean occursAt(LocalDateTime dateTime) {
+        int occurrence = firstOccurrenceFrom(dateTime);
+        return occurrence < occurrences && isHeld(occurrence) && getOccurrence(occurrence).equals(dateTime);
+    }
+
+    /**
+     * Checks whether an occurrence is still held by the series.
+     *
+     * @param occurrence The occurrence number, starting at 0.
+     * @return true if the occurrence is held, false if it was released.
+     */
+    public boolean isHeld(int occurrence) {
+        return occurrence >= 0 && occurrence < occurrences && !released.get(occurrence);
+    }
+
+    /**
+     * Marks an occurrence as no longer held by the series.
+     *
+     * @param occurrence The occurrence number, starting at 0.
+     */
+    public void release(int occurrence) {
+        released.set(occurrence);
+    }
+
+    /**
+     * Gets the number of occurrences still held by the series.
+     *
+     * @return The number of held occurrences.
+     */
+    public int getHeldCount() {
+        return occurrences - released.cardinality();
+    }
+
+    /**
+     * Gets the ID of an occurrence: the series ID, a dash and the occurrence number starting at 1.
+     *
+     * @param occurrence The occurrence number, starting at 0.
+     * @return The occurrence ID.
+     */
+    public String occurrenceID(int occurrence) {
+        return seriesID + "-" + (occurrence + 1);
+    }
+
+    /**
+     * Gets the series ID part of an occurrence ID.
+     *
+     * @param occurrenceID The occurrence ID.
+     * @return The series ID, or null if the ID is not an occurrence ID.
+     */
+    public static String seriesIDOf(String occurrenceID) {
+        int dash = occurrenceID.lastIndexOf('-');
+        return dash > 0 ? occurrenceID.substring(0, dash) : null;
+    }
+
+    /**
+     * Gets the occurrence number of an occurrence ID.
+     *
+     * @param occurrenceID The occurrence ID.
+     * @return The occurrence number starting at 0, or -1 if the ID is not an occurrence ID.
+     */
+    public static int occurrenceOf(String occurrenceID) {
+        int dash = occurrenceID.lastIndexOf('-');
+        try {
+            return dash > 0 ? Integer.parseInt(occurrenceID.substring(dash + 1)) - 1 : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Creates an appointment for one occurrence, with the status of the series.
+     * The appointment is not stored and the occurrence stays held.
+     *
+     * @param occurrence The occurrence number, starting at 0.
+     * @return The appointment, whose ID is the occurrence ID.
+     */
+    public Appointment toAppointment(int occurrence) {
+        Appointment appointment = new Appointment(occurrenceID(occurrence), patientID, doctorID, getOccurrence(occurrence));
+        appointment.setStatus(status);
+        return appointment;
+    }
+
+    /**
+     * Gets how often the series repeats, for display.
+     *
+     * @return "daily", "weekly" or "every N days".
+     */
+    public String getFrequency() {
+        if (intervalDays == 1) {
+            return "daily";
+        }
+        if (intervalDays == 7) {
+            return "weekly";
+        }
+        return "every " + intervalDays + " days";
+    }
+
+    /**
+     * Returns a string representation of the series for display.
+     *
+     * @return The series ID, frequency, doctor, first occurrence, held occurrences and status.
+     */
+    @Override
+    public String toString() {
+        return seriesID + ": " + getFrequency() + " with " + doctorID + " from " + start.format(FORMATTER) + ", "
+                + getHeldCount() + " of " + occurrences + " occurrences, " + status;
+    }
+
+    /**
+     * Writes this series in the binary data file format.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(BINARY_VERSION);
+        BinaryCodec.writeString(out, seriesID);
+        BinaryCodec.writeString(out, patientID);
+        BinaryCodec.writeString(out, doctorID);
+        BinaryCodec.writeDateTime(out, start);
+        BinaryCodec.writeVarInt(out, intervalDays);
+        BinaryCodec.writeVarInt(out, occurrences);
+        long[] words = released.toLongArray();
+        BinaryCodec.writeVarInt(out, words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+        BinaryCodec.writeString(out, status);
+    }
+
+    /**
+     * Reads a series written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @return The series.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static AppointmentSeries readFrom(DataInput in) throws IOException {
+        BinaryCodec.readVersion(in, "appointment series", BINARY_VERSION);
+        AppointmentSeries series = new AppointmentSeries(BinaryCodec.readString(in), BinaryCodec.readString(in),
+                BinaryCodec.readString(in), BinaryCodec.readDateTime(in), BinaryCodec.readVarInt(in),
+                BinaryCodec.readVarInt(in));
+        long[] words = new long[BinaryCodec.readVarInt(in)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        series.released = BitSet.valueOf(words);
+        series.status = BinaryCodec.readString(in);
+        return series;
+    }
+}
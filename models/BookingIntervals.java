@@ -0,0 +1,165 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class representing the bookings of variable length on a doctor's calendar.
+ * Each booking occupies a half-open range of minutes, from its start to the
+ * end of the buffer that follows it, and no two bookings overlap. The bookings
+ * are kept sorted by start, so because they do not overlap their ends are
+ * sorted too, and whether a range is free is answered by looking only at the
+ * booking with the last start before the end of the range. Finding, adding
+ * and removing a booking take O(log n) time for n bookings.
+ * Times are given in minutes since the epoch, 1970-01-01 00:00.
+ * This class is not thread-safe; {@link DoctorCalendar} locks it for each use.
+ */
+public class BookingIntervals {
+    private final TreeMap<Long, Interval> byStart = new TreeMap<>();
+
+    /**
+     * Class representing one booking of variable length.
+     */
+    public static class Interval {
+        private final long start;
+        private final long end;
+        private final long until;
+        private final String patientID;
+
+        /**
+         * Constructs a booking.
+         *
+         * @param start     The start of the appointment, in epoch minutes.
+         * @param end       The end of the appointment, in epoch minutes.
+         * @param until     The end of the buffer after the appointment, in epoch minutes.
+         * @param patientID The ID of the patient the booking is for.
+         */
+        public Interval(long start, long end, long until, String patientID) {
+            this.start = start;
+            this.end = end;
+            this.until = until;
+            this.patientID = patientID;
+        }
+
+        /**
+         * Gets the start of the appointment.
+         *
+         * @return The start, in epoch minutes.
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Gets the end of the appointment.
+         *
+         * @return The end, in epoch minutes.
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        /**
+         * Gets the end of the buffer after the appointment, before which nothing else can start.
+         *
+         * @return The end of the occupied range, in epoch minutes.
+         */
+        public long getUntil() {
+            return until;
+        }
+
+        /**
+         * Gets the ID of the patient the booking is for.
+         *
+         * @return The patient's ID.
+         */
+        public String getPatientID() {
+            return patientID;
+        }
+    }
+
+    /**
+     * Checks whether any booking occupies part of a range.
+     *
+     * @param from The start of the range, in epoch minutes.
+     * @param to   The end of the range, exclusive, in epoch minutes.
+     * @return true if a booking or its buffer overlaps the range, false otherwise.
+     */
+    public boolean overlaps(long from, long to) {
+        Map.Entry<Long, Interval> last = byStart.lowerEntry(to);
+        return last != null && last.getValue().until > from;
+    }
+
+    /**
+     * Adds a booking if its range, including the buffer, is free.
+     *
+     * @param interval The booking.
+     * @return true if the booking was added, false if it overlaps another booking.
+     */
+    public boolean add(Interval interval) {
+        if (overlaps(interval.start, interval.until)) {
+            return false;
+        }
+        byStart.put(interval.start, interval);
+        return true;
+    }
+
+    /**
+     * Gets the booking that starts at a given time.
+     *
+     * @param start The start, in epoch minutes.
+     * @return The booking, or null if none starts then.
+     */
+    public Interval get(long start) {
+        return byStart.get(start);
+    }
+
+    /**
+     * Removes the booking that starts at a given time.
+     *
+     * @param start The start, in epoch minutes.
+     * @return The removed booking, or null if none starts then.
+     */
+    public Interval remove(long start) {
+        return byStart.remove(start);
+    }
+
+    /**
+     * Gets the bookings that occupy part of a range, in order of start.
+     *
+     * @param from The start of the range, in epoch minutes.
+     * @param to   The end of the range, exclusive, in epoch minutes.
+     * @return The overlapping bookings.
+     */
+    public List<Interval> within(long from, long to) {
+        List<Interval> result = new ArrayList<>();
+        Long first = byStart.floorKey(from);
+        for (Interval interval : byStart.subMap(first == null ? from : first, to).values()) {
+            if (interval.until > from) {
+                result.add(interval);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the bookings that start at or after a given time, in order of start.
+     *
+     * @param from The earliest start, in epoch minutes.
+     * @return The bookings.
+     */
+    public List<Interval> from(long from) {
+        return new ArrayList<>(byStart.tailMap(from).values());
+    }
+
+    /**
+     * Checks whether there are no bookings.
+     *
+     * @return true if there are no bookings, false otherwise.
+     */
+    public boolean isEmpty() {
+        return byStart.isEmpty();
+    }
+}
@@ -1,21 +1,34 @@
 package models;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import utils.BinaryCodec;
 
 /**
  * Class representing a doctor in the hospital management system.
  * The doctor is a subclass of the {@link User} class and includes properties 
  * such as the doctor's patient list, appointment list, availability times, 
- * and their schedule.
+ * and their appointment calendar.
  */
 public class Doctor extends User {
     private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 1;
+
+    /**
+     * The specialty given to doctors that have not been assigned one.
+     */
+    public static final String DEFAULT_SPECIALTY = "General Practice";
+
+    private String specialty;
     private List<String> patientIDs;
     private List<Appointment> appointments;
     private List<LocalDateTime> availability;
-    private List<String> schedule;
+    private transient DoctorCalendar calendar;
 
     /**
      * Constructs a Doctor object with the specified user ID, name, and password.
@@ -29,9 +42,32 @@ public class Doctor extends User {
         this.patientIDs = new ArrayList<>();
         this.appointments = new ArrayList<>();
         this.availability = new ArrayList<>();
-        if ((this.schedule == null) || this.schedule.isEmpty()) {
-            this.schedule = new ArrayList<>();
-        }
+        this.specialty = DEFAULT_SPECIALTY;
+    }
+
+    /**
+     * Constructs an empty doctor whose fields are then read from a data file.
+     */
+    private Doctor() {
+    }
+
+    /**
+     * Gets the doctor's specialty.
+     *
+     * @return The doctor's specialty, or the default specialty if none was assigned.
+     */
+    public String getSpecialty() {
+        return specialty == null ? DEFAULT_SPECIALTY : specialty;
+    }
+
+    /**
+     * Sets the doctor's specialty.
+     *
+     * @param specialty The doctor's specialty.
+     */
+    public void setSpecialty(String specialty) {
+        markDirty(!Objects.equals(this.specialty, specialty));
+        this.specialty = specialty;
     }
 
     // Getters and Setters
@@ -52,21 +88,82 @@ public class Doctor extends User {
         return appointments;
     }
     /**
-     * Gets the doctor's schedule, which is a list of strings representing the scheduled times.
+     * Gets the doctor's appointment calendar.
+     * The calendar is stored in the doctor's own schedule file, not with the user data.
+     *
+     * @return The doctor's calendar, or null if it has not been loaded.
+     */
+    public DoctorCalendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * Sets the doctor's appointment calendar.
+     *
+     * @param calendar The doctor's calendar.
+     */
+    public void setCalendar(DoctorCalendar calendar) {
+        this.calendar = calendar;
+    }
+
+    /**
+     * Writes this doctor in the binary data file format.
+     * The calendar is stored in its own file and is not written.
      *
-     * @return A list of strings representing the doctor's schedule.
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
      */
-    public List<String> getSchedule() {
-        
-        return schedule;
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeByte(BINARY_VERSION);
+        BinaryCodec.writeString(out, specialty);
+        BinaryCodec.writeStringList(out, patientIDs);
+        if (appointments == null) {
+            BinaryCodec.writeVarInt(out, 0);
+        } else {
+            BinaryCodec.writeVarInt(out, appointments.size() + 1);
+            for (Appointment appointment : appointments) {
+                appointment.writeTo(out);
+            }
+        }
+        if (availability == null) {
+            BinaryCodec.writeVarInt(out, 0);
+        } else {
+            BinaryCodec.writeVarInt(out, availability.size() + 1);
+            for (LocalDateTime time : availability) {
+                BinaryCodec.writeDateTime(out, time);
+            }
+        }
     }
 
     /**
-     * Sets the doctor's schedule with a new list of strings representing the available times.
+     * Reads a doctor written by {@link #writeTo}.
      *
-     * @param schedule A list of strings representing the doctor's schedule.
+     * @param in The input to read from.
+     * @return The doctor.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
      */
-    public void setSchedule(List<String> schedule) {
-        this.schedule = schedule;
+    public static Doctor readFrom(DataInput in) throws IOException {
+        Doctor doctor = new Doctor();
+        doctor.readFields(in);
+        BinaryCodec.readVersion(in, "doctor", BINARY_VERSION);
+        doctor.specialty = BinaryCodec.readString(in);
+        doctor.patientIDs = BinaryCodec.readStringList(in);
+        int count = BinaryCodec.readVarInt(in) - 1;
+        if (count >= 0) {
+            doctor.appointments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                doctor.appointments.add(Appointment.readFrom(in));
+            }
+        }
+        count = BinaryCodec.readVarInt(in) - 1;
+        if (count >= 0) {
+            doctor.availability = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                doctor.availability.add(BinaryCodec.readDateTime(in));
+            }
+        }
+        return doctor;
     }
 }
@@ -0,0 +1,1422 @@
+package models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import utils.BinaryCodec;
+
+/**
+ * Class representing a doctor's appointment calendar.
+ * The slots a doctor offers are derived from a weekly template of clinic hours
+ * and from exceptions for single dates, such as leave or an extra clinic. The
+ * calendar is rolling: slots can be booked from today up to a horizon of a
+ * number of days ahead, and days that have passed expire by themselves.
+ * Nothing is stored for a day until a slot on it is booked or blocked; the day
+ * is then materialized as a single 64-bit word over the fixed grid of
+ * {@link #TIME_SLOTS}, whose low half marks the slots the doctor offers and
+ * whose high half marks the slots that are booked. Reserving, releasing and
+ * blocking a slot are a compare-and-set on that word, so any number of threads
+ * can book the same calendar at once without locking, and exactly one of
+ * several threads racing for a slot gets it. Days are stored in fixed-size
+ * chunks that are never copied, so materializing more days cannot lose a
+ * concurrent booking. Expired days are left out when the calendar is saved.
+ * The IDs of the patients holding booked slots are kept in a separate table.
+ * A recurring series can book slots beyond the horizon, which are then already
+ * taken when the horizon reaches them.
+ * Appointments that are not a whole slot, such as a 15-minute follow-up or a
+ * 90-minute procedure, are kept as {@link BookingIntervals} at minute
+ * resolution within the open slots, each followed by an optional buffer. A slot
+ * that such a booking touches is marked booked on the grid, so it is no longer
+ * offered as a whole slot, and is freed again when its last booking is released.
+ * An optional {@link SlotListener} is told whenever a slot within the horizon
+ * becomes available or stops being available, except when a day enters the
+ * horizon or expires because the date changed.
+ */
+public class DoctorCalendar implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The serialized form: the first day, the open and booked masks of each
+     * materialized day, the booking table, the weekly template, the horizon and
+     * the exceptions, followed by the bookings that are not whole slots. The
+     * first four fields are the form the calendar had before the masks were
+     * combined, so existing schedule files can still be read. Calendars written
+     * before bookings were kept by patient ID have their bookings by patient
+     * name in "bookedWith" and "timedNames" instead of "bookedBy" and "timedPatients".
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("firstDay", long.class),
+            new ObjectStreamField("open", long[].class),
+            new ObjectStreamField("booked", long[].class),
+            new ObjectStreamField("bookedWith", Map.class),
+            new ObjectStreamField("weeklyHours", long.class),
+            new ObjectStreamField("horizonDays", int.class),
+            new ObjectStreamField("exceptions", Map.class),
+            new ObjectStreamField("timedStarts", long[].class),
+            new ObjectStreamField("timedEnds", long[].class),
+            new ObjectStreamField("timedUntil", long[].class),
+            new ObjectStreamField("timedNames", String[].class),
+            new ObjectStreamField("bookedBy", Map.class),
+            new ObjectStreamField("timedPatients", String[].class)
+    };
+
+    /**
+     * The start times of the appointment slots offered each day.
+     */
+    public static final LocalTime[] TIME_SLOTS = {
+            LocalTime.of(9, 0), LocalTime.of(10, 0), LocalTime.of(11, 0),
+            LocalTime.of(13, 0), LocalTime.of(14, 0), LocalTime.of(15, 0), LocalTime.of(16, 0)
+    };
+
+    /**
+     * The length of a slot on the grid, in minutes.
+     */
+    public static final int SLOT_MINUTES = 60;
+
+    /**
+     * The step, in minutes, on which bookings that are not whole slots start and end.
+     */
+    public static final int MINUTE_STEP = 15;
+
+    private static final int BINARY_VERSION = 4;
+    private static final long MINUTES_PER_DAY = 24 * 60;
+    private static final long FULL_DAY = (1L << TIME_SLOTS.length) - 1;
+    private static final long FULL_WEEK = fullWeek();
+    private static final int BOOKED_SHIFT = 32;
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK_DAYS = 1 << CHUNK_BITS;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static volatile long today;
+    private static volatile long tomorrowMillis;
+
+    private long firstDay;
+    private transient volatile long weeklyHours;
+    private transient volatile int horizonDays;
+    private transient Map<Long, Long> exceptions;
+    private transient volatile AtomicLongArray[] chunks;
+    private transient volatile int dayCount;
+    private transient Map<Long, String> bookedBy;
+    private transient BookingIntervals timed;
+    private transient volatile boolean namedBookings;
+    private transient volatile SlotListener slotListener;
+
+    /**
+     * Listener that is notified when a slot becomes available or stops being available.
+     */
+    public interface SlotListener {
+
+        /**
+         * Called when the availability of a slot changes.
+         *
+         * @param epochDay  The date of the slot as an epoch day.
+         * @param slot      The slot index on the grid of {@link #TIME_SLOTS}.
+         * @param available true if the slot can now be booked, false if it no longer can.
+         */
+        void slotChanged(long epochDay, int slot, boolean available);
+    }
+
+    /**
+     * Constructs an empty calendar starting on the given date, with clinics on
+     * every day of the week and a horizon of zero days.
+     * Use {@link #addDays(int)} to open days for booking.
+     *
+     * @param firstDate The first date covered by the calendar.
+     */
+    public DoctorCalendar(LocalDate firstDate) {
+        this.firstDay = firstDate.toEpochDay();
+        this.weeklyHours = FULL_WEEK;
+        this.exceptions = new ConcurrentHashMap<>();
+        this.chunks = new AtomicLongArray[0];
+        this.bookedBy = new ConcurrentHashMap<>();
+        this.timed = new BookingIntervals();
+    }
+
+    /**
+     * Gets today's date as an epoch day.
+     * The date is computed again only when the clock passes midnight, so this is
+     * cheap enough to call on every booking.
+     *
+     * @return Today's date as an epoch day.
+     */
+    public static long currentEpochDay() {
+        if (System.currentTimeMillis() >= tomorrowMillis) {
+            LocalDate date = LocalDate.now();
+            today = date.toEpochDay();
+            tomorrowMillis = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        return today;
+    }
+
+    /**
+     * Creates a calendar from a schedule in the older list-of-strings format.
+     * Entries are "yyyy-MM-dd HH:mm", optionally followed by "Unavailable"
+     * or "Confirmed with &lt;name&gt;". Entries that are not on the slot grid are skipped.
+     * Bookings are converted from the patient's name to the patient's ID.
+     *
+     * @param schedule   The schedule entries to convert.
+     * @param patientIDs Gets the ID of the patient with a given name, or null if there is none.
+     * @return The equivalent calendar.
+     */
+    public static DoctorCalendar fromSchedule(List<String> schedule, Function<String, String> patientIDs) {
+        LocalDate first = null;
+        LocalDate last = null;
+        for (String entry : schedule) {
+            LocalDate date = LocalDate.parse(entry.substring(0, 10));
+            if (first == null || date.isBefore(first)) {
+                first = date;
+            }
+            if (last == null || date.isAfter(last)) {
+                last = date;
+            }
+        }
+
+        DoctorCalendar calendar = new DoctorCalendar(first == null ? LocalDate.now() : first);
+        if (first == null) {
+            return calendar;
+        }
+        int days = (int) (last.toEpochDay() - first.toEpochDay()) + 1;
+        calendar.horizonDays = days;
+        calendar.growTo(days);
+        for (int day = 0; day < days; day++) {
+            calendar.chunk(day).set(day & (CHUNK_DAYS - 1), 0);
+        }
+
+        for (String entry : schedule) {
+            LocalDateTime dateTime = LocalDateTime.parse(entry.substring(0, 16), FORMATTER);
+            int day = (int) (dateTime.toLocalDate().toEpochDay() - calendar.firstDay);
+            int slot = slotIndex(dateTime.toLocalTime());
+            if (slot < 0) {
+                continue;
+            }
+            String status = entry.substring(16).trim();
+            if (status.endsWith("Unavailable")) {
+                continue;
+            }
+            long bits = 1L << slot;
+            if (status.startsWith("Confirmed with ")) {
+                bits |= bookedBit(slot);
+                String patientName = status.substring("Confirmed with ".length());
+                calendar.bookedBy.put(slotKey(dateTime.toLocalDate(), slot), patientIDOf(patientIDs, patientName));
+            }
+            calendar.chunk(day).getAndAdd(day & (CHUNK_DAYS - 1), bits);
+        }
+        for (int day = 0; day < days; day++) {
+            // Slots marked unavailable are kept closed if the weekly template changes
+            if ((calendar.word(day) & FULL_DAY) != FULL_DAY) {
+                calendar.exceptions.put(calendar.firstDay + day, calendar.word(day) & FULL_DAY);
+            }
+        }
+        return calendar;
+    }
+
+    /**
+     * Converts the bookings of a calendar read from a schedule file written
+     * before bookings were kept by patient ID from the patient's name to the
+     * patient's ID. Nothing is changed for any other calendar.
+     *
+     * @param patientIDs Gets the ID of the patient with a given name, or null if there is none.
+     */
+    public void resolveNamedBookings(Function<String, String> patientIDs) {
+        if (!namedBookings) {
+            return;
+        }
+        bookedBy.replaceAll((key, patientName) -> patientIDOf(patientIDs, patientName));
+        synchronized (timed) {
+            for (BookingIntervals.Interval interval : timed.from(Long.MIN_VALUE)) {
+                timed.remove(interval.getStart());
+                timed.add(new BookingIntervals.Interval(interval.getStart(), interval.getEnd(), interval.getUntil(),
+                        patientIDOf(patientIDs, interval.getPatientID())));
+            }
+        }
+        namedBookings = false;
+    }
+
+    /**
+     * Gets the ID of the patient a booking made under a name belongs to.
+     * A name that matches no patient is kept, so the booking stays in place.
+     *
+     * @param patientIDs  Gets the ID of the patient with a given name, or null if there is none.
+     * @param patientName The name the booking was made under.
+     * @return The patient's ID, or the name if no patient has it.
+     */
+    private static String patientIDOf(Function<String, String> patientIDs, String patientName) {
+        String patientID = patientIDs.apply(patientName);
+        return patientID != null ? patientID : patientName;
+    }
+
+    /**
+     * Gets the position of a start time on the slot grid.
+     *
+     * @param time The start time.
+     * @return The slot index, or -1 if the time is not on the grid.
+     */
+    public static int slotIndex(LocalTime time) {
+        for (int i = 0; i < TIME_SLOTS.length; i++) {
+            if (TIME_SLOTS[i].equals(time)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the first date that can still be booked: today, or the first date of
+     * the calendar if that is later.
+     *
+     * @return The first date.
+     */
+    public LocalDate getFirstDate() {
+        return LocalDate.ofEpochDay(windowStart());
+    }
+
+    /**
+     * Gets the last date that can be booked, the end of the rolling horizon.
+     *
+     * @return The last date, or the day before the first date if nothing can be booked.
+     */
+    public LocalDate getLastDate() {
+        return LocalDate.ofEpochDay(windowEnd() - 1);
+    }
+
+    /**
+     * Gets the number of days ahead, counting today, that slots can be booked.
+     *
+     * @return The horizon in days.
+     */
+    public int getHorizonDays() {
+        return horizonDays;
+    }
+
+    /**
+     * Extends the horizon of the calendar by the given number of days.
+     * The slots the weekly template and the exceptions offer on the new days become available.
+     *
+     * @param days The number of days to add.
+     */
+    public void addDays(int days) {
+        long oldEnd;
+        long newEnd;
+        synchronized (this) {
+            oldEnd = windowEnd();
+            horizonDays += days;
+            newEnd = windowEnd();
+        }
+        SlotListener listener = slotListener;
+        if (listener != null) {
+            for (long epochDay = Math.max(oldEnd, windowStart()); epochDay < newEnd; epochDay++) {
+                long free = freeSlots(dayWord(epochDay));
+                while (free != 0) {
+                    listener.slotChanged(epochDay, Long.numberOfTrailingZeros(free), true);
+                    free &= free - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the doctor holds clinics on a day of the week.
+     *
+     * @param dayOfWeek The day of the week.
+     * @return true if the weekly template offers any slot on that day, false otherwise.
+     */
+    public boolean isClinicDay(DayOfWeek dayOfWeek) {
+        return templateFor(weeklyHours, dayOfWeek.getValue() - 1) != 0;
+    }
+
+    /**
+     * Sets whether the doctor holds clinics on a day of the week, with every slot open or none.
+     * Days with an exception keep it, and slots that are already booked stay booked.
+     *
+     * @param dayOfWeek The day of the week.
+     * @param open      true to offer every slot on that day, false to offer none.
+     */
+    public synchronized void setClinicDay(DayOfWeek dayOfWeek, boolean open) {
+        int weekday = dayOfWeek.getValue() - 1;
+        int shift = weekday * TIME_SLOTS.length;
+        long previous = templateFor(weeklyHours, weekday);
+        weeklyHours = (weeklyHours & ~(FULL_DAY << shift)) | (open ? FULL_DAY << shift : 0);
+        long end = Math.max(windowEnd(), firstDay + dayCount);
+        for (long epochDay = windowStart(); epochDay < end; epochDay++) {
+            if (weekday(epochDay) == weekday && !exceptions.containsKey(epochDay)) {
+                setOpenSlots(epochDay, previous, open ? FULL_DAY : 0);
+            }
+        }
+    }
+
+    /**
+     * Closes every slot on a date, for example for leave.
+     * Slots that are already booked stay booked.
+     *
+     * @param date The date.
+     * @return The number of booked slots on the date, or -1 if the date has passed.
+     */
+    public synchronized int closeDay(LocalDate date) {
+        return setException(date.toEpochDay(), 0);
+    }
+
+    /**
+     * Opens every slot on a date, for example for an extra clinic.
+     *
+     * @param date The date.
+     * @return The number of booked slots on the date, or -1 if the date has passed.
+     */
+    public synchronized int openDay(LocalDate date) {
+        return setException(date.toEpochDay(), FULL_DAY);
+    }
+
+    /**
+     * Checks whether a slot is open and not yet booked.
+     *
+     * @param dateTime The start of the slot.
+     * @return true if the slot can be booked, false otherwise.
+     */
+    public boolean isAvailable(LocalDateTime dateTime) {
+        long epochDay = dateTime.toLocalDate().toEpochDay();
+        int slot = slotIndex(dateTime.toLocalTime());
+        if (slot < 0 || epochDay < windowStart() || epochDay >= windowEnd()) {
+            return false;
+        }
+        return (freeSlots(dayWord(epochDay)) & (1L << slot)) != 0;
+    }
+
+    /**
+     * Finds the earliest slot in a time range that can be booked.
+     * Each day in the range is checked with one read of its day word.
+     *
+     * @param from  The earliest start time.
+     * @param until The time before which the slot must start.
+     * @return The start of the earliest available slot, or null if there is none.
+     */
+    public LocalDateTime firstAvailable(LocalDateTime from, LocalDateTime until) {
+        long end = Math.min(windowEnd(), until.toLocalDate().toEpochDay() + 1);
+        for (long epochDay = Math.max(from.toLocalDate().toEpochDay(), windowStart()); epochDay < end; epochDay++) {
+            long free = freeSlots(dayWord(epochDay));
+            while (free != 0) {
+                LocalDateTime start = LocalDate.ofEpochDay(epochDay).atTime(TIME_SLOTS[Long.numberOfTrailingZeros(free)]);
+                if (!start.isBefore(until)) {
+                    return null;
+                }
+                if (!start.isBefore(from)) {
+                    return start;
+                }
+                free &= free - 1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a slot is booked for the given patient.
+     *
+     * @param dateTime  The start of the slot.
+     * @param patientID The ID of the patient.
+     * @return true if the slot is booked and held by the patient, false otherwise.
+     */
+    public boolean isHeldBy(LocalDateTime dateTime, String patientID) {
+        int day = dayIndex(dateTime.toLocalDate());
+        int slot = slotIndex(dateTime.toLocalTime());
+        if (day < 0 || slot < 0 || (word(day) & bookedBit(slot)) == 0) {
+            return false;
+        }
+        return patientID.equals(bookedBy.get(slotKey(dateTime.toLocalDate(), slot)));
+    }
+
+    /**
+     * Books a slot if it is open and not already booked.
+     * When several threads try to book the same slot at once, exactly one succeeds.
+     *
+     * @param dateTime  The start of the slot.
+     * @param patientID The ID of the patient the slot is booked for.
+     * @return true if the slot was booked, false if it was not available.
+     */
+    public boolean reserve(LocalDateTime dateTime, String patientID) {
+        int day = materialize(dateTime.toLocalDate());
+        int slot = slotIndex(dateTime.toLocalTime());
+        if (day < 0 || slot < 0) {
+            return false;
+        }
+        return book(day, slot, dateTime.toLocalDate(), patientID);
+    }
+
+    /**
+     * Books the slots of a recurring series for one patient in a single pass.
+     * Unlike {@link #reserve}, slots beyond the horizon can be booked, so that a
+     * long series holds its later slots before they are offered to anyone else.
+     * Those days are taken from the weekly template and its exceptions as usual.
+     * Slots that have passed, are not offered or are already booked are skipped.
+     *
+     * @param dateTimes The starts of the slots.
+     * @param patientID The ID of the patient the slots are booked for.
+     * @return The positions in the list of the slots that were booked.
+     */
+    public BitSet reserveSeries(List<LocalDateTime> dateTimes, String patientID) {
+        long start = windowStart();
+        long last = -1;
+        for (LocalDateTime dateTime : dateTimes) {
+            last = Math.max(last, dateTime.toLocalDate().toEpochDay());
+        }
+        if (last >= start) {
+            growTo((int) (last - firstDay) + 1);
+        }
+        BitSet booked = new BitSet(dateTimes.size());
+        for (int i = 0; i < dateTimes.size(); i++) {
+            LocalDate date = dateTimes.get(i).toLocalDate();
+            int slot = slotIndex(dateTimes.get(i).toLocalTime());
+            if (slot >= 0 && date.toEpochDay() >= start && book((int) (date.toEpochDay() - firstDay), slot, date, patientID)) {
+                booked.set(i);
+            }
+        }
+        return booked;
+    }
+
+    /**
+     * Books a slot on a materialized day if it is open and not already booked.
+     *
+     * @param day       The day index.
+     * @param slot      The slot index.
+     * @param date      The date of the slot.
+     * @param patientID The ID of the patient the slot is booked for.
+     * @return true if the slot was booked, false if it was not available.
+     */
+    private boolean book(int day, int slot, LocalDate date, String patientID) {
+        AtomicLongArray chunk = chunk(day);
+        int index = day & (CHUNK_DAYS - 1);
+        long openBit = 1L << slot;
+        long bookedBit = bookedBit(slot);
+        long word;
+        do {
+            word = chunk.get(index);
+            if ((word & openBit) == 0 || (word & bookedBit) != 0) {
+                return false;
+            }
+        } while (!chunk.compareAndSet(index, word, word | bookedBit));
+
+        bookedBy.put(slotKey(date, slot), patientID);
+        notifyListener(day, slot, false);
+        return true;
+    }
+
+    /**
+     * Frees a slot booked for the given patient so that it can be booked again.
+     * Slots booked for other patients are not changed.
+     *
+     * @param dateTime  The start of the slot.
+     * @param patientID The ID of the patient the slot is booked for.
+     * @return true if the slot was freed, false if it was not booked for the patient.
+     */
+    public boolean release(LocalDateTime dateTime, String patientID) {
+        int day = dayIndex(dateTime.toLocalDate());
+        int slot = slotIndex(dateTime.toLocalTime());
+        if (day < 0 || slot < 0 || !bookedBy.remove(slotKey(dateTime.toLocalDate(), slot), patientID)) {
+            return false;
+        }
+        AtomicLongArray chunk = chunk(day);
+        int index = day & (CHUNK_DAYS - 1);
+        long bookedBit = bookedBit(slot);
+        long word;
+        do {
+            word = chunk.get(index);
+        } while (!chunk.compareAndSet(index, word, word & ~bookedBit));
+
+        if ((word & (1L << slot)) != 0) {
+            notifyListener(day, slot, true);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a booking of a given length is held for the given patient.
+     * A whole slot on the grid is checked as by {@link #isHeldBy(LocalDateTime, String)}.
+     *
+     * @param start     The start of the booking.
+     * @param minutes   The length of the appointment in minutes.
+     * @param patientID The ID of the patient.
+     * @return true if the booking is held by the patient, false otherwise.
+     */
+    public boolean isHeldBy(LocalDateTime start, int minutes, String patientID) {
+        if (isGridSlot(start, minutes)) {
+            return isHeldBy(start, patientID);
+        }
+        synchronized (timed) {
+            BookingIntervals.Interval interval = timed.get(epochMinute(start));
+            return interval != null && interval.getEnd() - interval.getStart() == minutes
+                    && interval.getPatientID().equals(patientID);
+        }
+    }
+
+    /**
+     * Books an appointment of any length that starts and ends on a {@link #MINUTE_STEP}.
+     * A whole slot on the grid is booked as by {@link #reserve(LocalDateTime, String)}.
+     * Otherwise the appointment must lie within slots the doctor offers on one
+     * day within the horizon, and neither it nor the buffer after it may overlap
+     * a whole-slot booking or another booking and its buffer. The slots it touches
+     * are then no longer offered as whole slots.
+     *
+     * @param start         The start of the appointment.
+     * @param minutes       The length of the appointment in minutes.
+     * @param bufferMinutes The minutes to keep free after the appointment.
+     * @param patientID     The ID of the patient the appointment is booked for.
+     * @return true if the appointment was booked, false if the time is not available.
+     */
+    public boolean reserve(LocalDateTime start, int minutes, int bufferMinutes, String patientID) {
+        if (isGridSlot(start, minutes)) {
+            return reserve(start, patientID);
+        }
+        if (minutes <= 0 || minutes % MINUTE_STEP != 0 || bufferMinutes < 0
+                || !start.toLocalTime().equals(start.toLocalTime().truncatedTo(ChronoUnit.MINUTES))
+                || start.getMinute() % MINUTE_STEP != 0) {
+            return false;
+        }
+        int day = materialize(start.toLocalDate());
+        long dayStart = start.toLocalDate().toEpochDay() * MINUTES_PER_DAY;
+        long from = epochMinute(start);
+        long end = from + minutes;
+        long until = end + bufferMinutes;
+        if (day < 0 || end > dayStart + MINUTES_PER_DAY) {
+            return false;
+        }
+
+        long needed = slotsTouched(dayStart, from, end);
+        long spanned = (end - dayStart + SLOT_MINUTES - 1) / SLOT_MINUTES - (from - dayStart) / SLOT_MINUTES;
+        if (Long.bitCount(needed) != spanned) {
+            // Part of the appointment falls outside the slot grid, such as over lunch
+            return false;
+        }
+        long touched = slotsTouched(dayStart, from, until);
+        long claimed;
+        synchronized (timed) {
+            if (timed.overlaps(from, until)) {
+                return false;
+            }
+            long word = word(day);
+            claimed = 0;
+            long remaining = touched;
+            while (remaining != 0) {
+                int slot = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                long slotStart = dayStart + TIME_SLOTS[slot].toSecondOfDay() / 60;
+                if ((word & bookedBit(slot)) != 0) {
+                    if (!timed.overlaps(slotStart, slotStart + SLOT_MINUTES)) {
+                        // The slot is booked as a whole
+                        return false;
+                    }
+                } else if ((word & (1L << slot)) != 0) {
+                    claimed |= 1L << slot;
+                } else if ((needed & (1L << slot)) != 0) {
+                    return false;
+                }
+            }
+            if (!claimSlots(day, claimed, needed)) {
+                return false;
+            }
+            timed.add(new BookingIntervals.Interval(from, end, until, patientID));
+        }
+        while (claimed != 0) {
+            notifyListener(day, Long.numberOfTrailingZeros(claimed), false);
+            claimed &= claimed - 1;
+        }
+        return true;
+    }
+
+    /**
+     * Frees a booking of a given length held for the given patient.
+     * A whole slot on the grid is freed as by {@link #release(LocalDateTime, String)}.
+     * Slots the booking touched are offered as whole slots again once no other
+     * booking touches them.
+     *
+     * @param start     The start of the booking.
+     * @param minutes   The length of the appointment in minutes.
+     * @param patientID The ID of the patient the booking is for.
+     * @return true if the booking was freed, false if it was not held for the patient.
+     */
+    public boolean release(LocalDateTime start, int minutes, String patientID) {
+        if (isGridSlot(start, minutes)) {
+            return release(start, patientID);
+        }
+        int day = dayIndex(start.toLocalDate());
+        if (day < 0) {
+            return false;
+        }
+        long dayStart = start.toLocalDate().toEpochDay() * MINUTES_PER_DAY;
+        long from = epochMinute(start);
+        long freed = 0;
+        long word;
+        synchronized (timed) {
+            BookingIntervals.Interval interval = timed.get(from);
+            if (interval == null || interval.getEnd() != from + minutes || !interval.getPatientID().equals(patientID)) {
+                return false;
+            }
+            timed.remove(from);
+            long touched = slotsTouched(dayStart, from, interval.getUntil());
+            while (touched != 0) {
+                int slot = Long.numberOfTrailingZeros(touched);
+                touched &= touched - 1;
+                long slotStart = dayStart + TIME_SLOTS[slot].toSecondOfDay() / 60;
+                if (!timed.overlaps(slotStart, slotStart + SLOT_MINUTES)) {
+                    freed |= 1L << slot;
+                }
+            }
+            AtomicLongArray chunk = chunk(day);
+            int index = day & (CHUNK_DAYS - 1);
+            do {
+                word = chunk.get(index);
+            } while (!chunk.compareAndSet(index, word, word & ~(freed << BOOKED_SHIFT)));
+        }
+        freed &= word;
+        while (freed != 0) {
+            notifyListener(day, Long.numberOfTrailingZeros(freed), true);
+            freed &= freed - 1;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the periods of a date in which appointments of any length can still
+     * be booked, formatted as "HH:mm-HH:mm". Adjacent free slots and parts of
+     * slots are joined into one period.
+     *
+     * @param date The date.
+     * @return A list of free periods in chronological order, empty if the date is not within the horizon.
+     */
+    public List<String> getFreePeriods(LocalDate date) {
+        List<String> periods = new ArrayList<>();
+        long epochDay = date.toEpochDay();
+        if (epochDay < windowStart() || epochDay >= windowEnd()) {
+            return periods;
+        }
+        long word = dayWord(epochDay);
+        long dayStart = epochDay * MINUTES_PER_DAY;
+        long periodStart = -1;
+        long periodEnd = -1;
+        synchronized (timed) {
+            for (int slot = 0; slot < TIME_SLOTS.length; slot++) {
+                if ((word & (1L << slot)) == 0) {
+                    continue;
+                }
+                long slotStart = dayStart + TIME_SLOTS[slot].toSecondOfDay() / 60;
+                long slotEnd = slotStart + SLOT_MINUTES;
+                List<BookingIntervals.Interval> taken = (word & bookedBit(slot)) == 0
+                        ? List.of() : timed.within(slotStart, slotEnd);
+                if ((word & bookedBit(slot)) != 0 && taken.isEmpty()) {
+                    continue;
+                }
+                long cursor = slotStart;
+                for (BookingIntervals.Interval interval : taken) {
+                    if (interval.getStart() > cursor) {
+                        if (cursor != periodEnd) {
+                            addPeriod(periods, periodStart, periodEnd);
+                            periodStart = cursor;
+                        }
+                        periodEnd = interval.getStart();
+                    }
+                    cursor = Math.max(cursor, interval.getUntil());
+                }
+                if (cursor < slotEnd) {
+                    if (cursor != periodEnd) {
+                        addPeriod(periods, periodStart, periodEnd);
+                        periodStart = cursor;
+                    }
+                    periodEnd = slotEnd;
+                }
+            }
+        }
+        addPeriod(periods, periodStart, periodEnd);
+        return periods;
+    }
+
+    /**
+     * Adds a free period to a list, formatted as "HH:mm-HH:mm".
+     *
+     * @param periods The list of periods.
+     * @param start   The start of the period in epoch minutes, or -1 if there is no period yet.
+     * @param end     The end of the period in epoch minutes.
+     */
+    private static void addPeriod(List<String> periods, long start, long end) {
+        if (start >= 0) {
+            periods.add(timeOf(start) + "-" + timeOf(end));
+        }
+    }
+
+    /**
+     * Formats the time of day of an epoch minute as "HH:mm".
+     *
+     * @param epochMinute The time in minutes since the epoch.
+     * @return The time of day, with midnight at the end of a day shown as "24:00".
+     */
+    private static String timeOf(long epochMinute) {
+        long minute = Math.floorMod(epochMinute, MINUTES_PER_DAY);
+        if (minute == 0 && epochMinute > 0) {
+            minute = MINUTES_PER_DAY;
+        }
+        return String.format("%02d:%02d", minute / 60, minute % 60);
+    }
+
+    /**
+     * Marks the booked bits of the slots a booking claims, provided none of them
+     * has been booked meanwhile and the slots the appointment needs are still open.
+     *
+     * @param day     The day index.
+     * @param claimed The mask of the slots to mark as booked.
+     * @param needed  The mask of the slots the appointment itself lies in.
+     * @return true if the slots were claimed, false otherwise.
+     */
+    private boolean claimSlots(int day, long claimed, long needed) {
+        AtomicLongArray chunk = chunk(day);
+        int index = day & (CHUNK_DAYS - 1);
+        long word;
+        do {
+            word = chunk.get(index);
+            if ((word & (claimed << BOOKED_SHIFT)) != 0 || (word & needed) != needed) {
+                return false;
+            }
+        } while (!chunk.compareAndSet(index, word, word | (claimed << BOOKED_SHIFT)));
+        return true;
+    }
+
+    /**
+     * Checks whether a booking is a whole slot on the grid.
+     *
+     * @param start   The start of the booking.
+     * @param minutes The length of the booking in minutes.
+     * @return true if the booking starts on a slot and lasts one slot, false otherwise.
+     */
+    private static boolean isGridSlot(LocalDateTime start, int minutes) {
+        return minutes == SLOT_MINUTES && slotIndex(start.toLocalTime()) >= 0;
+    }
+
+    /**
+     * Gets the slots whose hour overlaps a range of minutes on a day.
+     *
+     * @param dayStart The start of the day in epoch minutes.
+     * @param from     The start of the range in epoch minutes.
+     * @param to       The end of the range, exclusive, in epoch minutes.
+     * @return The mask of the overlapping slots.
+     */
+    private static long slotsTouched(long dayStart, long from, long to) {
+        long mask = 0;
+        for (int slot = 0; slot < TIME_SLOTS.length; slot++) {
+            long slotStart = dayStart + TIME_SLOTS[slot].toSecondOfDay() / 60;
+            if (slotStart < to && slotStart + SLOT_MINUTES > from) {
+                mask |= 1L << slot;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Converts a date and time to minutes since the epoch.
+     *
+     * @param dateTime The date and time.
+     * @return The epoch minute.
+     */
+    private static long epochMinute(LocalDateTime dateTime) {
+        return dateTime.toLocalDate().toEpochDay() * MINUTES_PER_DAY + dateTime.toLocalTime().toSecondOfDay() / 60;
+    }
+
+    /**
+     * Lists the bookings that are not whole slots within a slot, for display.
+     *
+     * @param slotStart    The start of the slot in epoch minutes.
+     * @param patientNames Gets the name of a patient by patient ID.
+     * @return The patients and times of the bookings, separated by commas, or an
+     *         empty string if only the buffer of a booking falls in the slot.
+     */
+    private String timedBookingsIn(long slotStart, Function<String, String> patientNames) {
+        List<String> bookings = new ArrayList<>();
+        synchronized (timed) {
+            for (BookingIntervals.Interval interval : timed.within(slotStart, slotStart + SLOT_MINUTES)) {
+                if (interval.getStart() < slotStart + SLOT_MINUTES && interval.getEnd() > slotStart) {
+                    bookings.add(patientNames.apply(interval.getPatientID()) + " " + timeOf(interval.getStart()) + "-" + timeOf(interval.getEnd()));
+                }
+            }
+        }
+        return String.join(", ", bookings);
+    }
+
+    /**
+     * Marks a slot as unavailable so that it can no longer be booked.
+     * Slots that are already booked are not changed. The day keeps its remaining
+     * slots if the weekly template changes later.
+     *
+     * @param dateTime The start of the slot.
+     * @return true if the slot is within the horizon and not booked, false otherwise.
+     */
+    public boolean block(LocalDateTime dateTime) {
+        int day = materialize(dateTime.toLocalDate());
+        int slot = slotIndex(dateTime.toLocalTime());
+        if (day < 0 || slot < 0) {
+            return false;
+        }
+        AtomicLongArray chunk = chunk(day);
+        int index = day & (CHUNK_DAYS - 1);
+        long openBit = 1L << slot;
+        long word;
+        do {
+            word = chunk.get(index);
+            if ((word & bookedBit(slot)) != 0) {
+                return false;
+            }
+            if ((word & openBit) == 0) {
+                exceptions.put(firstDay + day, word & FULL_DAY);
+                return true;
+            }
+        } while (!chunk.compareAndSet(index, word, word & ~openBit));
+
+        exceptions.put(firstDay + day, (word & ~openBit) & FULL_DAY);
+        notifyListener(day, slot, false);
+        return true;
+    }
+
+    /**
+     * Sets the listener that is notified when slots become available or stop being available.
+     * The listener is not serialized.
+     *
+     * @param slotListener The listener, or null to remove it.
+     */
+    public void setSlotListener(SlotListener slotListener) {
+        this.slotListener = slotListener;
+    }
+
+    /**
+     * Reports every slot from today to the end of the horizon that is open and
+     * not yet booked to a listener, in chronological order.
+     *
+     * @param visitor The listener to call with each available slot.
+     */
+    public void forEachAvailableSlot(SlotListener visitor) {
+        long end = windowEnd();
+        for (long epochDay = windowStart(); epochDay < end; epochDay++) {
+            long free = freeSlots(dayWord(epochDay));
+            while (free != 0) {
+                int slot = Long.numberOfTrailingZeros(free);
+                visitor.slotChanged(epochDay, slot, true);
+                free &= free - 1;
+            }
+        }
+    }
+
+    /**
+     * Gets the slots that are open and not yet booked, formatted as "yyyy-MM-dd HH:mm".
+     *
+     * @return A list of available slots in chronological order.
+     */
+    public List<String> getAvailableSlots() {
+        List<String> slots = new ArrayList<>();
+        forEachAvailableSlot((epochDay, slot, available) ->
+                slots.add(LocalDateTime.of(LocalDate.ofEpochDay(epochDay), TIME_SLOTS[slot]).format(FORMATTER)));
+        return slots;
+    }
+
+    /**
+     * Gets every slot from today to the end of the horizon formatted for display.
+     * Open slots are shown as "yyyy-MM-dd HH:mm", closed slots are followed by
+     * "Unavailable" and booked slots by "Confirmed with &lt;name&gt;". A slot
+     * holding bookings that are not whole slots lists each of their patients
+     * with the times, and is shown as unavailable if only a buffer falls in it.
+     *
+     * @param patientNames Gets the name of a patient by patient ID.
+     * @return A list of schedule entries in chronological order.
+     */
+    public List<String> toScheduleStrings(Function<String, String> patientNames) {
+        List<String> entries = new ArrayList<>();
+        long end = windowEnd();
+        for (long epochDay = windowStart(); epochDay < end; epochDay++) {
+            long word = dayWord(epochDay);
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            for (int slot = 0; slot < TIME_SLOTS.length; slot++) {
+                String entry = LocalDateTime.of(date, TIME_SLOTS[slot]).format(FORMATTER);
+                String patientID = (word & bookedBit(slot)) == 0 ? null : bookedBy.get(slotKey(date, slot));
+                String timedBookings = (word & bookedBit(slot)) == 0 || patientID != null ? ""
+                        : timedBookingsIn(epochDay * MINUTES_PER_DAY + TIME_SLOTS[slot].toSecondOfDay() / 60, patientNames);
+                if (patientID != null || !timedBookings.isEmpty()) {
+                    entry += " Confirmed with " + (patientID != null ? patientNames.apply(patientID) : timedBookings);
+                } else if ((word & bookedBit(slot)) != 0 || (word & (1L << slot)) == 0) {
+                    entry += " Unavailable";
+                }
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Materializes days up to the given count, each starting with the slots the
+     * weekly template and the exceptions offer on it.
+     * New chunks are added to a copy of the chunk table, while existing chunks are
+     * shared, so bookings made on existing days during the growth are kept.
+     *
+     * @param newCount The number of days from the first day to materialize.
+     */
+    private synchronized void growTo(int newCount) {
+        int oldCount = dayCount;
+        if (newCount <= oldCount) {
+            return;
+        }
+        int chunksNeeded = (newCount + CHUNK_DAYS - 1) >> CHUNK_BITS;
+        AtomicLongArray[] table = chunks;
+        if (chunksNeeded > table.length) {
+            table = Arrays.copyOf(table, chunksNeeded);
+            for (int i = chunks.length; i < chunksNeeded; i++) {
+                table[i] = new AtomicLongArray(CHUNK_DAYS);
+            }
+            chunks = table;
+        }
+        for (int day = oldCount; day < newCount; day++) {
+            table[day >> CHUNK_BITS].set(day & (CHUNK_DAYS - 1), templateWord(firstDay + day));
+        }
+        dayCount = newCount;
+    }
+
+    /**
+     * Gets the position of a date on the calendar, materializing the days up to
+     * it if the date is within the horizon.
+     *
+     * @param date The date.
+     * @return The day index, or -1 if the date has passed or is beyond the horizon.
+     */
+    private int materialize(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        long day = epochDay - firstDay;
+        if (day >= 0 && day < dayCount && epochDay >= currentEpochDay()) {
+            return (int) day;
+        }
+        if (epochDay < windowStart() || epochDay >= windowEnd()) {
+            return -1;
+        }
+        growTo((int) day + 1);
+        return (int) day;
+    }
+
+    /**
+     * Records an exception for a date and applies it.
+     *
+     * @param epochDay The date as an epoch day.
+     * @param slots    The mask of the slots offered on the date.
+     * @return The number of booked slots on the date, or -1 if the date has passed.
+     */
+    private int setException(long epochDay, long slots) {
+        if (epochDay < windowStart()) {
+            return -1;
+        }
+        long previous = templateWord(epochDay);
+        exceptions.put(epochDay, slots);
+        setOpenSlots(epochDay, previous, slots);
+        return Long.bitCount(dayWord(epochDay) >>> BOOKED_SHIFT);
+    }
+
+    /**
+     * Changes the slots offered on a date, keeping its bookings, and tells the
+     * slot listener about every slot within the horizon whose availability changed.
+     * The date is not materialized; a date that is not yet materialized
+     * takes the new slots from the template or its exception when it is.
+     *
+     * @param epochDay The date as an epoch day.
+     * @param previous The slots the date offered before, if it is not materialized.
+     * @param slots    The mask of the slots offered on the date.
+     */
+    private void setOpenSlots(long epochDay, long previous, long slots) {
+        long day = epochDay - firstDay;
+        long before;
+        long after;
+        if (day >= 0 && day < dayCount) {
+            AtomicLongArray chunk = chunk((int) day);
+            int index = (int) day & (CHUNK_DAYS - 1);
+            do {
+                before = chunk.get(index);
+                after = (before & ~FULL_DAY) | slots;
+            } while (!chunk.compareAndSet(index, before, after));
+        } else {
+            before = previous;
+            after = slots;
+        }
+        SlotListener listener = slotListener;
+        if (listener == null || epochDay >= windowEnd()) {
+            return;
+        }
+        long changed = freeSlots(before) ^ freeSlots(after);
+        while (changed != 0) {
+            int slot = Long.numberOfTrailingZeros(changed);
+            listener.slotChanged(epochDay, slot, (freeSlots(after) & (1L << slot)) != 0);
+            changed &= changed - 1;
+        }
+    }
+
+    /**
+     * Gets the first day that can be booked.
+     *
+     * @return Today or the first day of the calendar, whichever is later, as an epoch day.
+     */
+    private long windowStart() {
+        return Math.max(firstDay, currentEpochDay());
+    }
+
+    /**
+     * Gets the day after the last day that can be booked.
+     *
+     * @return The end of the horizon as an epoch day.
+     */
+    private long windowEnd() {
+        return currentEpochDay() + horizonDays;
+    }
+
+    /**
+     * Gets the open and booked bits of a date, whether it is materialized or not.
+     *
+     * @param epochDay The date as an epoch day, not before the first day.
+     * @return The day word.
+     */
+    private long dayWord(long epochDay) {
+        long day = epochDay - firstDay;
+        return day < dayCount ? word((int) day) : templateWord(epochDay);
+    }
+
+    /**
+     * Gets the slots offered on a date that is not materialized: its exception
+     * if it has one, and otherwise the weekly template for its day of the week.
+     *
+     * @param epochDay The date as an epoch day.
+     * @return The day word, with no slots booked.
+     */
+    private long templateWord(long epochDay) {
+        if (!exceptions.isEmpty()) {
+            Long exception = exceptions.get(epochDay);
+            if (exception != null) {
+                return exception;
+            }
+        }
+        return templateFor(weeklyHours, weekday(epochDay));
+    }
+
+    /**
+     * Gets the slots a weekly template offers on a day of the week.
+     *
+     * @param template The weekly template.
+     * @param weekday  The day of the week, from 0 for Monday to 6 for Sunday.
+     * @return The mask of the slots offered.
+     */
+    private static long templateFor(long template, int weekday) {
+        return (template >>> (weekday * TIME_SLOTS.length)) & FULL_DAY;
+    }
+
+    /**
+     * Gets the day of the week of a date.
+     *
+     * @param epochDay The date as an epoch day.
+     * @return The day of the week, from 0 for Monday to 6 for Sunday.
+     */
+    private static int weekday(long epochDay) {
+        // The epoch, 1970-01-01, was a Thursday
+        return (int) Math.floorMod(epochDay + 3, 7L);
+    }
+
+    /**
+     * Builds the weekly template that offers every slot on every day.
+     *
+     * @return The weekly template.
+     */
+    private static long fullWeek() {
+        long template = 0;
+        for (int weekday = 0; weekday < 7; weekday++) {
+            template |= FULL_DAY << (weekday * TIME_SLOTS.length);
+        }
+        return template;
+    }
+
+    /**
+     * Gets the chunk that holds a day.
+     *
+     * @param day The day index.
+     * @return The chunk of day words.
+     */
+    private AtomicLongArray chunk(int day) {
+        return chunks[day >> CHUNK_BITS];
+    }
+
+    /**
+     * Gets the open and booked bits of a day.
+     *
+     * @param day The day index.
+     * @return The day word.
+     */
+    private long word(int day) {
+        return chunk(day).get(day & (CHUNK_DAYS - 1));
+    }
+
+    /**
+     * Gets the slots of a day word that are open and not booked.
+     *
+     * @param word The day word.
+     * @return A mask of the free slots.
+     */
+    private static long freeSlots(long word) {
+        return word & ~(word >>> BOOKED_SHIFT) & FULL_DAY;
+    }
+
+    /**
+     * Gets the bit that marks a slot as booked in a day word.
+     *
+     * @param slot The slot index.
+     * @return The booked bit.
+     */
+    private static long bookedBit(int slot) {
+        return 1L << (slot + BOOKED_SHIFT);
+    }
+
+    /**
+     * Tells the slot listener, if any, that a slot changed.
+     * Slots beyond the horizon are not reported; they are reported when the horizon reaches them.
+     *
+     * @param day       The day index.
+     * @param slot      The slot index.
+     * @param available true if the slot became available, false if it no longer is.
+     */
+    private void notifyListener(int day, int slot, boolean available) {
+        SlotListener listener = slotListener;
+        if (listener != null && firstDay + day < windowEnd()) {
+            listener.slotChanged(firstDay + day, slot, available);
+        }
+    }
+
+    /**
+     * Gets the position of a materialized date on the calendar.
+     *
+     * @param date The date.
+     * @return The day index, or -1 if the date has passed or is not materialized.
+     */
+    private int dayIndex(LocalDate date) {
+        long day = date.toEpochDay() - firstDay;
+        return day >= 0 && day < dayCount && date.toEpochDay() >= currentEpochDay() ? (int) day : -1;
+    }
+
+    /**
+     * Builds the key of a slot in the booking table.
+     *
+     * @param date The date of the slot.
+     * @param slot The slot index.
+     * @return The booking table key.
+     */
+    private static long slotKey(LocalDate date, int slot) {
+        return date.toEpochDay() * TIME_SLOTS.length + slot;
+    }
+
+    /**
+     * Writes this calendar in the binary data file format.
+     * Days that have passed, and their bookings and exceptions, are left out.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        long start = windowStart();
+        int offset = (int) (start - firstDay);
+        int count = Math.max(0, dayCount - offset);
+        out.writeByte(BINARY_VERSION);
+        out.writeLong(start);
+        BinaryCodec.writeVarInt(out, count);
+        for (int day = 0; day < count; day++) {
+            out.writeLong(word(offset + day));
+        }
+        Map<Long, String> bookings = currentEntries(bookedBy, start * TIME_SLOTS.length);
+        BinaryCodec.writeVarInt(out, bookings.size());
+        for (Map.Entry<Long, String> booking : bookings.entrySet()) {
+            out.writeLong(booking.getKey());
+            BinaryCodec.writeString(out, booking.getValue());
+        }
+        out.writeLong(weeklyHours);
+        BinaryCodec.writeVarInt(out, horizonDays);
+        Map<Long, Long> dates = currentEntries(exceptions, start);
+        BinaryCodec.writeVarInt(out, dates.size());
+        for (Map.Entry<Long, Long> exception : dates.entrySet()) {
+            out.writeLong(exception.getKey());
+            out.writeByte((int) (long) exception.getValue());
+        }
+        List<BookingIntervals.Interval> bookedTimes;
+        synchronized (timed) {
+            bookedTimes = timed.from(start * MINUTES_PER_DAY);
+        }
+        BinaryCodec.writeVarInt(out, bookedTimes.size());
+        for (BookingIntervals.Interval interval : bookedTimes) {
+            out.writeLong(interval.getStart());
+            BinaryCodec.writeVarInt(out, (int) (interval.getEnd() - interval.getStart()));
+            BinaryCodec.writeVarInt(out, (int) (interval.getUntil() - interval.getEnd()));
+            BinaryCodec.writeString(out, interval.getPatientID());
+        }
+    }
+
+    /**
+     * Reads a calendar written by {@link #writeTo}.
+     * Calendars written before the weekly template existed get clinics on every
+     * day and a horizon as long as the days they cover, and now roll forward.
+     * Calendars written before bookings were kept by patient ID must have their
+     * bookings converted with {@link #resolveNamedBookings}.
+     *
+     * @param in The input to read from.
+     * @return The calendar.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static DoctorCalendar readFrom(DataInput in) throws IOException {
+        int version = BinaryCodec.readVersion(in, "calendar", BINARY_VERSION);
+        DoctorCalendar calendar = new DoctorCalendar(LocalDate.ofEpochDay(in.readLong()));
+        int count = BinaryCodec.readVarInt(in);
+        calendar.growTo(count);
+        for (int day = 0; day < count; day++) {
+            calendar.chunk(day).set(day & (CHUNK_DAYS - 1), in.readLong());
+        }
+        int bookings = BinaryCodec.readVarInt(in);
+        for (int i = 0; i < bookings; i++) {
+            long key = in.readLong();
+            calendar.bookedBy.put(key, BinaryCodec.readString(in));
+        }
+        // Until version 4 bookings were kept by the patient's name
+        calendar.namedBookings = version < 4;
+        if (version < 2) {
+            calendar.horizonDays = count;
+            return calendar;
+        }
+        calendar.weeklyHours = in.readLong();
+        calendar.horizonDays = BinaryCodec.readVarInt(in);
+        int dates = BinaryCodec.readVarInt(in);
+        for (int i = 0; i < dates; i++) {
+            long epochDay = in.readLong();
+            calendar.exceptions.put(epochDay, (long) in.readUnsignedByte());
+        }
+        if (version < 3) {
+            return calendar;
+        }
+        int bookedTimes = BinaryCodec.readVarInt(in);
+        for (int i = 0; i < bookedTimes; i++) {
+            long start = in.readLong();
+            long end = start + BinaryCodec.readVarInt(in);
+            long until = end + BinaryCodec.readVarInt(in);
+            calendar.timed.add(new BookingIntervals.Interval(start, end, until, BinaryCodec.readString(in)));
+        }
+        return calendar;
+    }
+
+    /**
+     * Writes the calendar in its serialized form of separate open and booked masks.
+     * Days that have passed, and their bookings and exceptions, are left out.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        long start = windowStart();
+        int offset = (int) (start - firstDay);
+        int count = Math.max(0, dayCount - offset);
+        long[] open = new long[count];
+        long[] booked = new long[count];
+        for (int day = 0; day < count; day++) {
+            long word = word(offset + day);
+            open[day] = word & FULL_DAY;
+            booked[day] = (word >>> BOOKED_SHIFT) & FULL_DAY;
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("firstDay", start);
+        fields.put("open", open);
+        fields.put("booked", booked);
+        fields.put("bookedBy", currentEntries(bookedBy, start * TIME_SLOTS.length));
+        fields.put("weeklyHours", weeklyHours);
+        fields.put("horizonDays", horizonDays);
+        fields.put("exceptions", currentEntries(exceptions, start));
+        List<BookingIntervals.Interval> bookedTimes;
+        synchronized (timed) {
+            bookedTimes = timed.from(start * MINUTES_PER_DAY);
+        }
+        long[] timedStarts = new long[bookedTimes.size()];
+        long[] timedEnds = new long[bookedTimes.size()];
+        long[] timedUntil = new long[bookedTimes.size()];
+        String[] timedPatients = new String[bookedTimes.size()];
+        for (int i = 0; i < bookedTimes.size(); i++) {
+            BookingIntervals.Interval interval = bookedTimes.get(i);
+            timedStarts[i] = interval.getStart();
+            timedEnds[i] = interval.getEnd();
+            timedUntil[i] = interval.getUntil();
+            timedPatients[i] = interval.getPatientID();
+        }
+        fields.put("timedStarts", timedStarts);
+        fields.put("timedEnds", timedEnds);
+        fields.put("timedUntil", timedUntil);
+        fields.put("timedPatients", timedPatients);
+        out.writeFields();
+    }
+
+    /**
+     * Reads the calendar from its serialized form and rebuilds the day words.
+     * Calendars written before the weekly template existed get clinics on every
+     * day and a horizon as long as the days they cover, and now roll forward.
+     * Calendars written before bookings were kept by patient ID must have their
+     * bookings converted with {@link #resolveNamedBookings}.
+     *
+     * @param in The stream to read from.
+     * @throws IOException            If an I/O error occurs.
+     * @throws ClassNotFoundException If the class of the booking table is not found.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        firstDay = fields.get("firstDay", 0L);
+        long[] open = (long[]) fields.get("open", new long[0]);
+        long[] booked = (long[]) fields.get("booked", new long[0]);
+        namedBookings = fields.defaulted("bookedBy");
+        Map<Long, String> stored = (Map<Long, String>) fields.get(namedBookings ? "bookedWith" : "bookedBy", null);
+        Map<Long, Long> storedExceptions = (Map<Long, Long>) fields.get("exceptions", null);
+        boolean legacy = fields.defaulted("horizonDays");
+        weeklyHours = legacy ? FULL_WEEK : fields.get("weeklyHours", FULL_WEEK);
+        horizonDays = legacy ? open.length : fields.get("horizonDays", 0);
+        exceptions = storedExceptions == null ? new ConcurrentHashMap<>() : new ConcurrentHashMap<>(storedExceptions);
+        chunks = new AtomicLongArray[0];
+        bookedBy = stored == null ? new ConcurrentHashMap<>() : new ConcurrentHashMap<>(stored);
+        timed = new BookingIntervals();
+        long[] timedStarts = (long[]) fields.get("timedStarts", new long[0]);
+        long[] timedEnds = (long[]) fields.get("timedEnds", new long[0]);
+        long[] timedUntil = (long[]) fields.get("timedUntil", new long[0]);
+        String[] timedPatients = (String[]) fields.get(namedBookings ? "timedNames" : "timedPatients", new String[0]);
+        for (int i = 0; i < timedStarts.length; i++) {
+            timed.add(new BookingIntervals.Interval(timedStarts[i], timedEnds[i], timedUntil[i], timedPatients[i]));
+        }
+        growTo(open.length);
+        for (int day = 0; day < open.length; day++) {
+            chunk(day).set(day & (CHUNK_DAYS - 1), open[day] | (booked[day] << BOOKED_SHIFT));
+        }
+    }
+
+    /**
+     * Copies the entries of a table whose keys are at or after a cutoff.
+     *
+     * @param table  The table, keyed by epoch day or by slot key.
+     * @param cutoff The first key to copy.
+     * @param <V>    The type of the values.
+     * @return The copied entries.
+     */
+    private static <V> Map<Long, V> currentEntries(Map<Long, V> table, long cutoff) {
+        Map<Long, V> current = new HashMap<>();
+        for (Map.Entry<Long, V> entry : table.entrySet()) {
+            if (entry.getKey() >= cutoff) {
+                current.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return current;
+    }
+}
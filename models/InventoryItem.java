@@ -1,16 +1,31 @@
 package models;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import utils.BinaryCodec;
+import utils.Keyed;
 
 /**
  * Class representing an inventory item (medication) in the hospital.
  * This class tracks the medication name, stock level, low stock alert level,
  * and replenish request amount for the hospital's inventory system.
+ * The stock level is an atomic counter. Stock can be reserved while a
+ * prescription is being dispensed, so concurrent dispensing never takes
+ * more than is on the shelf and never loses an update.
  */
-public class InventoryItem implements Serializable {
+public class InventoryItem implements Serializable, Keyed {
     private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 1;
     private String medicationName;
-    private int stockLevel;
+    private static final AtomicIntegerFieldUpdater<InventoryItem> STOCK =
+            AtomicIntegerFieldUpdater.newUpdater(InventoryItem.class, "stockLevel");
+    private static final AtomicIntegerFieldUpdater<InventoryItem> RESERVED =
+            AtomicIntegerFieldUpdater.newUpdater(InventoryItem.class, "reservedLevel");
+    private volatile int stockLevel;
+    private transient volatile int reservedLevel;
     private int lowStockAlertLevel;
     private int replenishRequestAmount;
 
@@ -39,6 +54,17 @@ public class InventoryItem implements Serializable {
         return medicationName;
     }
 
+    /**
+     * Gets the key of this item in the inventory data file.
+     * Medication names are unique regardless of case, so the key is the lower-case name.
+     *
+     * @return The lower-case medication name.
+     */
+    @Override
+    public String getKey() {
+        return medicationName.toLowerCase();
+    }
+
     /**
      * Gets the current stock level of the medication.
      *
@@ -59,11 +85,75 @@ public class InventoryItem implements Serializable {
 
     /**
      * Sets the current stock level of the medication.
+     * Stock of stored items should be changed through the inventory repository,
+     * which records the change in the inventory ledger.
      *
      * @param stockLevel The new stock level of the medication.
+     * @return The stock level before the change.
      */
-    public void setStockLevel(int stockLevel) {
-        this.stockLevel = stockLevel;
+    public int setStockLevel(int stockLevel) {
+        return STOCK.getAndSet(this, stockLevel);
+    }
+
+    /**
+     * Gets the stock that is not reserved for a prescription being dispensed.
+     *
+     * @return The available stock.
+     */
+    public int getAvailableStock() {
+        int reserved = reservedLevel;
+        return stockLevel - reserved;
+    }
+
+    /**
+     * Reserves stock if enough of it is available.
+     * Reserved stock is held until it is dispensed or released.
+     *
+     * @param quantity The quantity to reserve.
+     * @return true if the stock was reserved, false if not enough is available.
+     */
+    public boolean tryReserve(int quantity) {
+        while (true) {
+            // Read the reservations before the stock, as dispense() lowers the stock first
+            int reserved = reservedLevel;
+            if (stockLevel - reserved < quantity) {
+                return false;
+            }
+            if (RESERVED.compareAndSet(this, reserved, reserved + quantity)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases reserved stock without dispensing it.
+     *
+     * @param quantity The quantity that was reserved.
+     */
+    public void release(int quantity) {
+        RESERVED.addAndGet(this, -quantity);
+    }
+
+    /**
+     * Dispenses reserved stock, removing it from the stock level.
+     *
+     * @param quantity The quantity that was reserved.
+     * @return The stock level after dispensing.
+     */
+    public int dispense(int quantity) {
+        int remaining = STOCK.addAndGet(this, -quantity);
+        RESERVED.addAndGet(this, -quantity);
+        return remaining;
+    }
+
+    /**
+     * Adds stock.
+     *
+     * @param quantity The quantity to add, or a negative quantity to remove.
+     * @return The stock level after the change.
+     */
+    public int restock(int quantity) {
+        return STOCK.addAndGet(this, quantity);
     }
 
     /**
@@ -92,4 +182,34 @@ public class InventoryItem implements Serializable {
     public void setReplenishRequestAmount(int replenishRequestAmount) {
         this.replenishRequestAmount = replenishRequestAmount;
     }
+
+    /**
+     * Writes this item in the binary data file format.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(BINARY_VERSION);
+        BinaryCodec.writeString(out, medicationName);
+        BinaryCodec.writeVarInt(out, stockLevel);
+        BinaryCodec.writeVarInt(out, lowStockAlertLevel);
+        BinaryCodec.writeVarInt(out, replenishRequestAmount);
+    }
+
+    /**
+     * Reads an item written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @return The inventory item.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static InventoryItem readFrom(DataInput in) throws IOException {
+        BinaryCodec.readVersion(in, "inventory item", BINARY_VERSION);
+        String medicationName = BinaryCodec.readString(in);
+        int stockLevel = BinaryCodec.readVarInt(in);
+        InventoryItem item = new InventoryItem(medicationName, stockLevel, BinaryCodec.readVarInt(in));
+        item.replenishRequestAmount = BinaryCodec.readVarInt(in);
+        return item;
+    }
 }
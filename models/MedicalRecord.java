@@ -1,15 +1,22 @@
 package models;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import utils.BinaryCodec;
 
 /**
  * Class representing a medical record of a patient.
  * This class stores personal information, past diagnoses, and treatments of a patient.
+ * It tracks whether it has changed since the patient was last saved.
  */
 public class MedicalRecord implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 1;
     private String patientID;
     private String name;
     private String dateOfBirth;
@@ -19,6 +26,7 @@ public class MedicalRecord implements Serializable {
     private String contactNo;
     private List<String> pastDiagnoses;
     private List<String> pastTreatments;
+    private transient volatile boolean dirty;
 
     /**
      * Constructs a MedicalRecord object with the specified patient information.
@@ -118,6 +126,9 @@ public class MedicalRecord implements Serializable {
      * @param email The new email address of the patient.
      */
     public void setEmail(String email){
+        if (!Objects.equals(this.email, email)) {
+            dirty = true;
+        }
         this.email = email;
     }
 
@@ -127,6 +138,9 @@ public class MedicalRecord implements Serializable {
      * @param contactNo The new contact number of the patient.
      */
     public void setContactNo(String contactNo){
+        if (!Objects.equals(this.contactNo, contactNo)) {
+            dirty = true;
+        }
         this.contactNo = contactNo;
     }
 
@@ -155,6 +169,7 @@ public class MedicalRecord implements Serializable {
      */
     public void addDiagnosis(String diagnosis) {
         pastDiagnoses.add(diagnosis);
+        dirty = true;
     }
 
     /**
@@ -164,5 +179,58 @@ public class MedicalRecord implements Serializable {
      */
     public void addTreatment(String treatment) {
         pastTreatments.add(treatment);
+        dirty = true;
+    }
+
+    /**
+     * Checks whether the record has changed since the patient was last saved or loaded.
+     *
+     * @return true if the record has unsaved changes, false otherwise.
+     */
+    boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Marks the record as saved.
+     */
+    void markClean() {
+        dirty = false;
+    }
+
+    /**
+     * Writes this medical record in the binary data file format.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(BINARY_VERSION);
+        BinaryCodec.writeString(out, patientID);
+        BinaryCodec.writeString(out, name);
+        BinaryCodec.writeString(out, dateOfBirth);
+        BinaryCodec.writeString(out, gender);
+        BinaryCodec.writeString(out, bloodType);
+        BinaryCodec.writeString(out, email);
+        BinaryCodec.writeString(out, contactNo);
+        BinaryCodec.writeStringList(out, pastDiagnoses);
+        BinaryCodec.writeStringList(out, pastTreatments);
+    }
+
+    /**
+     * Reads a medical record written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @return The medical record.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static MedicalRecord readFrom(DataInput in) throws IOException {
+        BinaryCodec.readVersion(in, "medical record", BINARY_VERSION);
+        MedicalRecord record = new MedicalRecord(BinaryCodec.readString(in), BinaryCodec.readString(in),
+                BinaryCodec.readString(in), BinaryCodec.readString(in), BinaryCodec.readString(in),
+                BinaryCodec.readString(in), BinaryCodec.readString(in));
+        record.pastDiagnoses = BinaryCodec.readStringList(in);
+        record.pastTreatments = BinaryCodec.readStringList(in);
+        return record;
     }
 }
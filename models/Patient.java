@@ -1,11 +1,17 @@
 package models;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import utils.BinaryCodec;
+
 /**
  * Class representing a patient in the hospital management system.
  * This class extends the User class and holds a patient's medical record.
  */
 public class Patient extends User {
     private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 1;
     private MedicalRecord medicalRecord;
 
     /**
@@ -44,10 +50,71 @@ public class Patient extends User {
     public void setMedicalRecord(String email, String contactNo) {
         if (this.medicalRecord == null){
             this.medicalRecord = new MedicalRecord(this.getUserID(), this.getName(), this.getDateOfBirth(), this.getGender(), this.getBloodType(), email, contactNo);
+            markDirty(true);
         } else {
             // Update existing medical record with new contact details
             this.medicalRecord.setEmail(email);
             this.medicalRecord.setContactNo(contactNo);
         }
     }
+
+    /**
+     * Checks whether the patient or their medical record has changed since it was last saved or loaded.
+     *
+     * @return true if the patient has unsaved changes, false otherwise.
+     */
+    @Override
+    public boolean isDirty() {
+        return super.isDirty() || (medicalRecord != null && medicalRecord.isDirty());
+    }
+
+    /**
+     * Marks the patient and their medical record as saved.
+     */
+    @Override
+    protected void markClean() {
+        super.markClean();
+        if (medicalRecord != null) {
+            medicalRecord.markClean();
+        }
+    }
+
+    /**
+     * Constructs an empty patient whose fields are then read from a data file.
+     */
+    private Patient() {
+    }
+
+    /**
+     * Writes this patient in the binary data file format.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeByte(BINARY_VERSION);
+        out.writeBoolean(medicalRecord != null);
+        if (medicalRecord != null) {
+            medicalRecord.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a patient written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @return The patient.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static Patient readFrom(DataInput in) throws IOException {
+        Patient patient = new Patient();
+        patient.readFields(in);
+        BinaryCodec.readVersion(in, "patient", BINARY_VERSION);
+        if (in.readBoolean()) {
+            patient.medicalRecord = MedicalRecord.readFrom(in);
+        }
+        return patient;
+    }
 }
@@ -1,7 +1,11 @@
 package models;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import utils.BinaryCodec;
 
 /**
  * Class representing a pharmacist in the hospital management system.
@@ -9,6 +13,7 @@ import java.util.List;
  */
 public class Pharmacist extends User {
     private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 1;
     private List<Prescription> prescriptions;
 
     /**
@@ -32,4 +37,51 @@ public class Pharmacist extends User {
     public List<Prescription> getPrescriptions() {
         return prescriptions;
     }
+
+    /**
+     * Constructs an empty pharmacist whose fields are then read from a data file.
+     */
+    private Pharmacist() {
+    }
+
+    /**
+     * Writes this pharmacist in the binary data file format.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeByte(BINARY_VERSION);
+        if (prescriptions == null) {
+            BinaryCodec.writeVarInt(out, 0);
+            return;
+        }
+        BinaryCodec.writeVarInt(out, prescriptions.size() + 1);
+        for (Prescription prescription : prescriptions) {
+            prescription.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a pharmacist written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @return The pharmacist.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static Pharmacist readFrom(DataInput in) throws IOException {
+        Pharmacist pharmacist = new Pharmacist();
+        pharmacist.readFields(in);
+        BinaryCodec.readVersion(in, "pharmacist", BINARY_VERSION);
+        int count = BinaryCodec.readVarInt(in) - 1;
+        if (count >= 0) {
+            pharmacist.prescriptions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                pharmacist.prescriptions.add(Prescription.readFrom(in));
+            }
+        }
+        return pharmacist;
+    }
 }
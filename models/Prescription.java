@@ -1,6 +1,10 @@
 package models;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import utils.BinaryCodec;
 
 /**
  * Class representing a medication prescription in the hospital management system.
@@ -8,6 +12,7 @@ import java.io.Serializable;
  */
 public class Prescription implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 1;
     private String medicationName;
     private int quantity;
     private String status; // pending, dispensed
@@ -40,7 +45,7 @@ public class Prescription implements Serializable {
      *
      * @return The status of the prescription.
      */
-    public String getStatus() {
+    public synchronized String getStatus() {
         return status;
     }
 
@@ -50,10 +55,24 @@ public class Prescription implements Serializable {
      *
      * @param status The new status of the prescription.
      */
-    public void setStatus(String status) {
+    public synchronized void setStatus(String status) {
         this.status = status;
     }
 
+    /**
+     * Marks the prescription as dispensed unless it has already been dispensed.
+     * Only one of several pharmacists dispensing the same prescription succeeds.
+     *
+     * @return true if the prescription was marked as dispensed, false if it already was.
+     */
+    public synchronized boolean markDispensed() {
+        if (status.equals("dispensed")) {
+            return false;
+        }
+        status = "dispensed";
+        return true;
+    }
+
     /**
      * Gets the quantity of the medication prescribed.
      *
@@ -83,5 +102,31 @@ public class Prescription implements Serializable {
     public String toString() {
         return "Medication: " + medicationName + ", Quantity: " + quantity;
     }
-    
+
+    /**
+     * Writes this prescription in the binary data file format.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(BINARY_VERSION);
+        BinaryCodec.writeString(out, medicationName);
+        BinaryCodec.writeVarInt(out, quantity);
+        BinaryCodec.writeString(out, status);
+    }
+
+    /**
+     * Reads a prescription written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @return The prescription.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static Prescription readFrom(DataInput in) throws IOException {
+        BinaryCodec.readVersion(in, "prescription", BINARY_VERSION);
+        Prescription prescription = new Prescription(BinaryCodec.readString(in), BinaryCodec.readVarInt(in));
+        prescription.status = BinaryCodec.readString(in);
+        return prescription;
+    }
 }
@@ -1,16 +1,24 @@
 package models;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.HashMap;
-import utils.SerializationUtil;
+import java.util.Objects;
+import repositories.UserRepository;
+import utils.BinaryCodec;
+import utils.Keyed;
 
 /**
  * Abstract class representing a user in the hospital management system.
  * This class serves as the base class for different types of users (e.g., Patient, Doctor, Pharmacist).
  * It includes common user properties such as ID, name, password, role, and personal details.
+ * Users track whether they have changed since they were last saved, so saving
+ * an unchanged user writes nothing.
  */
-public abstract class User implements Serializable {
+public abstract class User implements Serializable, Keyed {
     private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 1;
     protected String userID;
     protected String name;
     protected String hashedPassword;
@@ -22,6 +30,7 @@ public abstract class User implements Serializable {
     protected String gender;
     protected String dateOfBirth;
     protected boolean firstLogin;
+    private transient volatile boolean dirty;
 
     /**
      * Constructs a User object with the specified user ID, name, password, and role.
@@ -39,6 +48,13 @@ public abstract class User implements Serializable {
         this.salt = utils.PasswordUtil.getSalt();
         this.hashedPassword = utils.PasswordUtil.hashPassword(password, this.salt);
         this.firstLogin = true;
+        this.dirty = true;
+    }
+
+    /**
+     * Constructs an empty user whose fields are then read from a data file.
+     */
+    protected User() {
     }
 
     // Getters and Setters
@@ -79,6 +95,16 @@ public abstract class User implements Serializable {
         return userID;
     }
 
+    /**
+     * Gets the key of this user in the users data file.
+     *
+     * @return The user's ID.
+     */
+    @Override
+    public String getKey() {
+        return userID;
+    }
+
     /**
      * Gets the user's name.
      *
@@ -103,6 +129,7 @@ public abstract class User implements Serializable {
      * @param hashedPassword The new hashed password.
      */
     public void setHashedPassword(String hashedPassword) {
+        markDirty(!Objects.equals(this.hashedPassword, hashedPassword));
         this.hashedPassword = hashedPassword;
     }
 
@@ -139,6 +166,7 @@ public abstract class User implements Serializable {
      * @param contactNo The new contact number.
      */
     public void setContactNo(String contactNo) {
+        markDirty(!Objects.equals(this.contactNo, contactNo));
         this.contactNo = contactNo;
     }
 
@@ -157,6 +185,7 @@ public abstract class User implements Serializable {
      * @param email The new email address.
      */
     public void setEmail(String email) {
+        markDirty(!Objects.equals(this.email, email));
         this.email = email;
     }
 
@@ -175,6 +204,7 @@ public abstract class User implements Serializable {
      * @param firstLogin true if it's the first login, false otherwise.
      */
     public void setFirstLogin(boolean firstLogin) {
+        markDirty(this.firstLogin != firstLogin);
         this.firstLogin = firstLogin;
     }
 
@@ -184,20 +214,99 @@ public abstract class User implements Serializable {
      * @param salt The new salt.
      */
     public void setSalt(String salt) {
+        markDirty(!Objects.equals(this.salt, salt));
         this.salt = salt;
     }
 
+    /**
+     * Checks whether the user has changed since it was last saved or loaded.
+     *
+     * @return true if the user has unsaved changes, false otherwise.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Marks the user as changed if a field has been given a new value.
+     *
+     * @param changed true if a field changed.
+     */
+    protected void markDirty(boolean changed) {
+        if (changed) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Marks the user as saved. Changes made after this call mark it as changed again.
+     */
+    protected void markClean() {
+        dirty = false;
+    }
+
     /**
      * Saves the user's information into the persistent storage (serialization file).
-     * This updates the serialized "users.ser" file with the current user's data.
+     * This updates the shared user repository, which appends just this user to the
+     * journal of "users.ser". Nothing is written if the user has not changed.
+     * If the write fails, the user stays marked as changed so the next save retries it.
      */
     public void saveModel() {
+        if (!isDirty()) {
+            return;
+        }
+        // Cleared before writing, so a change made during the write is saved next time
+        markClean();
+        boolean saved = false;
         try {
-            HashMap<String, User> users = (HashMap<String, User>) SerializationUtil.deserialize("users.ser");
-            users.put(this.getUserID(), this);
-            SerializationUtil.serialize(users, "users.ser");
-        } catch (Exception e) {
-            e.printStackTrace();
+            saved = UserRepository.getInstance().save(this);
+        } finally {
+            if (!saved) {
+                markDirty(true);
+            }
         }
     }
+
+    /**
+     * Writes this user in the binary data file format.
+     * Subclasses write their own fields after the common user fields.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(BINARY_VERSION);
+        BinaryCodec.writeString(out, userID);
+        BinaryCodec.writeString(out, name);
+        BinaryCodec.writeString(out, hashedPassword);
+        BinaryCodec.writeString(out, salt);
+        BinaryCodec.writeString(out, role);
+        BinaryCodec.writeString(out, contactNo);
+        BinaryCodec.writeString(out, email);
+        BinaryCodec.writeString(out, bloodType);
+        BinaryCodec.writeString(out, gender);
+        BinaryCodec.writeString(out, dateOfBirth);
+        out.writeBoolean(firstLogin);
+    }
+
+    /**
+     * Reads the common user fields written by {@link #writeTo} into this user.
+     *
+     * @param in The input to read from.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    protected void readFields(DataInput in) throws IOException {
+        BinaryCodec.readVersion(in, "user", BINARY_VERSION);
+        userID = BinaryCodec.readString(in);
+        name = BinaryCodec.readString(in);
+        hashedPassword = BinaryCodec.readString(in);
+        salt = BinaryCodec.readString(in);
+        role = BinaryCodec.readString(in);
+        contactNo = BinaryCodec.readString(in);
+        email = BinaryCodec.readString(in);
+        bloodType = BinaryCodec.readString(in);
+        gender = BinaryCodec.readString(in);
+        dateOfBirth = BinaryCodec.readString(in);
+        firstLogin = in.readBoolean();
+    }
 }
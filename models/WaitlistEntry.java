@@ -0,0 +1,123 @@
+package models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import utils.BinaryCodec;
+import utils.Keyed;
+
+/**
+ * Class representing a patient waiting for an appointment slot to free up.
+ * A patient can wait for a particular doctor or for any doctor. Entries are
+ * served in the order they were joined, which is also the order of their IDs.
+ */
+public class WaitlistEntry implements Serializable, Keyed {
+    private static final long serialVersionUID = 1L;
+    private static final int BINARY_VERSION = 1;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private String entryID;
+    private String patientID;
+    private String doctorID; // null when waiting for any doctor
+    private LocalDateTime joinedAt;
+
+    /**
+     * Constructs a waitlist entry.
+     *
+     * @param entryID   The entry's ID.
+     * @param patientID The ID of the waiting patient.
+     * @param doctorID  The ID of the doctor waited for, or null for any doctor.
+     * @param joinedAt  The date and time the patient joined the waitlist.
+     */
+    public WaitlistEntry(String entryID, String patientID, String doctorID, LocalDateTime joinedAt) {
+        this.entryID = entryID;
+        this.patientID = patientID;
+        this.doctorID = doctorID;
+        this.joinedAt = joinedAt;
+    }
+
+    /**
+     * Gets the entry's ID.
+     *
+     * @return The entry ID.
+     */
+    public String getEntryID() {
+        return entryID;
+    }
+
+    /**
+     * Gets the key of this entry in the waitlist data file.
+     *
+     * @return The entry ID.
+     */
+    @Override
+    public String getKey() {
+        return entryID;
+    }
+
+    /**
+     * Gets the ID of the waiting patient.
+     *
+     * @return The patient's ID.
+     */
+    public String getPatientID() {
+        return patientID;
+    }
+
+    /**
+     * Gets the ID of the doctor the patient is waiting for.
+     *
+     * @return The doctor's ID, or null if any doctor will do.
+     */
+    public String getDoctorID() {
+        return doctorID;
+    }
+
+    /**
+     * Gets the date and time the patient joined the waitlist.
+     *
+     * @return The date and time joined.
+     */
+    public LocalDateTime getJoinedAt() {
+        return joinedAt;
+    }
+
+    /**
+     * Returns a string representation of the entry for display.
+     *
+     * @return The entry ID, the doctor waited for and when the patient joined.
+     */
+    @Override
+    public String toString() {
+        return entryID + ": " + (doctorID == null ? "any doctor" : doctorID) + ", joined " + joinedAt.format(FORMATTER);
+    }
+
+    /**
+     * Writes this entry in the binary data file format.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(BINARY_VERSION);
+        BinaryCodec.writeString(out, entryID);
+        BinaryCodec.writeString(out, patientID);
+        BinaryCodec.writeString(out, doctorID);
+        BinaryCodec.writeDateTime(out, joinedAt);
+    }
+
+    /**
+     * Reads an entry written by {@link #writeTo}.
+     *
+     * @param in The input to read from.
+     * @return The entry.
+     * @throws IOException If an I/O error occurs or the layout version is not supported.
+     */
+    public static WaitlistEntry readFrom(DataInput in) throws IOException {
+        BinaryCodec.readVersion(in, "waitlist entry", BINARY_VERSION);
+        return new WaitlistEntry(BinaryCodec.readString(in), BinaryCodec.readString(in),
+                BinaryCodec.readString(in), BinaryCodec.readDateTime(in));
+    }
+}
@@ -0,0 +1,242 @@
+package repositories;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import models.Appointment;
+import utils.IdGenerator;
+
+/**
+ * Shared repository for all appointments in the hospital management system.
+ * Appointments are stored in "appointments.ser" as a list.
+ * The repository keeps hash indexes by patient, by doctor, by status and by
+ * doctor and status together, so per-user views cost time proportional to
+ * the number of matching appointments rather than to the whole history.
+ * The status indexes are kept up to date through each appointment's status listener.
+ * Prescriptions waiting to be dispensed are kept in a {@link PrescriptionQueue},
+ * so the pharmacist's worklist is proportional to the pending work.
+ * New appointment IDs are allocated by an {@link IdGenerator} that is seeded
+ * with the IDs already in the store.
+ */
+public class AppointmentRepository extends Repository<Appointment> {
+    private static final AppointmentRepository INSTANCE = new AppointmentRepository();
+    private final Map<String, Map<String, Appointment>> byPatient = new HashMap<>();
+    private final Map<String, Map<String, Appointment>> byDoctor = new HashMap<>();
+    private final Map<String, Map<String, Appointment>> byStatus = new HashMap<>();
+    private final Map<String, Map<String, Appointment>> byDoctorAndStatus = new HashMap<>();
+    private final PrescriptionQueue pendingPrescriptions = new PrescriptionQueue();
+    private final IdGenerator ids = new IdGenerator("APT");
+    private volatile boolean idsSeeded;
+
+    /**
+     * Constructs the appointment repository backed by "appointments.ser".
+     */
+    private AppointmentRepository() {
+        super("appointments.ser");
+    }
+
+    /**
+     * Gets the shared appointment repository.
+     *
+     * @return The appointment repository instance.
+     */
+    public static AppointmentRepository getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds all appointments of a patient.
+     *
+     * @param patientID The patient's ID.
+     * @return A list of the patient's appointments.
+     */
+    public synchronized List<Appointment> findByPatient(String patientID) {
+        records();
+        return lookup(byPatient, patientID);
+    }
+
+    /**
+     * Finds all appointments with a doctor.
+     *
+     * @param doctorID The doctor's ID.
+     * @return A list of the doctor's appointments.
+     */
+    public synchronized List<Appointment> findByDoctor(String doctorID) {
+        records();
+        return lookup(byDoctor, doctorID);
+    }
+
+    /**
+     * Finds all appointments with the given status.
+     *
+     * @param status The status to match (e.g., "pending", "confirmed").
+     * @return A list of appointments with the status.
+     */
+    public synchronized List<Appointment> findByStatus(String status) {
+        records();
+        return lookup(byStatus, status);
+    }
+
+    /**
+     * Finds all appointments with a doctor that have the given status.
+     *
+     * @param doctorID The doctor's ID.
+     * @param status   The status to match (e.g., "pending", "confirmed").
+     * @return A list of the doctor's appointments with the status.
+     */
+    public synchronized List<Appointment> findByDoctorAndStatus(String doctorID, String status) {
+        records();
+        return lookup(byDoctorAndStatus, doctorStatusKey(doctorID, status));
+    }
+
+    /**
+     * Finds all prescriptions waiting to be dispensed, in the order they were prescribed.
+     *
+     * @return A list of the pending prescriptions with their appointments.
+     */
+    public synchronized List<PrescriptionQueue.Entry> findPendingPrescriptions() {
+        records();
+        return pendingPrescriptions.findAll();
+    }
+
+    /**
+     * Finds the prescriptions of a medication that are waiting to be dispensed.
+     *
+     * @param medicationName The name of the medication, ignoring case.
+     * @return A list of the pending prescriptions with their appointments.
+     */
+    public synchronized List<PrescriptionQueue.Entry> findPendingPrescriptionsByMedication(String medicationName) {
+        records();
+        return pendingPrescriptions.findByMedication(medicationName);
+    }
+
+    /**
+     * Finds the prescriptions of a patient that are waiting to be dispensed.
+     *
+     * @param patientID The patient's ID.
+     * @return A list of the pending prescriptions with their appointments.
+     */
+    public synchronized List<PrescriptionQueue.Entry> findPendingPrescriptionsByPatient(String patientID) {
+        records();
+        return pendingPrescriptions.findByPatient(patientID);
+    }
+
+    /**
+     * Allocates a new appointment ID that is not used by any stored appointment.
+     * IDs are "APT" followed by a number and sort by creation time.
+     *
+     * @return A new unique appointment ID.
+     */
+    public String nextAppointmentID() {
+        if (!idsSeeded) {
+            records();
+            idsSeeded = true;
+        }
+        return ids.next();
+    }
+
+    @Override
+    protected void indexRecord(Appointment appointment) {
+        ids.observe(appointment.getAppointmentID());
+        add(byPatient, appointment.getPatientID(), appointment);
+        add(byDoctor, appointment.getDoctorID(), appointment);
+        add(byStatus, appointment.getStatus(), appointment);
+        add(byDoctorAndStatus, doctorStatusKey(appointment.getDoctorID(), appointment.getStatus()), appointment);
+        pendingPrescriptions.add(appointment);
+        appointment.setStatusListener(this::statusChanged);
+    }
+
+    @Override
+    protected void unindexRecord(Appointment appointment) {
+        appointment.setStatusListener(null);
+        pendingPrescriptions.remove(appointment);
+        remove(byPatient, appointment.getPatientID(), appointment);
+        remove(byDoctor, appointment.getDoctorID(), appointment);
+        remove(byStatus, appointment.getStatus(), appointment);
+        remove(byDoctorAndStatus, doctorStatusKey(appointment.getDoctorID(), appointment.getStatus()), appointment);
+    }
+
+    /**
+     * Moves an appointment between status indexes after its status has changed.
+     *
+     * @param appointment    The appointment whose status changed.
+     * @param previousStatus The status before the change.
+     */
+    private synchronized void statusChanged(Appointment appointment, String previousStatus) {
+        remove(byStatus, previousStatus, appointment);
+        remove(byDoctorAndStatus, doctorStatusKey(appointment.getDoctorID(), previousStatus), appointment);
+        add(byStatus, appointment.getStatus(), appointment);
+        add(byDoctorAndStatus, doctorStatusKey(appointment.getDoctorID(), appointment.getStatus()), appointment);
+    }
+
+    /**
+     * Builds the key of the combined doctor and status index.
+     *
+     * @param doctorID The doctor's ID.
+     * @param status   The appointment status.
+     * @return The combined index key.
+     */
+    private static String doctorStatusKey(String doctorID, String status) {
+        return doctorID + '\0' + status;
+    }
+
+    /**
+     * Gets the appointments stored under a key of an index.
+     *
+     * @param index The index to look up.
+     * @param key   The index key.
+     * @return A new list of the matching appointments, in the order they were added.
+     */
+    private static List<Appointment> lookup(Map<String, Map<String, Appointment>> index, String key) {
+        Map<String, Appointment> matches = index.getOrDefault(key, Collections.emptyMap());
+        return new ArrayList<>(matches.values());
+    }
+
+    /**
+     * Adds an appointment under a key of an index.
+     *
+     * @param index       The index to update.
+     * @param key         The index key.
+     * @param appointment The appointment to add.
+     */
+    private static void add(Map<String, Map<String, Appointment>> index, String key, Appointment appointment) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(appointment.getKey(), appointment);
+        }
+    }
+
+    /**
+     * Removes an appointment from under a key of an index.
+     *
+     * @param index       The index to update.
+     * @param key         The index key.
+     * @param appointment The appointment to remove.
+     */
+    private static void remove(Map<String, Map<String, Appointment>> index, String key, Appointment appointment) {
+        Map<String, Appointment> matches = index.get(key);
+        if (matches != null) {
+            matches.remove(appointment.getKey());
+            if (matches.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Map<String, Appointment> toRecords(Object snapshot) {
+        Map<String, Appointment> records = new LinkedHashMap<>();
+        for (Appointment appointment : (List<Appointment>) snapshot) {
+            records.put(appointment.getKey(), appointment);
+        }
+        return records;
+    }
+
+    @Override
+    protected Object toSnapshot(Map<String, Appointment> records) {
+        return new ArrayList<>(records.values());
+    }
+}
@@ -0,0 +1,446 @@
+package repositories;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import models.Appointment;
+import models.AppointmentRequest;
+import models.AppointmentSeries;
+import models.Doctor;
+import models.DoctorCalendar;
+import models.Patient;
+import utils.Metrics;
+
+/**
+ * Scheduler that assigns a batch of appointment requests to free slots across all doctors.
+ * Requests are grouped by department: the specialty of the requested doctor, or
+ * the requested specialty. Departments share no doctors, so they are solved in
+ * parallel; requests for any doctor are solved afterwards across all doctors.
+ * Within a department the requests are taken in order of the end of their
+ * window, earliest first, and among equal deadlines the requests that fewest
+ * doctors can serve go first. Each request is given the earliest free slot in
+ * its window, so that later windows keep as many slots as possible. When several
+ * doctors are free at that time, the one given the fewest requests so far takes it,
+ * which spreads the load. A request is never given a time at which its patient is
+ * already booked, in this run or before. Slots are reserved with the same
+ * lock-free booking that patients use, so a run can go on while patients book by hand.
+ */
+public class AutoScheduler {
+    private final Map<String, Doctor> doctors = new LinkedHashMap<>();
+    private final Map<String, List<Doctor>> departments = new HashMap<>();
+    private final Map<String, DoctorCalendar> calendars = new HashMap<>();
+    private final Map<String, int[]> load = new HashMap<>();
+    private final Function<String, String> patientNames;
+    private final Function<String, Collection<LocalDateTime>> bookedTimes;
+
+    /**
+     * A request that was given a slot.
+     */
+    public static class Assignment {
+        private final AppointmentRequest request;
+        private final String doctorID;
+        private final LocalDateTime dateTime;
+
+        /**
+         * Constructs an assignment.
+         *
+         * @param request  The request.
+         * @param doctorID The ID of the doctor assigned.
+         * @param dateTime The start of the slot assigned.
+         */
+        Assignment(AppointmentRequest request, String doctorID, LocalDateTime dateTime) {
+            this.request = request;
+            this.doctorID = doctorID;
+            this.dateTime = dateTime;
+        }
+
+        /**
+         * Gets the request.
+         *
+         * @return The request.
+         */
+        public AppointmentRequest getRequest() {
+            return request;
+        }
+
+        /**
+         * Gets the ID of the doctor assigned.
+         *
+         * @return The doctor's ID.
+         */
+        public String getDoctorID() {
+            return doctorID;
+        }
+
+        /**
+         * Gets the start of the slot assigned.
+         *
+         * @return The date and time.
+         */
+        public LocalDateTime getDateTime() {
+            return dateTime;
+        }
+    }
+
+    /**
+     * The outcome of a run.
+     */
+    public static class Result {
+        private final List<Assignment> assigned = new ArrayList<>();
+        private final List<AppointmentRequest> unassigned = new ArrayList<>();
+        private int departments;
+        private int expired;
+        private long nanos;
+
+        /**
+         * Constructs an empty result.
+         */
+        Result() {
+        }
+
+        /**
+         * Gets the requests that were given a slot.
+         *
+         * @return The assignments.
+         */
+        public List<Assignment> getAssigned() {
+            return assigned;
+        }
+
+        /**
+         * Gets the requests that could not be given a slot.
+         *
+         * @return The unassigned requests.
+         */
+        public List<AppointmentRequest> getUnassigned() {
+            return unassigned;
+        }
+
+        /**
+         * Gets the number of departments solved.
+         *
+         * @return The number of departments, counting requests for any doctor as one.
+         */
+        public int getDepartments() {
+            return departments;
+        }
+
+        /**
+         * Gets the number of requests dropped because their window had passed.
+         *
+         * @return The number of expired requests.
+         */
+        public int getExpired() {
+            return expired;
+        }
+
+        /**
+         * Gets the time the assignment took, without loading and saving.
+         *
+         * @return The time in nanoseconds.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Adds the outcome of one department.
+         *
+         * @param part The outcome of the department.
+         */
+        private void add(Result part) {
+            assigned.addAll(part.assigned);
+            unassigned.addAll(part.unassigned);
+        }
+    }
+
+    /**
+     * Constructs a scheduler for a set of doctors. Doctors without a calendar are left out.
+     *
+     * @param doctorList   The doctors to assign requests to.
+     * @param calendarOf   Gets a doctor's calendar by doctor ID, or null if the doctor has none.
+     * @param patientNames Gets a patient's name by patient ID, or null if the patient is not found.
+     * @param bookedTimes  Gets the start times of a patient's existing appointments by patient ID.
+     */
+    public AutoScheduler(List<Doctor> doctorList, Function<String, DoctorCalendar> calendarOf,
+                         Function<String, String> patientNames, Function<String, Collection<LocalDateTime>> bookedTimes) {
+        for (Doctor doctor : doctorList) {
+            DoctorCalendar calendar = calendarOf.apply(doctor.getUserID());
+            if (calendar == null) {
+                continue;
+            }
+            doctors.put(doctor.getUserID(), doctor);
+            calendars.put(doctor.getUserID(), calendar);
+            load.put(doctor.getUserID(), new int[1]);
+            departments.computeIfAbsent(department(doctor.getSpecialty()), k -> new ArrayList<>()).add(doctor);
+        }
+        this.patientNames = patientNames;
+        this.bookedTimes = bookedTimes;
+    }
+
+    /**
+     * Assigns the queued requests in the {@link RequestRepository} and stores the result.
+     * Every assignment becomes a pending appointment that the doctor accepts or declines
+     * as usual. The new appointments, the changed calendars and the removal of the
+     * assigned and expired requests are each written once. Requests that could not
+     * be assigned stay queued for the next run. Only one run takes place at a time,
+     * so that two sessions cannot book the same queued request twice.
+     *
+     * @return The outcome of the run.
+     */
+    public static synchronized Result scheduleQueued() {
+        long start = System.nanoTime();
+        RequestRepository queue = RequestRepository.getInstance();
+        UserRepository users = UserRepository.getInstance();
+        AppointmentRepository appointments = AppointmentRepository.getInstance();
+        ScheduleRepository schedules = ScheduleRepository.getInstance();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<AppointmentRequest> requests = new ArrayList<>();
+        List<String> finished = new ArrayList<>();
+        for (AppointmentRequest request : queue.findAll()) {
+            if (request.getLatest().isAfter(now)) {
+                requests.add(request);
+            } else {
+                finished.add(request.getRequestID());
+            }
+        }
+        int expired = finished.size();
+
+        AutoScheduler scheduler = new AutoScheduler(users.findDoctors(), doctorID -> {
+            try {
+                return schedules.findByDoctorID(doctorID);
+            } catch (Exception e) {
+                return null;
+            }
+        }, patientID -> {
+            Patient patient = users.findPatient(patientID);
+            return patient == null ? null : patient.getName();
+        }, AutoScheduler::existingTimes);
+        Result result = scheduler.assign(requests, now);
+        result.expired = expired;
+
+        List<Appointment> created = new ArrayList<>();
+        Set<String> changedDoctors = new LinkedHashSet<>();
+        for (Assignment assignment : result.assigned) {
+            Appointment appointment = new Appointment(appointments.nextAppointmentID(),
+                    assignment.request.getPatientID(), assignment.doctorID, assignment.dateTime);
+            appointment.setStatus("pending");
+            created.add(appointment);
+            changedDoctors.add(assignment.doctorID);
+            finished.add(assignment.request.getRequestID());
+        }
+        for (String doctorID : changedDoctors) {
+            try {
+                schedules.save(doctorID, scheduler.calendars.get(doctorID));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        appointments.saveBatch(created);
+        queue.deleteBatch(finished);
+
+        Metrics.count("autoschedule.assigned", result.assigned.size());
+        Metrics.count("autoschedule.unassigned", result.unassigned.size());
+        Metrics.recordSince("autoschedule.run", start);
+        return result;
+    }
+
+    /**
+     * Assigns a batch of requests to free slots and books them on the doctors' calendars.
+     * Nothing is saved; the calendars are changed in memory.
+     *
+     * @param requests The requests.
+     * @param now      The current time; no slot before it is assigned.
+     * @return The outcome of the run.
+     */
+    public Result assign(List<AppointmentRequest> requests, LocalDateTime now) {
+        long start = System.nanoTime();
+        Result result = new Result();
+
+        // Group the requests by department, and collect what the departments share
+        Map<String, List<AppointmentRequest>> byDepartment = new HashMap<>();
+        List<AppointmentRequest> anyDoctor = new ArrayList<>();
+        Map<String, String> names = new HashMap<>();
+        Map<String, Set<LocalDateTime>> booked = new HashMap<>();
+        for (AppointmentRequest request : requests) {
+            String name = names.computeIfAbsent(request.getPatientID(), patientNames);
+            String department = departmentOf(request);
+            if (name == null || (department != null && !departments.containsKey(department))) {
+                result.unassigned.add(request);
+                continue;
+            }
+            booked.computeIfAbsent(request.getPatientID(), patientID -> {
+                Set<LocalDateTime> times = ConcurrentHashMap.newKeySet();
+                times.addAll(bookedTimes.apply(patientID));
+                return times;
+            });
+            if (department == null) {
+                anyDoctor.add(request);
+            } else {
+                byDepartment.computeIfAbsent(department, k -> new ArrayList<>()).add(request);
+            }
+        }
+
+        // Departments share no doctors, so they are solved in parallel
+        byDepartment.entrySet().parallelStream()
+                .map(entry -> solve(entry.getValue(), departments.get(entry.getKey()), now, booked))
+                .collect(Collectors.toList())
+                .forEach(result::add);
+        if (!anyDoctor.isEmpty()) {
+            result.add(solve(anyDoctor, new ArrayList<>(doctors.values()), now, booked));
+        }
+        result.departments = byDepartment.size() + (anyDoctor.isEmpty() ? 0 : 1);
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Assigns the requests of one department, earliest deadline first.
+     *
+     * @param requests The department's requests.
+     * @param staff    The doctors of the department.
+     * @param now      The current time.
+     * @param booked   The times each patient is booked by patient ID, updated as slots are assigned.
+     * @return The outcome for the department.
+     */
+    private Result solve(List<AppointmentRequest> requests, List<Doctor> staff, LocalDateTime now,
+                         Map<String, Set<LocalDateTime>> booked) {
+        Result result = new Result();
+        List<AppointmentRequest> ordered = new ArrayList<>(requests);
+        ordered.sort(Comparator.comparing(AppointmentRequest::getLatest)
+                .thenComparingInt(request -> request.getDoctorID() != null ? 1 : staff.size())
+                .thenComparing(AppointmentRequest::getSubmittedAt)
+                .thenComparing(AppointmentRequest::getRequestID));
+        for (AppointmentRequest request : ordered) {
+            List<Doctor> candidates = staff;
+            if (request.getDoctorID() != null) {
+                Doctor doctor = doctors.get(request.getDoctorID());
+                candidates = doctor == null ? List.of() : List.of(doctor);
+            }
+            LocalDateTime from = request.getEarliest().isAfter(now) ? request.getEarliest() : now;
+            Assignment assignment = place(request, candidates, from, booked.get(request.getPatientID()));
+            if (assignment == null) {
+                result.unassigned.add(request);
+            } else {
+                result.assigned.add(assignment);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Books the earliest free slot in a request's window with one of the candidate doctors.
+     * Among doctors free at the same time, the one with the fewest assignments in this run is chosen.
+     *
+     * @param request    The request.
+     * @param candidates The doctors who can take the request.
+     * @param from       The earliest start time.
+     * @param busy       The times the patient is already booked.
+     * @return The assignment, or null if no candidate has a free slot in the window.
+     */
+    private Assignment place(AppointmentRequest request, List<Doctor> candidates, LocalDateTime from,
+                             Set<LocalDateTime> busy) {
+        while (true) {
+            String best = null;
+            LocalDateTime bestTime = null;
+            for (Doctor doctor : candidates) {
+                String doctorID = doctor.getUserID();
+                DoctorCalendar calendar = calendars.get(doctorID);
+                // Only a slot no later than the best so far can win, so search no further
+                LocalDateTime until = bestTime == null ? request.getLatest() : bestTime.plusMinutes(1);
+                LocalDateTime time = calendar.firstAvailable(from, until);
+                while (time != null && busy.contains(time)) {
+                    time = calendar.firstAvailable(time.plusMinutes(1), until);
+                }
+                if (time != null && (bestTime == null || time.isBefore(bestTime)
+                        || (time.equals(bestTime) && load.get(doctorID)[0] < load.get(best)[0]))) {
+                    best = doctorID;
+                    bestTime = time;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            if (!busy.add(bestTime)) {
+                // Another department gave the patient this time meanwhile; look again
+                continue;
+            }
+            if (calendars.get(best).reserve(bestTime, request.getPatientID())) {
+                load.get(best)[0]++;
+                return new Assignment(request, best, bestTime);
+            }
+            // A patient booked the slot by hand meanwhile; look again
+            busy.remove(bestTime);
+        }
+    }
+
+    /**
+     * Gets the department of a request.
+     *
+     * @param request The request.
+     * @return The department of the requested doctor or specialty, or null if any doctor will do.
+     */
+    private String departmentOf(AppointmentRequest request) {
+        if (request.getDoctorID() != null) {
+            Doctor doctor = doctors.get(request.getDoctorID());
+            return doctor == null ? "" : department(doctor.getSpecialty());
+        }
+        return request.getSpecialty() == null ? null : department(request.getSpecialty());
+    }
+
+    /**
+     * Normalizes a specialty name into a department key.
+     *
+     * @param specialty The specialty name.
+     * @return The trimmed, lower-case specialty name.
+     */
+    private static String department(String specialty) {
+        return specialty.trim().toLowerCase();
+    }
+
+    /**
+     * Gets the start times of a patient's pending and confirmed appointments and series occurrences.
+     * An appointment that is longer or shorter than a slot gives the start of every
+     * hour it overlaps, so that no slot clashing with it is assigned.
+     *
+     * @param patientID The patient's ID.
+     * @return The start times.
+     */
+    private static Collection<LocalDateTime> existingTimes(String patientID) {
+        List<LocalDateTime> times = new ArrayList<>();
+        for (Appointment appointment : AppointmentRepository.getInstance().findByPatient(patientID)) {
+            if (!WaitlistEngine.isActive(appointment.getStatus())) {
+                continue;
+            }
+            LocalDateTime end = appointment.getDateTime().plusMinutes(appointment.getDurationMinutes());
+            for (LocalDateTime hour = appointment.getDateTime().truncatedTo(ChronoUnit.HOURS); hour.isBefore(end);
+                 hour = hour.plusHours(1)) {
+                times.add(hour);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (AppointmentSeries series : SeriesRepository.getInstance().findByPatient(patientID)) {
+            if (!WaitlistEngine.isActive(series.getStatus())) {
+                continue;
+            }
+            for (int occurrence = series.firstOccurrenceFrom(now); occurrence < series.getOccurrenceCount(); occurrence++) {
+                if (series.isHeld(occurrence)) {
+                    times.add(series.getOccurrence(occurrence));
+                }
+            }
+        }
+        return times;
+    }
+}
@@ -0,0 +1,350 @@
+package repositories;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import models.Doctor;
+import models.DoctorCalendar;
+import utils.FlightEvents;
+
+/**
+ * Index of the free appointment slots of all doctors.
+ * Every slot that is open and not booked is kept in a sorted set ordered by
+ * time, both for all doctors and for each specialty. Finding the first free
+ * slot after a given time, or the next N free slots, is a logarithmic lookup
+ * followed by a walk over the results. The index is built from the doctors'
+ * calendars the first time it is used and is then kept up to date through
+ * each calendar's slot listener, so queries never open schedule files.
+ * The first query after midnight rolls the index forward: slots of days that
+ * have passed are dropped, and the slots of days that have entered the
+ * doctors' booking horizons are added.
+ */
+public class AvailabilityIndex {
+    private static final AvailabilityIndex INSTANCE = new AvailabilityIndex();
+    private static final int DOCTOR_BITS = 20;
+    private static final long DOCTOR_MASK = (1L << DOCTOR_BITS) - 1;
+    private static final int SLOTS_PER_DAY = DoctorCalendar.TIME_SLOTS.length;
+
+    private final NavigableSet<Long> allSlots = new TreeSet<>();
+    private final Map<String, NavigableSet<Long>> slotsBySpecialty = new HashMap<>();
+    private final List<String> doctorIDs = new ArrayList<>();
+    private final Map<String, Integer> doctorNumbers = new HashMap<>();
+    private final Map<String, String> doctorSpecialties = new HashMap<>();
+    private final Map<DoctorCalendar, String> trackedCalendars = new IdentityHashMap<>();
+    private final Object buildLock = new Object();
+    private volatile boolean built;
+    private long indexedDay;
+
+    /**
+     * A free appointment slot with a doctor.
+     */
+    public static class Slot {
+        private final String doctorID;
+        private final LocalDateTime dateTime;
+
+        /**
+         * Constructs a slot.
+         *
+         * @param doctorID The doctor's ID.
+         * @param dateTime The start of the slot.
+         */
+        public Slot(String doctorID, LocalDateTime dateTime) {
+            this.doctorID = doctorID;
+            this.dateTime = dateTime;
+        }
+
+        /**
+         * Gets the ID of the doctor offering the slot.
+         *
+         * @return The doctor's ID.
+         */
+        public String getDoctorID() {
+            return doctorID;
+        }
+
+        /**
+         * Gets the start of the slot.
+         *
+         * @return The date and time the slot starts.
+         */
+        public LocalDateTime getDateTime() {
+            return dateTime;
+        }
+    }
+
+    /**
+     * Constructs the availability index.
+     */
+    private AvailabilityIndex() {
+    }
+
+    /**
+     * Gets the shared availability index.
+     *
+     * @return The availability index instance.
+     */
+    public static AvailabilityIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds the first free slot with any doctor that starts at or after the given time.
+     *
+     * @param after The earliest start time.
+     * @return The first free slot, or null if there is none.
+     */
+    public Slot findFirstAvailable(LocalDateTime after) {
+        List<Slot> slots = findAvailable(null, after, 1);
+        return slots.isEmpty() ? null : slots.get(0);
+    }
+
+    /**
+     * Finds the next free slots that start at or after the given time.
+     *
+     * @param specialty The specialty to search, or null to search all doctors.
+     * @param after     The earliest start time.
+     * @param count     The maximum number of slots to return.
+     * @return The free slots in chronological order.
+     */
+    public List<Slot> findAvailable(String specialty, LocalDateTime after, int count) {
+        FlightEvents.ScheduleSearch event = new FlightEvents.ScheduleSearch();
+        event.begin();
+        ensureBuilt();
+        List<Slot> results = new ArrayList<>();
+        synchronized (this) {
+            roll();
+            NavigableSet<Long> slots = specialty == null ? allSlots : slotsBySpecialty.get(normalize(specialty));
+            if (slots != null) {
+                for (long entry : slots.tailSet(firstSlotNumber(after) << DOCTOR_BITS, true)) {
+                    if (results.size() >= count) {
+                        break;
+                    }
+                    results.add(toSlot(entry));
+                }
+            }
+        }
+        if (event.shouldCommit()) {
+            event.specialty = specialty;
+            event.after = after.toString();
+            event.requested = count;
+            event.found = results.size();
+            event.commit();
+        }
+        return results;
+    }
+
+    /**
+     * Starts tracking the free slots on a doctor's calendar.
+     * If a different calendar was tracked for the doctor before, its slots are replaced.
+     * If the same calendar is tracked again, its slots are moved to the doctor's current
+     * specialty when that has changed.
+     *
+     * @param doctorID The doctor's ID.
+     * @param calendar The doctor's calendar.
+     */
+    public synchronized void track(String doctorID, DoctorCalendar calendar) {
+        Doctor doctor = UserRepository.getInstance().findDoctor(doctorID);
+        String specialty = normalize(doctor == null ? Doctor.DEFAULT_SPECIALTY : doctor.getSpecialty());
+        if (trackedCalendars.containsKey(calendar) && specialty.equals(doctorSpecialties.get(doctorID))) {
+            return;
+        }
+        Integer number = doctorNumbers.get(doctorID);
+        if (number == null) {
+            number = doctorIDs.size();
+            doctorIDs.add(doctorID);
+            doctorNumbers.put(doctorID, number);
+        } else {
+            untrack(doctorID, number);
+        }
+
+        doctorSpecialties.put(doctorID, specialty);
+        NavigableSet<Long> specialtySlots = slotsBySpecialty.computeIfAbsent(specialty, k -> new TreeSet<>());
+
+        int doctorNumber = number;
+        addSlots(calendar, specialtySlots, doctorNumber);
+        calendar.setSlotListener((epochDay, slot, available) -> slotChanged(specialtySlots, epochDay, slot, doctorNumber, available));
+        trackedCalendars.put(calendar, doctorID);
+    }
+
+    /**
+     * Loads every doctor's calendar into the index the first time the index is used.
+     * Doctors without a schedule file are skipped. Callers that arrive while the index
+     * is being built wait for the build to finish. The build holds its own lock rather
+     * than the index lock, because loading a calendar tracks it in the index.
+     */
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        synchronized (buildLock) {
+            if (built) {
+                return;
+            }
+            synchronized (this) {
+                indexedDay = DoctorCalendar.currentEpochDay();
+            }
+            for (Doctor doctor : UserRepository.getInstance().findDoctors()) {
+                try {
+                    track(doctor.getUserID(), ScheduleRepository.getInstance().findByDoctorID(doctor.getUserID()));
+                } catch (Exception e) {
+                    // The doctor has not published a schedule yet
+                }
+            }
+            built = true;
+        }
+    }
+
+    /**
+     * Adds the free slots on a calendar to the index.
+     * Slots that are already in the index are left as they are.
+     *
+     * @param calendar       The doctor's calendar.
+     * @param specialtySlots The slot set of the doctor's specialty.
+     * @param doctorNumber   The doctor's number in the index.
+     */
+    private void addSlots(DoctorCalendar calendar, NavigableSet<Long> specialtySlots, int doctorNumber) {
+        calendar.forEachAvailableSlot((epochDay, slot, available) -> {
+            long entry = entry(epochDay, slot, doctorNumber);
+            allSlots.add(entry);
+            specialtySlots.add(entry);
+        });
+    }
+
+    /**
+     * Moves the index to today if the date has changed since it was last used.
+     * Slots before today are removed, and every tracked calendar is scanned again
+     * for the slots of the days that have entered its horizon.
+     */
+    private void roll() {
+        long today = DoctorCalendar.currentEpochDay();
+        if (today == indexedDay) {
+            return;
+        }
+        indexedDay = today;
+        long cutoff = (today * SLOTS_PER_DAY) << DOCTOR_BITS;
+        allSlots.headSet(cutoff).clear();
+        for (NavigableSet<Long> specialtySlots : slotsBySpecialty.values()) {
+            specialtySlots.headSet(cutoff).clear();
+        }
+        for (Map.Entry<DoctorCalendar, String> tracked : trackedCalendars.entrySet()) {
+            String doctorID = tracked.getValue();
+            addSlots(tracked.getKey(), slotsBySpecialty.get(doctorSpecialties.get(doctorID)), doctorNumbers.get(doctorID));
+        }
+    }
+
+    /**
+     * Stops tracking a doctor's calendar, for example when the doctor is removed,
+     * so that the doctor's slots are no longer found.
+     *
+     * @param doctorID The doctor's ID.
+     */
+    public synchronized void untrack(String doctorID) {
+        Integer number = doctorNumbers.get(doctorID);
+        if (number != null) {
+            untrack(doctorID, number);
+            doctorSpecialties.remove(doctorID);
+        }
+    }
+
+    /**
+     * Removes all slots of a doctor from the index and detaches the doctor's old calendar.
+     *
+     * @param doctorID     The doctor's ID.
+     * @param doctorNumber The doctor's number in the index.
+     */
+    private void untrack(String doctorID, int doctorNumber) {
+        allSlots.removeIf(entry -> (entry & DOCTOR_MASK) == doctorNumber);
+        NavigableSet<Long> specialtySlots = slotsBySpecialty.get(doctorSpecialties.get(doctorID));
+        if (specialtySlots != null) {
+            specialtySlots.removeIf(entry -> (entry & DOCTOR_MASK) == doctorNumber);
+        }
+        trackedCalendars.entrySet().removeIf(tracked -> {
+            if (tracked.getValue().equals(doctorID)) {
+                tracked.getKey().setSlotListener(null);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Updates the index when a slot on a tracked calendar changes.
+     *
+     * @param specialtySlots The slot set of the doctor's specialty.
+     * @param epochDay       The date of the slot as an epoch day.
+     * @param slot           The slot index.
+     * @param doctorNumber   The doctor's number in the index.
+     * @param available      true if the slot became available, false if it was taken or blocked.
+     */
+    private synchronized void slotChanged(NavigableSet<Long> specialtySlots, long epochDay, int slot,
+                                          int doctorNumber, boolean available) {
+        long entry = entry(epochDay, slot, doctorNumber);
+        if (available) {
+            allSlots.add(entry);
+            specialtySlots.add(entry);
+        } else {
+            allSlots.remove(entry);
+            specialtySlots.remove(entry);
+        }
+    }
+
+    /**
+     * Encodes a slot as a single sortable number: the slot's position in time
+     * followed by the doctor's number.
+     *
+     * @param epochDay     The date of the slot as an epoch day.
+     * @param slot         The slot index.
+     * @param doctorNumber The doctor's number in the index.
+     * @return The encoded slot.
+     */
+    private static long entry(long epochDay, int slot, int doctorNumber) {
+        return ((epochDay * SLOTS_PER_DAY + slot) << DOCTOR_BITS) | doctorNumber;
+    }
+
+    /**
+     * Decodes an encoded slot.
+     *
+     * @param entry The encoded slot.
+     * @return The slot.
+     */
+    private Slot toSlot(long entry) {
+        long slotNumber = entry >>> DOCTOR_BITS;
+        LocalDate date = LocalDate.ofEpochDay(slotNumber / SLOTS_PER_DAY);
+        LocalTime time = DoctorCalendar.TIME_SLOTS[(int) (slotNumber % SLOTS_PER_DAY)];
+        return new Slot(doctorIDs.get((int) (entry & DOCTOR_MASK)), LocalDateTime.of(date, time));
+    }
+
+    /**
+     * Gets the position in time of the first grid slot that starts at or after the given time.
+     *
+     * @param after The earliest start time.
+     * @return The slot's position in time.
+     */
+    private static long firstSlotNumber(LocalDateTime after) {
+        long epochDay = after.toLocalDate().toEpochDay();
+        LocalTime time = after.toLocalTime();
+        for (int slot = 0; slot < SLOTS_PER_DAY; slot++) {
+            if (!DoctorCalendar.TIME_SLOTS[slot].isBefore(time)) {
+                return epochDay * SLOTS_PER_DAY + slot;
+            }
+        }
+        return (epochDay + 1) * SLOTS_PER_DAY;
+    }
+
+    /**
+     * Normalizes a specialty name for lookup.
+     *
+     * @param specialty The specialty name.
+     * @return The trimmed, lower-case specialty name.
+     */
+    private static String normalize(String specialty) {
+        return specialty.trim().toLowerCase();
+    }
+}
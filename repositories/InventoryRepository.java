@@ -0,0 +1,402 @@
+package repositories;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import models.InventoryItem;
+import utils.Config;
+import utils.GroupCommitLog;
+
+/**
+ * Shared repository for the medication inventory of the hospital.
+ * Inventory items are stored in "inventory.ser" as a list and are keyed
+ * by their lower-case medication name. Lookups by name are hash lookups, and
+ * prefix and fuzzy searches go through a {@link MedicationCatalog} trie.
+ * <p>
+ * Changes are not written to the journal. Instead every change is appended as one
+ * line to the text ledger "inventory.ledger": added, updated and removed items, and
+ * each dispense, restock or adjustment of a stock level as a signed quantity. Stock
+ * changes only touch the item's atomic counter and the ledger, so pharmacists can
+ * dispense concurrently without locking the repository or rewriting the inventory.
+ * The ledger is replayed on top of the snapshot when the inventory is loaded, and
+ * folded into a new snapshot when it grows larger than the snapshot.
+ */
+public class InventoryRepository extends Repository<InventoryItem> {
+    private static final String SNAPSHOT_PATH = Config.DATABASE_DIR + "inventory.ser";
+    private static final String LEDGER_PATH = Config.DATABASE_DIR + "inventory.ledger";
+    private static final InventoryRepository INSTANCE = new InventoryRepository();
+
+    // Stock changes and their ledger entries share the read lock; writing a snapshot takes the write lock
+    private final ReadWriteLock ledgerLock = new ReentrantReadWriteLock();
+    private final GroupCommitLog ledger = new GroupCommitLog(Paths.get(LEDGER_PATH), Config.DURABILITY,
+            () -> (System.currentTimeMillis() + "\tBEGIN\t" + snapshotStamp() + "\n").getBytes(StandardCharsets.UTF_8));
+    private final MedicationCatalog catalog = new MedicationCatalog();
+
+    /**
+     * Constructs the inventory repository backed by "inventory.ser".
+     */
+    private InventoryRepository() {
+        super("inventory.ser");
+    }
+
+    /**
+     * Gets the shared inventory repository.
+     *
+     * @return The inventory repository instance.
+     */
+    public static InventoryRepository getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds an inventory item by its medication name, ignoring case.
+     *
+     * @param medicationName The name of the medication.
+     * @return The inventory item, or null if not found.
+     */
+    public synchronized InventoryItem findByName(String medicationName) {
+        return findById(MedicationCatalog.normalize(medicationName));
+    }
+
+    /**
+     * Finds the inventory items whose names start with a prefix, in alphabetical order.
+     *
+     * @param prefix The prefix of the medication name, ignoring case.
+     * @param limit  The maximum number of items to return.
+     * @return A list of at most {@code limit} matching items.
+     */
+    public synchronized List<InventoryItem> findByPrefix(String prefix, int limit) {
+        records();
+        return catalog.findByPrefix(prefix, limit);
+    }
+
+    /**
+     * Finds the inventory items whose names are close to a name, closest first.
+     * Used to suggest medications when a name is misspelt.
+     *
+     * @param medicationName The medication name, ignoring case.
+     * @param maxDistance    The maximum number of single-character edits.
+     * @param limit          The maximum number of items to return.
+     * @return A list of at most {@code limit} matching items.
+     */
+    public synchronized List<InventoryItem> findSimilar(String medicationName, int maxDistance, int limit) {
+        records();
+        return catalog.findSimilar(medicationName, maxDistance, limit);
+    }
+
+    /**
+     * Reserves stock of an item while a prescription is being dispensed.
+     * Reservations are held in memory only and are not written to the ledger.
+     *
+     * @param item     The inventory item.
+     * @param quantity The quantity to reserve.
+     * @return true if the stock was reserved, false if not enough is available.
+     */
+    public boolean reserve(InventoryItem item, int quantity) {
+        return item.tryReserve(quantity);
+    }
+
+    /**
+     * Releases stock reserved with {@link #reserve} without dispensing it.
+     *
+     * @param item     The inventory item.
+     * @param quantity The quantity that was reserved.
+     */
+    public void release(InventoryItem item, int quantity) {
+        item.release(quantity);
+    }
+
+    /**
+     * Dispenses stock reserved with {@link #reserve} and records it in the ledger.
+     *
+     * @param item     The inventory item.
+     * @param quantity The quantity that was reserved.
+     * @return The stock level after dispensing.
+     */
+    public int dispense(InventoryItem item, int quantity) {
+        int remaining;
+        GroupCommitLog.Commit commit;
+        ledgerLock.readLock().lock();
+        try {
+            remaining = item.dispense(quantity);
+            commit = appendQuietly("DISPENSE", item.getKey(), Integer.toString(-quantity));
+        } finally {
+            ledgerLock.readLock().unlock();
+        }
+        awaitQuietly(commit);
+        return remaining;
+    }
+
+    /**
+     * Adds stock to an item and records it in the ledger.
+     *
+     * @param item     The inventory item.
+     * @param quantity The quantity to add.
+     * @return The stock level after restocking.
+     */
+    public int restock(InventoryItem item, int quantity) {
+        int level;
+        GroupCommitLog.Commit commit;
+        ledgerLock.readLock().lock();
+        try {
+            level = item.restock(quantity);
+            commit = appendQuietly("RESTOCK", item.getKey(), "+" + quantity);
+        } finally {
+            ledgerLock.readLock().unlock();
+        }
+        awaitQuietly(commit);
+        return level;
+    }
+
+    /**
+     * Sets the stock level of an item and records the difference in the ledger.
+     *
+     * @param item       The inventory item.
+     * @param stockLevel The new stock level.
+     */
+    public void setStockLevel(InventoryItem item, int stockLevel) {
+        GroupCommitLog.Commit commit;
+        ledgerLock.readLock().lock();
+        try {
+            int previous = item.setStockLevel(stockLevel);
+            commit = appendQuietly("ADJUST", item.getKey(), Integer.toString(stockLevel - previous));
+        } finally {
+            ledgerLock.readLock().unlock();
+        }
+        awaitQuietly(commit);
+    }
+
+    /**
+     * Writes all items to "inventory.ser" as a new snapshot and clears the ledger.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public synchronized void saveAll() throws IOException {
+        ledgerLock.writeLock().lock();
+        try {
+            super.saveAll();
+            ledger.clear();
+        } finally {
+            ledgerLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replays the ledger on top of the loaded items, and compacts it
+     * into a new snapshot if it has grown larger than the snapshot.
+     */
+    @Override
+    protected void loaded() {
+        File file = new File(LEDGER_PATH);
+        if (file.length() == 0) {
+            return;
+        }
+        try {
+            replayLedger(file);
+            if (file.length() > new File(SNAPSHOT_PATH).length()) {
+                saveAll();
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading inventory ledger: " + e.getMessage());
+        }
+    }
+
+    @Override
+    protected void indexRecord(InventoryItem item) {
+        catalog.add(item);
+    }
+
+    @Override
+    protected void unindexRecord(InventoryItem item) {
+        catalog.remove(item);
+    }
+
+    @Override
+    protected GroupCommitLog.Commit writeRecord(InventoryItem item, InventoryItem previous) throws IOException {
+        if (previous == item) {
+            // Stock changes of a stored item are already in the ledger
+            return appendLine("UPDATE", item.getKey(), clean(item.getMedicationName()),
+                    Integer.toString(item.getLowStockAlertLevel()),
+                    Integer.toString(item.getReplenishRequestAmount()));
+        } else {
+            return appendLine("ADD", item.getKey(), clean(item.getMedicationName()),
+                    Integer.toString(item.getStockLevel()),
+                    Integer.toString(item.getLowStockAlertLevel()),
+                    Integer.toString(item.getReplenishRequestAmount()));
+        }
+    }
+
+    @Override
+    protected GroupCommitLog.Commit writeRemoval(InventoryItem item) throws IOException {
+        return appendLine("REMOVE", item.getKey());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Map<String, InventoryItem> toRecords(Object snapshot) {
+        Map<String, InventoryItem> records = new LinkedHashMap<>();
+        for (InventoryItem item : (List<InventoryItem>) snapshot) {
+            records.put(item.getKey(), item);
+        }
+        return records;
+    }
+
+    @Override
+    protected Object toSnapshot(Map<String, InventoryItem> records) {
+        return new ArrayList<>(records.values());
+    }
+
+    /**
+     * Applies the ledger entries to the in-memory items.
+     * The ledger is skipped if it was started against a different snapshot, which
+     * happens when a new snapshot was written but the old ledger was not yet deleted.
+     * An unfinished line at the end of the ledger (from an interrupted write) is ignored.
+     *
+     * @param file The ledger file.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void replayLedger(File file) throws IOException {
+        String content;
+        try (FileInputStream in = new FileInputStream(file)) {
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        int end = content.lastIndexOf('\n');
+        if (end < 0) {
+            return;
+        }
+        String[] lines = content.substring(0, end).split("\n");
+        String[] begin = lines[0].split("\t");
+        if (begin.length < 3 || !begin[1].equals("BEGIN") || !begin[2].equals(snapshotStamp())) {
+            System.out.println("Skipping inventory ledger written before the current snapshot.");
+            return;
+        }
+        Map<String, InventoryItem> records = records();
+        for (int i = 1; i < lines.length; i++) {
+            try {
+                applyEntry(records, lines[i].split("\t"));
+            } catch (RuntimeException e) {
+                System.out.println("Skipping bad inventory ledger entry: " + lines[i]);
+            }
+        }
+    }
+
+    /**
+     * Applies a single ledger entry to the in-memory items.
+     *
+     * @param records The items keyed by their key.
+     * @param fields  The tab-separated fields of the entry: time, operation, key and values.
+     */
+    private void applyEntry(Map<String, InventoryItem> records, String[] fields) {
+        String op = fields[1];
+        String key = fields[2];
+        InventoryItem item = records.get(key);
+        switch (op) {
+            case "ADD":
+                InventoryItem added = new InventoryItem(fields[3], Integer.parseInt(fields[4]),
+                        Integer.parseInt(fields[5]));
+                added.setReplenishRequestAmount(Integer.parseInt(fields[6]));
+                if (item != null) {
+                    unindexRecord(item);
+                }
+                records.put(key, added);
+                indexRecord(added);
+                break;
+            case "UPDATE":
+                if (item != null) {
+                    item.setLowStockAlertLevel(Integer.parseInt(fields[4]));
+                    item.setReplenishRequestAmount(Integer.parseInt(fields[5]));
+                }
+                break;
+            case "REMOVE":
+                if (item != null) {
+                    records.remove(key);
+                    unindexRecord(item);
+                }
+                break;
+            case "DISPENSE":
+            case "RESTOCK":
+            case "ADJUST":
+                if (item != null) {
+                    item.restock(Integer.parseInt(fields[3]));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + op);
+        }
+    }
+
+    /**
+     * Queues an entry on the ledger, reporting any error instead of throwing it.
+     *
+     * @param fields The operation, key and values of the entry.
+     * @return The commit to await, or null if the entry could not be queued.
+     */
+    private GroupCommitLog.Commit appendQuietly(String... fields) {
+        try {
+            return appendLine(fields);
+        } catch (IOException e) {
+            System.out.println("Error writing inventory ledger: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Waits for a ledger entry to become durable, reporting any error instead of throwing it.
+     *
+     * @param commit The commit to wait for, or null.
+     */
+    private static void awaitQuietly(GroupCommitLog.Commit commit) {
+        if (commit == null) {
+            return;
+        }
+        try {
+            commit.await();
+        } catch (IOException e) {
+            System.out.println("Error writing inventory ledger: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queues one line on the ledger, prefixed with the current time.
+     * Stock changes must hold the read lock from changing the counter until the
+     * line is queued, so that a snapshot never contains a change whose line
+     * lands in the ledger that follows it.
+     *
+     * @param fields The operation, key and values of the entry.
+     * @return The commit to await.
+     * @throws IOException If an I/O error occurs.
+     */
+    private GroupCommitLog.Commit appendLine(String... fields) throws IOException {
+        String line = System.currentTimeMillis() + "\t" + String.join("\t", fields) + "\n";
+        return ledger.append(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Identifies the current snapshot by its length and modification time.
+     *
+     * @return The snapshot stamp.
+     */
+    private static String snapshotStamp() {
+        File snapshot = new File(SNAPSHOT_PATH);
+        return snapshot.length() + ":" + snapshot.lastModified();
+    }
+
+    /**
+     * Replaces characters that would break the ledger's line format.
+     *
+     * @param value The value to write.
+     * @return The value with tabs and line breaks replaced by spaces.
+     */
+    private static String clean(String value) {
+        return value.replaceAll("[\t\r\n]", " ");
+    }
+}
@@ -0,0 +1,266 @@
+package repositories;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import models.InventoryItem;
+
+/**
+ * Catalog of the medications in the inventory, for prefix and fuzzy search.
+ * Items are stored in a trie keyed by their normalized (lower-case) medication
+ * name. Each node keeps its children in a sorted array, so prefix matches come
+ * out in alphabetical order and walking a node costs a binary search rather than
+ * a scan. Finding the items that start with a prefix walks the prefix and then
+ * only the matching subtree. Fuzzy search walks the trie once while computing the
+ * edit distance to the query, and skips every subtree that is already too far away.
+ * The catalog is owned by the {@link InventoryRepository}, which guards it with its own lock.
+ */
+public class MedicationCatalog {
+    private final Node root = new Node();
+
+    /**
+     * A node of the trie. The item is set if a medication name ends at this node.
+     */
+    private static class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private InventoryItem item;
+
+        /**
+         * Constructs an empty node.
+         */
+        Node() {
+        }
+
+        /**
+         * Gets the child reached by a character.
+         *
+         * @param c The character.
+         * @return The child, or null if there is none.
+         */
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        /**
+         * Gets the child reached by a character, adding it if there is none.
+         *
+         * @param c The character.
+         * @return The child.
+         */
+        Node addChild(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newLabels[at] = c;
+            newChildren[at] = new Node();
+            System.arraycopy(labels, at, newLabels, at + 1, labels.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            labels = newLabels;
+            children = newChildren;
+            return children[at];
+        }
+
+        /**
+         * Removes the child reached by a character.
+         *
+         * @param c The character.
+         */
+        void removeChild(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(labels, i + 1, newLabels, i, labels.length - i - 1);
+            System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        /**
+         * Checks whether the node holds no item and has no children.
+         *
+         * @return true if the node can be removed.
+         */
+        boolean isEmpty() {
+            return item == null && children.length == 0;
+        }
+    }
+
+    /**
+     * An item found by fuzzy search, with its edit distance from the query.
+     */
+    private static class Match {
+        private final int distance;
+        private final InventoryItem item;
+
+        /**
+         * Constructs a match.
+         *
+         * @param distance The edit distance from the query.
+         * @param item     The matching item.
+         */
+        Match(int distance, InventoryItem item) {
+            this.distance = distance;
+            this.item = item;
+        }
+    }
+
+    /**
+     * Normalizes a medication name for lookup: trims it and converts it to lower case.
+     *
+     * @param name The medication name.
+     * @return The normalized name.
+     */
+    public static String normalize(String name) {
+        return name.trim().toLowerCase();
+    }
+
+    /**
+     * Adds an item to the catalog, replacing any item with the same name.
+     *
+     * @param item The inventory item.
+     */
+    void add(InventoryItem item) {
+        String key = item.getKey();
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.addChild(key.charAt(i));
+        }
+        node.item = item;
+    }
+
+    /**
+     * Removes an item from the catalog, pruning nodes that are no longer needed.
+     *
+     * @param item The inventory item.
+     */
+    void remove(InventoryItem item) {
+        String key = item.getKey();
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].child(key.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        if (path[key.length()].item != item) {
+            return;
+        }
+        path[key.length()].item = null;
+        for (int i = key.length(); i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].removeChild(key.charAt(i - 1));
+        }
+    }
+
+    /**
+     * Finds the items whose names start with a prefix, in alphabetical order.
+     *
+     * @param prefix The prefix, ignoring case.
+     * @param limit  The maximum number of items to return.
+     * @return A list of at most {@code limit} matching items.
+     */
+    List<InventoryItem> findByPrefix(String prefix, int limit) {
+        List<InventoryItem> matches = new ArrayList<>();
+        String key = normalize(prefix);
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node != null) {
+            collect(node, matches, limit);
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the items whose names are within a number of single-character edits
+     * (insertions, deletions or substitutions) of a name, closest first.
+     *
+     * @param name        The name to match, ignoring case.
+     * @param maxDistance The maximum number of edits.
+     * @param limit       The maximum number of items to return.
+     * @return A list of at most {@code limit} matching items.
+     */
+    List<InventoryItem> findSimilar(String name, int maxDistance, int limit) {
+        String key = normalize(name);
+        int[] firstRow = new int[key.length() + 1];
+        for (int i = 0; i <= key.length(); i++) {
+            firstRow[i] = i;
+        }
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0; i < root.labels.length; i++) {
+            searchSimilar(root.children[i], root.labels[i], key, firstRow, maxDistance, matches);
+        }
+        matches.sort(Comparator.comparingInt((Match match) -> match.distance)
+                .thenComparing(match -> match.item.getKey()));
+        List<InventoryItem> results = new ArrayList<>();
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            results.add(matches.get(i).item);
+        }
+        return results;
+    }
+
+    /**
+     * Adds the items of a subtree to a list in alphabetical order, up to a limit.
+     *
+     * @param node    The root of the subtree.
+     * @param matches The list to add to.
+     * @param limit   The maximum size of the list.
+     */
+    private static void collect(Node node, List<InventoryItem> matches, int limit) {
+        if (matches.size() >= limit) {
+            return;
+        }
+        if (node.item != null) {
+            matches.add(node.item);
+        }
+        for (Node child : node.children) {
+            collect(child, matches, limit);
+        }
+    }
+
+    /**
+     * Computes the next row of the edit distance table for a trie node and descends
+     * into its children while the best distance in the row is within the limit.
+     *
+     * @param node        The trie node.
+     * @param c           The character that leads to the node.
+     * @param key         The normalized name being matched.
+     * @param previousRow The edit distance row of the parent node.
+     * @param maxDistance The maximum number of edits.
+     * @param matches     The matches found so far.
+     */
+    private static void searchSimilar(Node node, char c, String key, int[] previousRow,
+                                      int maxDistance, List<Match> matches) {
+        int[] row = new int[key.length() + 1];
+        row[0] = previousRow[0] + 1;
+        int best = row[0];
+        for (int i = 1; i <= key.length(); i++) {
+            int substitute = previousRow[i - 1] + (key.charAt(i - 1) == c ? 0 : 1);
+            row[i] = Math.min(substitute, Math.min(row[i - 1] + 1, previousRow[i] + 1));
+            best = Math.min(best, row[i]);
+        }
+        if (node.item != null && row[key.length()] <= maxDistance) {
+            matches.add(new Match(row[key.length()], node.item));
+        }
+        if (best <= maxDistance) {
+            for (int i = 0; i < node.labels.length; i++) {
+                searchSimilar(node.children[i], node.labels[i], key, row, maxDistance, matches);
+            }
+        }
+    }
+}
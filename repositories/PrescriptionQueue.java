@@ -0,0 +1,185 @@
+package repositories;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import models.Appointment;
+import models.AppointmentOutcome;
+import models.Prescription;
+
+/**
+ * Work queue of the prescriptions that are waiting to be dispensed.
+ * Every pending prescription of a recorded appointment outcome is kept in
+ * the queue in the order it was added, and is also indexed by medication
+ * name and by patient. The queue is owned by the {@link AppointmentRepository},
+ * which adds an appointment's pending prescriptions whenever the appointment is
+ * saved and drops them when it is saved again, so dispensed prescriptions leave
+ * the queue as soon as the appointment is saved. The queue is not thread-safe
+ * on its own; the repository guards it with its own lock.
+ */
+public class PrescriptionQueue {
+    private final Map<String, Entry> all = new LinkedHashMap<>();
+    private final Map<String, Map<String, Entry>> byMedication = new HashMap<>();
+    private final Map<String, Map<String, Entry>> byPatient = new HashMap<>();
+    private final Map<String, List<Entry>> byAppointment = new HashMap<>();
+
+    /**
+     * A pending prescription together with the appointment it was prescribed in.
+     */
+    public static class Entry {
+        private final String key;
+        private final Appointment appointment;
+        private final Prescription prescription;
+
+        /**
+         * Constructs a queue entry.
+         *
+         * @param key          The key of the entry within the queue.
+         * @param appointment  The appointment the prescription was prescribed in.
+         * @param prescription The pending prescription.
+         */
+        Entry(String key, Appointment appointment, Prescription prescription) {
+            this.key = key;
+            this.appointment = appointment;
+            this.prescription = prescription;
+        }
+
+        /**
+         * Gets the appointment the prescription was prescribed in.
+         *
+         * @return The appointment.
+         */
+        public Appointment getAppointment() {
+            return appointment;
+        }
+
+        /**
+         * Gets the pending prescription.
+         *
+         * @return The prescription.
+         */
+        public Prescription getPrescription() {
+            return prescription;
+        }
+    }
+
+    /**
+     * Adds the pending prescriptions of an appointment to the queue.
+     *
+     * @param appointment The appointment.
+     */
+    void add(Appointment appointment) {
+        if (!appointment.hasPendingPrescriptions()) {
+            // Checked first, so outcomes with nothing to dispense are never decoded
+            return;
+        }
+        AppointmentOutcome outcome = appointment.getOutcome();
+        if (outcome == null || outcome.getPrescriptions() == null) {
+            return;
+        }
+        List<Prescription> prescriptions = outcome.getPrescriptions();
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < prescriptions.size(); i++) {
+            Prescription prescription = prescriptions.get(i);
+            if (prescription.getStatus().equals("dispensed")) {
+                continue;
+            }
+            Entry entry = new Entry(appointment.getKey() + '\0' + i, appointment, prescription);
+            entries.add(entry);
+            all.put(entry.key, entry);
+            index(byMedication, MedicationCatalog.normalize(prescription.getMedicationName()), entry);
+            index(byPatient, appointment.getPatientID(), entry);
+        }
+        if (!entries.isEmpty()) {
+            byAppointment.put(appointment.getKey(), entries);
+        }
+    }
+
+    /**
+     * Removes all prescriptions of an appointment from the queue.
+     *
+     * @param appointment The appointment.
+     */
+    void remove(Appointment appointment) {
+        List<Entry> entries = byAppointment.remove(appointment.getKey());
+        if (entries == null) {
+            return;
+        }
+        for (Entry entry : entries) {
+            all.remove(entry.key);
+            unindex(byMedication, MedicationCatalog.normalize(entry.prescription.getMedicationName()), entry);
+            unindex(byPatient, appointment.getPatientID(), entry);
+        }
+    }
+
+    /**
+     * Gets all pending prescriptions in the order they were added.
+     *
+     * @return A new list of the queue entries.
+     */
+    List<Entry> findAll() {
+        return new ArrayList<>(all.values());
+    }
+
+    /**
+     * Gets the pending prescriptions of a medication, ignoring case and surrounding spaces.
+     *
+     * @param medicationName The name of the medication.
+     * @return A new list of the matching queue entries.
+     */
+    List<Entry> findByMedication(String medicationName) {
+        return lookup(byMedication, MedicationCatalog.normalize(medicationName));
+    }
+
+    /**
+     * Gets the pending prescriptions of a patient.
+     *
+     * @param patientID The patient's ID.
+     * @return A new list of the matching queue entries.
+     */
+    List<Entry> findByPatient(String patientID) {
+        return lookup(byPatient, patientID);
+    }
+
+    /**
+     * Gets the entries stored under a key of an index.
+     *
+     * @param index The index to look up.
+     * @param key   The index key.
+     * @return A new list of the matching entries, in the order they were added.
+     */
+    private static List<Entry> lookup(Map<String, Map<String, Entry>> index, String key) {
+        return new ArrayList<>(index.getOrDefault(key, Collections.emptyMap()).values());
+    }
+
+    /**
+     * Adds an entry under a key of an index.
+     *
+     * @param index The index to update.
+     * @param key   The index key.
+     * @param entry The entry to add.
+     */
+    private static void index(Map<String, Map<String, Entry>> index, String key, Entry entry) {
+        index.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(entry.key, entry);
+    }
+
+    /**
+     * Removes an entry from under a key of an index.
+     *
+     * @param index The index to update.
+     * @param key   The index key.
+     * @param entry The entry to remove.
+     */
+    private static void unindex(Map<String, Map<String, Entry>> index, String key, Entry entry) {
+        Map<String, Entry> entries = index.get(key);
+        if (entries != null) {
+            entries.remove(entry.key);
+            if (entries.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
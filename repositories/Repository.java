@@ -0,0 +1,316 @@
+package repositories;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import utils.GroupCommitLog;
+import utils.Keyed;
+import utils.SerializationUtil;
+
+/**
+ * Base class for the shared in-memory repositories of the hospital management system.
+ * Each repository loads its data file once, keeps the records in memory and writes
+ * every change through to the file's journal. All controllers share the same
+ * repository instances, so switching between them does not read the file again.
+ *
+ * @param <V> The type of record stored in the repository.
+ */
+public abstract class Repository<V extends Keyed> {
+    private final String fileName;
+    private Map<String, V> records;
+
+    /**
+     * Constructs a repository backed by a data file.
+     *
+     * @param fileName The name of the data file (without path).
+     */
+    protected Repository(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Loads the records from the data file if they have not been loaded yet.
+     *
+     * @throws IOException            If an I/O error occurs or the file does not exist.
+     * @throws ClassNotFoundException If the class of a record is not found.
+     */
+    public synchronized void load() throws IOException, ClassNotFoundException {
+        if (records == null) {
+            records = toRecords(SerializationUtil.deserialize(fileName));
+            for (V record : records.values()) {
+                indexRecord(record);
+            }
+            loaded();
+        }
+    }
+
+    /**
+     * Checks whether the records have already been loaded into memory.
+     *
+     * @return true if the records are loaded, false otherwise.
+     */
+    public synchronized boolean isLoaded() {
+        return records != null;
+    }
+
+    /**
+     * Gets the in-memory records, loading them on first access.
+     * If the data file is missing or cannot be read, the repository starts empty.
+     *
+     * @return The records keyed by their key.
+     */
+    protected synchronized Map<String, V> records() {
+        if (records == null) {
+            try {
+                load();
+            } catch (FileNotFoundException e) {
+                records = new LinkedHashMap<>();
+                loaded();
+            } catch (IOException | ClassNotFoundException e) {
+                System.out.println("Error loading " + fileName + ": " + e.getMessage());
+                records = new LinkedHashMap<>();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Finds a record by its key.
+     *
+     * @param key The key of the record.
+     * @return The record, or null if not found.
+     */
+    public synchronized V findById(String key) {
+        return records().get(key);
+    }
+
+    /**
+     * Checks whether a record with the given key exists.
+     *
+     * @param key The key of the record.
+     * @return true if the record exists, false otherwise.
+     */
+    public synchronized boolean exists(String key) {
+        return records().containsKey(key);
+    }
+
+    /**
+     * Gets all records in the order they were added.
+     *
+     * @return A new list containing all records.
+     */
+    public synchronized List<V> findAll() {
+        return new ArrayList<>(records().values());
+    }
+
+    /**
+     * Adds or replaces a record and writes it through to the data file.
+     * The write is queued while holding the repository lock and awaited after
+     * releasing it, so saves from several threads can share one flush.
+     *
+     * @param record The record to save.
+     * @return true if the record was written, false if the write failed.
+     */
+    public boolean save(V record) {
+        GroupCommitLog.Commit commit = null;
+        synchronized (this) {
+            V previous = records().put(record.getKey(), record);
+            if (previous != null) {
+                unindexRecord(previous);
+            }
+            indexRecord(record);
+            try {
+                commit = writeRecord(record, previous);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+        return awaitCommit(commit);
+    }
+
+    /**
+     * Adds or replaces several records and writes them through to the data file together.
+     * All writes are queued under one hold of the repository lock, so they land next to
+     * each other in the journal and normally go out in a single write and flush.
+     *
+     * @param batch The records to save.
+     */
+    public void saveBatch(Collection<V> batch) {
+        List<GroupCommitLog.Commit> commits = new ArrayList<>();
+        synchronized (this) {
+            Map<String, V> current = records();
+            for (V record : batch) {
+                V previous = current.put(record.getKey(), record);
+                if (previous != null) {
+                    unindexRecord(previous);
+                }
+                indexRecord(record);
+                try {
+                    GroupCommitLog.Commit commit = writeRecord(record, previous);
+                    if (commit != null && (commits.isEmpty() || commits.get(commits.size() - 1) != commit)) {
+                        commits.add(commit);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        for (GroupCommitLog.Commit commit : commits) {
+            awaitCommit(commit);
+        }
+    }
+
+    /**
+     * Removes a record and writes the removal through to the data file.
+     *
+     * @param key The key of the record to remove.
+     * @return The removed record, or null if not found.
+     */
+    public V delete(String key) {
+        V removed;
+        GroupCommitLog.Commit commit = null;
+        synchronized (this) {
+            removed = records().remove(key);
+            if (removed != null) {
+                unindexRecord(removed);
+                try {
+                    commit = writeRemoval(removed);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        awaitCommit(commit);
+        return removed;
+    }
+
+    /**
+     * Removes several records and writes the removals through to the data file together.
+     * Keys that are not found are ignored.
+     *
+     * @param keys The keys of the records to remove.
+     */
+    public void deleteBatch(Collection<String> keys) {
+        List<GroupCommitLog.Commit> commits = new ArrayList<>();
+        synchronized (this) {
+            Map<String, V> current = records();
+            for (String key : keys) {
+                V removed = current.remove(key);
+                if (removed == null) {
+                    continue;
+                }
+                unindexRecord(removed);
+                try {
+                    GroupCommitLog.Commit commit = writeRemoval(removed);
+                    if (commit != null && (commits.isEmpty() || commits.get(commits.size() - 1) != commit)) {
+                        commits.add(commit);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        for (GroupCommitLog.Commit commit : commits) {
+            awaitCommit(commit);
+        }
+    }
+
+    /**
+     * Waits for a queued write to become durable.
+     *
+     * @param commit The commit to wait for, or null if there is nothing to wait for.
+     * @return true if the write became durable, false if it failed.
+     */
+    private static boolean awaitCommit(GroupCommitLog.Commit commit) {
+        if (commit == null) {
+            return true;
+        }
+        try {
+            commit.await();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Writes all records to the data file as a new snapshot.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public synchronized void saveAll() throws IOException {
+        SerializationUtil.serialize(toSnapshot(records()), fileName);
+    }
+
+    /**
+     * Called once the records are in memory, whether they were loaded from the data file
+     * or the repository started empty. The default does nothing.
+     */
+    protected void loaded() {
+    }
+
+    /**
+     * Writes a saved record through to storage. Called while holding the repository lock.
+     * The default queues the record on the data file's journal.
+     *
+     * @param record   The saved record.
+     * @param previous The record it replaced, or null if it is new.
+     * @return The commit to await once the lock is released, or null if the write is already done.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected GroupCommitLog.Commit writeRecord(V record, V previous) throws IOException {
+        return SerializationUtil.enqueue(fileName, record);
+    }
+
+    /**
+     * Writes the removal of a record through to storage. Called while holding the repository lock.
+     * The default queues the removal on the data file's journal.
+     *
+     * @param record The removed record.
+     * @return The commit to await once the lock is released, or null if the write is already done.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected GroupCommitLog.Commit writeRemoval(V record) throws IOException {
+        return SerializationUtil.enqueueRemoval(fileName, record.getKey());
+    }
+
+    /**
+     * Adds a record to any secondary indexes kept by the repository.
+     * Called whenever a record is loaded or saved. The default does nothing.
+     *
+     * @param record The record to index.
+     */
+    protected void indexRecord(V record) {
+    }
+
+    /**
+     * Removes a record from any secondary indexes kept by the repository.
+     * Called whenever a record is replaced or deleted. The default does nothing.
+     *
+     * @param record The record to remove from the indexes.
+     */
+    protected void unindexRecord(V record) {
+    }
+
+    /**
+     * Converts the object read from the data file into records keyed by their key.
+     *
+     * @param snapshot The deserialized data file contents.
+     * @return The records keyed by their key.
+     */
+    protected abstract Map<String, V> toRecords(Object snapshot);
+
+    /**
+     * Converts the records into the object that is stored in the data file.
+     *
+     * @param records The records keyed by their key.
+     * @return The object to serialize.
+     */
+    protected abstract Object toSnapshot(Map<String, V> records);
+}
@@ -0,0 +1,112 @@
+package repositories;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import models.AppointmentRequest;
+import utils.Config;
+import utils.IdGenerator;
+
+/**
+ * Shared repository for the appointment requests waiting to be assigned by the
+ * {@link AutoScheduler}. Requests are stored in "requests.ser" as a list and
+ * are indexed by patient. The data file is created empty the first time
+ * requests are used, so that requests can be journaled from the start.
+ */
+public class RequestRepository extends Repository<AppointmentRequest> {
+    private static final RequestRepository INSTANCE = new RequestRepository();
+
+    private final Map<String, Map<String, AppointmentRequest>> byPatient = new HashMap<>();
+    private final IdGenerator ids = new IdGenerator("REQ");
+    private volatile boolean idsSeeded;
+
+    /**
+     * Constructs the request repository backed by "requests.ser".
+     */
+    private RequestRepository() {
+        super("requests.ser");
+    }
+
+    /**
+     * Gets the shared request repository.
+     *
+     * @return The request repository instance.
+     */
+    public static RequestRepository getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds the waiting requests of a patient.
+     *
+     * @param patientID The patient's ID.
+     * @return A list of the patient's requests in the order they were made.
+     */
+    public synchronized List<AppointmentRequest> findByPatient(String patientID) {
+        records();
+        return new ArrayList<>(byPatient.getOrDefault(patientID, Collections.emptyMap()).values());
+    }
+
+    /**
+     * Allocates a new request ID that is not used by any stored request.
+     * IDs are "REQ" followed by a number and sort by creation time.
+     *
+     * @return A new unique request ID.
+     */
+    public String nextRequestID() {
+        if (!idsSeeded) {
+            records();
+            idsSeeded = true;
+        }
+        return ids.next();
+    }
+
+    @Override
+    protected void loaded() {
+        if (new File(Config.DATABASE_DIR + "requests.ser").exists()) {
+            return;
+        }
+        try {
+            saveAll();
+        } catch (IOException e) {
+            System.out.println("Error creating requests.ser: " + e.getMessage());
+        }
+    }
+
+    @Override
+    protected void indexRecord(AppointmentRequest request) {
+        ids.observe(request.getRequestID());
+        byPatient.computeIfAbsent(request.getPatientID(), k -> new LinkedHashMap<>()).put(request.getKey(), request);
+    }
+
+    @Override
+    protected void unindexRecord(AppointmentRequest request) {
+        Map<String, AppointmentRequest> requests = byPatient.get(request.getPatientID());
+        if (requests != null) {
+            requests.remove(request.getKey());
+            if (requests.isEmpty()) {
+                byPatient.remove(request.getPatientID());
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Map<String, AppointmentRequest> toRecords(Object snapshot) {
+        Map<String, AppointmentRequest> records = new LinkedHashMap<>();
+        for (AppointmentRequest request : (List<AppointmentRequest>) snapshot) {
+            records.put(request.getKey(), request);
+        }
+        return records;
+    }
+
+    @Override
+    protected Object toSnapshot(Map<String, AppointmentRequest> records) {
+        return new ArrayList<>(records.values());
+    }
+}
@@ -0,0 +1,165 @@
+package repositories;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import models.DoctorCalendar;
+import utils.Config;
+import utils.SerializationUtil;
+
+/**
+ * Shared repository for doctor calendars.
+ * Each doctor's calendar is stored in its own "Schedule_&lt;doctorID&gt;.ser" file,
+ * which is read at most once and then kept in memory. Schedule files in the older
+ * list-of-strings format are converted to calendars when they are loaded, and
+ * bookings stored under the patient's name are converted to the patient's ID.
+ */
+public class ScheduleRepository {
+    private static final ScheduleRepository INSTANCE = new ScheduleRepository();
+    private final Map<String, DoctorCalendar> calendars = new HashMap<>();
+    private final Map<String, ScheduleFile> files = new HashMap<>();
+
+    /**
+     * The write state of one doctor's schedule file.
+     */
+    private static class ScheduleFile {
+        private final Object writeLock = new Object();
+        private long requested;
+        private long written;
+    }
+
+    /**
+     * Constructs the schedule repository.
+     */
+    private ScheduleRepository() {
+    }
+
+    /**
+     * Gets the shared schedule repository.
+     *
+     * @return The schedule repository instance.
+     */
+    public static ScheduleRepository getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds the calendar of a doctor, loading it from its file on first access.
+     * The file is read without holding the repository lock, so the calendars of
+     * several doctors can be loaded in parallel.
+     *
+     * @param doctorID The doctor's ID.
+     * @return The doctor's calendar.
+     * @throws IOException            If an I/O error occurs or the schedule file does not exist.
+     * @throws ClassNotFoundException If the class is not found.
+     */
+    @SuppressWarnings("unchecked")
+    public DoctorCalendar findByDoctorID(String doctorID) throws IOException, ClassNotFoundException {
+        synchronized (this) {
+            DoctorCalendar calendar = calendars.get(doctorID);
+            if (calendar != null) {
+                return calendar;
+            }
+        }
+        DoctorCalendar loaded;
+        Object stored = SerializationUtil.deserialize(fileName(doctorID));
+        UserRepository users = UserRepository.getInstance();
+        if (stored instanceof List) {
+            loaded = DoctorCalendar.fromSchedule((List<String>) stored, users::findPatientIDByName);
+        } else {
+            loaded = (DoctorCalendar) stored;
+            loaded.resolveNamedBookings(users::findPatientIDByName);
+        }
+        synchronized (this) {
+            // Another thread may have loaded or saved the calendar in the meantime
+            return calendars.computeIfAbsent(doctorID, id -> loaded);
+        }
+    }
+
+    /**
+     * Gets the IDs of the doctors that have a schedule file.
+     *
+     * @return A list of doctor IDs.
+     */
+    public List<String> findStoredDoctorIDs() {
+        List<String> doctorIDs = new ArrayList<>();
+        String[] files = new File(Config.DATABASE_DIR).list();
+        if (files != null) {
+            for (String file : files) {
+                if (file.startsWith("Schedule_") && file.endsWith(".ser")) {
+                    doctorIDs.add(file.substring("Schedule_".length(), file.length() - ".ser".length()));
+                }
+            }
+        }
+        return doctorIDs;
+    }
+
+    /**
+     * Saves the calendar of a doctor and writes it to its file.
+     * The file is written under a lock of its own doctor, not the repository lock,
+     * so bookings with different doctors are written in parallel. Saves of one
+     * doctor that arrive while the file is being written share the next write,
+     * which includes every change made before it starts.
+     * The calendar's free slots are added to the {@link AvailabilityIndex}.
+     *
+     * @param doctorID The doctor's ID.
+     * @param calendar The doctor's calendar.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void save(String doctorID, DoctorCalendar calendar) throws IOException {
+        ScheduleFile file;
+        synchronized (this) {
+            calendars.put(doctorID, calendar);
+            file = files.computeIfAbsent(doctorID, id -> new ScheduleFile());
+        }
+        long request;
+        synchronized (file) {
+            request = ++file.requested;
+        }
+        write(doctorID, file, request);
+        AvailabilityIndex.getInstance().track(doctorID, calendar);
+    }
+
+    /**
+     * Writes a doctor's current calendar to its file, unless a write that started
+     * after the given save request has already done so.
+     *
+     * @param doctorID The doctor's ID.
+     * @param file     The write state of the doctor's file.
+     * @param request  The number of the save request to store.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void write(String doctorID, ScheduleFile file, long request) throws IOException {
+        synchronized (file.writeLock) {
+            long covered;
+            synchronized (file) {
+                if (file.written >= request) {
+                    // A write that started after this save already stored its changes
+                    return;
+                }
+                covered = file.requested;
+            }
+            DoctorCalendar calendar;
+            synchronized (this) {
+                calendar = calendars.get(doctorID);
+            }
+            SerializationUtil.serialize(calendar, fileName(doctorID));
+            synchronized (file) {
+                file.written = covered;
+            }
+        }
+    }
+
+    /**
+     * Gets the name of the schedule file of a doctor.
+     *
+     * @param doctorID The doctor's ID.
+     * @return The schedule file name (without path).
+     */
+    private static String fileName(String doctorID) {
+        return "Schedule_" + doctorID + ".ser";
+    }
+}
@@ -0,0 +1,192 @@
+package repositories;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import models.Appointment;
+import models.AppointmentSeries;
+import utils.Config;
+import utils.IdGenerator;
+
+/**
+ * Shared repository for recurring appointment series.
+ * Series are stored in "series.ser" as a list, one record per series however
+ * many occurrences it has, and are indexed by patient and by doctor. An
+ * occurrence becomes an appointment of its own only when something has to be
+ * recorded for it alone, such as its outcome. The data file is created empty
+ * the first time series are used, so that series can be journaled from the start.
+ */
+public class SeriesRepository extends Repository<AppointmentSeries> {
+    private static final SeriesRepository INSTANCE = new SeriesRepository();
+
+    private final Map<String, Map<String, AppointmentSeries>> byPatient = new HashMap<>();
+    private final Map<String, Map<String, AppointmentSeries>> byDoctor = new HashMap<>();
+    private final IdGenerator ids = new IdGenerator("SER");
+    private volatile boolean idsSeeded;
+
+    /**
+     * Constructs the series repository backed by "series.ser".
+     */
+    private SeriesRepository() {
+        super("series.ser");
+    }
+
+    /**
+     * Gets the shared series repository.
+     *
+     * @return The series repository instance.
+     */
+    public static SeriesRepository getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds the series of a patient.
+     *
+     * @param patientID The patient's ID.
+     * @return A list of the patient's series in the order they were booked.
+     */
+    public synchronized List<AppointmentSeries> findByPatient(String patientID) {
+        records();
+        return new ArrayList<>(byPatient.getOrDefault(patientID, Collections.emptyMap()).values());
+    }
+
+    /**
+     * Finds the series of a doctor with a given status.
+     *
+     * @param doctorID The doctor's ID.
+     * @param status   The status to match.
+     * @return A list of the matching series in the order they were booked.
+     */
+    public synchronized List<AppointmentSeries> findByDoctorAndStatus(String doctorID, String status) {
+        records();
+        List<AppointmentSeries> result = new ArrayList<>();
+        for (AppointmentSeries series : byDoctor.getOrDefault(doctorID, Collections.emptyMap()).values()) {
+            if (series.getStatus().equals(status)) {
+                result.add(series);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets a held occurrence of an accepted series as an appointment of its own.
+     * The appointment takes the occurrence ID and the status of the series. Nothing
+     * is saved; see {@link #expandOccurrence(Appointment)}.
+     *
+     * @param occurrenceID The occurrence ID.
+     * @return The appointment, or null if the ID is not a held occurrence of a confirmed series.
+     */
+    public synchronized Appointment findOccurrence(String occurrenceID) {
+        String seriesID = AppointmentSeries.seriesIDOf(occurrenceID);
+        AppointmentSeries series = seriesID == null ? null : findById(seriesID);
+        int occurrence = AppointmentSeries.occurrenceOf(occurrenceID);
+        if (series == null || !series.getStatus().equals("confirmed") || !series.isHeld(occurrence)) {
+            return null;
+        }
+        return series.toAppointment(occurrence);
+    }
+
+    /**
+     * Turns a held occurrence of an accepted series into an appointment of its own.
+     * The appointment, for example with its outcome recorded, is saved to the
+     * appointment repository, and the series no longer holds the occurrence.
+     * The slot on the doctor's calendar stays booked for the patient.
+     *
+     * @param appointment The appointment made from the occurrence by {@link #findOccurrence}.
+     * @return true if the appointment was saved, false if the occurrence is no longer held.
+     */
+    public boolean expandOccurrence(Appointment appointment) {
+        String seriesID = AppointmentSeries.seriesIDOf(appointment.getAppointmentID());
+        int occurrence = AppointmentSeries.occurrenceOf(appointment.getAppointmentID());
+        AppointmentSeries series = seriesID == null ? null : findById(seriesID);
+        if (series == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (!series.getStatus().equals("confirmed") || !series.isHeld(occurrence)) {
+                return false;
+            }
+            series.release(occurrence);
+        }
+        AppointmentRepository.getInstance().save(appointment);
+        save(series);
+        return true;
+    }
+
+    /**
+     * Allocates a new series ID that is not used by any stored series.
+     * IDs are "SER" followed by a number and sort by creation time.
+     *
+     * @return A new unique series ID.
+     */
+    public String nextSeriesID() {
+        if (!idsSeeded) {
+            records();
+            idsSeeded = true;
+        }
+        return ids.next();
+    }
+
+    @Override
+    protected void loaded() {
+        if (new File(Config.DATABASE_DIR + "series.ser").exists()) {
+            return;
+        }
+        try {
+            saveAll();
+        } catch (IOException e) {
+            System.out.println("Error creating series.ser: " + e.getMessage());
+        }
+    }
+
+    @Override
+    protected void indexRecord(AppointmentSeries series) {
+        ids.observe(series.getSeriesID());
+        byPatient.computeIfAbsent(series.getPatientID(), k -> new LinkedHashMap<>()).put(series.getKey(), series);
+        byDoctor.computeIfAbsent(series.getDoctorID(), k -> new LinkedHashMap<>()).put(series.getKey(), series);
+    }
+
+    @Override
+    protected void unindexRecord(AppointmentSeries series) {
+        unindex(byPatient, series.getPatientID(), series);
+        unindex(byDoctor, series.getDoctorID(), series);
+    }
+
+    /**
+     * Removes a series from one of the indexes.
+     *
+     * @param index  The index.
+     * @param key    The patient or doctor ID the series is indexed under.
+     * @param series The series.
+     */
+    private static void unindex(Map<String, Map<String, AppointmentSeries>> index, String key, AppointmentSeries series) {
+        Map<String, AppointmentSeries> entries = index.get(key);
+        if (entries != null) {
+            entries.remove(series.getKey());
+            if (entries.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Map<String, AppointmentSeries> toRecords(Object snapshot) {
+        Map<String, AppointmentSeries> records = new LinkedHashMap<>();
+        for (AppointmentSeries series : (List<AppointmentSeries>) snapshot) {
+            records.put(series.getKey(), series);
+        }
+        return records;
+    }
+
+    @Override
+    protected Object toSnapshot(Map<String, AppointmentSeries> records) {
+        return new ArrayList<>(records.values());
+    }
+}
@@ -0,0 +1,114 @@
+package repositories;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import models.Doctor;
+import models.Patient;
+import models.User;
+
+/**
+ * Shared repository for all users of the hospital management system.
+ * Users are stored in "users.ser" as a map keyed by user ID.
+ */
+public class UserRepository extends Repository<User> {
+    private static final UserRepository INSTANCE = new UserRepository();
+
+    /**
+     * Constructs the user repository backed by "users.ser".
+     */
+    private UserRepository() {
+        super("users.ser");
+    }
+
+    /**
+     * Gets the shared user repository.
+     *
+     * @return The user repository instance.
+     */
+    public static UserRepository getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds all users with the given role.
+     *
+     * @param role The role to match (e.g., "Patient", "Doctor", etc.).
+     * @return A list of users with the role.
+     */
+    public synchronized List<User> findByRole(String role) {
+        List<User> matches = new ArrayList<>();
+        for (User user : records().values()) {
+            if (user.getRole().equals(role)) {
+                matches.add(user);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds a doctor by user ID.
+     *
+     * @param userID The doctor's ID.
+     * @return The doctor, or null if no doctor has this ID.
+     */
+    public synchronized Doctor findDoctor(String userID) {
+        User user = records().get(userID);
+        return user instanceof Doctor ? (Doctor) user : null;
+    }
+
+    /**
+     * Finds a patient by user ID.
+     *
+     * @param userID The patient's ID.
+     * @return The patient, or null if no patient has this ID.
+     */
+    public synchronized Patient findPatient(String userID) {
+        User user = records().get(userID);
+        return user instanceof Patient ? (Patient) user : null;
+    }
+
+    /**
+     * Finds the ID of a patient by name.
+     * Used only to convert schedules written when bookings were kept by the
+     * patient's name; if several patients share the name, one of them is returned.
+     *
+     * @param name The patient's name.
+     * @return The patient's ID, or null if no patient has this name.
+     */
+    public synchronized String findPatientIDByName(String name) {
+        for (User user : records().values()) {
+            if (user instanceof Patient && user.getName().equals(name)) {
+                return user.getUserID();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds all doctors.
+     *
+     * @return A list of all doctors.
+     */
+    public synchronized List<Doctor> findDoctors() {
+        List<Doctor> doctors = new ArrayList<>();
+        for (User user : records().values()) {
+            if (user instanceof Doctor) {
+                doctors.add((Doctor) user);
+            }
+        }
+        return doctors;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Map<String, User> toRecords(Object snapshot) {
+        return (HashMap<String, User>) snapshot;
+    }
+
+    @Override
+    protected Object toSnapshot(Map<String, User> records) {
+        return records instanceof HashMap ? records : new HashMap<>(records);
+    }
+}
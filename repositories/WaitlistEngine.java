@@ -0,0 +1,207 @@
+package repositories;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import models.Appointment;
+import models.AppointmentSeries;
+import models.DoctorCalendar;
+import models.Patient;
+import models.WaitlistEntry;
+import utils.Config;
+import utils.Metrics;
+
+/**
+ * Engine that fills freed appointment slots from the {@link WaitlistRepository}.
+ * When an appointment is canceled, declined or moved, its time is handed to
+ * {@link #slotFreed}, which returns at once; the offer is made on a single
+ * background thread, so freeing a slot stays as fast as before. The offer
+ * books the time, a standard slot at a time, for the patient who has waited
+ * longest for that doctor or for any doctor, skipping patients who already
+ * have an appointment then, and creates a pending appointment that the doctor
+ * accepts or declines as usual. The patient's waitlist entry is claimed
+ * before the time is booked. Offers still queued when the program exits are
+ * finished before it does.
+ */
+public class WaitlistEngine {
+    private static final WaitlistEngine INSTANCE = new WaitlistEngine();
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+    private final ExecutorService offers = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "waitlist-offers");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructs the waitlist engine.
+     */
+    private WaitlistEngine() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::finishOffers, "waitlist-shutdown"));
+    }
+
+    /**
+     * Gets the shared waitlist engine.
+     *
+     * @return The waitlist engine instance.
+     */
+    public static WaitlistEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Offers freed time to the waitlist in the background.
+     *
+     * @param doctorID  The ID of the doctor whose time freed up.
+     * @param start     The start of the freed time.
+     * @param minutes   The length of the freed time in minutes.
+     * @param freedByID The ID of the patient who gave up the time, who is not offered it again.
+     */
+    public void slotFreed(String doctorID, LocalDateTime start, int minutes, String freedByID) {
+        long queued = System.nanoTime();
+        offers.execute(() -> {
+            Metrics.recordSince("waitlist.queueDelay", queued);
+            long begin = System.nanoTime();
+            try {
+                offer(doctorID, start, minutes, freedByID);
+            } catch (Exception e) {
+                System.out.println("Error offering slot to the waitlist: " + e.getMessage());
+            } finally {
+                Metrics.recordSince("waitlist.offer", begin);
+            }
+        });
+    }
+
+    /**
+     * Books freed time for the waitlist, one appointment of at most a standard slot at a time,
+     * so that a long appointment hands over all of its time. Each appointment goes to the first
+     * eligible patient on the waitlist; patients who cannot be found are skipped.
+     *
+     * @param doctorID  The ID of the doctor whose time freed up.
+     * @param start     The start of the freed time.
+     * @param minutes   The length of the freed time in minutes.
+     * @param freedByID The ID of the patient who gave up the time.
+     * @throws Exception If the doctor's calendar cannot be loaded.
+     */
+    private void offer(String doctorID, LocalDateTime start, int minutes, String freedByID) throws Exception {
+        DoctorCalendar calendar = ScheduleRepository.getInstance().findByDoctorID(doctorID);
+        LocalDateTime end = start.plusMinutes(minutes);
+        LocalDateTime now = LocalDateTime.now();
+        for (LocalDateTime dateTime = start; dateTime.isBefore(end); ) {
+            int length = (int) Math.min(DoctorCalendar.SLOT_MINUTES, Duration.between(dateTime, end).toMinutes());
+            if (!dateTime.isBefore(now)) {
+                offerPart(calendar, doctorID, dateTime, length, freedByID);
+            }
+            dateTime = dateTime.plusMinutes(length + Config.APPOINTMENT_BUFFER_MINUTES);
+        }
+    }
+
+    /**
+     * Books one part of freed time for the first eligible patient on the waitlist.
+     * The patient's entry is claimed by removing it before the time is reserved, so a
+     * patient who leaves the waitlist meanwhile is not booked; it is put back if the
+     * reservation fails.
+     *
+     * @param calendar  The doctor's calendar.
+     * @param doctorID  The ID of the doctor.
+     * @param dateTime  The start of the part.
+     * @param minutes   The length of the part in minutes.
+     * @param freedByID The ID of the patient who gave up the time.
+     * @throws Exception If the calendar cannot be saved.
+     */
+    private void offerPart(DoctorCalendar calendar, String doctorID, LocalDateTime dateTime, int minutes,
+                           String freedByID) throws Exception {
+        AppointmentRepository appointments = AppointmentRepository.getInstance();
+        UserRepository users = UserRepository.getInstance();
+        WaitlistRepository waitlist = WaitlistRepository.getInstance();
+        while (true) {
+            WaitlistEntry entry = waitlist.findNext(doctorID,
+                    candidate -> !candidate.getPatientID().equals(freedByID)
+                            && !hasAppointmentAt(appointments, candidate.getPatientID(), dateTime, minutes));
+            if (entry == null) {
+                return;
+            }
+            if (waitlist.delete(entry.getEntryID()) == null) {
+                // The patient left the waitlist since the entry was found; try the next one
+                continue;
+            }
+            Patient patient = users.findPatient(entry.getPatientID());
+            if (patient == null) {
+                // The patient was removed; the entry is dropped, try the next one
+                continue;
+            }
+            if (!calendar.reserve(dateTime, minutes, Config.APPOINTMENT_BUFFER_MINUTES, patient.getUserID())) {
+                // Someone booked the time directly in the meantime; the patient keeps their place
+                waitlist.save(entry);
+                return;
+            }
+            ScheduleRepository.getInstance().save(doctorID, calendar);
+            Appointment appointment = new Appointment(appointments.nextAppointmentID(), patient.getUserID(),
+                    doctorID, dateTime);
+            appointment.setDurationMinutes(minutes);
+            appointment.setStatus("pending");
+            appointments.save(appointment);
+            Metrics.count("waitlist.filled", 1);
+            return;
+        }
+    }
+
+    /**
+     * Stops taking new offers and waits for the queued ones to finish.
+     */
+    private void finishOffers() {
+        offers.shutdown();
+        try {
+            if (!offers.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                System.out.println("Waitlist offers did not finish before exit.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks whether a pending or confirmed appointment, or series occurrence, of a patient
+     * overlaps a range of time.
+     *
+     * @param appointments The appointment repository.
+     * @param patientID    The patient's ID.
+     * @param start        The start of the range.
+     * @param minutes      The length of the range in minutes.
+     * @return true if the patient has an appointment in the range, false otherwise.
+     */
+    private static boolean hasAppointmentAt(AppointmentRepository appointments, String patientID,
+                                            LocalDateTime start, int minutes) {
+        LocalDateTime end = start.plusMinutes(minutes);
+        for (Appointment appointment : appointments.findByPatient(patientID)) {
+            if (isActive(appointment.getStatus()) && appointment.getDateTime().isBefore(end)
+                    && appointment.getDateTime().plusMinutes(appointment.getDurationMinutes()).isAfter(start)) {
+                return true;
+            }
+        }
+        LocalDateTime earliest = start.minusMinutes(DoctorCalendar.SLOT_MINUTES - 1);
+        for (AppointmentSeries series : SeriesRepository.getInstance().findByPatient(patientID)) {
+            if (!isActive(series.getStatus())) {
+                continue;
+            }
+            for (int occurrence = series.firstOccurrenceFrom(earliest);
+                 occurrence < series.getOccurrenceCount() && series.getOccurrence(occurrence).isBefore(end); occurrence++) {
+                if (series.isHeld(occurrence)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a status still holds time on the calendar.
+     *
+     * @param status The status of an appointment or series.
+     * @return true if the status is "pending" or "confirmed", false otherwise.
+     */
+    static boolean isActive(String status) {
+        return "pending".equals(status) || "confirmed".equals(status);
+    }
+}
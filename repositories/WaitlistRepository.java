@@ -0,0 +1,227 @@
+package repositories;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import models.WaitlistEntry;
+import utils.Config;
+import utils.IdGenerator;
+
+/**
+ * Shared repository for the patients waiting for appointment slots to free up.
+ * Entries are stored in "waitlist.ser" as a list. Each doctor has a priority
+ * queue of the patients waiting for that doctor, and there is one more queue
+ * of the patients waiting for any doctor. Both are ordered by the time the
+ * patient joined, so the next patient for a freed slot is found by comparing
+ * the heads of two sorted sets, in logarithmic time. Entries are also indexed
+ * by patient. The data file is created empty the first time the waitlist is
+ * used, so that entries can be journaled from the start.
+ */
+public class WaitlistRepository extends Repository<WaitlistEntry> {
+    private static final WaitlistRepository INSTANCE = new WaitlistRepository();
+    private static final Comparator<WaitlistEntry> PRIORITY =
+            Comparator.comparing(WaitlistEntry::getJoinedAt).thenComparing(WaitlistEntry::getEntryID);
+
+    private final Map<String, NavigableSet<WaitlistEntry>> byDoctor = new HashMap<>();
+    private final NavigableSet<WaitlistEntry> anyDoctor = new TreeSet<>(PRIORITY);
+    private final Map<String, Map<String, WaitlistEntry>> byPatient = new HashMap<>();
+    private final IdGenerator ids = new IdGenerator("WL");
+    private volatile boolean idsSeeded;
+
+    /**
+     * Constructs the waitlist repository backed by "waitlist.ser".
+     */
+    private WaitlistRepository() {
+        super("waitlist.ser");
+    }
+
+    /**
+     * Gets the shared waitlist repository.
+     *
+     * @return The waitlist repository instance.
+     */
+    public static WaitlistRepository getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds the waitlist entries of a patient.
+     *
+     * @param patientID The patient's ID.
+     * @return A list of the patient's entries in the order they were joined.
+     */
+    public synchronized List<WaitlistEntry> findByPatient(String patientID) {
+        records();
+        List<WaitlistEntry> entries = new ArrayList<>(byPatient.getOrDefault(patientID, Collections.emptyMap()).values());
+        entries.sort(PRIORITY);
+        return entries;
+    }
+
+    /**
+     * Checks whether a patient is already waiting for a doctor, or for any doctor.
+     *
+     * @param patientID The patient's ID.
+     * @param doctorID  The doctor's ID, or null for any doctor.
+     * @return true if the patient has a matching entry, false otherwise.
+     */
+    public synchronized boolean isWaiting(String patientID, String doctorID) {
+        records();
+        for (WaitlistEntry entry : byPatient.getOrDefault(patientID, Collections.emptyMap()).values()) {
+            if (doctorID == null ? entry.getDoctorID() == null : doctorID.equals(entry.getDoctorID())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the patient who has waited longest for a slot with a doctor, among
+     * those waiting for that doctor and those waiting for any doctor.
+     * Entries that are not eligible for the slot are skipped and stay in the queues.
+     * The eligibility check may lock other repositories, so it runs outside the
+     * waitlist lock: each step takes the next head of the two queues under the lock,
+     * in logarithmic time, and tests it after releasing the lock.
+     *
+     * @param doctorID The doctor whose slot freed up.
+     * @param eligible Whether an entry's patient can take the slot.
+     * @return The first eligible entry, or null if no patient can take the slot.
+     */
+    public WaitlistEntry findNext(String doctorID, Predicate<WaitlistEntry> eligible) {
+        WaitlistEntry afterDoctor = null;
+        WaitlistEntry afterAny = null;
+        while (true) {
+            WaitlistEntry candidate = nextCandidate(doctorID, afterDoctor, afterAny);
+            if (candidate == null || eligible.test(candidate)) {
+                return candidate;
+            }
+            if (candidate.getDoctorID() == null) {
+                afterAny = candidate;
+            } else {
+                afterDoctor = candidate;
+            }
+        }
+    }
+
+    /**
+     * Allocates a new waitlist entry ID that is not used by any stored entry.
+     * IDs are "WL" followed by a number and sort by creation time.
+     *
+     * @return A new unique entry ID.
+     */
+    public String nextEntryID() {
+        if (!idsSeeded) {
+            records();
+            idsSeeded = true;
+        }
+        return ids.next();
+    }
+
+    @Override
+    protected void loaded() {
+        if (new File(Config.DATABASE_DIR + "waitlist.ser").exists()) {
+            return;
+        }
+        try {
+            saveAll();
+        } catch (IOException e) {
+            System.out.println("Error creating waitlist.ser: " + e.getMessage());
+        }
+    }
+
+    @Override
+    protected void indexRecord(WaitlistEntry entry) {
+        ids.observe(entry.getEntryID());
+        queueOf(entry).add(entry);
+        byPatient.computeIfAbsent(entry.getPatientID(), k -> new LinkedHashMap<>()).put(entry.getKey(), entry);
+    }
+
+    @Override
+    protected void unindexRecord(WaitlistEntry entry) {
+        NavigableSet<WaitlistEntry> queue = queueOf(entry);
+        queue.remove(entry);
+        if (queue.isEmpty() && entry.getDoctorID() != null) {
+            byDoctor.remove(entry.getDoctorID());
+        }
+        Map<String, WaitlistEntry> entries = byPatient.get(entry.getPatientID());
+        if (entries != null) {
+            entries.remove(entry.getKey());
+            if (entries.isEmpty()) {
+                byPatient.remove(entry.getPatientID());
+            }
+        }
+    }
+
+    /**
+     * Gets the queue an entry belongs to.
+     *
+     * @param entry The entry.
+     * @return The queue of the entry's doctor, or the any-doctor queue.
+     */
+    private NavigableSet<WaitlistEntry> queueOf(WaitlistEntry entry) {
+        if (entry.getDoctorID() == null) {
+            return anyDoctor;
+        }
+        return byDoctor.computeIfAbsent(entry.getDoctorID(), k -> new TreeSet<>(PRIORITY));
+    }
+
+    /**
+     * Gets the entry that has waited longest among those after the given entries
+     * in the doctor's queue and in the any-doctor queue.
+     *
+     * @param doctorID    The doctor whose slot freed up.
+     * @param afterDoctor The last entry already tested from the doctor's queue, or null to start at its head.
+     * @param afterAny    The last entry already tested from the any-doctor queue, or null to start at its head.
+     * @return The next entry, or null if both queues are exhausted.
+     */
+    private synchronized WaitlistEntry nextCandidate(String doctorID, WaitlistEntry afterDoctor, WaitlistEntry afterAny) {
+        records();
+        WaitlistEntry doctorHead = after(byDoctor.get(doctorID), afterDoctor);
+        WaitlistEntry anyHead = after(anyDoctor, afterAny);
+        if (doctorHead == null) {
+            return anyHead;
+        }
+        if (anyHead == null) {
+            return doctorHead;
+        }
+        return PRIORITY.compare(doctorHead, anyHead) <= 0 ? doctorHead : anyHead;
+    }
+
+    /**
+     * Gets the first entry of a queue after a given entry. The given entry may
+     * have left the queue since; the search is by priority, not by identity.
+     *
+     * @param queue The queue, or null if there is none.
+     * @param last  The entry to search after, or null to get the head.
+     * @return The next entry, or null if there is none.
+     */
+    private static WaitlistEntry after(NavigableSet<WaitlistEntry> queue, WaitlistEntry last) {
+        if (queue == null || queue.isEmpty()) {
+            return null;
+        }
+        return last == null ? queue.first() : queue.higher(last);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Map<String, WaitlistEntry> toRecords(Object snapshot) {
+        Map<String, WaitlistEntry> records = new LinkedHashMap<>();
+        for (WaitlistEntry entry : (List<WaitlistEntry>) snapshot) {
+            records.put(entry.getKey(), entry);
+        }
+        return records;
+    }
+
+    @Override
+    protected Object toSnapshot(Map<String, WaitlistEntry> records) {
+        return new ArrayList<>(records.values());
+    }
+}
@@ -0,0 +1,570 @@
+package utils;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import models.Administrator;
+import models.Appointment;
+import models.AppointmentOutcome;
+import models.AppointmentRequest;
+import models.AppointmentSeries;
+import models.Doctor;
+import models.DoctorCalendar;
+import models.InventoryItem;
+import models.MedicalRecord;
+import models.Patient;
+import models.Pharmacist;
+import models.Prescription;
+import models.WaitlistEntry;
+
+/**
+ * Compact binary encoding of the data files.
+ * Each model class writes its own fields with {@code writeTo} and reads them
+ * back with a static {@code readFrom}, starting with a layout version so the
+ * layout can change without breaking older files. This class writes the
+ * type tags that let a file hold lists, maps and the different kinds of
+ * records, and provides the shared helpers for strings, lists and dates.
+ * Compared with Java serialization, no class descriptors or field names are
+ * written and no reflection is used when reading. Lengths and dates are
+ * written as variable-length integers, and when writing to an {@link Output}
+ * each short string is written once and then referred to by its number, so
+ * repeated IDs, names and statuses cost one or two bytes each.
+ */
+public class BinaryCodec {
+
+    /**
+     * The first four bytes of every file in this format ("HMSB").
+     */
+    public static final int MAGIC = 0x484D5342;
+
+    /**
+     * The version of the file layout written after the magic number.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_LIST = 1;
+    private static final int TAG_MAP = 2;
+    private static final int TAG_STRING = 3;
+    private static final int TAG_APPOINTMENT = 10;
+    private static final int TAG_OUTCOME = 11;
+    private static final int TAG_PRESCRIPTION = 12;
+    private static final int TAG_INVENTORY_ITEM = 13;
+    private static final int TAG_MEDICAL_RECORD = 14;
+    private static final int TAG_WAITLIST_ENTRY = 15;
+    private static final int TAG_APPOINTMENT_SERIES = 16;
+    private static final int TAG_APPOINTMENT_REQUEST = 17;
+    private static final int TAG_ADMINISTRATOR = 20;
+    private static final int TAG_DOCTOR = 21;
+    private static final int TAG_PATIENT = 22;
+    private static final int TAG_PHARMACIST = 23;
+    private static final int TAG_CALENDAR = 30;
+    private static final int MAX_SHARED_STRING_BYTES = 32;
+
+    /**
+     * Data output that writes each short string in full only once.
+     * Later copies of the string are written as a reference to the first.
+     */
+    public static class Output extends DataOutputStream {
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        /**
+         * Constructs an output that writes to the given stream.
+         *
+         * @param out The underlying stream.
+         */
+        public Output(OutputStream out) {
+            super(out);
+        }
+    }
+
+    /**
+     * Data input that reads the string references written by an {@link Output}.
+     */
+    public static class Input extends DataInputStream {
+        private final List<String> strings = new ArrayList<>();
+
+        /**
+         * Constructs an input that reads from the given stream.
+         *
+         * @param in The underlying stream.
+         */
+        public Input(InputStream in) {
+            super(in);
+        }
+    }
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private BinaryCodec() {
+    }
+
+    /**
+     * Checks whether a value can be written in this format.
+     * Lists and maps are supported when every element is supported.
+     *
+     * @param value The value to check.
+     * @return true if {@link #writeValue} can write the value, false otherwise.
+     */
+    public static boolean canEncode(Object value) {
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                if (!canEncode(element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!(entry.getKey() instanceof String) || !canEncode(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return tagOf(value) >= 0;
+    }
+
+    /**
+     * Writes the file header followed by a value.
+     *
+     * @param out   The output to write to.
+     * @param value The value to write.
+     * @throws IOException If an I/O error occurs or the value cannot be encoded.
+     */
+    public static void writeFile(DataOutput out, Object value) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        writeValue(out, value);
+    }
+
+    /**
+     * Reads a value written by {@link #writeFile}, after the magic number has been read.
+     *
+     * @param in The input to read from.
+     * @return The value.
+     * @throws IOException If an I/O error occurs or the file version is not supported.
+     */
+    public static Object readFile(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported data file version " + version);
+        }
+        return readValue(in);
+    }
+
+    /**
+     * Writes a tagged value.
+     *
+     * @param out   The output to write to.
+     * @param value The value to write, which may be null.
+     * @throws IOException If an I/O error occurs or the value cannot be encoded.
+     */
+    public static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(TAG_LIST);
+            writeVarInt(out, list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+            return;
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(TAG_MAP);
+            writeVarInt(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeString(out, (String) entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+            return;
+        }
+
+        int tag = tagOf(value);
+        if (tag < 0) {
+            throw new IOException("Cannot encode " + value.getClass().getName());
+        }
+        out.writeByte(tag);
+        switch (tag) {
+            case TAG_NULL:
+                break;
+            case TAG_STRING:
+                writeString(out, (String) value);
+                break;
+            case TAG_APPOINTMENT:
+                ((Appointment) value).writeTo(out);
+                break;
+            case TAG_OUTCOME:
+                ((AppointmentOutcome) value).writeTo(out);
+                break;
+            case TAG_PRESCRIPTION:
+                ((Prescription) value).writeTo(out);
+                break;
+            case TAG_INVENTORY_ITEM:
+                ((InventoryItem) value).writeTo(out);
+                break;
+            case TAG_MEDICAL_RECORD:
+                ((MedicalRecord) value).writeTo(out);
+                break;
+            case TAG_WAITLIST_ENTRY:
+                ((WaitlistEntry) value).writeTo(out);
+                break;
+            case TAG_APPOINTMENT_SERIES:
+                ((AppointmentSeries) value).writeTo(out);
+                break;
+            case TAG_APPOINTMENT_REQUEST:
+                ((AppointmentRequest) value).writeTo(out);
+                break;
+            case TAG_ADMINISTRATOR:
+                ((Administrator) value).writeTo(out);
+                break;
+            case TAG_DOCTOR:
+                ((Doctor) value).writeTo(out);
+                break;
+            case TAG_PATIENT:
+                ((Patient) value).writeTo(out);
+                break;
+            case TAG_PHARMACIST:
+                ((Pharmacist) value).writeTo(out);
+                break;
+            default:
+                ((DoctorCalendar) value).writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a tagged value written by {@link #writeValue}.
+     * Lists are read as {@link ArrayList} and maps as {@link HashMap}.
+     *
+     * @param in The input to read from.
+     * @return The value, which may be null.
+     * @throws IOException If an I/O error occurs or the tag is unknown.
+     */
+    public static Object readValue(DataInput in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_LIST: {
+                int size = readVarInt(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case TAG_MAP: {
+                int size = readVarInt(in);
+                Map<String, Object> map = new HashMap<>(size * 4 / 3 + 1);
+                for (int i = 0; i < size; i++) {
+                    String key = readString(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            case TAG_STRING:
+                return readString(in);
+            case TAG_APPOINTMENT:
+                return Appointment.readFrom(in);
+            case TAG_OUTCOME:
+                return AppointmentOutcome.readFrom(in);
+            case TAG_PRESCRIPTION:
+                return Prescription.readFrom(in);
+            case TAG_INVENTORY_ITEM:
+                return InventoryItem.readFrom(in);
+            case TAG_MEDICAL_RECORD:
+                return MedicalRecord.readFrom(in);
+            case TAG_WAITLIST_ENTRY:
+                return WaitlistEntry.readFrom(in);
+            case TAG_APPOINTMENT_SERIES:
+                return AppointmentSeries.readFrom(in);
+            case TAG_APPOINTMENT_REQUEST:
+                return AppointmentRequest.readFrom(in);
+            case TAG_ADMINISTRATOR:
+                return Administrator.readFrom(in);
+            case TAG_DOCTOR:
+                return Doctor.readFrom(in);
+            case TAG_PATIENT:
+                return Patient.readFrom(in);
+            case TAG_PHARMACIST:
+                return Pharmacist.readFrom(in);
+            case TAG_CALENDAR:
+                return DoctorCalendar.readFrom(in);
+            default:
+                throw new IOException("Unknown record tag " + tag);
+        }
+    }
+
+    /**
+     * Checks the layout version at the start of a record.
+     *
+     * @param in         The input to read from.
+     * @param recordType The name of the record type, for the error message.
+     * @param latest     The latest layout version this code can read.
+     * @return The layout version of the record.
+     * @throws IOException If an I/O error occurs or the version is newer than this code.
+     */
+    public static int readVersion(DataInput in, String recordType, int latest) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > latest) {
+            throw new IOException("Unsupported " + recordType + " layout version " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Writes a string that may be null.
+     * The string is written as a header followed by its UTF-8 bytes, where the
+     * header is 0 for null and twice the byte length plus two otherwise. On an
+     * {@link Output}, a short string that was written before is instead written
+     * as the odd header {@code 2 * number + 1}, where number is the order in
+     * which it was first written.
+     *
+     * @param out   The output to write to.
+     * @param value The string, or null.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        Map<String, Integer> strings = out instanceof Output ? ((Output) out).strings : null;
+        if (strings != null) {
+            Integer number = strings.get(value);
+            if (number != null) {
+                writeVarInt(out, (number << 1) | 1);
+                return;
+            }
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, (bytes.length + 1) << 1);
+        out.write(bytes);
+        if (strings != null && bytes.length <= MAX_SHARED_STRING_BYTES) {
+            strings.put(value, strings.size());
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     *
+     * @param in The input to read from.
+     * @return The string, or null.
+     * @throws IOException If an I/O error occurs or a string reference is not valid.
+     */
+    public static String readString(DataInput in) throws IOException {
+        int header = readVarInt(in);
+        if (header == 0) {
+            return null;
+        }
+        List<String> strings = in instanceof Input ? ((Input) in).strings : null;
+        if ((header & 1) != 0) {
+            int number = header >>> 1;
+            if (strings == null || number >= strings.size()) {
+                throw new IOException("Invalid string reference " + number);
+            }
+            return strings.get(number);
+        }
+        byte[] bytes = new byte[(header >>> 1) - 1];
+        in.readFully(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        if (strings != null && bytes.length <= MAX_SHARED_STRING_BYTES) {
+            strings.add(value);
+        }
+        return value;
+    }
+
+    /**
+     * Writes a non-negative integer in one to five bytes, seven bits at a time.
+     *
+     * @param out   The output to write to.
+     * @param value The integer, treated as unsigned.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads an integer written by {@link #writeVarInt}.
+     *
+     * @param in The input to read from.
+     * @return The integer.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    /**
+     * Writes a long in one to ten bytes, seven bits at a time, using zig-zag
+     * encoding so that small negative values are also short.
+     *
+     * @param out   The output to write to.
+     * @param value The long.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        long bits = (value << 1) ^ (value >> 63);
+        while ((bits & ~0x7FL) != 0) {
+            out.writeByte((int) ((bits & 0x7F) | 0x80));
+            bits >>>= 7;
+        }
+        out.writeByte((int) bits);
+    }
+
+    /**
+     * Reads a long written by {@link #writeVarLong}.
+     *
+     * @param in The input to read from.
+     * @return The long.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static long readVarLong(DataInput in) throws IOException {
+        long bits = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.readUnsignedByte();
+            bits |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (bits >>> 1) ^ -(bits & 1);
+            }
+        }
+        throw new IOException("Malformed variable-length long");
+    }
+
+    /**
+     * Writes a list of strings that may be null.
+     *
+     * @param out    The output to write to.
+     * @param values The strings, or null.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeStringList(DataOutput out, List<String> values) throws IOException {
+        if (values == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, values.size() + 1);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    /**
+     * Reads a list of strings written by {@link #writeStringList}.
+     *
+     * @param in The input to read from.
+     * @return The strings, or null.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static List<String> readStringList(DataInput in) throws IOException {
+        int size = readVarInt(in) - 1;
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    /**
+     * Writes a date and time that may be null, as seconds and nanoseconds since the epoch.
+     *
+     * @param out      The output to write to.
+     * @param dateTime The date and time, or null.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeDateTime(DataOutput out, LocalDateTime dateTime) throws IOException {
+        if (dateTime == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        writeVarLong(out, dateTime.toEpochSecond(ZoneOffset.UTC));
+        writeVarInt(out, dateTime.getNano());
+    }
+
+    /**
+     * Reads a date and time written by {@link #writeDateTime}.
+     *
+     * @param in The input to read from.
+     * @return The date and time, or null.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long seconds = readVarLong(in);
+        return LocalDateTime.ofEpochSecond(seconds, readVarInt(in), ZoneOffset.UTC);
+    }
+
+    /**
+     * Gets the tag of a value that is not a list or map.
+     *
+     * @param value The value.
+     * @return The tag, or -1 if the value cannot be encoded.
+     */
+    private static int tagOf(Object value) {
+        if (value == null) {
+            return TAG_NULL;
+        } else if (value instanceof String) {
+            return TAG_STRING;
+        } else if (value instanceof Appointment) {
+            return TAG_APPOINTMENT;
+        } else if (value instanceof AppointmentOutcome) {
+            return TAG_OUTCOME;
+        } else if (value instanceof Prescription) {
+            return TAG_PRESCRIPTION;
+        } else if (value instanceof InventoryItem) {
+            return TAG_INVENTORY_ITEM;
+        } else if (value instanceof MedicalRecord) {
+            return TAG_MEDICAL_RECORD;
+        } else if (value instanceof WaitlistEntry) {
+            return TAG_WAITLIST_ENTRY;
+        } else if (value instanceof AppointmentSeries) {
+            return TAG_APPOINTMENT_SERIES;
+        } else if (value instanceof AppointmentRequest) {
+            return TAG_APPOINTMENT_REQUEST;
+        } else if (value.getClass() == Administrator.class) {
+            return TAG_ADMINISTRATOR;
+        } else if (value.getClass() == Doctor.class) {
+            return TAG_DOCTOR;
+        } else if (value.getClass() == Patient.class) {
+            return TAG_PATIENT;
+        } else if (value.getClass() == Pharmacist.class) {
+            return TAG_PHARMACIST;
+        } else if (value instanceof DoctorCalendar) {
+            return TAG_CALENDAR;
+        }
+        return -1;
+    }
+}
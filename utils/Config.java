@@ -18,6 +18,67 @@ public class Config {
      */
     public static final String DATABASE_DIR = new File("src/database/").getAbsolutePath() + File.separator;
 
+    /**
+     * Whether data files are written in the compact {@link BinaryCodec} format.
+     * Set to false to write standard Java serialization files instead, for example
+     * to inspect them with jdeserialize. Files in either format can always be read.
+     */
+    public static final boolean BINARY_FORMAT = true;
+
+    /**
+     * How hard writes to data files try to survive a crash or power loss.
+     * Can be overridden with the system property "hms.durability"
+     * (e.g. {@code java -Dhms.durability=per_write ...}).
+     */
+    public static final Durability DURABILITY =
+            Durability.valueOf(System.getProperty("hms.durability", "batched").toUpperCase());
+
+    /**
+     * The file that {@link Metrics} writes its report to while the system runs.
+     */
+    public static final String METRICS_FILE = DATABASE_DIR + "metrics.txt";
+
+    /**
+     * How often, in seconds, the metrics report is written to {@link #METRICS_FILE}.
+     * Can be overridden with the system property "hms.metrics.interval"; 0 writes
+     * the report only when the program exits.
+     */
+    public static final long METRICS_INTERVAL_SECONDS = Long.getLong("hms.metrics.interval", 60);
+
+    /**
+     * How many days ahead, counting today, a new doctor schedule can be booked.
+     * The horizon rolls forward every day. Can be overridden with the system
+     * property "hms.schedule.horizon".
+     */
+    public static final int SCHEDULE_HORIZON_DAYS = Integer.getInteger("hms.schedule.horizon", 28);
+
+    /**
+     * The largest number of occurrences a recurring appointment series can have.
+     * Can be overridden with the system property "hms.series.maxOccurrences".
+     */
+    public static final int SERIES_MAX_OCCURRENCES = Integer.getInteger("hms.series.maxOccurrences", 52);
+
+    /**
+     * The minutes kept free after an appointment that is not a whole slot on the
+     * hourly grid, for example to prepare the room. Can be overridden with the
+     * system property "hms.appointment.buffer".
+     */
+    public static final int APPOINTMENT_BUFFER_MINUTES = Integer.getInteger("hms.appointment.buffer", 0);
+
+    /**
+     * Durability levels for writes to data files.
+     * Snapshots are always written to a temporary file and renamed over the old
+     * file, so a crash never leaves a half-written snapshot behind.
+     */
+    public enum Durability {
+        /** Nothing is flushed to disk; the operating system writes the data back in its own time. */
+        NONE,
+        /** Snapshots are flushed, and journal entries saved at the same time share one flush. */
+        BATCHED,
+        /** Snapshots and every single journal entry are flushed before the save returns. */
+        PER_WRITE
+    }
+
     // Static block to ensure the database directory exists
     static {
         File dbDir = new File(DATABASE_DIR);
@@ -0,0 +1,173 @@
+package utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events for the operations of the hospital management system.
+ * The events show up in a recording under the "Hospital Management System" category,
+ * next to the JVM's own events, so a slow booking or login can be traced to the
+ * file, search or dispensing step that took the time. Start a recording with
+ * {@code java -XX:StartFlightRecording=filename=hms.jfr ...} or with {@code jcmd <pid> JFR.start}.
+ * When no recording is running an event is never committed, and creating and
+ * timing it costs next to nothing.
+ */
+public class FlightEvents {
+
+    /**
+     * Prevents instantiation of this holder class.
+     */
+    private FlightEvents() {
+    }
+
+    /**
+     * A data file was read and its journal replayed.
+     */
+    @Name("hms.FileLoad")
+    @Label("File Load")
+    @Category({"Hospital Management System", "Persistence"})
+    @Description("A data file was read from disk")
+    public static class FileLoad extends Event {
+        /** The name of the data file. */
+        @Label("File Name")
+        public String fileName;
+
+        /** The bytes read from the snapshot and its journal. */
+        @Label("Bytes Read")
+        @DataAmount
+        public long bytes;
+    }
+
+    /**
+     * A snapshot of a data file was written.
+     */
+    @Name("hms.FileSave")
+    @Label("File Save")
+    @Category({"Hospital Management System", "Persistence"})
+    @Description("A new snapshot of a data file was written to disk")
+    public static class FileSave extends Event {
+        /** The name of the data file. */
+        @Label("File Name")
+        public String fileName;
+
+        /** The size of the snapshot. */
+        @Label("Bytes Written")
+        @DataAmount
+        public long bytes;
+    }
+
+    /**
+     * Entries were written to the end of a journal or ledger in one write.
+     */
+    @Name("hms.JournalWrite")
+    @Label("Journal Write")
+    @Category({"Hospital Management System", "Persistence"})
+    @Description("Entries were appended to a journal file and possibly flushed to disk")
+    public static class JournalWrite extends Event {
+        /** The path of the journal file. */
+        @Label("File Name")
+        public String fileName;
+
+        /** The number of entries written together. */
+        @Label("Entries")
+        public int entries;
+
+        /** The bytes written. */
+        @Label("Bytes Written")
+        @DataAmount
+        public long bytes;
+
+        /** Whether the file was flushed to disk. */
+        @Label("Flushed")
+        public boolean flushed;
+    }
+
+    /**
+     * Free appointment slots were searched for.
+     */
+    @Name("hms.ScheduleSearch")
+    @Label("Schedule Search")
+    @Category({"Hospital Management System", "Scheduling"})
+    @Description("The availability index was searched for free slots")
+    public static class ScheduleSearch extends Event {
+        /** The specialty searched, or null for all doctors. */
+        @Label("Specialty")
+        public String specialty;
+
+        /** The earliest start time searched. */
+        @Label("After")
+        public String after;
+
+        /** The maximum number of slots asked for. */
+        @Label("Requested")
+        public int requested;
+
+        /** The number of slots found. */
+        @Label("Found")
+        public int found;
+    }
+
+    /**
+     * A patient could not book a slot.
+     */
+    @Name("hms.BookingConflict")
+    @Label("Booking Conflict")
+    @Category({"Hospital Management System", "Scheduling"})
+    @Description("A booking was refused because the slot was taken or the patient was already booked")
+    public static class BookingConflict extends Event {
+        /** The doctor's ID. */
+        @Label("Doctor ID")
+        public String doctorID;
+
+        /** The patient's ID. */
+        @Label("Patient ID")
+        public String patientID;
+
+        /** The start of the slot. */
+        @Label("Slot")
+        public String slot;
+
+        /** Why the booking was refused. */
+        @Label("Reason")
+        public String reason;
+    }
+
+    /**
+     * A pharmacist tried to dispense a prescription.
+     */
+    @Name("hms.Dispense")
+    @Label("Dispense")
+    @Category({"Hospital Management System", "Pharmacy"})
+    @Description("A prescription was dispensed from stock, or could not be")
+    public static class Dispense extends Event {
+        /** The name of the medication. */
+        @Label("Medication")
+        public String medication;
+
+        /** The quantity prescribed. */
+        @Label("Quantity")
+        public int quantity;
+
+        /** The ID of the appointment the prescription belongs to. */
+        @Label("Appointment ID")
+        public String appointmentID;
+
+        /** What happened: "dispensed", "not in inventory", "insufficient stock" or "already dispensed". */
+        @Label("Result")
+        public String result;
+    }
+
+    /**
+     * A password was hashed, when a user logs in or sets a new password.
+     */
+    @Name("hms.PasswordHash")
+    @Label("Password Hash")
+    @Category({"Hospital Management System", "Security"})
+    @Description("A password was hashed with its salt")
+    public static class PasswordHash extends Event {
+    }
+}
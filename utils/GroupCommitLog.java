@@ -0,0 +1,221 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Append-only log file with group commit.
+ * Entries are queued with {@link #append} and become durable when the returned
+ * {@link Commit} is awaited. With {@link Config.Durability#BATCHED}, the first thread
+ * to wait becomes the leader: it writes every entry queued so far in one write and
+ * flushes them to disk with a single fsync, while the other threads wait for it.
+ * Entries queued during that flush go out together in the next one, so the number
+ * of flushes stays low however many threads are saving at once. With
+ * {@link Config.Durability#PER_WRITE} every entry is written and flushed as it is
+ * appended, and with {@link Config.Durability#NONE} entries are written but never flushed.
+ */
+public class GroupCommitLog {
+    private final Path path;
+    private final Config.Durability durability;
+    private final Supplier<byte[]> header;
+    private final Object lock = new Object();
+    private FileChannel channel;
+    private Commit current = new Commit();
+    private boolean flushing;
+
+    /**
+     * A group of appended entries that are written and flushed together.
+     */
+    public final class Commit {
+        private final List<ByteBuffer> entries = new ArrayList<>();
+        private boolean done;
+        private IOException error;
+
+        /**
+         * Constructs an empty group.
+         */
+        private Commit() {
+        }
+
+        /**
+         * Waits until the entries of this group are written with the log's durability.
+         * If no other thread is writing the log, the calling thread writes the group itself.
+         *
+         * @throws IOException If the entries could not be written.
+         */
+        public void await() throws IOException {
+            synchronized (lock) {
+                while (!done) {
+                    if (!flushing) {
+                        // Only the current group can be unwritten while nobody is flushing
+                        flushing = true;
+                        current = new Commit();
+                        break;
+                    }
+                    waitForLog();
+                }
+                if (done) {
+                    if (error != null) {
+                        throw new IOException("Group commit failed: " + error.getMessage(), error);
+                    }
+                    return;
+                }
+            }
+
+            IOException failure = null;
+            try {
+                write(entries, durability == Config.Durability.BATCHED);
+            } catch (IOException e) {
+                failure = e;
+            }
+            synchronized (lock) {
+                error = failure;
+                done = true;
+                flushing = false;
+                lock.notifyAll();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Constructs a log. The file is created when the first entry is written.
+     *
+     * @param path       The path of the log file.
+     * @param durability How entries are flushed to disk.
+     * @param header     Supplies the bytes written at the start of a new log file, or null for none.
+     */
+    public GroupCommitLog(Path path, Config.Durability durability, Supplier<byte[]> header) {
+        this.path = path;
+        this.durability = durability;
+        this.header = header;
+    }
+
+    /**
+     * Queues an entry to be written to the end of the log.
+     * The order of appends is the order of the entries in the file. Unless the log
+     * uses {@link Config.Durability#BATCHED}, the entry is written before this returns.
+     *
+     * @param entry The bytes of the entry.
+     * @return The group the entry belongs to, to be awaited for durability.
+     * @throws IOException If the entry could not be written.
+     */
+    public Commit append(byte[] entry) throws IOException {
+        synchronized (lock) {
+            if (durability != Config.Durability.BATCHED) {
+                Commit commit = new Commit();
+                commit.done = true;
+                write(List.of(ByteBuffer.wrap(entry)), durability == Config.Durability.PER_WRITE);
+                return commit;
+            }
+            current.entries.add(ByteBuffer.wrap(entry));
+            return current;
+        }
+    }
+
+    /**
+     * Deletes the log file once its entries have been saved elsewhere, such as in a new snapshot.
+     * Entries that are queued but not yet written are dropped, and their commits complete successfully.
+     *
+     * @throws IOException If the file could not be deleted.
+     */
+    public void clear() throws IOException {
+        synchronized (lock) {
+            while (flushing) {
+                waitForLog();
+            }
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            Files.deleteIfExists(path);
+            current.done = true;
+            current = new Commit();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Writes entries to the end of the file, opening it first if needed.
+     *
+     * @param entries The entries to write.
+     * @param sync    Whether to flush the file to disk afterwards.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void write(List<ByteBuffer> entries, boolean sync) throws IOException {
+        FlightEvents.JournalWrite event = new FlightEvents.JournalWrite();
+        event.begin();
+        FileChannel out = open();
+        ByteBuffer[] buffers = entries.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        long bytes = remaining;
+        while (remaining > 0) {
+            remaining -= out.write(buffers);
+        }
+        if (sync) {
+            out.force(false);
+        }
+        if (event.shouldCommit()) {
+            event.fileName = path.getFileName().toString();
+            event.entries = buffers.length;
+            event.bytes = bytes;
+            event.flushed = sync;
+            event.commit();
+        }
+    }
+
+    /**
+     * Opens the log file for appending if it is not open yet.
+     * A new file starts with the header, and its directory entry is flushed unless durability is off.
+     *
+     * @return The open channel.
+     * @throws IOException If an I/O error occurs.
+     */
+    private FileChannel open() throws IOException {
+        synchronized (lock) {
+            if (channel == null) {
+                boolean created = !Files.exists(path);
+                channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                if (channel.size() == 0 && header != null) {
+                    ByteBuffer start = ByteBuffer.wrap(header.get());
+                    while (start.hasRemaining()) {
+                        channel.write(start);
+                    }
+                }
+                if (created && durability != Config.Durability.NONE) {
+                    channel.force(false);
+                    SerializationUtil.syncDirectory(path.toAbsolutePath().getParent());
+                }
+            }
+            return channel;
+        }
+    }
+
+    /**
+     * Waits for the log's state to change. Must be called while holding the lock.
+     *
+     * @throws InterruptedIOException If the thread is interrupted while waiting.
+     */
+    private void waitForLog() throws InterruptedIOException {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the log");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of unique, time-ordered record IDs.
+ * Each ID is a prefix followed by a number made of the current time in
+ * milliseconds shifted left by {@value #SEQUENCE_BITS} bits, plus a sequence
+ * number within that millisecond. IDs are allocated with a single
+ * compare-and-set, so any number of threads can take IDs without locking
+ * and without ever getting the same ID twice. If more than
+ * {@code 2^SEQUENCE_BITS} IDs are taken in one millisecond, or the clock
+ * goes backwards, the generator keeps counting up from the last ID it issued.
+ * Numbers issued later are always larger, so IDs sort by creation order.
+ */
+public class IdGenerator {
+    private static final int SEQUENCE_BITS = 12;
+
+    private final String prefix;
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * Constructs an ID generator.
+     *
+     * @param prefix The prefix of every generated ID (e.g., "APT").
+     */
+    public IdGenerator(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Generates the next ID.
+     *
+     * @return A new ID that has not been issued or observed before.
+     */
+    public String next() {
+        return prefix + nextNumber();
+    }
+
+    /**
+     * Generates the number part of the next ID.
+     *
+     * @return A number larger than any number issued or observed before.
+     */
+    public long nextNumber() {
+        long candidate = System.currentTimeMillis() << SEQUENCE_BITS;
+        while (true) {
+            long previous = last.get();
+            long next = Math.max(candidate, previous + 1);
+            if (last.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Records an existing ID so that generated IDs never repeat it.
+     * IDs with a different prefix or a non-numeric suffix are ignored.
+     *
+     * @param id The existing ID.
+     */
+    public void observe(String id) {
+        if (id == null || !id.startsWith(prefix)) {
+            return;
+        }
+        try {
+            long number = Long.parseLong(id.substring(prefix.length()));
+            last.accumulateAndGet(number, Math::max);
+        } catch (NumberFormatException e) {
+            // Not a generated ID, so it cannot collide with one
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package utils;
+
+/**
+ * Interface for records that can be stored in a journaled data file.
+ * The key identifies the record when journal entries are replayed on top
+ * of the last snapshot, so it must stay the same for the lifetime of the record.
+ */
+public interface Keyed {
+
+    /**
+     * Gets the key that uniquely identifies this record within its data file.
+     *
+     * @return The record key.
+     */
+    String getKey();
+}
@@ -0,0 +1,193 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Operational metrics of the hospital management system.
+ * Every menu action and every data file operation records its latency in a
+ * {@link LatencyHistogram} under its name, and counters keep totals such as
+ * the bytes read and written. Menu actions are timed without the time spent
+ * waiting for the user to type, so their latency is the time the system itself
+ * took. The metrics can be shown with {@link #report()} and are written to a
+ * file periodically once {@link #startDumping} has been called.
+ */
+public class Metrics {
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final ThreadLocal<long[]> INPUT_WAIT = ThreadLocal.withInitial(() -> new long[1]);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static ScheduledExecutorService dumper;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private Metrics() {
+    }
+
+    /**
+     * Gets the latency histogram of an operation, creating it on first use.
+     *
+     * @param name The name of the operation.
+     * @return The histogram.
+     */
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Records the latency of an operation.
+     *
+     * @param name  The name of the operation.
+     * @param nanos The latency in nanoseconds.
+     */
+    public static void record(String name, long nanos) {
+        histogram(name).record(nanos);
+    }
+
+    /**
+     * Records the latency of an operation that started at the given time.
+     *
+     * @param name  The name of the operation.
+     * @param start The start time from {@link System#nanoTime()}.
+     */
+    public static void recordSince(String name, long start) {
+        histogram(name).record(System.nanoTime() - start);
+    }
+
+    /**
+     * Adds to a counter, creating it on first use.
+     *
+     * @param name  The name of the counter.
+     * @param delta The amount to add.
+     */
+    public static void count(String name, long delta) {
+        COUNTERS.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Runs a menu action and records its latency, not counting the time the
+     * current thread spent waiting for user input during the action.
+     *
+     * @param name   The name of the action (e.g., "patient.scheduleAppointment").
+     * @param action The action to run.
+     */
+    public static void timeAction(String name, Runnable action) {
+        long[] inputWait = INPUT_WAIT.get();
+        long waitedBefore = inputWait[0];
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            record(name, System.nanoTime() - start - (inputWait[0] - waitedBefore));
+        }
+    }
+
+    /**
+     * Adds time the current thread spent waiting for user input, to be left out of action latencies.
+     *
+     * @param nanos The time spent waiting in nanoseconds.
+     */
+    public static void addInputWait(long nanos) {
+        INPUT_WAIT.get()[0] += nanos;
+    }
+
+    /**
+     * Formats all metrics as a table: the count, p50, p99 and maximum latency of
+     * every operation, followed by the value of every counter.
+     *
+     * @return The report.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-40s %8s %10s %10s %10s%n", "Operation", "Count", "p50", "p99", "Max"));
+        for (Map.Entry<String, LatencyHistogram> entry : HISTOGRAMS.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            report.append(String.format("%-40s %8d %10s %10s %10s%n", entry.getKey(), histogram.getCount(),
+                    formatNanos(histogram.getValueAtPercentile(50)),
+                    formatNanos(histogram.getValueAtPercentile(99)),
+                    formatNanos(histogram.getMax())));
+        }
+        if (!COUNTERS.isEmpty()) {
+            report.append(String.format("%n%-40s %8s%n", "Counter", "Value"));
+            for (Map.Entry<String, LongAdder> entry : COUNTERS.entrySet()) {
+                report.append(String.format("%-40s %8d%n", entry.getKey(), entry.getValue().sum()));
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Starts writing the report to a file at a fixed interval, and once more when the program exits.
+     * The file is replaced atomically, so readers never see a half-written report.
+     * Calling this again has no effect.
+     *
+     * @param file          The file to write.
+     * @param periodSeconds The interval in seconds, or 0 to write only when the program exits.
+     */
+    public static synchronized void startDumping(Path file, long periodSeconds) {
+        if (dumper != null) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (periodSeconds > 0) {
+            dumper.scheduleAtFixedRate(() -> dump(file), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(file), "metrics-final-dump"));
+    }
+
+    /**
+     * Writes the report to a file, with the time it was taken.
+     *
+     * @param file The file to write.
+     */
+    private static void dump(Path file) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(temp, ("Metrics at " + LocalDateTime.now().format(FORMATTER) + System.lineSeparator()
+                    + report()).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.out.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Formats a latency with a readable unit.
+     *
+     * @param nanos The latency in nanoseconds.
+     * @return The formatted latency.
+     */
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000_000L) {
+            return String.format("%.2f s", nanos / 1e9);
+        }
+        if (nanos >= 1_000_000) {
+            return String.format("%.2f ms", nanos / 1e6);
+        }
+        if (nanos >= 1_000) {
+            return String.format("%.1f us", nanos / 1e3);
+        }
+        return nanos + " ns";
+    }
+}
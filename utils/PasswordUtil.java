@@ -11,6 +11,8 @@ import java.security.SecureRandom;
  * and hexadecimal strings for secure password storage.
  */
 public class PasswordUtil {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
     /**
      * Generates a random salt using SecureRandom.
@@ -19,9 +21,8 @@ public class PasswordUtil {
      * @return A hexadecimal string representing the salt.
      */
     public static String getSalt() {
-        SecureRandom sr = new SecureRandom();
         byte[] salt = new byte[16];
-        sr.nextBytes(salt);
+        RANDOM.nextBytes(salt);
         return bytesToHex(salt);
     }
 
@@ -37,9 +38,12 @@ public class PasswordUtil {
      */
     public static String hashPassword(String password, String salt) {
         try {
+            FlightEvents.PasswordHash event = new FlightEvents.PasswordHash();
+            event.begin();
             MessageDigest md = MessageDigest.getInstance("SHA-256");
             md.update(hexStringToByteArray(salt));
             byte[] hashedPassword = md.digest(password.getBytes());
+            event.commit();
             return bytesToHex(hashedPassword);
         } catch (NoSuchAlgorithmException e) {
             e.printStackTrace();
@@ -54,11 +58,12 @@ public class PasswordUtil {
      * @return A hexadecimal string representation of the byte array.
      */
     private static String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte temp : bytes) {
-            result.append(String.format("%02x", temp));
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            result[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
         }
-        return result.toString();
+        return new String(result);
     }
 
     /**
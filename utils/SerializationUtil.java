@@ -3,29 +3,89 @@
 package utils;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for object serialization and deserialization.
+ * Data files are written in the compact {@link BinaryCodec} format when
+ * {@link Config#BINARY_FORMAT} is set and every record supports it, and
+ * with Java serialization otherwise. Files are recognised by their first
+ * bytes when read, so files in either format can be loaded.
+ * Data files are stored as a snapshot plus an append-only journal. Whole
+ * collections are written as a snapshot with {@link #serialize}, while single
+ * record changes are appended to the journal with {@link #append} and
+ * {@link #appendRemoval}. The journal is replayed on top of the snapshot
+ * when the file is deserialized.
+ * Snapshots are written to a temporary file that is flushed and then renamed over
+ * the old file, so a crash leaves either the old or the new snapshot, never a torn one.
+ * Journal entries go through a {@link GroupCommitLog}, so saves made at the same
+ * time share one flush. How much is flushed is set by {@link Config#DURABILITY}.
+ * Every call records its latency and the bytes it reads or writes in {@link Metrics},
+ * and loading and saving files are reported as {@link FlightEvents} for flight recordings.
  */
 public class SerializationUtil {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final Map<String, GroupCommitLog> JOURNALS = new ConcurrentHashMap<>();
 
     /**
      * Serializes an object to a file in the database directory.
+     * This writes a new snapshot and clears the file's journal. The snapshot is
+     * written to "&lt;fileName&gt;.tmp" and atomically renamed over the file.
      *
      * @param obj      The object to serialize.
      * @param fileName The name of the file to serialize to (without path).
      * @throws IOException If an I/O error occurs.
      */
     public static void serialize(Object obj, String fileName) throws IOException {
-        String filePath = Config.DATABASE_DIR + fileName;
-        try (FileOutputStream fileOut = new FileOutputStream(filePath);
-                ObjectOutputStream out = new ObjectOutputStream(fileOut)) {
-            out.writeObject(obj);
+        long start = System.nanoTime();
+        FlightEvents.FileSave event = new FlightEvents.FileSave();
+        event.begin();
+        Path target = Paths.get(Config.DATABASE_DIR + fileName);
+        Path temp = Paths.get(Config.DATABASE_DIR + fileName + ".tmp");
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(temp.toFile());
+                 OutputStream out = new BufferedOutputStream(fileOut, BUFFER_SIZE)) {
+                writeObject(obj, out);
+                out.flush();
+                if (Config.DURABILITY != Config.Durability.NONE) {
+                    fileOut.getFD().sync();
+                }
+                event.bytes = fileOut.getChannel().size();
+                Metrics.count("io.bytesWritten", event.bytes);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (Config.DURABILITY != Config.Durability.NONE) {
+                syncDirectory(target.getParent());
+            }
+            journal(fileName).clear();
+        } finally {
+            Metrics.recordSince("io.serialize", start);
+            if (event.shouldCommit()) {
+                event.fileName = fileName;
+                event.commit();
+            }
         }
     }
 
     /**
      * Deserializes an object from a file in the database directory.
+     * Any journal entries are replayed on top of the snapshot. If the journal
+     * has grown larger than the snapshot, the result is written back as a new snapshot.
      *
      * @param fileName The name of the file to deserialize from (without path).
      * @return The deserialized object.
@@ -33,12 +93,299 @@ public class SerializationUtil {
      * @throws ClassNotFoundException If the class is not found.
      */
     public static Object deserialize(String fileName) throws IOException, ClassNotFoundException {
-        String filePath = Config.DATABASE_DIR + fileName;
-        Object obj;
-        try (FileInputStream fileIn = new FileInputStream(filePath);
-                ObjectInputStream in = new ObjectInputStream(fileIn)) {
-            obj = in.readObject();
+        long start = System.nanoTime();
+        FlightEvents.FileLoad event = new FlightEvents.FileLoad();
+        event.begin();
+        try {
+            String filePath = Config.DATABASE_DIR + fileName;
+            Object obj;
+            try (InputStream fileIn = new BufferedInputStream(new FileInputStream(filePath), BUFFER_SIZE)) {
+                obj = readObject(fileIn);
+            }
+            event.bytes = new File(filePath).length();
+
+            File journal = new File(journalPath(fileName));
+            if (journal.length() > 0) {
+                obj = replayJournal(obj, journal);
+                event.bytes += journal.length();
+                if (journal.length() > new File(filePath).length()) {
+                    serialize(obj, fileName);
+                }
+            }
+            return obj;
+        } finally {
+            Metrics.recordSince("io.deserialize", start);
+            Metrics.count("io.bytesRead", event.bytes);
+            if (event.shouldCommit()) {
+                event.fileName = fileName;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Appends a record to the journal of a data file.
+     * The record replaces any existing record with the same key when the file is next loaded.
+     *
+     * @param fileName The name of the data file the record belongs to (without path).
+     * @param record   The record to save.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void append(String fileName, Keyed record) throws IOException {
+        long start = System.nanoTime();
+        try {
+            enqueue(fileName, record).await();
+        } finally {
+            Metrics.recordSince("io.append", start);
+        }
+    }
+
+    /**
+     * Appends a removal to the journal of a data file.
+     * The record with the given key is dropped when the file is next loaded.
+     *
+     * @param fileName The name of the data file the record belongs to (without path).
+     * @param key      The key of the record to remove.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void appendRemoval(String fileName, String key) throws IOException {
+        long start = System.nanoTime();
+        try {
+            enqueueRemoval(fileName, key).await();
+        } finally {
+            Metrics.recordSince("io.appendRemoval", start);
+        }
+    }
+
+    /**
+     * Queues a record to be appended to the journal of a data file.
+     * Entries are written in the order they are queued. The record is only
+     * durable once the returned commit has been awaited, which can be done
+     * after releasing any locks so that concurrent saves share one flush.
+     *
+     * @param fileName The name of the data file the record belongs to (without path).
+     * @param record   The record to save.
+     * @return The commit to await.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static GroupCommitLog.Commit enqueue(String fileName, Keyed record) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return writeJournalEntry(fileName, new JournalEntry(record.getKey(), record));
+        } finally {
+            Metrics.recordSince("io.enqueue", start);
+        }
+    }
+
+    /**
+     * Queues a removal to be appended to the journal of a data file.
+     *
+     * @param fileName The name of the data file the record belongs to (without path).
+     * @param key      The key of the record to remove.
+     * @return The commit to await.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static GroupCommitLog.Commit enqueueRemoval(String fileName, String key) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return writeJournalEntry(fileName, new JournalEntry(key, null));
+        } finally {
+            Metrics.recordSince("io.enqueueRemoval", start);
+        }
+    }
+
+    /**
+     * Flushes a directory so that files created or renamed in it survive a crash.
+     * Some platforms cannot open directories, in which case this does nothing.
+     *
+     * @param directory The directory to flush.
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on this platform (e.g. Windows); the rename is still atomic
+        }
+    }
+
+    /**
+     * Queues a single length-prefixed entry to be written to the end of a journal file.
+     *
+     * @param fileName The name of the data file the entry belongs to.
+     * @param entry    The journal entry to write.
+     * @return The commit to await.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static GroupCommitLog.Commit writeJournalEntry(String fileName, JournalEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (Config.BINARY_FORMAT && BinaryCodec.canEncode(entry.value)) {
+            BinaryCodec.Output out = new BinaryCodec.Output(bytes);
+            out.writeInt(BinaryCodec.MAGIC);
+            out.writeByte(BinaryCodec.FORMAT_VERSION);
+            BinaryCodec.writeString(out, entry.key);
+            BinaryCodec.writeValue(out, entry.value);
+        } else {
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(entry);
+            }
+        }
+        ByteArrayOutputStream framed = new ByteArrayOutputStream(bytes.size() + 4);
+        DataOutputStream out = new DataOutputStream(framed);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+        Metrics.count("io.bytesWritten", framed.size());
+        return journal(fileName).append(framed.toByteArray());
+    }
+
+    /**
+     * Gets the log that appends to the journal of a data file.
+     *
+     * @param fileName The name of the data file (without path).
+     * @return The journal's log.
+     */
+    private static GroupCommitLog journal(String fileName) {
+        return JOURNALS.computeIfAbsent(fileName,
+                name -> new GroupCommitLog(Paths.get(journalPath(name)), Config.DURABILITY, null));
+    }
+
+    /**
+     * Replays journal entries on top of a snapshot.
+     * Map snapshots are updated by key. List snapshots must hold {@link Keyed}
+     * records and keep their order, with new records added at the end.
+     * A truncated entry at the end of the journal (from an interrupted write) is ignored.
+     *
+     * @param snapshot The object read from the snapshot file.
+     * @param journal  The journal file to replay.
+     * @return The snapshot with all journal entries applied.
+     * @throws IOException            If an I/O error occurs.
+     * @throws ClassNotFoundException If the class of a record is not found.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object replayJournal(Object snapshot, File journal) throws IOException, ClassNotFoundException {
+        Map<Object, Object> records;
+        if (snapshot instanceof Map) {
+            records = (Map<Object, Object>) snapshot;
+        } else if (snapshot instanceof List) {
+            records = new LinkedHashMap<>();
+            for (Object record : (List<Object>) snapshot) {
+                records.put(((Keyed) record).getKey(), record);
+            }
+        } else {
+            throw new IOException("Journal cannot be applied to " + snapshot.getClass().getName());
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)))) {
+            while (true) {
+                byte[] data;
+                try {
+                    int length = in.readInt();
+                    if (length < 0 || length > journal.length()) {
+                        break;
+                    }
+                    data = new byte[length];
+                    in.readFully(data);
+                } catch (EOFException e) {
+                    break;
+                }
+                JournalEntry entry = readJournalEntry(data);
+                if (entry.value == null) {
+                    records.remove(entry.key);
+                } else {
+                    records.put(entry.key, entry.value);
+                }
+            }
+        }
+
+        if (snapshot instanceof Map) {
+            return records;
+        }
+        return new ArrayList<>(records.values());
+    }
+
+    /**
+     * Decodes a journal entry written in either format.
+     *
+     * @param data The bytes of the entry.
+     * @return The journal entry.
+     * @throws IOException            If an I/O error occurs.
+     * @throws ClassNotFoundException If the class of a record is not found.
+     */
+    private static JournalEntry readJournalEntry(byte[] data) throws IOException, ClassNotFoundException {
+        BinaryCodec.Input in = new BinaryCodec.Input(new ByteArrayInputStream(data));
+        if (data.length >= 4 && in.readInt() == BinaryCodec.MAGIC) {
+            BinaryCodec.readVersion(in, "journal entry", BinaryCodec.FORMAT_VERSION);
+            String key = BinaryCodec.readString(in);
+            return new JournalEntry(key, BinaryCodec.readValue(in));
+        }
+        try (ObjectInputStream entryIn = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (JournalEntry) entryIn.readObject();
+        }
+    }
+
+    /**
+     * Writes an object in the binary format if possible, or with Java serialization otherwise.
+     *
+     * @param obj The object to write.
+     * @param out The stream to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static void writeObject(Object obj, OutputStream out) throws IOException {
+        if (Config.BINARY_FORMAT && BinaryCodec.canEncode(obj)) {
+            BinaryCodec.Output dataOut = new BinaryCodec.Output(out);
+            BinaryCodec.writeFile(dataOut, obj);
+            dataOut.flush();
+        } else {
+            ObjectOutputStream objectOut = new ObjectOutputStream(out);
+            objectOut.writeObject(obj);
+            objectOut.flush();
+        }
+    }
+
+    /**
+     * Reads an object written in either format, telling them apart by the first bytes.
+     *
+     * @param in The stream to read from, which must support mark and reset.
+     * @return The object.
+     * @throws IOException            If an I/O error occurs.
+     * @throws ClassNotFoundException If the class of a serialized object is not found.
+     */
+    private static Object readObject(InputStream in) throws IOException, ClassNotFoundException {
+        in.mark(4);
+        BinaryCodec.Input dataIn = new BinaryCodec.Input(in);
+        int magic;
+        try {
+            magic = dataIn.readInt();
+        } catch (EOFException e) {
+            magic = 0;
+        }
+        if (magic == BinaryCodec.MAGIC) {
+            return BinaryCodec.readFile(dataIn);
+        }
+        in.reset();
+        return new ObjectInputStream(in).readObject();
+    }
+
+    /**
+     * Gets the path of the journal file that belongs to a data file.
+     *
+     * @param fileName The name of the data file (without path).
+     * @return The full path of the journal file.
+     */
+    private static String journalPath(String fileName) {
+        return Config.DATABASE_DIR + fileName.replaceFirst("\\.ser$", "") + ".log";
+    }
+
+    /**
+     * A single journal entry. A null value marks the removal of the keyed record.
+     */
+    private static class JournalEntry implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String key;
+        private final Object value;
+
+        JournalEntry(String key, Object value) {
+            this.key = key;
+            this.value = value;
         }
-        return obj;
     }
-}
\ No newline at end of file
+}
@@ -19,7 +19,7 @@ public class AdminView {
      * This menu allows the admin to select options to manage staff, appointments, inventory, doctor schedules, or log out.
      */
     public AdminView() {
-        scanner = new Scanner(System.in);
+        scanner = SessionIO.getScanner();
     }
 
     /**
@@ -31,7 +31,19 @@ public class AdminView {
         System.out.println("2. View Appointment Details");
         System.out.println("3. Manage Medication Inventory & Approve Replenishment Requests");
         System.out.println("4. View Doctor Schedules"); // New Option
-        System.out.println("5. Logout"); // Updated Option Number
+        System.out.println("5. View System Metrics");
+        System.out.println("6. Auto-Schedule Appointment Requests");
+        System.out.println("7. Logout"); // Updated Option Number
+    }
+
+    /**
+     * Displays the system metrics report: the latency of each menu action and data file operation, and the counters.
+     *
+     * @param report The formatted metrics report.
+     */
+    public void displayMetrics(String report) {
+        System.out.println("\n--- System Metrics ---");
+        System.out.print(report);
     }
 
     /**
@@ -259,6 +271,16 @@ public class AdminView {
         return scanner.nextLine().trim();
     }
 
+    /**
+     * Gets the specialty input for a new doctor from the user.
+     *
+     * @return The specialty as a string, or an empty string to use the default specialty.
+     */
+    public String getSpecialtyInput() {
+        System.out.print("Enter Specialty (leave blank for General Practice): ");
+        return scanner.nextLine().trim();
+    }
+
     /**
      * Gets the medication name input from the user.
      *
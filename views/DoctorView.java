@@ -7,6 +7,7 @@ import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
 import models.Appointment;
+import models.AppointmentSeries;
 import models.MedicalRecord;
 
 /**
@@ -19,7 +20,7 @@ public class DoctorView {
      * Constructs a DoctorView object.
      */
     public DoctorView() {
-        scanner = new Scanner(System.in);
+        scanner = SessionIO.getScanner();
     }
 
     /**
@@ -163,18 +164,20 @@ public class DoctorView {
         String action ="";
         boolean valid = false;
         while (!valid){
-            System.out.print("Enter 'A' to add availability or 'U' to update availability: ");
+            System.out.println("Enter 'A' to add 7 more bookable days, 'U' to block a time slot,");
+            System.out.print("'L' to take leave on a date, 'C' to add an extra clinic on a date or 'W' to set clinic days: ");
             try{
             action = scanner.nextLine();
-            if (action.equalsIgnoreCase("A") || action.equalsIgnoreCase("U")){
+            if (action.equalsIgnoreCase("A") || action.equalsIgnoreCase("U") || action.equalsIgnoreCase("L")
+                    || action.equalsIgnoreCase("C") || action.equalsIgnoreCase("W")){
                 valid = true;
             }
             else{
-                System.out.println("Invalid input. Please enter 'A' or 'U'.");
+                System.out.println("Invalid input. Please enter 'A', 'U', 'L', 'C' or 'W'.");
             }
         }
         catch (InputMismatchException e){
-            System.out.println("Invalid input. Please enter 'A' or 'U'.");
+            System.out.println("Invalid input. Please enter 'A', 'U', 'L', 'C' or 'W'.");
             scanner.nextLine();
         }
         }
@@ -182,6 +185,26 @@ public class DoctorView {
         return action;
     }
 
+    /**
+     * Gets a date from the user.
+     *
+     * @return The date entered, in the format YYYY-MM-DD.
+     */
+    public String getDateInput() {
+        System.out.print("Enter Date (YYYY-MM-DD): ");
+        return scanner.nextLine();
+    }
+
+    /**
+     * Gets the days of the week on which the doctor holds clinics.
+     *
+     * @return The days entered, separated by spaces.
+     */
+    public String getClinicDaysInput() {
+        System.out.print("Enter clinic days of the week (e.g. MON TUE WED THU FRI): ");
+        return scanner.nextLine();
+    }
+
     /**
      * Displays appointment requests for the doctor.
      *
@@ -190,7 +213,8 @@ public class DoctorView {
     public void displayAppointmentRequests(Appointment appt, String patientName) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
         String dateTimeStr = appt.getDateTime().format(formatter);
-        System.out.println("Appointment ID: " + appt.getAppointmentID() + " | Patient Name: " + patientName + " | Date and Time: " + dateTimeStr);
+        System.out.println("Appointment ID: " + appt.getAppointmentID() + " | Patient Name: " + patientName + " | Date and Time: " + dateTimeStr
+                + " | Length: " + appt.getDurationMinutes() + " minutes");
     }
 
     /**
@@ -204,7 +228,25 @@ public class DoctorView {
         for (Appointment appt : appointments) {
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
             String dateTimeStr = appt.getDateTime().format(formatter);
-            System.out.println("Appointment ID: " + appt.getAppointmentID() + " | Patient Name: " + appt.getPatientID() + " | Date and Time: " + dateTimeStr);
+            System.out.println("Appointment ID: " + appt.getAppointmentID() + " | Patient Name: " + appt.getPatientID() + " | Date and Time: " + dateTimeStr
+                    + " | Length: " + appt.getDurationMinutes() + " minutes");
+        }
+    }
+
+    /**
+     * Displays the recurring appointment series waiting for the doctor's decision, if any.
+     *
+     * @param series The pending series.
+     */
+    public void displaySeriesRequests(List<AppointmentSeries> series) {
+        if (series.isEmpty()) {
+            return;
+        }
+        System.out.println("\nPending Appointment Series:");
+        for (AppointmentSeries request : series) {
+            System.out.println("Series ID: " + request.getSeriesID() + " | Patient Name: " + request.getPatientID()
+                    + " | " + request.getFrequency() + " from " + request.getOccurrence(0).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))
+                    + " | Appointments: " + request.getHeldCount());
         }
     }
 
@@ -218,6 +260,16 @@ public class DoctorView {
         return scanner.nextLine();
     }
 
+    /**
+     * Gets the IDs of the appointment requests to decide on.
+     *
+     * @return Appointment and series IDs separated by commas or spaces, or "ALL".
+     */
+    public String getAppointmentIDsInput() {
+        System.out.print("Enter Appointment or Series ID(s), separated by commas, or ALL: ");
+        return scanner.nextLine();
+    }
+
     /**
      * Gets the decision input from the user (accept/decline).
      *
@@ -257,14 +309,24 @@ public class DoctorView {
 
     // Display list of available medications
     public int getMedications(List<String> medications) {
-        System.out.println("\nMedication Inventory:");
+        System.out.println("\nMatching Medications:");
         for (int i = 0; i < medications.size(); i++) {
             System.out.println((i+1) + ") " + medications.get(i));
         }
-        System.out.print("Enter the index of the medication [0 to exit]: ");
+        System.out.print("Enter the index of the medication [0 to search again]: ");
         return Integer.parseInt(scanner.nextLine());
     }
 
+    /**
+     * Gets the name, or the first letters of the name, of a medication to prescribe.
+     *
+     * @return The entered text.
+     */
+    public String getMedicationSearchInput() {
+        System.out.print("\nEnter medication name or its first letters [0 to finish]: ");
+        return scanner.nextLine();
+    }
+
     /**
      * Gets the quantity of the medication.
      *
@@ -14,7 +14,7 @@ public class LoginView {
      * Constructs a LoginView object.
      */
     public LoginView() {
-        scanner = new Scanner(System.in);
+        scanner = SessionIO.getScanner();
     }
 
     /**
@@ -3,7 +3,11 @@ package views;
 import models.MedicalRecord;
 import models.Appointment;
 import models.AppointmentOutcome;
+import models.AppointmentRequest;
+import models.AppointmentSeries;
+import models.WaitlistEntry;
 
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Scanner;
@@ -18,7 +22,7 @@ public class PatientView {
      * Constructs a PatientView object.
      */
     public PatientView() {
-        scanner = new Scanner(System.in);
+        scanner = SessionIO.getScanner();
     }
 
     /**
@@ -34,7 +38,8 @@ public class PatientView {
         System.out.println("6. Cancel an Appointment");
         System.out.println("7. View Scheduled Appointments");
         System.out.println("8. View Past Appointment Outcome Records");
-        System.out.println("9. Logout");
+        System.out.println("9. Join or Leave the Waitlist");
+        System.out.println("10. Logout");
     }
 
     /**
@@ -100,6 +105,31 @@ public class PatientView {
         }
     }
 
+    /**
+     * Displays the periods of a date in which a doctor can still see patients
+     * for appointments of any length.
+     *
+     * @param date    The date.
+     * @param periods The free periods, formatted as "HH:mm-HH:mm".
+     */
+    public void displayFreePeriods(LocalDate date, List<String> periods) {
+        if (periods.isEmpty()) {
+            System.out.println("The doctor has no free time on " + date + ".");
+            return;
+        }
+        System.out.println("Free time with the doctor on " + date + ": " + String.join(", ", periods));
+    }
+
+    /**
+     * Gets the specialty to search for available slots.
+     *
+     * @return The specialty, or an empty string to search all doctors.
+     */
+    public String getSpecialtyInput() {
+        System.out.print("Enter specialty to search (leave blank for any doctor): ");
+        return scanner.nextLine().trim();
+    }
+
     /**
      * Gets the doctor ID input from the user.
      *
@@ -110,6 +140,46 @@ public class PatientView {
         return scanner.nextLine();
     }
 
+    /**
+     * Gets the ID of the doctor to book with when scheduling an appointment.
+     *
+     * @return The doctor ID, or an empty string to have a doctor assigned.
+     */
+    public String getBookingDoctorInput() {
+        System.out.print("Enter Doctor ID (leave blank to have a doctor assigned): ");
+        return scanner.nextLine();
+    }
+
+    /**
+     * Gets the appointment date and time when scheduling an appointment.
+     *
+     * @return The date and time, or an empty string to have a time assigned.
+     */
+    public String getBookingDateTimeInput() {
+        System.out.print("Enter Appointment Date and Time (YYYY-MM-DD HH:MM, leave blank to have a time assigned): ");
+        return scanner.nextLine();
+    }
+
+    /**
+     * Gets the earliest date for an appointment to be assigned.
+     *
+     * @return The date entered.
+     */
+    public String getEarliestDateInput() {
+        System.out.print("Enter the earliest date for the appointment (YYYY-MM-DD): ");
+        return scanner.nextLine();
+    }
+
+    /**
+     * Gets the latest date for an appointment to be assigned.
+     *
+     * @return The date entered.
+     */
+    public String getLatestDateInput() {
+        System.out.print("Enter the latest date for the appointment (YYYY-MM-DD): ");
+        return scanner.nextLine();
+    }
+
     /**
      * Gets the appointment date and time input from the user.
      *
@@ -119,6 +189,37 @@ public class PatientView {
         System.out.print("Enter Appointment Date and Time (YYYY-MM-DD HH:MM): ");
         return scanner.nextLine();
     }
+    /**
+     * Gets whether the appointment repeats.
+     *
+     * @return "D" for daily, "W" for weekly, or anything else for a single appointment.
+     */
+    public String getRepeatInput() {
+        System.out.print("Repeat the appointment? Enter 'D' for daily, 'W' for weekly, or anything else for a single appointment: ");
+        return scanner.nextLine().trim();
+    }
+
+    /**
+     * Gets the length of a single appointment.
+     *
+     * @return The length in minutes, or an empty string for a standard one-hour appointment.
+     */
+    public String getDurationInput() {
+        System.out.print("Enter the appointment length in minutes (a multiple of 15, leave blank for 60): ");
+        return scanner.nextLine();
+    }
+
+    /**
+     * Gets the number of appointments in a recurring series.
+     *
+     * @param max The largest number allowed.
+     * @return The number of appointments.
+     */
+    public int getOccurrenceCountInput(int max) {
+        System.out.print("Enter the number of appointments in the series (2-" + max + "): ");
+        return Integer.parseInt(scanner.nextLine().trim());
+    }
+
     /**
      * Prompts the user to enter the appointment ID and returns the input.
      * 
@@ -150,6 +251,7 @@ public class PatientView {
             String dateTime = appt.getDateTime().format(formatter);
             System.out.println("Appointment ID: " + appt.getAppointmentID() + 
                            ", Date and Time: " + dateTime + 
+                           ", Length: " + appt.getDurationMinutes() + " minutes" +
                            ", Status: " + appt.getStatus() +
                            ", Doctor Name: " + appt.getDoctorName());  // Added doctorName to the output
         // Display other details if needed
@@ -158,6 +260,38 @@ public class PatientView {
         }
     }
 
+    /**
+     * Displays the patient's recurring appointment series, if any.
+     * Single appointments of a series can be canceled by their occurrence ID,
+     * the series ID followed by a dash and the appointment number.
+     *
+     * @param series The series.
+     */
+    public void displaySeries(List<AppointmentSeries> series) {
+        if (series.isEmpty()) {
+            return;
+        }
+        System.out.println("\nAppointment Series (cancel one appointment with <Series ID>-<number>):");
+        for (AppointmentSeries entry : series) {
+            System.out.println(entry);
+        }
+    }
+
+    /**
+     * Displays the patient's requests waiting to be assigned an appointment, if any.
+     *
+     * @param requests The requests.
+     */
+    public void displayRequests(List<AppointmentRequest> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        System.out.println("\nAppointment Requests Waiting for Assignment:");
+        for (AppointmentRequest request : requests) {
+            System.out.println(request);
+        }
+    }
+
     /**
      * Displays the list of past appointment outcome records.
      *
@@ -173,4 +307,49 @@ public class PatientView {
             System.out.println();
         }
     }
+
+    /**
+     * Displays the patient's waitlist entries.
+     *
+     * @param entries The waitlist entries.
+     */
+    public void displayWaitlistEntries(List<WaitlistEntry> entries) {
+        System.out.println("\nYour Waitlist Entries:");
+        if (entries.isEmpty()) {
+            System.out.println("You are not on any waitlist.");
+        }
+        for (WaitlistEntry entry : entries) {
+            System.out.println(entry);
+        }
+    }
+
+    /**
+     * Gets the waitlist action from the user.
+     *
+     * @return "J" to join a waitlist, "L" to leave one, or anything else to go back.
+     */
+    public String getWaitlistAction() {
+        System.out.print("Enter 'J' to join a waitlist, 'L' to leave one, or anything else to go back: ");
+        return scanner.nextLine().trim();
+    }
+
+    /**
+     * Gets the ID of the doctor to wait for.
+     *
+     * @return The doctor's ID, or an empty string for any doctor.
+     */
+    public String getWaitlistDoctorInput() {
+        System.out.print("Enter Doctor ID to wait for (leave blank for any doctor): ");
+        return scanner.nextLine();
+    }
+
+    /**
+     * Gets the ID of the waitlist entry to leave.
+     *
+     * @return The waitlist entry ID.
+     */
+    public String getWaitlistEntryIDInput() {
+        System.out.print("Enter the Waitlist Entry ID to leave: ");
+        return scanner.nextLine().trim();
+    }
 }
@@ -19,7 +19,7 @@ public class PharmacistView {
      * Initializes the scanner for user input.
      */
     public PharmacistView() {
-        scanner = new Scanner(System.in);
+        scanner = SessionIO.getScanner();
     }
 
     /**
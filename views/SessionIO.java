@@ -0,0 +1,356 @@
+package views;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Scanner;
+import utils.Metrics;
+
+/**
+ * Console input and output of the current user session.
+ * When the application runs in a terminal there is a single session on
+ * {@code System.in} and {@code System.out}. In server mode each connection
+ * runs on its own thread with its own input and output, which are bound to
+ * that thread with {@link #open}. Views read through {@link #getScanner()},
+ * and once {@link #routeSystemOut()} has been called, everything printed to
+ * {@code System.out} goes to the output of the session on the current thread.
+ * Time spent waiting for input is reported to {@link Metrics}, so that the
+ * latency of a menu action does not include the time the user takes to type.
+ */
+public class SessionIO {
+    private static final ThreadLocal<Session> SESSION = new ThreadLocal<>();
+    private static Scanner consoleScanner;
+    private static PrintStream consoleOut = System.out;
+
+    /**
+     * The input and output of one session.
+     */
+    private static class Session {
+        private final Scanner scanner;
+        private final PrintStream out;
+
+        /**
+         * Constructs a session.
+         *
+         * @param scanner The scanner over the session's input.
+         * @param out     The session's output.
+         */
+        Session(Scanner scanner, PrintStream out) {
+            this.scanner = scanner;
+            this.out = out;
+        }
+    }
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private SessionIO() {
+    }
+
+    /**
+     * Binds a session's input and output to the current thread.
+     *
+     * @param in  The session's input.
+     * @param out The session's output.
+     */
+    public static void open(InputStream in, OutputStream out) {
+        SESSION.set(new Session(new Scanner(new InputWaitStream(in), StandardCharsets.UTF_8),
+                new PrintStream(out, true, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Unbinds the session from the current thread and flushes its output.
+     */
+    public static void close() {
+        Session session = SESSION.get();
+        if (session != null) {
+            session.out.flush();
+            SESSION.remove();
+        }
+    }
+
+    /**
+     * Checks whether the current thread is serving a remote session.
+     *
+     * @return true if a session is bound to the current thread, false for the terminal session.
+     */
+    public static boolean isRemote() {
+        return SESSION.get() != null;
+    }
+
+    /**
+     * Gets the scanner that reads the current session's input.
+     * All views of a session share one scanner, so input read ahead by one view is not lost to the next.
+     *
+     * @return The session's scanner, or the scanner over {@code System.in} for the terminal session.
+     */
+    public static Scanner getScanner() {
+        Session session = SESSION.get();
+        if (session != null) {
+            return session.scanner;
+        }
+        synchronized (SessionIO.class) {
+            if (consoleScanner == null) {
+                consoleScanner = new Scanner(new InputWaitStream(System.in));
+            }
+            return consoleScanner;
+        }
+    }
+
+    /**
+     * Gets the output of the current session.
+     *
+     * @return The session's output, or the original {@code System.out} for the terminal session.
+     */
+    public static PrintStream out() {
+        Session session = SESSION.get();
+        return session != null ? session.out : consoleOut;
+    }
+
+    /**
+     * Ends the current session after the user logs out.
+     * The terminal session ends the program, while a remote session simply returns
+     * so that its thread can close the connection.
+     *
+     * @param status The exit status for the terminal session.
+     */
+    public static void end(int status) {
+        if (!isRemote()) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Replaces {@code System.out} with a stream that writes to the output of the
+     * session on the current thread, or to the original {@code System.out} when
+     * no session is bound.
+     */
+    public static synchronized void routeSystemOut() {
+        if (System.out instanceof RoutingPrintStream) {
+            return;
+        }
+        consoleOut = System.out;
+        System.setOut(new RoutingPrintStream());
+    }
+
+    /**
+     * Input stream that reports the time spent blocked in each read as time waiting for input.
+     */
+    private static class InputWaitStream extends FilterInputStream {
+
+        /**
+         * Constructs the stream.
+         *
+         * @param in The session's input.
+         */
+        InputWaitStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                Metrics.addInputWait(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read(b, off, len);
+            } finally {
+                Metrics.addInputWait(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Print stream that forwards every call to the current session's output.
+     * Every method is forwarded, rather than only the byte-level writes, so that
+     * sessions never wait on a lock shared with other sessions.
+     */
+    private static class RoutingPrintStream extends PrintStream {
+
+        /**
+         * Constructs the routing stream. The underlying stream is never written to.
+         */
+        RoutingPrintStream() {
+            super(OutputStream.nullOutputStream());
+        }
+
+        @Override
+        public void write(int b) {
+            out().write(b);
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            out().write(buf, off, len);
+        }
+
+        @Override
+        public void write(byte[] buf) {
+            out().write(buf, 0, buf.length);
+        }
+
+        @Override
+        public void flush() {
+            out().flush();
+        }
+
+        @Override
+        public void close() {
+            out().flush();
+        }
+
+        @Override
+        public boolean checkError() {
+            return out().checkError();
+        }
+
+        @Override
+        public void print(boolean b) {
+            out().print(b);
+        }
+
+        @Override
+        public void print(char c) {
+            out().print(c);
+        }
+
+        @Override
+        public void print(int i) {
+            out().print(i);
+        }
+
+        @Override
+        public void print(long l) {
+            out().print(l);
+        }
+
+        @Override
+        public void print(float f) {
+            out().print(f);
+        }
+
+        @Override
+        public void print(double d) {
+            out().print(d);
+        }
+
+        @Override
+        public void print(char[] s) {
+            out().print(s);
+        }
+
+        @Override
+        public void print(String s) {
+            out().print(s);
+        }
+
+        @Override
+        public void print(Object obj) {
+            out().print(obj);
+        }
+
+        @Override
+        public void println() {
+            out().println();
+        }
+
+        @Override
+        public void println(boolean x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(char x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(int x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(long x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(float x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(double x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(char[] x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(String x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(Object x) {
+            out().println(x);
+        }
+
+        @Override
+        public PrintStream printf(String format, Object... args) {
+            out().printf(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream printf(Locale l, String format, Object... args) {
+            out().printf(l, format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(String format, Object... args) {
+            out().format(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(Locale l, String format, Object... args) {
+            out().format(l, format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq) {
+            out().append(csq);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq, int start, int end) {
+            out().append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(char c) {
+            out().append(c);
+            return this;
+        }
+    }
+}